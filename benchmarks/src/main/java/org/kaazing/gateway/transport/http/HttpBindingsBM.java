@@ -0,0 +1,98 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http;
+
+import static org.kaazing.gateway.resource.address.ResourceAddressFactory.newResourceAddressFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import org.kaazing.gateway.resource.address.ResourceAddress;
+import org.kaazing.gateway.transport.Bindings.Binding;
+import org.kaazing.gateway.transport.IoHandlerAdapter;
+import org.kaazing.gateway.transport.http.HttpBindings.HttpBinding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of finding the binding for a request path on a host with a growing number of bound service paths,
+ * for requests to bound paths (as for WebSocket handshakes) and to paths below them (as for directory services).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpBindingsBM {
+
+    @Param({"10", "100", "1000"})
+    private int paths;
+
+    private HttpBinding httpBinding;
+    private String[] boundPaths;
+    private String[] subPaths;
+    private int index;
+
+    @Setup
+    public void init() {
+        ResourceAddress address = newResourceAddressFactory().newResourceAddress("http://localhost:8000/");
+        httpBinding = new HttpBinding(address);
+        boundPaths = new String[paths];
+        subPaths = new String[paths];
+        for (int i = 0; i < paths; i++) {
+            boundPaths[i] = String.format("/tenant%d/service%d", i % 10, i);
+            subPaths[i] = boundPaths[i] + "/static/js/application.js";
+            httpBinding.put(boundPaths[i], new Binding(address, new IoHandlerAdapter()));
+        }
+    }
+
+    @Benchmark
+    public Binding getBoundPath() {
+        return httpBinding.get(boundPaths[next()]);
+    }
+
+    @Benchmark
+    public Binding getSubPath() {
+        return httpBinding.get(subPaths[next()]);
+    }
+
+    private int next() {
+        int next = index;
+        index = (next + 1 == paths) ? 0 : next + 1;
+        return next;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(HttpBindingsBM.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
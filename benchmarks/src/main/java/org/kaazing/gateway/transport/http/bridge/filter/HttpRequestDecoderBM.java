@@ -0,0 +1,120 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.filter.codec.ProtocolDecoder;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.filter.codec.ProtocolCodecSessionEx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the requests per second decoded for a WebSocket upgrade and a long-polling downstream request.
+ * Run with {@code -prof gc} to also report the bytes allocated per request.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class HttpRequestDecoderBM {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte[] WEBSOCKET_UPGRADE = ("GET /echo HTTP/1.1\r\n" +
+            "Host: gateway.example.com:8000\r\n" +
+            "Upgrade: websocket\r\n" +
+            "Connection: Upgrade\r\n" +
+            "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n" +
+            "Origin: http://www.example.com\r\n" +
+            "Sec-WebSocket-Protocol: amqp/0.9.1, x-kaazing-handshake\r\n" +
+            "Sec-WebSocket-Extensions: x-kaazing-idle-timeout, permessage-deflate; client_max_window_bits\r\n" +
+            "Sec-WebSocket-Version: 13\r\n" +
+            "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/52.0 Safari/537.36\r\n" +
+            "Accept-Encoding: gzip, deflate, sdch\r\n" +
+            "Accept-Language: en-US,en;q=0.8\r\n" +
+            "Cookie: session=0123456789abcdef\r\n" +
+            "\r\n").getBytes(UTF_8);
+
+    private static final byte[] LONG_POLL = ("POST /echo/;e/cbm/0123456789abcdef?.kcv=10.05&.kid=42 HTTP/1.1\r\n" +
+            "Host: gateway.example.com:8000\r\n" +
+            "Connection: keep-alive\r\n" +
+            "Content-Length: 3\r\n" +
+            "Content-Type: application/octet-stream\r\n" +
+            "Origin: http://www.example.com\r\n" +
+            "X-Origin: http://www.example.com\r\n" +
+            "X-Sequence-No: 5\r\n" +
+            "X-Accept-Commands: ping\r\n" +
+            "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/52.0 Safari/537.36\r\n" +
+            "Accept: */*\r\n" +
+            "Accept-Encoding: gzip, deflate\r\n" +
+            "Accept-Language: en-US,en;q=0.8\r\n" +
+            "\r\n" +
+            ">|<").getBytes(UTF_8);
+
+    private ProtocolCodecSessionEx session;
+    private ProtocolDecoder decoder;
+    private IoBufferAllocatorEx<?> allocator;
+
+    @Setup
+    public void init() {
+        session = new ProtocolCodecSessionEx();
+        decoder = new HttpRequestDecoder();
+        allocator = session.getBufferAllocator();
+    }
+
+    @Benchmark
+    public Object decodeWebSocketUpgrade() throws Exception {
+        return decode(WEBSOCKET_UPGRADE);
+    }
+
+    @Benchmark
+    public Object decodeLongPoll() throws Exception {
+        return decode(LONG_POLL);
+    }
+
+    private Object decode(byte[] request) throws Exception {
+        IoBuffer in = (IoBuffer) allocator.wrap(ByteBuffer.wrap(request));
+        decoder.decode(session, in, session.getDecoderOutput());
+        return session.getDecoderOutputQueue().poll();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(HttpRequestDecoderBM.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
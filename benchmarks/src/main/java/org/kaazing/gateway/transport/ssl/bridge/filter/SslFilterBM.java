@@ -0,0 +1,96 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ssl.bridge.filter;
+
+import static org.kaazing.gateway.transport.ssl.bridge.filter.SslFilterPeer.newClientContext;
+import static org.kaazing.gateway.transport.ssl.bridge.filter.SslFilterPeer.newServerContext;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of encrypting application data on one side of an established TLS session, and of encrypting
+ * and then decrypting it on the other side, through the SslFilter.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class SslFilterBM {
+
+    @Param({"64", "1024", "16384"})
+    private int messageSize;
+
+    private SslFilterPeer client;
+    private SslFilterPeer server;
+    private IoBufferEx message;
+
+    @Setup
+    public void init() throws Exception {
+        client = new SslFilterPeer(newClientContext(), true);
+        server = new SslFilterPeer(newServerContext(), false);
+        SslFilterPeer.handshake(client, server);
+
+        IoBufferAllocatorEx<?> allocator = client.session.getBufferAllocator();
+        ByteBuffer payload = allocator.allocate(messageSize);
+        for (int i = 0; i < messageSize; i++) {
+            payload.put((byte) i);
+        }
+        payload.flip();
+        message = allocator.wrap(payload);
+    }
+
+    @Benchmark
+    public Object wrap() throws Exception {
+        client.send(message);
+        return client.written.poll();
+    }
+
+    @Benchmark
+    public Object wrapAndUnwrap() throws Exception {
+        client.send(message);
+        server.receive(client.written);
+        return server.received.poll();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(SslFilterBM.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ssl.bridge.filter;
+
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.core.filterchain.IoFilter.NextFilter;
+import org.apache.mina.core.session.IdleStatus;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.WriteRequest;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.write.DefaultWriteRequestEx;
+import org.kaazing.mina.filter.codec.ProtocolCodecSessionEx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One side of a TLS connection driven in memory through an SslFilter, capturing the records it writes for the
+ * other side and the application data it receives.
+ */
+final class SslFilterPeer implements NextFilter {
+
+    private static final String KEYSTORE = "keystore.db";
+    private static final char[] KEYSTORE_PASSWORD = "ab987c".toCharArray();
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SslFilterPeer.class);
+
+    final SslFilter filter;
+    final ProtocolCodecSessionEx session;
+    final Queue<IoBuffer> written;
+    final Queue<Object> received;
+
+    SslFilterPeer(SSLContext context, boolean clientMode) {
+        this.filter = new SslFilter(context, LOGGER);
+        this.filter.setUseClientMode(clientMode);
+        if (clientMode) {
+            // session ids identify resumable sessions only up to TLSv1.2
+            this.filter.setEnabledProtocols(new String[] { "TLSv1.2" });
+        }
+        this.session = new ProtocolCodecSessionEx();
+        this.written = new ArrayDeque<>();
+        this.received = new ArrayDeque<>();
+    }
+
+    /**
+     * Identifies the server to the client, so that a later connection to the same server can resume the session.
+     */
+    void setPeerAddress(InetSocketAddress peerAddress) {
+        session.setAttribute(SslFilter.PEER_ADDRESS, peerAddress);
+    }
+
+    void start() throws Exception {
+        filter.onPreAdd(session.getFilterChain(), "ssl", this);
+        filter.onPostAdd(session.getFilterChain(), "ssl", this);
+    }
+
+    void send(IoBufferEx message) throws Exception {
+        filter.filterWrite(this, session, new DefaultWriteRequestEx(message.duplicate()));
+    }
+
+    void receive(Queue<IoBuffer> records) throws Exception {
+        IoBuffer record;
+        while ((record = records.poll()) != null) {
+            filter.messageReceived(this, session, record);
+        }
+    }
+
+    boolean isSecured() {
+        return filter.getSslSession(session) != null;
+    }
+
+    static void handshake(SslFilterPeer client, SslFilterPeer server) throws Exception {
+        client.start();
+        server.start();
+
+        // exchange handshake records until neither side has anything left to send
+        while (!client.written.isEmpty() || !server.written.isEmpty()) {
+            client.receive(server.written);
+            server.receive(client.written);
+        }
+
+        if (!client.isSecured() || !server.isSecured()) {
+            throw new IllegalStateException("TLS handshake did not complete");
+        }
+    }
+
+    static SSLContext newServerContext() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JCEKS");
+        try (InputStream in = SslFilterPeer.class.getClassLoader().getResourceAsStream(KEYSTORE)) {
+            keyStore.load(in, KEYSTORE_PASSWORD);
+        }
+
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, KEYSTORE_PASSWORD);
+
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagerFactory.getKeyManagers(), null, null);
+        return context;
+    }
+
+    static SSLContext newClientContext() throws Exception {
+        TrustManager trustAll = new X509TrustManager() {
+
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        };
+
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, new TrustManager[] { trustAll }, null);
+        return context;
+    }
+
+    @Override
+    public void filterWrite(IoSession session, WriteRequest writeRequest) {
+        written.add((IoBuffer) writeRequest.getMessage());
+    }
+
+    @Override
+    public void messageReceived(IoSession session, Object message) {
+        received.add(message);
+    }
+
+    @Override
+    public void sessionCreated(IoSession session) {
+    }
+
+    @Override
+    public void sessionOpened(IoSession session) {
+    }
+
+    @Override
+    public void sessionClosed(IoSession session) {
+    }
+
+    @Override
+    public void sessionIdle(IoSession session, IdleStatus status) {
+    }
+
+    @Override
+    public void exceptionCaught(IoSession session, Throwable cause) {
+        throw new IllegalStateException(cause);
+    }
+
+    @Override
+    public void messageSent(IoSession session, WriteRequest writeRequest) {
+    }
+
+    @Override
+    public void filterClose(IoSession session) {
+    }
+}
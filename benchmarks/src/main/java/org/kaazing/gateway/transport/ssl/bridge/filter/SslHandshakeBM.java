@@ -0,0 +1,89 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ssl.bridge.filter;
+
+import static org.kaazing.gateway.transport.ssl.bridge.filter.SslFilterPeer.newClientContext;
+import static org.kaazing.gateway.transport.ssl.bridge.filter.SslFilterPeer.newServerContext;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the rate of TLS handshakes through the SslFilter, either full handshakes or abbreviated handshakes
+ * resuming a session from the server session cache (see SslAcceptor and its SESSION_CACHE_SIZE property).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class SslHandshakeBM {
+
+    private static final InetSocketAddress SERVER_ADDRESS = InetSocketAddress.createUnresolved("localhost", 443);
+
+    @Param({"false", "true"})
+    private boolean resumption;
+
+    private SSLContext clientContext;
+    private SSLContext serverContext;
+
+    @Setup
+    public void init() throws Exception {
+        clientContext = newClientContext();
+        serverContext = newServerContext();
+    }
+
+    @Benchmark
+    public Object handshake() throws Exception {
+        SslFilterPeer client = new SslFilterPeer(clientContext, true);
+        SslFilterPeer server = new SslFilterPeer(serverContext, false);
+
+        // without a peer address the client never offers a cached session
+        if (resumption) {
+            client.setPeerAddress(SERVER_ADDRESS);
+        }
+
+        SslFilterPeer.handshake(client, server);
+        return client.filter.getSslSession(client.session);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(SslHandshakeBM.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
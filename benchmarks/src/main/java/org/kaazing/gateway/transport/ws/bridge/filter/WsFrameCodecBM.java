@@ -0,0 +1,115 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ws.bridge.filter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.core.buffer.IoBuffer;
+import org.apache.mina.filter.codec.ProtocolDecoder;
+import org.apache.mina.filter.codec.ProtocolEncoder;
+import org.kaazing.gateway.transport.ws.WsBinaryMessage;
+import org.kaazing.gateway.transport.ws.WsMessage;
+import org.kaazing.gateway.transport.ws.WsMessage.Kind;
+import org.kaazing.gateway.transport.ws.WsTextMessage;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.filter.codec.ProtocolCodecSessionEx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of encoding an unmasked frame sent to a client and of decoding (unmasking and, for text,
+ * validating) a masked frame received from a client, for growing payload sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class WsFrameCodecBM {
+
+    @Param({"TEXT", "BINARY"})
+    private Kind kind;
+
+    @Param({"16", "1024", "65536"})
+    private int payloadSize;
+
+    private ProtocolCodecSessionEx session;
+    private ProtocolEncoder encoder;
+    private ProtocolDecoder decoder;
+    private IoBufferAllocatorEx<?> allocator;
+    private WsMessage message;
+    private byte[] maskedFrame;
+    private byte[] frame;
+
+    @Setup
+    public void init() throws Exception {
+        session = new ProtocolCodecSessionEx();
+        allocator = session.getBufferAllocator();
+        encoder = new WsFrameEncoder(allocator, false);
+        decoder = new WsFrameDecoder(allocator, 0, true);
+
+        byte[] payload = new byte[payloadSize];
+        Arrays.fill(payload, (byte) 'a');
+        IoBufferEx bytes = allocator.wrap(ByteBuffer.wrap(payload));
+        message = (kind == Kind.TEXT) ? new WsTextMessage(bytes) : new WsBinaryMessage(bytes);
+
+        // the decoder unmasks in place, so each decode works on a fresh copy of the masked frame
+        new WsFrameEncoder(allocator, true).encode(session, message, session.getEncoderOutput());
+        IoBufferEx encoded = (IoBufferEx) session.getEncoderOutputQueue().poll();
+        maskedFrame = new byte[encoded.remaining()];
+        encoded.get(maskedFrame);
+        frame = new byte[maskedFrame.length];
+    }
+
+    @Benchmark
+    public Object encode() throws Exception {
+        encoder.encode(session, message, session.getEncoderOutput());
+        return session.getEncoderOutputQueue().poll();
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        System.arraycopy(maskedFrame, 0, frame, 0, frame.length);
+        IoBuffer in = (IoBuffer) allocator.wrap(ByteBuffer.wrap(frame));
+        decoder.decode(session, in, session.getDecoderOutput());
+        return session.getDecoderOutputQueue().poll();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(WsFrameCodecBM.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
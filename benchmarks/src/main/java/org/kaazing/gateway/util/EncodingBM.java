@@ -0,0 +1,85 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.util;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of the text encodings used by WSEB clients that cannot receive binary downstream
+ * (base64, UTF-8 and escaped zero and newline), applied to a binary payload.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodingBM {
+
+    @Param({"BASE64", "UTF8", "ESCAPE_ZERO_AND_NEWLINE", "UTF8_ESCAPE_ZERO_AND_NEWLINE"})
+    private Encoding encoding;
+
+    @Param({"64", "4096"})
+    private int payloadSize;
+
+    private ByteBuffer payload;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void init() {
+        // random bytes include zeros, newlines and bytes that are not valid UTF-8 on their own
+        byte[] bytes = new byte[payloadSize];
+        new Random(0L).nextBytes(bytes);
+        payload = ByteBuffer.wrap(bytes);
+        encoded = encoding.encode(payload.duplicate());
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        return encoding.encode(payload.duplicate());
+    }
+
+    @Benchmark
+    public ByteBuffer decode() {
+        return encoding.decode(encoded.duplicate());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(EncodingBM.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of validating the UTF-8 payload of a text message, as done for every text frame received,
+ * and of encoding characters as UTF-8, for ASCII only and for mixed multi-byte text.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class Utf8UtilBM {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ErrorHandler ERROR_HANDLER = new ErrorHandler() {
+        @Override
+        public void handleError(String message) {
+            throw new IllegalStateException(message);
+        }
+    };
+
+    @Param({"ascii", "mixed"})
+    private String text;
+
+    @Param({"64", "4096"})
+    private int length;
+
+    private char[] chars;
+    private ByteBuffer bytes;
+    private ByteBuffer encoded;
+
+    @Setup
+    public void init() {
+        String sample = "ascii".equals(text) ? "The quick brown fox jumps over the lazy dog. "
+                                             : "Grüße, καλημέρα, こんにちは, 🌍. ";
+        StringBuilder builder = new StringBuilder(length);
+        while (builder.length() < length) {
+            builder.append(sample);
+        }
+        builder.setLength(length);
+        if (Character.isHighSurrogate(builder.charAt(length - 1))) {
+            builder.setCharAt(length - 1, '.');
+        }
+        chars = builder.toString().toCharArray();
+        bytes = ByteBuffer.wrap(builder.toString().getBytes(UTF_8));
+        encoded = ByteBuffer.allocate(length * 4);
+    }
+
+    @Benchmark
+    public int validateUTF8() {
+        return Utf8Util.validateUTF8(bytes, bytes.position(), bytes.remaining(), ERROR_HANDLER);
+    }
+
+    @Benchmark
+    public boolean validBytesUTF8() {
+        return Utf8Util.validBytesUTF8(bytes, bytes.position(), bytes.limit());
+    }
+
+    @Benchmark
+    public int charsToUTF8Bytes() {
+        return Utf8Util.charstoUTF8Bytes(chars, 0, chars.length, encoded, 0);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(Utf8UtilBM.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -27,4 +27,6 @@ public interface SecurityConfigurationBean {
     String getTruststoreType();
 
     String getTruststoreCertificateInfo();
+
+    String getRealmLoginStatistics();
 }
@@ -28,6 +28,8 @@ import javax.security.auth.x500.X500Principal;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.kaazing.gateway.management.gateway.GatewayManagementBean;
+import org.kaazing.gateway.security.RealmLoginExecutor;
+import org.kaazing.gateway.security.RealmLoginExecutors;
 import org.kaazing.gateway.security.SecurityContext;
 
 public class SecurityConfigurationBeanImpl implements SecurityConfigurationBean {
@@ -41,8 +43,12 @@ public class SecurityConfigurationBeanImpl implements SecurityConfigurationBean
     private final KeyStore trustStore;
     private final String trustStoreCertificateInfo; // JSON
 
-    public SecurityConfigurationBeanImpl(SecurityContext context, GatewayManagementBean gatewayBean) {
+    private final RealmLoginExecutors realmLoginExecutors;
+
+    public SecurityConfigurationBeanImpl(SecurityContext context, RealmLoginExecutors realmLoginExecutors,
+                                         GatewayManagementBean gatewayBean) {
         this.gatewayBean = gatewayBean;
+        this.realmLoginExecutors = realmLoginExecutors;
 
         // Add the keystore certs to one set of cert. info
         try {
@@ -88,6 +94,37 @@ public class SecurityConfigurationBeanImpl implements SecurityConfigurationBean
         return nonNullString(trustStoreCertificateInfo);
     }
 
+    /**
+     * Computed on each call, as the logins are in progress.
+     */
+    @Override
+    public String getRealmLoginStatistics() {
+        JSONObject jsonObj = new JSONObject();
+        if (realmLoginExecutors == null) {
+            return jsonObj.toString();
+        }
+
+        try {
+            for (RealmLoginExecutor executor : realmLoginExecutors.getExecutors()) {
+                JSONObject realmObj = new JSONObject();
+                realmObj.put("concurrency", executor.getConcurrency());
+                realmObj.put("queueDepth", executor.getQueueDepth());
+                realmObj.put("queuedLogins", executor.getQueuedLoginCount());
+                realmObj.put("activeLogins", executor.getActiveLoginCount());
+                realmObj.put("completedLogins", executor.getCompletedLoginCount());
+                realmObj.put("rejectedLogins", executor.getRejectedLoginCount());
+                realmObj.put("averageWaitTime", executor.getAverageWaitTime());
+                realmObj.put("averageLoginTime", executor.getAverageLoginTime());
+                jsonObj.put(executor.getRealmName(), realmObj);
+            }
+        } catch (Exception ex) {
+            // This is only for JSON exceptions, but there should be no way to
+            // hit this.
+        }
+
+        return jsonObj.toString();
+    }
+
     private String nonNullString(String value) {
         return value == null ? "" : value;
     }
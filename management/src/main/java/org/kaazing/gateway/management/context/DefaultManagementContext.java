@@ -69,12 +69,14 @@ import org.kaazing.gateway.management.session.SessionManagementBean;
 import org.kaazing.gateway.management.session.SessionManagementBeanImpl;
 import org.kaazing.gateway.management.session.SessionManagementListener;
 import org.kaazing.gateway.security.RealmContext;
+import org.kaazing.gateway.security.RealmLoginExecutors;
 import org.kaazing.gateway.security.SecurityContext;
 import org.kaazing.gateway.server.context.DependencyContext;
 import org.kaazing.gateway.server.context.GatewayContext;
 import org.kaazing.gateway.server.context.ServiceDefaultsContext;
 import org.kaazing.gateway.service.ServiceContext;
 import org.kaazing.gateway.service.cluster.ClusterContext;
+import org.kaazing.gateway.transport.TransportFactory;
 import org.kaazing.gateway.util.scheduler.SchedulerProvider;
 import org.kaazing.mina.core.session.IoSessionEx;
 
@@ -177,6 +179,8 @@ public class DefaultManagementContext implements ManagementContext, DependencyCo
     // injected at startup
     private SchedulerProvider schedulerProvider;
     private GatewayContext gatewayContext;
+    private RealmLoginExecutors realmLoginExecutors;
+    private TransportFactory transportFactory;
 
     private ScheduledExecutorService managementExecutorService;
 
@@ -229,6 +233,16 @@ public class DefaultManagementContext implements ManagementContext, DependencyCo
         return this.schedulerProvider;
     }
 
+    @Resource(name = "realmLoginExecutors")
+    public void setRealmLoginExecutors(RealmLoginExecutors realmLoginExecutors) {
+        this.realmLoginExecutors = realmLoginExecutors;
+    }
+
+    @Resource(name = "transportFactory")
+    public void setTransportFactory(TransportFactory transportFactory) {
+        this.transportFactory = transportFactory;
+    }
+
     @Resource(name = "gatewayContext")
     public void setGatewayContext(GatewayContext gatewayContext) {
         this.gatewayContext = gatewayContext;
@@ -430,7 +444,7 @@ public class DefaultManagementContext implements ManagementContext, DependencyCo
 
     private SecurityConfigurationBean addSecurityConfigurationBean(SecurityContext securityContext, GatewayManagementBean
             gatewayBean) {
-        SecurityConfigurationBean securityBean = new SecurityConfigurationBeanImpl(securityContext, gatewayBean);
+        SecurityConfigurationBean securityBean = new SecurityConfigurationBeanImpl(securityContext, realmLoginExecutors, gatewayBean);
 
         for (ManagementServiceHandler handler : managementServiceHandlers) {
             handler.addSecurityConfigurationBean(securityBean);
@@ -641,7 +655,7 @@ public class DefaultManagementContext implements ManagementContext, DependencyCo
     @Override
     public void createGatewayManagementBean() {
         GatewayManagementBean gatewayManagementBean = new GatewayManagementBeanImpl(this, this.gatewayContext,
-                localGatewayHostAndPid);
+                this.transportFactory, localGatewayHostAndPid);
 
         gatewayManagementBeans.put(localGatewayHostAndPid, gatewayManagementBean);
     }
@@ -15,24 +15,37 @@
  */
 package org.kaazing.gateway.management.context;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.EVENT_LOOP_METRICS_ENABLED;
+
 import java.util.Properties;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 
 import javax.annotation.Resource;
 
 import org.apache.mina.core.future.ConnectFuture;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.core.session.IoSessionInitializer;
+import org.jboss.netty.channel.socket.nio.NioSelectorMetrics;
 import org.kaazing.gateway.management.ManagementService;
 import org.kaazing.gateway.management.filter.ManagementFilter;
 import org.kaazing.gateway.management.monitoring.configuration.MonitoringDataManager;
 import org.kaazing.gateway.management.monitoring.configuration.MonitoringDataManagerInjector;
 import org.kaazing.gateway.management.monitoring.configuration.impl.MonitoringDataManagerInjectorImpl;
+import org.kaazing.gateway.management.monitoring.entity.manager.EventLoopCounterManager;
+import org.kaazing.gateway.management.monitoring.entity.manager.impl.EventLoopCounterManagerImpl;
 import org.kaazing.gateway.management.monitoring.service.impl.MonitoredServiceImpl;
 import org.kaazing.gateway.server.GatewayObserverFactorySpiPrototype;
 import org.kaazing.gateway.server.context.GatewayContext;
 import org.kaazing.gateway.service.MonitoringEntityFactory;
 import org.kaazing.gateway.service.Service;
 import org.kaazing.gateway.service.ServiceContext;
+import org.kaazing.gateway.transport.Transport;
+import org.kaazing.gateway.transport.TransportFactory;
+import org.kaazing.gateway.transport.nio.TcpTransport;
+import org.kaazing.gateway.util.InternalSystemProperty;
+import org.kaazing.gateway.util.scheduler.SchedulerProvider;
 import org.kaazing.mina.core.session.IoSessionEx;
 
 public class ManagementGatewayObserver extends GatewayObserverFactorySpiPrototype {
@@ -40,6 +53,9 @@ public class ManagementGatewayObserver extends GatewayObserverFactorySpiPrototyp
     private ManagementContext managementContext;
     private Properties configuration;
     private MonitoringDataManager monitoringDataManager;
+    private TransportFactory transportFactory;
+    private SchedulerProvider schedulerProvider;
+    private ScheduledFuture<?> eventLoopCountersUpdate;
 
     @Resource(name = "managementContext")
     public void setManagementContext(ManagementContext managementContext) {
@@ -51,11 +67,22 @@ public class ManagementGatewayObserver extends GatewayObserverFactorySpiPrototyp
         this.configuration = configuration;
     }
 
+    @Resource(name = "transportFactory")
+    public void setTransportFactory(TransportFactory transportFactory) {
+        this.transportFactory = transportFactory;
+    }
+
+    @Resource(name = "schedulerProvider")
+    public void setSchedulerProvider(SchedulerProvider schedulerProvider) {
+        this.schedulerProvider = schedulerProvider;
+    }
+
     @Override
     public void startingGateway(GatewayContext gatewayContext) {
         managementContext.createGatewayManagementBean();
         MonitoringDataManagerInjector injector = new MonitoringDataManagerInjectorImpl(configuration);
         monitoringDataManager = injector.makeMonitoringDataManager();
+        scheduleEventLoopCountersUpdate();
     }
 
     @Override
@@ -93,9 +120,44 @@ public class ManagementGatewayObserver extends GatewayObserverFactorySpiPrototyp
 
     @Override
     public void stoppedGateway(GatewayContext gatewayContext) {
+        if (eventLoopCountersUpdate != null) {
+            eventLoopCountersUpdate.cancel(false);
+        }
         monitoringDataManager.close();
     }
 
+    /**
+     * Publish the event loop metrics of the IO workers to the gateway counters every second, when both the metrics
+     * and the counters are enabled.
+     */
+    private void scheduleEventLoopCountersUpdate() {
+        if (!InternalSystemProperty.AGRONA_ENABLED.getBooleanProperty(configuration) ||
+                !EVENT_LOOP_METRICS_ENABLED.getBooleanProperty(System.getProperties()) ||
+                transportFactory == null || schedulerProvider == null) {
+            return;
+        }
+        Transport tcp = transportFactory.getTransport("tcp");
+        if (!(tcp instanceof TcpTransport)) {
+            return;
+        }
+
+        MonitoringEntityFactory gatewayCountersFactory = monitoringDataManager.getGatewayMonitoringEntityFactory();
+        ScheduledExecutorService scheduler = schedulerProvider.getScheduler("management", true);
+        eventLoopCountersUpdate = scheduler.scheduleAtFixedRate(new Runnable() {
+            private EventLoopCounterManager eventLoopCounterManager;
+
+            @Override
+            public void run() {
+                // the workers are created once the gateway has started
+                if (eventLoopCounterManager == null) {
+                    NioSelectorMetrics[] workerMetrics = ((TcpTransport) tcp).getWorkerMetrics();
+                    eventLoopCounterManager = new EventLoopCounterManagerImpl(gatewayCountersFactory, workerMetrics);
+                }
+                eventLoopCounterManager.updateCounters();
+            }
+        }, 1, 1, SECONDS);
+    }
+
     private void addSessionInitializer(Service service, ServiceContext serviceContext) {
         // if (not a management service then add a Management filter to the chain
         if (!(service instanceof ManagementService)) {
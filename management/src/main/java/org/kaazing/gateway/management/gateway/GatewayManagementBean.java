@@ -75,6 +75,12 @@ public interface GatewayManagementBean extends ManagementBean {
 
     String getManagementServiceMap();
 
+    String getWorkerLoadStatistics();
+
+    String getEventLoopStatistics();
+
+    String getTlsHandshakeStatistics();
+
     void addClusterManagementListener(ClusterManagementListener listener);
 
     // Various methods needed by the strategy objects
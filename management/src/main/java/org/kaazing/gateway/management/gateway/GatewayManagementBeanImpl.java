@@ -25,6 +25,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.write.WriteRequest;
 import org.apache.mina.util.CopyOnWriteMap;
+import org.jboss.netty.channel.socket.nio.NioSelectorMetrics;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -42,6 +43,14 @@ import org.kaazing.gateway.service.cluster.MemberId;
 import org.kaazing.gateway.service.cluster.MembershipEventListener;
 import org.kaazing.gateway.service.collections.CollectionsFactory;
 import org.kaazing.gateway.service.http.balancer.HttpBalancerService;
+import org.kaazing.gateway.transport.BridgeAcceptor;
+import org.kaazing.gateway.transport.Transport;
+import org.kaazing.gateway.transport.TransportFactory;
+import org.kaazing.gateway.transport.nio.TcpTransport;
+import org.kaazing.gateway.transport.nio.internal.NioWorkerLoad;
+import org.kaazing.gateway.transport.ssl.SslAcceptor;
+import org.kaazing.gateway.transport.ssl.bridge.filter.SslHandshakeExecutor;
+import org.kaazing.mina.netty.util.Histogram;
 import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,6 +88,7 @@ public class GatewayManagementBeanImpl extends AbstractManagementBean
     // of the gateway process.  These can both be determined here.
     private final String hostAndPid;
     private GatewayContext gatewayContext;
+    private final TransportFactory transportFactory;
 
     // fields from VersionInfo
     private String productTitle;
@@ -101,6 +111,7 @@ public class GatewayManagementBeanImpl extends AbstractManagementBean
 
     public GatewayManagementBeanImpl(ManagementContext managementContext,
                                      GatewayContext gatewayContext,
+                                     TransportFactory transportFactory,
                                      String hostAndPid) {
         super(managementContext,
                 managementContext.getGatewaySummaryDataNotificationInterval(),
@@ -113,6 +124,7 @@ public class GatewayManagementBeanImpl extends AbstractManagementBean
         this.startTime = System.currentTimeMillis();
         this.clusterManagementListeners = new ArrayList<>();
         this.gatewayContext = gatewayContext;
+        this.transportFactory = transportFactory;
 
         this.productTitle = VersionUtils.getGatewayProductTitle();
         this.productBuild = VersionUtils.getGatewayProductVersionBuild();
@@ -267,6 +279,116 @@ public class GatewayManagementBeanImpl extends AbstractManagementBean
         return jsonObj.toString();
     }
 
+    /**
+     * Computed on each call, from the load last published by each IO worker.
+     */
+    @Override
+    public String getWorkerLoadStatistics() {
+        JSONArray jsonArray = new JSONArray();
+        Transport tcp = (transportFactory != null) ? transportFactory.getTransport("tcp") : null;
+        if (!(tcp instanceof TcpTransport)) {
+            return jsonArray.toString();
+        }
+
+        try {
+            NioWorkerLoad[] workerLoads = ((TcpTransport) tcp).getWorkerLoads();
+            for (int i = 0; i < workerLoads.length; i++) {
+                NioWorkerLoad workerLoad = workerLoads[i];
+                JSONObject workerObj = new JSONObject();
+                workerObj.put("worker", i);
+                workerObj.put("utilization", workerLoad.getUtilization());
+                workerObj.put("bytesPerSecond", workerLoad.getBytesPerSecond());
+                workerObj.put("queuedTasks", workerLoad.getQueuedTasks());
+                workerObj.put("channels", workerLoad.getChannelCount());
+                jsonArray.put(workerObj);
+            }
+        } catch (JSONException ex) {
+            // This is only for JSON exceptions, but there should be no way to
+            // hit this.
+        }
+
+        return jsonArray.toString();
+    }
+
+    /**
+     * Computed on each call, from the iterations recorded by each IO worker since it started. Empty unless
+     * org.kaazing.netty.EVENT_LOOP_METRICS_ENABLED is set.
+     */
+    @Override
+    public String getEventLoopStatistics() {
+        JSONArray jsonArray = new JSONArray();
+        Transport tcp = (transportFactory != null) ? transportFactory.getTransport("tcp") : null;
+        if (!(tcp instanceof TcpTransport)) {
+            return jsonArray.toString();
+        }
+
+        try {
+            NioSelectorMetrics[] workerMetrics = ((TcpTransport) tcp).getWorkerMetrics();
+            for (int i = 0; i < workerMetrics.length; i++) {
+                NioSelectorMetrics metrics = workerMetrics[i];
+                if (metrics == null) {
+                    continue;
+                }
+                JSONObject workerObj = new JSONObject();
+                workerObj.put("worker", i);
+                workerObj.put("iterations", metrics.getReadyKeys().getTotalCount());
+                workerObj.put("selectWaitNanos", toJSON(metrics.getSelectWaitNanos()));
+                workerObj.put("taskProcessingNanos", toJSON(metrics.getTaskProcessingNanos()));
+                workerObj.put("ioProcessingNanos", toJSON(metrics.getIoProcessingNanos()));
+                workerObj.put("readyKeys", toJSON(metrics.getReadyKeys()));
+                jsonArray.put(workerObj);
+            }
+        } catch (JSONException ex) {
+            // This is only for JSON exceptions, but there should be no way to
+            // hit this.
+        }
+
+        return jsonArray.toString();
+    }
+
+    /**
+     * Computed on each call. Empty unless org.kaazing.gateway.transport.ssl.HANDSHAKE_THREADS is set.
+     */
+    @Override
+    public String getTlsHandshakeStatistics() {
+        JSONObject jsonObj = new JSONObject();
+        Transport ssl = (transportFactory != null) ? transportFactory.getTransport("ssl") : null;
+        BridgeAcceptor acceptor = (ssl != null) ? ssl.getAcceptor() : null;
+        if (!(acceptor instanceof SslAcceptor)) {
+            return jsonObj.toString();
+        }
+
+        SslHandshakeExecutor executor = ((SslAcceptor) acceptor).getHandshakeExecutor();
+        if (executor == null) {
+            return jsonObj.toString();
+        }
+
+        try {
+            jsonObj.put("threads", executor.getThreadCount());
+            jsonObj.put("queueDepth", executor.getQueueDepth());
+            jsonObj.put("queuedTasks", executor.getQueuedTaskCount());
+            jsonObj.put("activeTasks", executor.getActiveTaskCount());
+            jsonObj.put("completedTasks", executor.getCompletedTaskCount());
+            jsonObj.put("callerRunsTasks", executor.getCallerRunsTaskCount());
+            jsonObj.put("averageWaitTime", executor.getAverageWaitTime());
+            jsonObj.put("averageTaskTime", executor.getAverageTaskTime());
+        } catch (JSONException ex) {
+            // This is only for JSON exceptions, but there should be no way to
+            // hit this.
+        }
+
+        return jsonObj.toString();
+    }
+
+    private static JSONObject toJSON(Histogram histogram) throws JSONException {
+        JSONObject histogramObj = new JSONObject();
+        histogramObj.put("p50", histogram.getValueAtPercentile(50.0));
+        histogramObj.put("p99", histogram.getValueAtPercentile(99.0));
+        histogramObj.put("p999", histogram.getValueAtPercentile(99.9));
+        histogramObj.put("max", histogram.getMaxValue());
+        return histogramObj;
+    }
+
     @Override
     public String getManagementServiceMap() {
         if (clusterContext == null) {
@@ -49,6 +49,25 @@ public interface GatewayMXBean {
 
     String getManagementServiceMap();
 
+    /**
+     * @return a JSON array of the load of each IO worker: the fraction of time busy, bytes per second, average queued
+     *         tasks and connections over the last second
+     */
+    String getWorkerLoadStatistics();
+
+    /**
+     * @return a JSON array of the 50th, 99th and 99.9th percentiles and maximum of the time each IO worker spent
+     *         waiting in select, running tasks and processing I/O, and of its ready keys, per loop iteration
+     */
+    String getEventLoopStatistics();
+
+    /**
+     * @return a JSON object of the TLS handshake pool: its threads and queue depth, the handshake tasks queued, active,
+     *         completed and run on the I/O threads because the queue was full, and their average wait and run times;
+     *         empty unless org.kaazing.gateway.transport.ssl.HANDSHAKE_THREADS is set
+     */
+    String getTlsHandshakeStatistics();
+
     String getAvailableUpdateVersion();
 
     void forceUpdateVersionCheck();
@@ -111,6 +111,21 @@ public class GatewayMXBeanImpl implements GatewayMXBean {
         return gatewayManagementBean.getManagementServiceMap();
     }
 
+    @Override
+    public String getWorkerLoadStatistics() {
+        return gatewayManagementBean.getWorkerLoadStatistics();
+    }
+
+    @Override
+    public String getEventLoopStatistics() {
+        return gatewayManagementBean.getEventLoopStatistics();
+    }
+
+    @Override
+    public String getTlsHandshakeStatistics() {
+        return gatewayManagementBean.getTlsHandshakeStatistics();
+    }
+
     @Override
     public String getAvailableUpdateVersion() {
         return gatewayManagementBean.getAvailableUpdateVersion();
@@ -23,4 +23,6 @@ public interface SecurityMXBean {
     String getTruststoreType();
 
     String getTruststoreCertificateInfo();
+
+    String getRealmLoginStatistics();
 }
@@ -50,4 +50,9 @@ public class SecurityMXBeanImpl implements SecurityMXBean {
     public String getTruststoreCertificateInfo() {
         return securityBean.getTruststoreCertificateInfo();
     }
+
+    @Override
+    public String getRealmLoginStatistics() {
+        return securityBean.getRealmLoginStatistics();
+    }
 }
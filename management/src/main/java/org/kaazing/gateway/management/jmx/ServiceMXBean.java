@@ -72,6 +72,77 @@ public interface ServiceMXBean {
     // end of proxy-style service data
     // -----------------------------------------------------------------
 
+    // -----------------------------------------------------------------
+    // For directory services the following methods should return data
+    // -----------------------------------------------------------------
+
+    long getContentCacheHitCount();
+
+    long getContentCacheMissCount();
+
+    long getContentCacheEvictionCount();
+
+    long getCompressionCacheHitCount();
+
+    long getCompressionCount();
+
+    // -----------------------------------------------------------------
+    // For http.proxy services the following methods should return data
+    // -----------------------------------------------------------------
+
+    long getResponseCacheHitCount();
+
+    long getResponseCacheMissCount();
+
+    long getResponseCacheRevalidationCount();
+
+    long getResponseCacheBytesSaved();
+
+    /**
+     * @return the fraction of cacheable requests served without a full response from the origin server
+     */
+    double getResponseCacheHitRatio();
+
+    // -----------------------------------------------------------------
+    // For broadcast services the following methods should return data
+    // -----------------------------------------------------------------
+
+    /**
+     * @return the number of messages discarded for slow clients by the slow consumer policy
+     */
+    long getSlowConsumerDroppedMessageCount();
+
+    /**
+     * @return the number of messages replaced by a newer message with the same conflation key for slow clients
+     */
+    long getSlowConsumerConflatedMessageCount();
+
+    /**
+     * The connection pool counters are kept per origin server (scheme, host and port) by the gateway's http
+     * connector, not per service. Services that connect to the same origin server report the same counts.
+     *
+     * @return the number of connects to the origin servers of this service served by a pooled connection
+     */
+    long getConnectionPoolHitCount();
+
+    /**
+     * @return the number of connects to the origin servers of this service that found no pooled connection,
+     *         counted per origin server as for {@link #getConnectionPoolHitCount()}
+     */
+    long getConnectionPoolMissCount();
+
+    /**
+     * @return the number of idle connections opened in the background to the origin servers of this service,
+     *         counted per origin server as for {@link #getConnectionPoolHitCount()}
+     */
+    long getConnectionPoolCreateCount();
+
+    /**
+     * @return the number of pooled connections to the origin servers of this service closed for being idle,
+     *         counted per origin server as for {@link #getConnectionPoolHitCount()}
+     */
+    long getConnectionPoolEvictionCount();
+
     // lifecycle methods
     void start() throws Exception;
     void stop() throws Exception;
@@ -215,6 +215,89 @@ public class ServiceMXBeanImpl implements ServiceMXBean {
         return serviceManagementBean.isHeartbeatRunning();
     }
 
+    @Override
+    public long getContentCacheHitCount() {
+        return serviceManagementBean.getContentCacheHitCount();
+    }
+
+    @Override
+    public long getContentCacheMissCount() {
+        return serviceManagementBean.getContentCacheMissCount();
+    }
+
+    @Override
+    public long getContentCacheEvictionCount() {
+        return serviceManagementBean.getContentCacheEvictionCount();
+    }
+
+    @Override
+    public long getCompressionCacheHitCount() {
+        return serviceManagementBean.getCompressionCacheHitCount();
+    }
+
+    @Override
+    public long getCompressionCount() {
+        return serviceManagementBean.getCompressionCount();
+    }
+
+    @Override
+    public long getResponseCacheHitCount() {
+        return serviceManagementBean.getResponseCacheHitCount();
+    }
+
+    @Override
+    public long getResponseCacheMissCount() {
+        return serviceManagementBean.getResponseCacheMissCount();
+    }
+
+    @Override
+    public long getResponseCacheRevalidationCount() {
+        return serviceManagementBean.getResponseCacheRevalidationCount();
+    }
+
+    @Override
+    public long getResponseCacheBytesSaved() {
+        return serviceManagementBean.getResponseCacheBytesSaved();
+    }
+
+    @Override
+    public double getResponseCacheHitRatio() {
+        long hits = serviceManagementBean.getResponseCacheHitCount();
+        long total = hits + serviceManagementBean.getResponseCacheMissCount()
+                + serviceManagementBean.getResponseCacheRevalidationCount();
+        return (total != 0) ? (double) hits / total : 0;
+    }
+
+    @Override
+    public long getSlowConsumerDroppedMessageCount() {
+        return serviceManagementBean.getSlowConsumerDroppedMessageCount();
+    }
+
+    @Override
+    public long getSlowConsumerConflatedMessageCount() {
+        return serviceManagementBean.getSlowConsumerConflatedMessageCount();
+    }
+
+    @Override
+    public long getConnectionPoolHitCount() {
+        return serviceManagementBean.getConnectionPoolHitCount();
+    }
+
+    @Override
+    public long getConnectionPoolMissCount() {
+        return serviceManagementBean.getConnectionPoolMissCount();
+    }
+
+    @Override
+    public long getConnectionPoolCreateCount() {
+        return serviceManagementBean.getConnectionPoolCreateCount();
+    }
+
+    @Override
+    public long getConnectionPoolEvictionCount() {
+        return serviceManagementBean.getConnectionPoolEvictionCount();
+    }
+
     // Some lifecycle methods for the service, called from
     // the management platform (e.g. JConsole.)
     @Override
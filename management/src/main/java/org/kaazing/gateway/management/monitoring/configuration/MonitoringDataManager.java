@@ -30,6 +30,12 @@ public interface MonitoringDataManager {
      */
     MonitoringEntityFactory initialize();
 
+    /**
+     * Method returning the gw monitoring entity factory created by initialize
+     * @return the gw monitoring entity factory
+     */
+    MonitoringEntityFactory getGatewayMonitoringEntityFactory();
+
     /**
      * Method for adding a monitored service
      * @param monitoredService
@@ -36,6 +36,7 @@ public class MMFMonitoringDataManager implements MonitoringDataManager {
     private static final String MONITOR_DIR_NAME = "/kaazing";
 
     private MonitorFileWriter monitorFileWriter;
+    private MonitoringEntityFactory gwCountersFactory;
     private File monitoringDir;
     int serviceCount;
     private String gatewayId;
@@ -52,12 +53,16 @@ public class MMFMonitoringDataManager implements MonitoringDataManager {
         createMonitoringFile();
 
         // create gateway monitoring entity factory
-        MonitoringEntityFactory gwCountersFactory =
-                monitorFileWriter.getGatewayMonitoringEntityFactory();
+        gwCountersFactory = monitorFileWriter.getGatewayMonitoringEntityFactory();
 
         return gwCountersFactory;
     }
 
+    @Override
+    public MonitoringEntityFactory getGatewayMonitoringEntityFactory() {
+        return gwCountersFactory;
+    }
+
     @Override
     public ServiceCounterManagerImpl addService(MonitoredService monitoredService) {
         MonitoringEntityFactory serviceCountersFactory = monitorFileWriter.getServiceMonitoringEntityFactory(
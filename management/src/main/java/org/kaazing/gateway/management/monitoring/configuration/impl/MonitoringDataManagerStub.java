@@ -47,6 +47,11 @@ public class MonitoringDataManagerStub implements MonitoringDataManager {
         return MONITORING_ENTITY_FACTORY;
     }
 
+    @Override
+    public MonitoringEntityFactory getGatewayMonitoringEntityFactory() {
+        return MONITORING_ENTITY_FACTORY;
+    }
+
     @Override
     public MonitoringEntityFactory addService(MonitoredService monitoredService) {
         return MONITORING_ENTITY_FACTORY;
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.management.monitoring.entity.manager.impl;
+
+import org.jboss.netty.channel.socket.nio.NioSelectorMetrics;
+import org.kaazing.gateway.management.monitoring.entity.manager.EventLoopCounterManager;
+import org.kaazing.gateway.service.LongMonitoringCounter;
+import org.kaazing.gateway.service.MonitoringEntityFactory;
+import org.kaazing.mina.netty.util.Histogram;
+
+/**
+ * Class responsible with publishing the event loop metrics of each IO worker. For each phase of the loop the
+ * 50th, 99th and 99.9th percentiles and maximum of the iterations since the previous update are published, as
+ * worker-&lt;index&gt;-&lt;phase&gt;-&lt;percentile&gt;, along with the total number of iterations of each worker.
+ */
+public class EventLoopCounterManagerImpl implements EventLoopCounterManager {
+
+    private static final String WORKER_PREFIX = "worker-";
+    private static final String LOOP_ITERATIONS = "-loop-iterations";
+    private static final String SELECT_WAIT_NANOS = "-select-wait-nanos";
+    private static final String TASK_PROCESSING_NANOS = "-task-processing-nanos";
+    private static final String IO_PROCESSING_NANOS = "-io-processing-nanos";
+    private static final String READY_KEYS = "-ready-keys";
+
+    private final WorkerCounters[] workerCounters;
+
+    public EventLoopCounterManagerImpl(MonitoringEntityFactory monitoringEntityFactory,
+                                       NioSelectorMetrics[] workerMetrics) {
+        workerCounters = new WorkerCounters[workerMetrics.length];
+        for (int i = 0; i < workerMetrics.length; i++) {
+            workerCounters[i] = new WorkerCounters(monitoringEntityFactory, WORKER_PREFIX + i, workerMetrics[i]);
+        }
+    }
+
+    @Override
+    public void updateCounters() {
+        for (WorkerCounters counters : workerCounters) {
+            counters.update();
+        }
+    }
+
+    private static final class WorkerCounters {
+        private final NioSelectorMetrics metrics;
+        private final LongMonitoringCounter loopIterationsCounter;
+        private final HistogramCounters selectWaitCounters;
+        private final HistogramCounters taskProcessingCounters;
+        private final HistogramCounters ioProcessingCounters;
+        private final HistogramCounters readyKeysCounters;
+
+        WorkerCounters(MonitoringEntityFactory monitoringEntityFactory, String name, NioSelectorMetrics metrics) {
+            this.metrics = metrics;
+            this.loopIterationsCounter = monitoringEntityFactory.makeLongMonitoringCounter(name + LOOP_ITERATIONS);
+            this.selectWaitCounters = new HistogramCounters(monitoringEntityFactory, name + SELECT_WAIT_NANOS);
+            this.taskProcessingCounters = new HistogramCounters(monitoringEntityFactory, name + TASK_PROCESSING_NANOS);
+            this.ioProcessingCounters = new HistogramCounters(monitoringEntityFactory, name + IO_PROCESSING_NANOS);
+            this.readyKeysCounters = new HistogramCounters(monitoringEntityFactory, name + READY_KEYS);
+        }
+
+        void update() {
+            if (metrics == null) {
+                return;
+            }
+            Histogram readyKeys = metrics.getReadyKeys();
+            loopIterationsCounter.setValue(readyKeys.getTotalCount());
+            selectWaitCounters.update(metrics.getSelectWaitNanos());
+            taskProcessingCounters.update(metrics.getTaskProcessingNanos());
+            ioProcessingCounters.update(metrics.getIoProcessingNanos());
+            readyKeysCounters.update(readyKeys);
+        }
+    }
+
+    private static final class HistogramCounters {
+        private final LongMonitoringCounter p50Counter;
+        private final LongMonitoringCounter p99Counter;
+        private final LongMonitoringCounter p999Counter;
+        private final LongMonitoringCounter maxCounter;
+        private Histogram previous = new Histogram();
+
+        HistogramCounters(MonitoringEntityFactory monitoringEntityFactory, String name) {
+            this.p50Counter = monitoringEntityFactory.makeLongMonitoringCounter(name + "-p50");
+            this.p99Counter = monitoringEntityFactory.makeLongMonitoringCounter(name + "-p99");
+            this.p999Counter = monitoringEntityFactory.makeLongMonitoringCounter(name + "-p999");
+            this.maxCounter = monitoringEntityFactory.makeLongMonitoringCounter(name + "-max");
+        }
+
+        void update(Histogram histogram) {
+            Histogram current = histogram.copy();
+            Histogram interval = current.since(previous);
+            previous = current;
+
+            p50Counter.setValue(interval.getValueAtPercentile(50.0));
+            p99Counter.setValue(interval.getValueAtPercentile(99.0));
+            p999Counter.setValue(interval.getValueAtPercentile(99.9));
+            maxCounter.setValue(interval.getMaxValue());
+        }
+    }
+}
@@ -43,6 +43,9 @@ import org.kaazing.gateway.security.RealmContext;
 import org.kaazing.gateway.server.Gateway;
 import org.kaazing.gateway.service.Service;
 import org.kaazing.gateway.service.ServiceContext;
+import org.kaazing.gateway.service.broadcast.BroadcastService;
+import org.kaazing.gateway.service.http.directory.HttpDirectoryService;
+import org.kaazing.gateway.service.http.proxy.HttpProxyService;
 import org.kaazing.gateway.service.proxy.ProxyService;
 import org.kaazing.gateway.service.proxy.ServiceConnectManager;
 import org.kaazing.gateway.transport.AbstractBridgeSession;
@@ -167,6 +170,60 @@ public interface ServiceManagementBean extends ManagementBean {
     // end of proxy-style service data
     // -----------------------------------------------------------------
 
+    // -----------------------------------------------------------------
+    // For directory services the following methods should return data
+    // -----------------------------------------------------------------
+
+    long getContentCacheHitCount();
+
+    long getContentCacheMissCount();
+
+    long getContentCacheEvictionCount();
+
+    long getCompressionCacheHitCount();
+
+    long getCompressionCount();
+
+    // -----------------------------------------------------------------
+    // end of directory service data
+    // -----------------------------------------------------------------
+
+    // -----------------------------------------------------------------
+    // For http.proxy services the following methods should return data
+    // -----------------------------------------------------------------
+
+    long getResponseCacheHitCount();
+
+    long getResponseCacheMissCount();
+
+    long getResponseCacheRevalidationCount();
+
+    long getResponseCacheBytesSaved();
+
+    long getConnectionPoolHitCount();
+
+    long getConnectionPoolMissCount();
+
+    long getConnectionPoolCreateCount();
+
+    long getConnectionPoolEvictionCount();
+
+    // -----------------------------------------------------------------
+    // end of http.proxy service data
+    // -----------------------------------------------------------------
+
+    // -----------------------------------------------------------------
+    // For broadcast services the following methods should return data
+    // -----------------------------------------------------------------
+
+    long getSlowConsumerDroppedMessageCount();
+
+    long getSlowConsumerConflatedMessageCount();
+
+    // -----------------------------------------------------------------
+    // end of broadcast service data
+    // -----------------------------------------------------------------
+
     // Now some lifecycle methods, generally called from a particular
     // management interface through the beans for that protocol, for
     // example the ServiceMXBean for a given service.
@@ -252,6 +309,9 @@ public interface ServiceManagementBean extends ManagementBean {
         private final GatewayManagementBean gatewayManagementBean;
         private final ServiceContext serviceContext;
         private final ServiceConnectManager serviceConnectManager;
+        private final HttpDirectoryService directoryService;
+        private final HttpProxyService httpProxyService;
+        private final BroadcastService broadcastService;
 
         private final Set<Class<Principal>> userPrincipalClasses;
 
@@ -293,6 +353,9 @@ public interface ServiceManagementBean extends ManagementBean {
             } else {
                 this.serviceConnectManager = null;
             }
+            this.directoryService = (service instanceof HttpDirectoryService) ? (HttpDirectoryService) service : null;
+            this.httpProxyService = (service instanceof HttpProxyService) ? (HttpProxyService) service : null;
+            this.broadcastService = (service instanceof BroadcastService) ? (BroadcastService) service : null;
 
             userPrincipalClasses = new HashSet<>();
             RealmContext realmContext = serviceContext.getServiceRealm();
@@ -630,6 +693,96 @@ public interface ServiceManagementBean extends ManagementBean {
             return serviceConnectManager != null && serviceConnectManager.isHeartbeatRunning();
         }
 
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getContentCacheHitCount() {
+            return directoryService != null ? directoryService.getContentCacheHitCount() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getContentCacheMissCount() {
+            return directoryService != null ? directoryService.getContentCacheMissCount() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getContentCacheEvictionCount() {
+            return directoryService != null ? directoryService.getContentCacheEvictionCount() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getCompressionCacheHitCount() {
+            return directoryService != null ? directoryService.getCompressionCacheHitCount() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getCompressionCount() {
+            return directoryService != null ? directoryService.getCompressionCount() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getResponseCacheHitCount() {
+            return httpProxyService != null ? httpProxyService.getResponseCacheHitCount() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getResponseCacheMissCount() {
+            return httpProxyService != null ? httpProxyService.getResponseCacheMissCount() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getResponseCacheRevalidationCount() {
+            return httpProxyService != null ? httpProxyService.getResponseCacheRevalidationCount() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getResponseCacheBytesSaved() {
+            return httpProxyService != null ? httpProxyService.getResponseCacheBytesSaved() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getSlowConsumerDroppedMessageCount() {
+            return broadcastService != null ? broadcastService.getDroppedMessageCount() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getSlowConsumerConflatedMessageCount() {
+            return broadcastService != null ? broadcastService.getConflatedMessageCount() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getConnectionPoolHitCount() {
+            return httpProxyService != null ? httpProxyService.getConnectionPoolHitCount() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getConnectionPoolMissCount() {
+            return httpProxyService != null ? httpProxyService.getConnectionPoolMissCount() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getConnectionPoolCreateCount() {
+            return httpProxyService != null ? httpProxyService.getConnectionPoolCreateCount() : 0;
+        }
+
+        // XXX This runs OFF the IO thread
+        @Override
+        public long getConnectionPoolEvictionCount() {
+            return httpProxyService != null ? httpProxyService.getConnectionPoolEvictionCount() : 0;
+        }
+
         @Override
         public IoSessionEx getSession(long sessionId) {
             return serviceContext.getActiveSession(sessionId);
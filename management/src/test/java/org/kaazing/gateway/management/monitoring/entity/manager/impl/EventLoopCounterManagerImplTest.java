@@ -0,0 +1,176 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.management.monitoring.entity.manager.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.EVENT_LOOP_METRICS_ENABLED;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jboss.netty.channel.socket.nio.NioSelectorMetrics;
+import org.jboss.netty.channel.socket.nio.NioWorker;
+import org.junit.Test;
+import org.kaazing.gateway.management.monitoring.entity.manager.EventLoopCounterManager;
+import org.kaazing.gateway.service.LongMonitoringCounter;
+import org.kaazing.gateway.service.MonitoringEntityFactory;
+
+public class EventLoopCounterManagerImplTest {
+
+    private static final long TASK_MILLIS = 20;
+
+    @Test(timeout = 10000)
+    public void shouldPublishIterationsRecordedSinceLastUpdate() throws Exception {
+        System.setProperty(EVENT_LOOP_METRICS_ENABLED.getPropertyName(), "true");
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            NioWorker worker = new NioWorker(executor);
+            try {
+                NioSelectorMetrics metrics = worker.getMetrics();
+                TestMonitoringEntityFactory factory = new TestMonitoringEntityFactory();
+                EventLoopCounterManager manager =
+                        new EventLoopCounterManagerImpl(factory, new NioSelectorMetrics[] { metrics });
+
+                runSlowTask(worker);
+                while (metrics.getTaskProcessingNanos().getMaxValue() < TASK_MILLIS * 1000000) {
+                    Thread.sleep(10);
+                }
+                manager.updateCounters();
+
+                assertTrue(factory.value("worker-0-loop-iterations") > 0);
+                assertTrue(factory.value("worker-0-task-processing-nanos-max") >= TASK_MILLIS * 1000000 * 15 / 16);
+                assertTrue(factory.value("worker-0-select-wait-nanos-p50") > 0);
+
+                // nothing slow since the previous update
+                long iterations = factory.value("worker-0-loop-iterations");
+                while (metrics.getReadyKeys().getTotalCount() == iterations) {
+                    Thread.sleep(10);
+                }
+                manager.updateCounters();
+                assertTrue(factory.value("worker-0-loop-iterations") > iterations);
+                assertTrue(factory.value("worker-0-task-processing-nanos-max") < TASK_MILLIS * 1000000);
+            }
+            finally {
+                worker.shutdown();
+            }
+        }
+        finally {
+            System.clearProperty(EVENT_LOOP_METRICS_ENABLED.getPropertyName());
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldCreateCountersForEachWorker() {
+        TestMonitoringEntityFactory factory = new TestMonitoringEntityFactory();
+        EventLoopCounterManager manager = new EventLoopCounterManagerImpl(factory, new NioSelectorMetrics[2]);
+
+        // 1 iteration counter, plus 4 percentiles of 4 histograms per worker
+        assertEquals(34, factory.counters.size());
+        assertTrue(factory.counters.containsKey("worker-1-io-processing-nanos-p999"));
+        assertTrue(factory.counters.containsKey("worker-1-ready-keys-p99"));
+
+        // disabled metrics leave the counters untouched
+        manager.updateCounters();
+        assertEquals(0, factory.value("worker-0-loop-iterations"));
+    }
+
+    private static void runSlowTask(NioWorker worker) throws InterruptedException {
+        final CountDownLatch taskRun = new CountDownLatch(1);
+        worker.executeInIoThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(TASK_MILLIS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                taskRun.countDown();
+            }
+        }, /*alwaysAsync*/ true);
+        taskRun.await();
+    }
+
+    private static final class TestMonitoringEntityFactory implements MonitoringEntityFactory {
+        private final Map<String, TestCounter> counters = new HashMap<>();
+
+        @Override
+        public LongMonitoringCounter makeLongMonitoringCounter(String name) {
+            TestCounter counter = new TestCounter();
+            counters.put(name, counter);
+            return counter;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        long value(String name) {
+            return counters.get(name).getValue();
+        }
+    }
+
+    private static final class TestCounter implements LongMonitoringCounter {
+        private volatile long value;
+
+        @Override
+        public LongMonitoringCounter reset() {
+            value = DEFAULT_VALUE;
+            return this;
+        }
+
+        @Override
+        public LongMonitoringCounter setValue(long value) {
+            this.value = value;
+            return this;
+        }
+
+        @Override
+        public long getValue() {
+            return value;
+        }
+
+        @Override
+        public LongMonitoringCounter increment() {
+            value++;
+            return this;
+        }
+
+        @Override
+        public LongMonitoringCounter incrementByValue(long value) {
+            this.value += value;
+            return this;
+        }
+
+        @Override
+        public LongMonitoringCounter decrement() {
+            value--;
+            return this;
+        }
+
+        @Override
+        public LongMonitoringCounter decrementByValue(long value) {
+            this.value -= value;
+            return this;
+        }
+    }
+
+}
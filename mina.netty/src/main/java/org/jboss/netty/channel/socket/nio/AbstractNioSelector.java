@@ -33,6 +33,7 @@ package org.jboss.netty.channel.socket.nio;
 import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.EVENT_LOOP_METRICS_ENABLED;
 
 import java.io.IOException;
 import java.nio.channels.CancelledKeyException;
@@ -120,6 +121,10 @@ abstract class AbstractNioSelector implements NioSelector {
     private final CountDownLatch shutdownLatch = new CountDownLatch(1);
     private volatile boolean shutdown;
 
+    // null unless enabled, as recording takes two more System.nanoTime() calls per iteration
+    private final NioSelectorMetrics metrics =
+            EVENT_LOOP_METRICS_ENABLED.getBooleanProperty(System.getProperties()) ? new NioSelectorMetrics() : null;
+
     AbstractNioSelector(Executor executor) {
         this(executor, null);
     }
@@ -246,6 +251,7 @@ abstract class AbstractNioSelector implements NioSelector {
             try {
                 long beforeSelect = System.nanoTime();
                 int selected = select(selector, quickSelect);
+                long afterSelect = (metrics != null) ? System.nanoTime() : 0;
                 // The SelectorUtil.EPOLL_BUG_WORKAROUND condition was removed in Netty 3.10.5 and instead
                 // added to the if (selectReturnsImmediately == 1024) condition later on. This seems inefficient
                 // for the (common) case where the workaround is not enabled since in that case there's no point
@@ -358,6 +364,7 @@ abstract class AbstractNioSelector implements NioSelector {
                     processTaskQueue();
                 }
                 selector = this.selector; // processTaskQueue() can call rebuildSelector()
+                long afterTasks = (metrics != null) ? System.nanoTime() : 0;
 
                 if (shutdown) {
                     this.selector = null;
@@ -384,6 +391,11 @@ abstract class AbstractNioSelector implements NioSelector {
                 } else {
                     process(selector);
                     processRead();
+                    if (metrics != null) {
+                        long afterProcess = System.nanoTime();
+                        metrics.recordIteration(afterSelect - beforeSelect, afterTasks - afterSelect,
+                                afterProcess - afterTasks, selected);
+                    }
                 }
             } catch (Throwable t) {
                 logger.warn(
@@ -485,6 +497,22 @@ abstract class AbstractNioSelector implements NioSelector {
         return quickSelect;
     }
 
+    /**
+     * Returns the number of tasks waiting to run on the I/O thread. This walks the task queue, so it should be
+     * sampled rather than called for every task.
+     */
+    protected final int getPendingTaskCount() {
+        return taskQueue.size();
+    }
+
+    /**
+     * @return the metrics of the iterations of this selector loop, or null unless
+     *         org.kaazing.netty.EVENT_LOOP_METRICS_ENABLED is set
+     */
+    public NioSelectorMetrics getMetrics() {
+        return metrics;
+    }
+
     protected final void increaseCancelledKeys() {
         cancelledKeys ++;
     }
@@ -93,6 +93,9 @@ public abstract class AbstractNioWorker extends AbstractNioSelector implements W
 
     private int noDroppedMessages;
 
+    // bytes read and written on the I/O thread, only accessed by that thread
+    private long processedBytes;
+
     AbstractNioWorker(Executor executor) {
         this(executor, null);
     }
@@ -361,6 +364,7 @@ public abstract class AbstractNioWorker extends AbstractNioSelector implements W
         }
         if (iothread) {
             if (writtenBytes > 0) {
+                processedBytes += writtenBytes;
                 // note: avoid re-allocation of write completion events
                 writeCompletionEvent.init(channel, writtenBytes);
                 channel.getPipeline().sendUpstream(writeCompletionEvent);
@@ -370,6 +374,17 @@ public abstract class AbstractNioWorker extends AbstractNioSelector implements W
         }
     }
 
+    final void bytesRead(int readBytes) {
+        processedBytes += readBytes;
+    }
+
+    /**
+     * Returns the number of bytes read and written so far on the I/O thread. Must be called from the I/O thread.
+     */
+    protected final long getProcessedBytes() {
+        return processedBytes;
+    }
+
     static boolean isIoThread(AbstractNioChannel<?> channel) {
         AbstractNioSelector worker = channel.worker;
         return worker != null && Thread.currentThread() == worker.thread;
@@ -0,0 +1,58 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.netty.channel.socket.nio;
+
+import org.kaazing.mina.netty.util.Histogram;
+
+/**
+ * Distribution of the time spent in each phase of the iterations of a selector loop, recorded by its I/O thread:
+ * waiting in select, running the queued tasks and processing the selected keys (including the filters and handlers
+ * they call into), along with the number of keys ready on each iteration.
+ */
+public final class NioSelectorMetrics {
+
+    private final Histogram selectWaitNanos = new Histogram();
+    private final Histogram taskProcessingNanos = new Histogram();
+    private final Histogram ioProcessingNanos = new Histogram();
+    private final Histogram readyKeys = new Histogram();
+
+    NioSelectorMetrics() {
+    }
+
+    public Histogram getSelectWaitNanos() {
+        return selectWaitNanos;
+    }
+
+    public Histogram getTaskProcessingNanos() {
+        return taskProcessingNanos;
+    }
+
+    public Histogram getIoProcessingNanos() {
+        return ioProcessingNanos;
+    }
+
+    public Histogram getReadyKeys() {
+        return readyKeys;
+    }
+
+    void recordIteration(long selectWait, long taskProcessing, long ioProcessing, int selected) {
+        selectWaitNanos.recordValue(selectWait);
+        taskProcessingNanos.recordValue(taskProcessing);
+        ioProcessingNanos.recordValue(ioProcessing);
+        readyKeys.recordValue(selected);
+    }
+
+}
@@ -130,6 +130,7 @@ public class NioWorker extends AbstractNioWorker {
             }
             failure = false;
             if (readBytes > 0) {
+                bytesRead(readBytes);
                 bb.flip();
 
                 final ChannelBuffer buffer = bufferFactory.getBuffer(readBytes);
@@ -317,6 +318,7 @@ public class NioWorker extends AbstractNioWorker {
 
             int readBytes = byteBuffer.remaining();
             if (readBytes > 0) {
+                bytesRead(readBytes);
                 // Update the predictor.
                 predictor.previousReceiveBufferSize(readBytes);
 
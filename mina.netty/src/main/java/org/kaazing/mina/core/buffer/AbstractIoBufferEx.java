@@ -189,6 +189,13 @@ public abstract class AbstractIoBufferEx extends IoBuffer implements IoBufferEx
      */
     protected abstract void buf(ByteBuffer newBuf);
 
+    /**
+     * Called once the content of this buffer has been moved to a newly allocated NIO buffer
+     * by expanding or shrinking it, so that the previous NIO buffer can be given back to its allocator.
+     */
+    protected void reallocated() {
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -250,6 +257,7 @@ public abstract class AbstractIoBufferEx extends IoBuffer implements IoBufferEx
             oldBuf.clear();
             newBuf.put(oldBuf);
             buf(newBuf);
+            reallocated();
 
             //// Restore the state.
             buf().limit(limit);
@@ -449,6 +457,7 @@ public abstract class AbstractIoBufferEx extends IoBuffer implements IoBufferEx
         oldBuf.limit(limit);
         newBuf.put(oldBuf);
         buf(newBuf);
+        reallocated();
 
         //// Restore the state.
         buf().position(position);
@@ -720,6 +729,7 @@ public abstract class AbstractIoBufferEx extends IoBuffer implements IoBufferEx
             ByteBuffer newBuf = autoShrinker.allocate(newCapacity, flags());
             newBuf.put(oldBuf);
             buf(newBuf);
+            reallocated();
 
             //// Restore the state.
             buf().order(bo);
@@ -788,6 +798,30 @@ public abstract class AbstractIoBufferEx extends IoBuffer implements IoBufferEx
         return (flags() & FLAG_SHARED) != FLAG_NONE;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IoBufferEx retain() {
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean release() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int refCount() {
+        return 1;
+    }
+
     /**
      * {@inheritDoc}
      */
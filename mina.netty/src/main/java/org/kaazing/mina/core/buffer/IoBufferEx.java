@@ -72,6 +72,15 @@ public interface IoBufferEx {
     int FLAG_DIRECT    = 0x01 << 2;
     int FLAG_ZERO_COPY = 0x01 << 3;
 
+    /**
+     * Requests a buffer from the allocator pool, where supported. The site that allocates a pooled buffer owns one
+     * reference to it and must {@link #release()} that reference, usually from a
+     * {@link org.kaazing.mina.core.future.ReleaseBufferListener} on the write future, otherwise the buffer is left
+     * to the garbage collector. A pooled shared buffer is retained by each of its writes, so it is returned to the pool
+     * when the last of them completes after its owner has released it.
+     */
+    int FLAG_POOLED    = 0x01 << 4;
+
     IoBuffer asIoBuffer();
 
     int flags();
@@ -90,6 +99,28 @@ public interface IoBufferEx {
      */
     void free();
 
+    /**
+     * Increments the reference count of this buffer, for {@link IoBufferAllocator} implementations that pool
+     * buffers. Derived buffers share the reference count of the buffer they were derived from.
+     * Buffers that are not pooled are not reference counted, so this method has no effect.
+     */
+    IoBufferEx retain();
+
+    /**
+     * Decrements the reference count of this buffer, returning it to its allocator pool when the count reaches zero.
+     * The buffer (and its derived buffers) must not be used after it has been released.
+     * A write retains the buffer until it completes, so the site that allocated a buffer releases its own reference
+     * once it no longer needs the buffer, which for a written buffer is when the write future completes.
+     *
+     * @return <tt>true</tt> if and only if the buffer was returned to its allocator pool
+     */
+    boolean release();
+
+    /**
+     * Returns the reference count of this buffer, always <tt>1</tt> for buffers that are not pooled.
+     */
+    int refCount();
+
     /**
      * Returns the underlying NIO buffer instance.
      */
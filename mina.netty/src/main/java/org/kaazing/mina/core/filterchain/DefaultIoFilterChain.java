@@ -200,6 +200,93 @@ public class DefaultIoFilterChain implements IoFilterChain {
         register(tail.prevEntry, name, filter);
     }
 
+    /**
+     * Adds the filters of the template after the filters of this chain, in the order of the template.
+     * Either all the filters are added or, when one of them fails to be added, none of them.
+     */
+    public synchronized void addLast(IoFilterChainTemplate template) {
+        String[] names = template.names;
+        int size = names.length;
+        if (size == 0) {
+            return;
+        }
+
+        // template names are distinct, so they can only clash with filters already in this chain
+        if (!name2entry.isEmpty()) {
+            for (String name : names) {
+                checkAddable(name);
+            }
+        }
+
+        // build the new entries as one list, then link it in front of the tail in one step
+        EntryImpl prevEntry = tail.prevEntry;
+        EntryImpl[] entries = new EntryImpl[size];
+        EntryImpl lastEntry = prevEntry;
+        for (int i = 0; i < size; i++) {
+            EntryImpl newEntry = new EntryImpl(lastEntry, tail, names[i], template.filter(i));
+            if (lastEntry != prevEntry) {
+                lastEntry.nextEntry = newEntry;
+            }
+            entries[i] = newEntry;
+            lastEntry = newEntry;
+        }
+
+        for (EntryImpl newEntry : entries) {
+            try {
+                newEntry.filter.onPreAdd(this, newEntry.name, newEntry.getNextFilter());
+            } catch (Exception e) {
+                throw new IoFilterLifeCycleException("onPreAdd(): " + newEntry.name + ':'
+                        + newEntry.filter + " in " + getSession(), e);
+            }
+        }
+
+        prevEntry.nextEntry = entries[0];
+        tail.prevEntry = lastEntry;
+        for (EntryImpl newEntry : entries) {
+            name2entry.put(newEntry.name, newEntry);
+        }
+
+        for (int i = 0; i < size; i++) {
+            EntryImpl newEntry = entries[i];
+            try {
+                newEntry.filter.onPostAdd(this, newEntry.name, newEntry.getNextFilter());
+            } catch (Exception e) {
+                deregisterAll(entries, i);
+                throw new IoFilterLifeCycleException("onPostAdd(): " + newEntry.name + ':'
+                        + newEntry.filter + " in " + getSession(), e);
+            }
+        }
+    }
+
+    /**
+     * Removes the entries added together from a template, last first, so that no partially added template
+     * is left in this chain. Only the first <tt>added</tt> entries are notified of their removal.
+     */
+    private void deregisterAll(EntryImpl[] entries, int added) {
+        for (int i = entries.length - 1; i >= 0; i--) {
+            EntryImpl entry = entries[i];
+            IoFilter filter = entry.getFilter();
+
+            if (i < added) {
+                try {
+                    filter.onPreRemove(this, entry.getName(), entry.getNextFilter());
+                } catch (Exception e) {
+                    LOGGER.warn("onPreRemove(): " + entry.getName() + ':' + filter + " in " + getSession(), e);
+                }
+            }
+
+            deregister0(entry);
+
+            if (i < added) {
+                try {
+                    filter.onPostRemove(this, entry.getName(), entry.getNextFilter());
+                } catch (Exception e) {
+                    LOGGER.warn("onPostRemove(): " + entry.getName() + ':' + filter + " in " + getSession(), e);
+                }
+            }
+        }
+    }
+
     @Override
     public synchronized void addBefore(String baseName, String name,
                                        IoFilter filter) {
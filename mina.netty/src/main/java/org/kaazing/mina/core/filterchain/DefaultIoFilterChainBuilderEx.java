@@ -0,0 +1,125 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.core.filterchain;
+
+import org.apache.mina.core.filterchain.DefaultIoFilterChainBuilder;
+import org.apache.mina.core.filterchain.IoFilter;
+import org.apache.mina.core.filterchain.IoFilterChain;
+
+/**
+ * A {@link DefaultIoFilterChainBuilder} that keeps an {@link IoFilterChainTemplate} of its filters, so that the chain
+ * of each new session is built in one step. The template is taken again after the builder is modified.
+ */
+public class DefaultIoFilterChainBuilderEx extends DefaultIoFilterChainBuilder {
+
+    private volatile IoFilterChainTemplate template;
+
+    @Override
+    public void buildFilterChain(IoFilterChain chain) throws Exception {
+        if (chain instanceof DefaultIoFilterChain) {
+            getTemplate().buildFilterChain(chain);
+        } else {
+            super.buildFilterChain(chain);
+        }
+    }
+
+    private IoFilterChainTemplate getTemplate() {
+        IoFilterChainTemplate template = this.template;
+        if (template == null) {
+            synchronized (this) {
+                template = this.template;
+                if (template == null) {
+                    template = IoFilterChainTemplate.empty();
+                    for (IoFilterChain.Entry entry : getAll()) {
+                        template = template.addLast(entry.getName(), entry.getFilter());
+                    }
+                    this.template = template;
+                }
+            }
+        }
+        return template;
+    }
+
+    @Override
+    public synchronized void addFirst(String name, IoFilter filter) {
+        super.addFirst(name, filter);
+        template = null;
+    }
+
+    @Override
+    public synchronized void addLast(String name, IoFilter filter) {
+        super.addLast(name, filter);
+        template = null;
+    }
+
+    @Override
+    public synchronized void addBefore(String baseName, String name, IoFilter filter) {
+        super.addBefore(baseName, name, filter);
+        template = null;
+    }
+
+    @Override
+    public synchronized void addAfter(String baseName, String name, IoFilter filter) {
+        super.addAfter(baseName, name, filter);
+        template = null;
+    }
+
+    @Override
+    public synchronized IoFilter remove(String name) {
+        IoFilter filter = super.remove(name);
+        template = null;
+        return filter;
+    }
+
+    @Override
+    public synchronized IoFilter remove(IoFilter filter) {
+        IoFilter oldFilter = super.remove(filter);
+        template = null;
+        return oldFilter;
+    }
+
+    @Override
+    public synchronized IoFilter remove(Class<? extends IoFilter> filterType) {
+        IoFilter filter = super.remove(filterType);
+        template = null;
+        return filter;
+    }
+
+    @Override
+    public synchronized IoFilter replace(String name, IoFilter newFilter) {
+        IoFilter oldFilter = super.replace(name, newFilter);
+        template = null;
+        return oldFilter;
+    }
+
+    @Override
+    public synchronized void replace(IoFilter oldFilter, IoFilter newFilter) {
+        super.replace(oldFilter, newFilter);
+        template = null;
+    }
+
+    @Override
+    public synchronized void replace(Class<? extends IoFilter> oldFilterType, IoFilter newFilter) {
+        super.replace(oldFilterType, newFilter);
+        template = null;
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        template = null;
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.core.filterchain;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import org.apache.mina.core.filterchain.IoFilter;
+import org.apache.mina.core.filterchain.IoFilterChain;
+import org.apache.mina.core.filterchain.IoFilterChainBuilder;
+
+/**
+ * An immutable, ordered list of named filters that is built once and then added to the filter chain of each new
+ * session. The filters are shared by all the sessions the template is applied to, except those added with a
+ * factory, which are created for each session. A {@link DefaultIoFilterChain} links all of them in one step under
+ * a single lock, skipping the name checks when its chain is still empty.
+ */
+public final class IoFilterChainTemplate implements IoFilterChainBuilder {
+
+    private static final IoFilterChainTemplate EMPTY =
+            new IoFilterChainTemplate(new String[0], new IoFilter[0], new Supplier<?>[0]);
+
+    final String[] names;
+    private final IoFilter[] filters;
+    private final Supplier<?>[] factories;
+
+    private IoFilterChainTemplate(String[] names, IoFilter[] filters, Supplier<?>[] factories) {
+        this.names = names;
+        this.filters = filters;
+        this.factories = factories;
+    }
+
+    public static IoFilterChainTemplate empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return a new template with the given filter added after the filters of this template
+     */
+    public IoFilterChainTemplate addLast(String name, IoFilter filter) {
+        if (filter == null) {
+            throw new NullPointerException("filter");
+        }
+        return addLast(name, filter, null);
+    }
+
+    /**
+     * @return a new template with a filter created by the given factory for each session added after the filters
+     *         of this template
+     */
+    public IoFilterChainTemplate addLast(String name, Supplier<? extends IoFilter> filterFactory) {
+        if (filterFactory == null) {
+            throw new NullPointerException("filterFactory");
+        }
+        return addLast(name, null, filterFactory);
+    }
+
+    private IoFilterChainTemplate addLast(String name, IoFilter filter, Supplier<? extends IoFilter> filterFactory) {
+        if (name == null) {
+            throw new NullPointerException("name");
+        }
+        for (String existing : names) {
+            if (existing.equals(name)) {
+                throw new IllegalArgumentException("Other filter is using the same name '" + name + "'");
+            }
+        }
+
+        int size = names.length;
+        String[] newNames = Arrays.copyOf(names, size + 1);
+        IoFilter[] newFilters = Arrays.copyOf(filters, size + 1);
+        Supplier<?>[] newFactories = Arrays.copyOf(factories, size + 1);
+        newNames[size] = name;
+        newFilters[size] = filter;
+        newFactories[size] = filterFactory;
+        return new IoFilterChainTemplate(newNames, newFilters, newFactories);
+    }
+
+    /**
+     * @return the shared filter at the given index, or a new one for a filter added with a factory
+     */
+    IoFilter filter(int index) {
+        IoFilter filter = filters[index];
+        return (filter != null) ? filter : (IoFilter) factories[index].get();
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    @Override
+    public void buildFilterChain(IoFilterChain chain) {
+        if (chain instanceof DefaultIoFilterChain) {
+            ((DefaultIoFilterChain) chain).addLast(this);
+        } else {
+            for (int i = 0; i < names.length; i++) {
+                chain.addLast(names[i], filter(i));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(names);
+    }
+}
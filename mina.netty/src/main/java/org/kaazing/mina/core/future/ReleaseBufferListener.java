@@ -0,0 +1,47 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.core.future;
+
+import org.apache.mina.core.future.IoFuture;
+import org.apache.mina.core.future.IoFutureListener;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+
+/**
+ * Releases the reference held by the site that allocated a buffer once the write of that buffer completes,
+ * successfully or not. The write itself retains the buffer for as long as it needs it, so this reference must
+ * not be released as soon as the buffer has been passed to write.
+ * Also releases the reference taken by a channel write for its duration, once the channel write completes.
+ */
+public final class ReleaseBufferListener implements IoFutureListener<IoFuture>, ChannelFutureListener {
+
+    private final IoBufferEx buf;
+
+    public ReleaseBufferListener(IoBufferEx buf) {
+        this.buf = buf;
+    }
+
+    @Override
+    public void operationComplete(IoFuture future) {
+        buf.release();
+    }
+
+    @Override
+    public void operationComplete(ChannelFuture future) {
+        buf.release();
+    }
+}
@@ -48,6 +48,7 @@ import org.apache.mina.core.session.IoSessionInitializer;
 import org.apache.mina.util.NamePreservingRunnable;
 
 import org.kaazing.mina.core.filterchain.DefaultIoFilterChain;
+import org.kaazing.mina.core.filterchain.DefaultIoFilterChainBuilderEx;
 import org.kaazing.mina.core.session.AbstractIoSession;
 import org.kaazing.mina.util.ExceptionMonitor;
 
@@ -138,7 +139,7 @@ public abstract class AbstractIoService implements IoService {
     /**
      * Current filter chain builder.
      */
-    private IoFilterChainBuilder filterChainBuilder = new DefaultIoFilterChainBuilder();
+    private IoFilterChainBuilder filterChainBuilder = new DefaultIoFilterChainBuilderEx();
 
     private IoSessionDataStructureFactory sessionDataStructureFactory = new DefaultIoSessionDataStructureFactory();
 
@@ -230,7 +231,7 @@ public abstract class AbstractIoService implements IoService {
     @Override
     public final void setFilterChainBuilder(IoFilterChainBuilder builder) {
         if (builder == null) {
-            builder = new DefaultIoFilterChainBuilder();
+            builder = new DefaultIoFilterChainBuilderEx();
         }
         filterChainBuilder = builder;
     }
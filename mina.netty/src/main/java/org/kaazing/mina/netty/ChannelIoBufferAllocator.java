@@ -15,43 +15,157 @@
  */
 package org.kaazing.mina.netty;
 
+import static org.kaazing.mina.netty.config.InternalSystemProperty.BUFFER_POOL_ENABLED;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.BUFFER_POOL_LEAK_DETECTION;
+import static org.kaazing.mina.netty.config.InternalSystemProperty.BUFFER_POOL_MAX_CACHED_PER_SIZE;
+
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Properties;
 
 import org.kaazing.mina.core.buffer.AbstractIoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.AbstractIoBufferEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
 import org.kaazing.mina.netty.ChannelIoBufferAllocator.ChannelIoBuffer;
+import org.kaazing.mina.netty.ChannelIoBufferPool.Chunk;
 import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
 
 public final class ChannelIoBufferAllocator extends AbstractIoBufferAllocatorEx<ChannelIoBuffer> {
 
+    private final ChannelIoBufferPool pool;
+
+    public ChannelIoBufferAllocator() {
+        this(BUFFER_POOL_ENABLED.getBooleanProperty(System.getProperties()));
+    }
+
+    /**
+     * @param pooled whether to recycle buffers allocated with {@link IoBufferEx#FLAG_POOLED} on I/O threads through
+     *               per-thread arenas once their reference count drops to zero, otherwise every allocation is fresh
+     *               and {@link IoBufferEx#release()} has no effect
+     */
+    public ChannelIoBufferAllocator(boolean pooled) {
+        Properties configuration = System.getProperties();
+        this.pool = pooled ? new ChannelIoBufferPool(BUFFER_POOL_MAX_CACHED_PER_SIZE.getIntProperty(configuration),
+                BUFFER_POOL_LEAK_DETECTION.getBooleanProperty(configuration)) : null;
+    }
+
     @Override
     public ByteBuffer allocate(int capacity, int flags) {
+        if (pool != null && (flags & IoBufferEx.FLAG_POOLED) != IoBufferEx.FLAG_NONE) {
+            boolean direct = (flags & IoBufferEx.FLAG_DIRECT) != IoBufferEx.FLAG_NONE;
+            ByteBuffer nioBuffer = pool.allocate(capacity, direct);
+            if (nioBuffer != null) {
+                return nioBuffer;
+            }
+        }
         return allocateNioBuffer0(capacity, flags);
     }
 
     @Override
     public ChannelIoBuffer wrap(ByteBuffer nioBuffer, int flags) {
+        Chunk chunk = (pool != null) ? pool.chunkFor(nioBuffer) : null;
         boolean shared = (flags & IoBufferEx.FLAG_SHARED) != IoBufferEx.FLAG_NONE;
-        return shared ? new ChannelIoSharedBuffer(nioBuffer) : new ChannelIoUnsharedBuffer(nioBuffer);
+        ChannelIoBuffer buf = shared ? new ChannelIoSharedBuffer(nioBuffer, chunk)
+                                     : new ChannelIoUnsharedBuffer(nioBuffer, chunk);
+        if (chunk != null) {
+            pool.track(buf, chunk);
+        }
+        return buf;
+    }
+
+    /**
+     * @return the number of buffers allocated by the pool (rather than reused), or zero if not pooled
+     */
+    public long getPoolAllocationCount() {
+        return (pool != null) ? pool.getAllocationCount() : 0L;
+    }
+
+    /**
+     * @return the number of allocations satisfied by reusing a released buffer, or zero if not pooled
+     */
+    public long getPoolReuseCount() {
+        return (pool != null) ? pool.getReuseCount() : 0L;
+    }
+
+    /**
+     * @return the number of pooled buffers garbage collected without being released (only with leak detection)
+     */
+    public long getPoolLeakCount() {
+        return (pool != null) ? pool.getLeakCount() : 0L;
     }
 
     abstract static class ChannelIoBuffer extends AbstractIoBufferEx {
-        protected ChannelIoBuffer(int capacity) {
+
+        // non-null when pooled, shared with derived buffers
+        private Chunk chunk;
+
+        // keeps the (leak tracked) buffer this one was derived from reachable
+        private final ChannelIoBuffer parent;
+
+        protected ChannelIoBuffer(int capacity, Chunk chunk) {
             super(capacity);
+            this.chunk = chunk;
+            this.parent = null;
         }
 
         protected ChannelIoBuffer(ChannelIoBuffer parent) {
             super(parent);
+            this.chunk = parent.chunk;
+            this.parent = (parent.chunk != null) ? parent : null;
         }
 
         @Override
         public abstract void buf(ByteBuffer newBuf);
 
+        final Chunk chunk() {
+            return chunk;
+        }
+
+        /**
+         * Called before this buffer is written to a channel.
+         * A pooled buffer is retained for the duration of each write, whether shared or not, so that the reference
+         * held by the site that allocated it stays valid and the same buffer can be written more than once.
+         *
+         * @return true if the buffer must be released once the write completes
+         */
+        final boolean retainForWrite() {
+            if (chunk == null) {
+                return false;
+            }
+            chunk.retain();
+            return true;
+        }
+
+        @Override
+        protected void reallocated() {
+            // the new storage is not pooled, so return the chunk now unless a write in flight still needs it
+            // (the chunk is then returned when the last reference to this buffer is released, as before)
+            if (chunk != null && chunk.releaseIfExclusive()) {
+                chunk = null;
+            }
+        }
+
         @Override
         public void free() {
-            // Do nothing
+            // Do nothing, pooled buffers are only recycled by an explicit release()
+        }
+
+        @Override
+        public ChannelIoBuffer retain() {
+            if (chunk != null) {
+                chunk.retain();
+            }
+            return this;
+        }
+
+        @Override
+        public boolean release() {
+            return chunk != null && chunk.release();
+        }
+
+        @Override
+        public int refCount() {
+            return (chunk != null) ? chunk.refCount() : 1;
         }
     }
 
@@ -59,8 +173,8 @@ public final class ChannelIoBufferAllocator extends AbstractIoBufferAllocatorEx<
     static final class ChannelIoSharedBuffer extends ChannelIoBuffer {
         private final ThreadLocal<ByteBuffer> bufRef;
 
-        private ChannelIoSharedBuffer(final ByteBuffer buf) {
-            super(buf.capacity());
+        private ChannelIoSharedBuffer(final ByteBuffer buf, Chunk chunk) {
+            super(buf.capacity(), chunk);
 
             this.bufRef = new VicariousThreadLocal<ByteBuffer>() {
                 @Override
@@ -119,7 +233,7 @@ public final class ChannelIoBufferAllocator extends AbstractIoBufferAllocatorEx<
 
         @Override
         protected ChannelIoBuffer asUnsharedBuffer0() {
-            return new ChannelIoUnsharedBuffer(buf());
+            return new ChannelIoUnsharedBuffer(buf(), chunk());
         }
 
         @Override
@@ -142,8 +256,8 @@ public final class ChannelIoBufferAllocator extends AbstractIoBufferAllocatorEx<
     static final class ChannelIoUnsharedBuffer extends ChannelIoBuffer {
         private ByteBuffer buf;
 
-        private ChannelIoUnsharedBuffer(ByteBuffer buf) {
-            super(buf.capacity());
+        private ChannelIoUnsharedBuffer(ByteBuffer buf, Chunk chunk) {
+            super(buf.capacity(), chunk);
             this.buf = buf;
             buf.order(ByteOrder.BIG_ENDIAN);
         }
@@ -187,7 +301,7 @@ public final class ChannelIoBufferAllocator extends AbstractIoBufferAllocatorEx<
 
         @Override
         protected ChannelIoSharedBuffer asSharedBuffer0() {
-            return new ChannelIoSharedBuffer(buf());
+            return new ChannelIoSharedBuffer(buf(), chunk());
         }
 
         @Override
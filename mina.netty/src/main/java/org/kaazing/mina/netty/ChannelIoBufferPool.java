@@ -0,0 +1,313 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.netty;
+
+import static java.lang.String.format;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.netty.util.internal.DeadLockProofWorker;
+import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of size-classed heap and direct buffers with one arena per I/O thread, so that allocation
+ * and release on the same thread never contend. A buffer is recycled into the arena of the thread that releases it,
+ * not the arena of the thread that allocated it, so buffers written by one thread and released by another migrate
+ * to the releasing thread (up to its per size class limit, beyond which they are left to the garbage collector).
+ * Requests larger than the largest size class, and requests from other threads, are not pooled, and buffers released
+ * by other threads are left to the garbage collector, so that no arena is ever created for a short-lived thread.
+ */
+final class ChannelIoBufferPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChannelIoBufferPool.class);
+
+    private static final int MIN_SIZE_CLASS_SHIFT = 9;   // 512 bytes
+    private static final int MAX_SIZE_CLASS_SHIFT = 16;  // 64 KiB
+    private static final int SIZE_CLASS_COUNT = MAX_SIZE_CLASS_SHIFT - MIN_SIZE_CLASS_SHIFT + 1;
+
+    // allocate() and wrap() are separate calls on IoBufferAllocatorEx, remember the most recent allocations
+    // per thread so that wrap() can find the chunk behind a pooled ByteBuffer
+    private static final int PENDING_WRAP_COUNT = 8;
+
+    // capturing a stack trace on every allocation is too costly, so only some allocation sites are recorded
+    private static final int LEAK_SITE_SAMPLING_INTERVAL = 128;
+
+    private final int maxCachedPerSizeClass;
+    private final boolean leakDetection;
+    private final ThreadLocal<Arena> arenas;
+
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final AtomicLong tracked = new AtomicLong();
+
+    private final ReferenceQueue<Object> leakQueue;
+    private final Set<LeakReference> leakReferences;
+
+    ChannelIoBufferPool(int maxCachedPerSizeClass, boolean leakDetection) {
+        this.maxCachedPerSizeClass = maxCachedPerSizeClass;
+        this.leakDetection = leakDetection;
+        this.arenas = new VicariousThreadLocal<Arena>() {
+            @Override
+            protected Arena initialValue() {
+                return new Arena();
+            }
+        };
+        this.leakQueue = leakDetection ? new ReferenceQueue<>() : null;
+        this.leakReferences = leakDetection
+                ? Collections.newSetFromMap(new ConcurrentHashMap<LeakReference, Boolean>()) : null;
+    }
+
+    /**
+     * @return a buffer of exactly the requested capacity (and zero array offset),
+     *         or null if the capacity is too large to be pooled
+     */
+    ByteBuffer allocate(int capacity, boolean direct) {
+        int sizeClass = sizeClass(capacity);
+        if (sizeClass == -1 || !isIoThread()) {
+            return null;
+        }
+
+        if (leakDetection) {
+            reportLeaks();
+        }
+
+        Arena arena = arenas.get();
+        Chunk chunk = arena.free(direct, sizeClass).pollFirst();
+        if (chunk == null) {
+            int chunkSize = 1 << (sizeClass + MIN_SIZE_CLASS_SHIFT);
+            ByteBuffer chunkBuf = direct ? ByteBuffer.allocateDirect(chunkSize) : ByteBuffer.allocate(chunkSize);
+            chunk = new Chunk(this, sizeClass, chunkBuf);
+            allocations.incrementAndGet();
+        }
+        else {
+            reuses.incrementAndGet();
+        }
+        chunk.refCount.set(1);
+
+        ByteBuffer buf = chunk.buf.duplicate();
+        buf.limit(capacity);
+        ByteBuffer slice = buf.slice();
+        arena.pending(slice, chunk);
+        return slice;
+    }
+
+    /**
+     * @return the chunk behind a buffer recently returned by {@link #allocate(int, boolean)} on this thread, or null
+     */
+    Chunk chunkFor(ByteBuffer buf) {
+        return isIoThread() ? arenas.get().takePending(buf) : null;
+    }
+
+    /**
+     * Tracks the owner of a chunk so that it is reported if garbage collected without being released.
+     */
+    void track(Object owner, Chunk chunk) {
+        if (leakDetection) {
+            boolean sampled = tracked.getAndIncrement() % LEAK_SITE_SAMPLING_INTERVAL == 0;
+            LeakReference reference = new LeakReference(owner, chunk, sampled, leakQueue);
+            chunk.leakReference = reference;
+            leakReferences.add(reference);
+        }
+    }
+
+    long getAllocationCount() {
+        return allocations.get();
+    }
+
+    long getReuseCount() {
+        return reuses.get();
+    }
+
+    long getLeakCount() {
+        if (leakDetection) {
+            reportLeaks();
+        }
+        return leaks.get();
+    }
+
+    private void recycle(Chunk chunk) {
+        LeakReference reference = chunk.leakReference;
+        if (reference != null) {
+            chunk.leakReference = null;
+            leakReferences.remove(reference);
+            reference.clear();
+        }
+
+        if (isIoThread()) {
+            ArrayDeque<Chunk> free = arenas.get().free(chunk.buf.isDirect(), chunk.sizeClass);
+            if (free.size() < maxCachedPerSizeClass) {
+                free.offerFirst(chunk);
+            }
+        }
+    }
+
+    private void reportLeaks() {
+        LeakReference reference;
+        while ((reference = (LeakReference) leakQueue.poll()) != null) {
+            if (leakReferences.remove(reference)) {
+                leaks.incrementAndGet();
+                String message = format("Pooled buffer of %d bytes was garbage collected without being released",
+                        reference.capacity);
+                if (reference.allocationSite != null) {
+                    LOGGER.error(message, reference.allocationSite);
+                }
+                else {
+                    LOGGER.error(format("%s (allocation site recorded for one in %d buffers only)",
+                            message, LEAK_SITE_SAMPLING_INTERVAL));
+                }
+            }
+        }
+    }
+
+    // netty marks its boss and worker threads, which are the only long-lived threads that allocate for writes
+    private static boolean isIoThread() {
+        return DeadLockProofWorker.PARENT.get() != null;
+    }
+
+    private static int sizeClass(int capacity) {
+        if (capacity > (1 << MAX_SIZE_CLASS_SHIFT)) {
+            return -1;
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1) - 1);
+        return Math.max(shift, MIN_SIZE_CLASS_SHIFT) - MIN_SIZE_CLASS_SHIFT;
+    }
+
+    static final class Chunk {
+        private final ChannelIoBufferPool pool;
+        private final int sizeClass;
+        private final ByteBuffer buf;
+        private final AtomicInteger refCount;
+        private volatile LeakReference leakReference;
+
+        private Chunk(ChannelIoBufferPool pool, int sizeClass, ByteBuffer buf) {
+            this.pool = pool;
+            this.sizeClass = sizeClass;
+            this.buf = buf;
+            this.refCount = new AtomicInteger();
+        }
+
+        void retain() {
+            for (;;) {
+                int count = refCount.get();
+                if (count == 0) {
+                    throw new IllegalStateException("Pooled buffer already released");
+                }
+                if (refCount.compareAndSet(count, count + 1)) {
+                    return;
+                }
+            }
+        }
+
+        boolean release() {
+            for (;;) {
+                int count = refCount.get();
+                if (count == 0) {
+                    throw new IllegalStateException("Pooled buffer already released");
+                }
+                if (refCount.compareAndSet(count, count - 1)) {
+                    if (count == 1) {
+                        pool.recycle(this);
+                        return true;
+                    }
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * Releases the only reference to this chunk, typically held by a buffer about to move to other storage.
+         *
+         * @return false, leaving this chunk unchanged, if other references are held (such as by writes in flight)
+         */
+        boolean releaseIfExclusive() {
+            if (refCount.compareAndSet(1, 0)) {
+                pool.recycle(this);
+                return true;
+            }
+            return false;
+        }
+
+        int refCount() {
+            return refCount.get();
+        }
+    }
+
+    private final class Arena {
+        private final ArrayDeque<Chunk>[] heap;
+        private final ArrayDeque<Chunk>[] direct;
+        private final ByteBuffer[] pendingBuffers;
+        private final Chunk[] pendingChunks;
+        private int pendingIndex;
+
+        @SuppressWarnings("unchecked")
+        private Arena() {
+            this.heap = new ArrayDeque[SIZE_CLASS_COUNT];
+            this.direct = new ArrayDeque[SIZE_CLASS_COUNT];
+            for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+                heap[i] = new ArrayDeque<>();
+                direct[i] = new ArrayDeque<>();
+            }
+            this.pendingBuffers = new ByteBuffer[PENDING_WRAP_COUNT];
+            this.pendingChunks = new Chunk[PENDING_WRAP_COUNT];
+        }
+
+        private ArrayDeque<Chunk> free(boolean isDirect, int sizeClass) {
+            return isDirect ? direct[sizeClass] : heap[sizeClass];
+        }
+
+        private void pending(ByteBuffer buf, Chunk chunk) {
+            // a chunk evicted here was allocated but never wrapped, so it is left to the garbage collector
+            int index = pendingIndex;
+            pendingBuffers[index] = buf;
+            pendingChunks[index] = chunk;
+            pendingIndex = (index + 1) % PENDING_WRAP_COUNT;
+        }
+
+        private Chunk takePending(ByteBuffer buf) {
+            for (int i = 0; i < PENDING_WRAP_COUNT; i++) {
+                if (pendingBuffers[i] == buf) {
+                    Chunk chunk = pendingChunks[i];
+                    pendingBuffers[i] = null;
+                    pendingChunks[i] = null;
+                    return chunk;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class LeakReference extends WeakReference<Object> {
+        private final int capacity;
+        private final Throwable allocationSite;
+
+        private LeakReference(Object owner, Chunk chunk, boolean sampled, ReferenceQueue<Object> queue) {
+            super(owner, queue);
+            this.capacity = chunk.buf.capacity();
+            this.allocationSite = sampled ? new Throwable("Allocation site") : null;
+        }
+    }
+}
@@ -38,6 +38,7 @@ import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelPipeline;
 
 import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.future.ReleaseBufferListener;
 import org.kaazing.mina.core.service.AbstractIoProcessor;
 import org.kaazing.mina.netty.ChannelIoBufferAllocator.ChannelIoBuffer;
 import org.kaazing.mina.netty.channel.DownstreamMessageEventEx;
@@ -233,6 +234,8 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
                         filterChain.fireMessageSent(req);
                     }
                     else {
+                        final boolean release = channelIoBuf.retainForWrite();
+
                         // 1. detect shared buffer
                         if (channelIoBuf.isShared()) {
                             // 1a. buffer is shared
@@ -257,6 +260,9 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
 
                                 // shared buffer write complete
                                 ChannelWriteFutureListener.operationComplete(future, filterChain, req);
+                                if (release) {
+                                    channelIoBuf.release();
+                                }
                             }
                             else {
                                 // shared buffer write incomplete
@@ -270,6 +276,9 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
 
                                 // register listener to detect when write completed
                                 future.addListener(new ChannelWriteFutureListener(filterChain, req));
+                                if (release) {
+                                    future.addListener(new ReleaseBufferListener(channelIoBuf));
+                                }
                             }
                         }
                         else {
@@ -291,10 +300,16 @@ final class ChannelIoProcessor extends AbstractIoProcessor<ChannelIoSession<? ex
                             if (future.isDone()) {
                                 // unshared buffer write complete
                                 ChannelWriteFutureListener.operationComplete(future, filterChain, req);
+                                if (release) {
+                                    channelIoBuf.release();
+                                }
                             }
                             else {
                                 // unshared buffer write incomplete
                                 future.addListener(new ChannelWriteFutureListener(filterChain, req));
+                                if (release) {
+                                    future.addListener(new ReleaseBufferListener(channelIoBuf));
+                                }
                             }
                         }
                     }
@@ -35,7 +35,19 @@ public enum InternalSystemProperty {
 
     // A worker is serving multiple UDP child channels and they share an Agrona read queue.
     // Agrona uses the next power of 2 greater than or equal to the supplied value
-    UDP_CHANNEL_READ_QUEUE_SIZE("org.kaazing.netty.UDP_CHANNEL_READ_QUEUE_SIZE", "16384");
+    UDP_CHANNEL_READ_QUEUE_SIZE("org.kaazing.netty.UDP_CHANNEL_READ_QUEUE_SIZE", "16384"),
+
+    // Record the time spent selecting, running tasks and processing I/O on each iteration of the worker loops
+    EVENT_LOOP_METRICS_ENABLED("org.kaazing.netty.EVENT_LOOP_METRICS_ENABLED", "false"),
+
+    // Recycle I/O buffers allocated as pooled through per I/O thread arenas once their reference count drops to zero
+    BUFFER_POOL_ENABLED("org.kaazing.netty.BUFFER_POOL_ENABLED", "false"),
+
+    // Maximum number of released buffers kept by each thread arena, per size class
+    BUFFER_POOL_MAX_CACHED_PER_SIZE("org.kaazing.netty.BUFFER_POOL_MAX_CACHED_PER_SIZE", "64"),
+
+    // Report pooled buffers garbage collected without being released (samples allocation sites)
+    BUFFER_POOL_LEAK_DETECTION("org.kaazing.netty.BUFFER_POOL_LEAK_DETECTION", "false");
 
     private final String name;
     private final String defaultValue;
@@ -61,6 +73,10 @@ public enum InternalSystemProperty {
         return parseInt(value);
     }
 
+    public boolean getBooleanProperty(Properties configuration) {
+        return Boolean.parseBoolean(getProperty(configuration));
+    }
+
     public Long getLongProperty(Properties configuration) {
         String value = getProperty(configuration);
         if (value == null) {
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.netty.util;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of non-negative long values, in the style of HdrHistogram: values are counted in buckets whose width
+ * grows with the magnitude of the value, so that any recorded value is reported within 1/16 (6.25%) of its actual
+ * value, using a fixed amount of memory and without allocation when recording.
+ *
+ * Values are recorded by a single thread. Other threads may read the histogram at any time, and see the counts
+ * as they were at some recent point.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+    private static final int BUCKET_COUNT = Long.SIZE - SUB_BUCKET_BITS;
+    private static final int COUNTS_LENGTH = SUB_BUCKET_COUNT + (BUCKET_COUNT - 1) * SUB_BUCKET_HALF_COUNT;
+
+    private final long[] counts;
+    private long totalCount;
+    private long maxValue;
+
+    public Histogram() {
+        this.counts = new long[COUNTS_LENGTH];
+    }
+
+    /**
+     * Records a value, negative values being recorded as zero. Must only be called by the recording thread.
+     */
+    public void recordValue(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[countsIndex(value)]++;
+        totalCount++;
+        if (value > maxValue) {
+            maxValue = value;
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the value that the given percentage of the recorded values are lower than or equivalent to, or zero when
+     *         no value has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] counts = this.counts;
+        long totalCount = 0;
+        for (long count : counts) {
+            totalCount += count;
+        }
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            count += counts[i];
+            if (count >= countAtPercentile) {
+                return Math.min(highestEquivalentValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * @return a copy of this histogram
+     */
+    public Histogram copy() {
+        Histogram copy = new Histogram();
+        System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+        copy.totalCount = totalCount;
+        copy.maxValue = maxValue;
+        return copy;
+    }
+
+    /**
+     * @param earlier a copy of this histogram taken earlier
+     * @return a histogram of the values recorded since the earlier copy, whose maximum is only known to within the
+     *         precision of the histogram
+     */
+    public Histogram since(Histogram earlier) {
+        Histogram since = new Histogram();
+        int highestIndex = -1;
+        for (int i = 0; i < counts.length; i++) {
+            long count = counts[i] - earlier.counts[i];
+            if (count > 0) {
+                since.counts[i] = count;
+                since.totalCount += count;
+                highestIndex = i;
+            }
+        }
+        if (highestIndex != -1) {
+            since.maxValue = Math.min(highestEquivalentValue(highestIndex), maxValue);
+        }
+        return since;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Histogram [totalCount=%d, maxValue=%d, counts=%s]", totalCount, maxValue,
+                Arrays.toString(counts));
+    }
+
+    static int countsIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        // keep the SUB_BUCKET_BITS most significant bits of the value, the top one always being set
+        int shift = (Long.SIZE - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        int subBucketIndex = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (subBucketIndex - SUB_BUCKET_HALF_COUNT);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucketIndex = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((subBucketIndex + 1) << shift) - 1;
+    }
+
+}
@@ -16,9 +16,14 @@
 package org.jboss.netty.channel.socket.nio;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.nio.channels.Selector;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.jmock.Expectations;
 import org.jmock.Mockery;
@@ -63,6 +68,62 @@ public class NioWorkerTest {
         context.assertIsSatisfied();
     }
 
+    @Test
+    public void metricsShouldBeDisabledByDefault() throws Exception {
+        Mockery context = new Mockery();
+        final Executor executor = context.mock(Executor.class);
+
+        context.checking(new Expectations() {
+            {
+                oneOf(executor).execute(with(any(Runnable.class)));
+            }
+        });
+
+        NioWorker worker = new NioWorker(executor);
+        assertNull(worker.getMetrics());
+        context.assertIsSatisfied();
+    }
+
+    @Test(timeout = 10000)
+    public void metricsShouldRecordLoopIterationsWhenEnabled() throws Exception {
+        System.setProperty(InternalSystemProperty.EVENT_LOOP_METRICS_ENABLED.getPropertyName(), "true");
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            NioWorker worker = new NioWorker(executor);
+            NioSelectorMetrics metrics = worker.getMetrics();
+            try {
+                final CountDownLatch taskRun = new CountDownLatch(1);
+                worker.executeInIoThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(20);
+                        }
+                        catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        taskRun.countDown();
+                    }
+                }, /*alwaysAsync*/ true);
+                taskRun.await();
+
+                // the iteration is recorded once the selected keys have been processed after the task
+                while (metrics.getTaskProcessingNanos().getMaxValue() < 20000000L) {
+                    Thread.sleep(10);
+                }
+                assertTrue(metrics.getReadyKeys().getTotalCount() > 0);
+                assertEquals(metrics.getReadyKeys().getTotalCount(), metrics.getSelectWaitNanos().getTotalCount());
+            }
+            finally {
+                worker.shutdown();
+            }
+        }
+        finally {
+            System.clearProperty(InternalSystemProperty.EVENT_LOOP_METRICS_ENABLED.getPropertyName());
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void normalSelectTimeoutShouldDefaultToNettyDefaultValue() throws Exception {
         assertSelectTimeout(false, SelectorUtil.DEFAULT_SELECT_TIMEOUT);
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.core.filterchain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.mina.core.filterchain.IoFilter;
+import org.apache.mina.core.filterchain.IoFilterAdapter;
+import org.apache.mina.core.filterchain.IoFilterChain;
+import org.apache.mina.core.filterchain.IoFilterLifeCycleException;
+import org.apache.mina.core.filterchain.IoFilter.NextFilter;
+import org.junit.Test;
+
+import org.kaazing.mina.core.session.DummySessionEx;
+
+public class IoFilterChainTemplateTest {
+
+    @Test
+    public void shouldAddFiltersInTemplateOrder() throws Exception {
+        IoFilter first = new IoFilterAdapter();
+        IoFilter second = new IoFilterAdapter();
+        IoFilterChainTemplate template = IoFilterChainTemplate.empty().addLast("first", first).addLast("second", second);
+
+        IoFilterChain chain = new DummySessionEx().getFilterChain();
+        chain.addLast("existing", new IoFilterAdapter());
+        template.buildFilterChain(chain);
+
+        List<String> names = new ArrayList<>();
+        for (IoFilterChain.Entry entry : chain.getAll()) {
+            names.add(entry.getName());
+        }
+        assertEquals(names.size() - 3, names.indexOf("existing"));
+        assertEquals(names.size() - 2, names.indexOf("first"));
+        assertEquals(names.size() - 1, names.indexOf("second"));
+        assertSame(first, chain.get("first"));
+        assertSame(second, chain.get("second"));
+    }
+
+    @Test
+    public void shouldNotifyEachSessionOfAddedFilters() throws Exception {
+        final List<IoFilterChain> chains = new ArrayList<>();
+        IoFilter filter = new IoFilterAdapter() {
+            @Override
+            public void onPostAdd(IoFilterChain parent, String name, NextFilter nextFilter) throws Exception {
+                chains.add(parent);
+            }
+        };
+        IoFilterChainTemplate template = IoFilterChainTemplate.empty().addLast("filter", filter);
+
+        IoFilterChain chain1 = new DummySessionEx().getFilterChain();
+        IoFilterChain chain2 = new DummySessionEx().getFilterChain();
+        template.buildFilterChain(chain1);
+        template.buildFilterChain(chain2);
+
+        assertEquals(2, chains.size());
+        assertSame(chain1, chains.get(0));
+        assertSame(chain2, chains.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNameAlreadyInChain() throws Exception {
+        IoFilterChainTemplate template = IoFilterChainTemplate.empty().addLast("filter", new IoFilterAdapter());
+
+        IoFilterChain chain = new DummySessionEx().getFilterChain();
+        chain.addLast("filter", new IoFilterAdapter());
+        template.buildFilterChain(chain);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectDuplicateNameInTemplate() throws Exception {
+        IoFilterChainTemplate.empty().addLast("filter", new IoFilterAdapter()).addLast("filter", new IoFilterAdapter());
+    }
+
+    @Test
+    public void shouldRemoveFilterAddedFromTemplate() throws Exception {
+        IoFilterChainTemplate template = IoFilterChainTemplate.empty().addLast("filter", new IoFilterAdapter());
+
+        IoFilterChain chain = new DummySessionEx().getFilterChain();
+        template.buildFilterChain(chain);
+        chain.remove("filter");
+
+        assertNull(chain.getEntry("filter"));
+    }
+
+    @Test
+    public void shouldCreateFactoryFilterForEachSession() throws Exception {
+        IoFilterChainTemplate template = IoFilterChainTemplate.empty().addLast("filter", IoFilterAdapter::new);
+
+        IoFilterChain chain1 = new DummySessionEx().getFilterChain();
+        IoFilterChain chain2 = new DummySessionEx().getFilterChain();
+        template.buildFilterChain(chain1);
+        template.buildFilterChain(chain2);
+
+        assertNotSame(chain1.get("filter"), chain2.get("filter"));
+    }
+
+    @Test
+    public void shouldRemoveAllTemplateFiltersWhenOneFailsToBeAdded() throws Exception {
+        final List<String> removed = new ArrayList<>();
+        IoFilter first = new IoFilterAdapter() {
+            @Override
+            public void onPostRemove(IoFilterChain parent, String name, NextFilter nextFilter) throws Exception {
+                removed.add(name);
+            }
+        };
+        IoFilter failing = new IoFilterAdapter() {
+            @Override
+            public void onPostAdd(IoFilterChain parent, String name, NextFilter nextFilter) throws Exception {
+                throw new Exception("failed to add");
+            }
+        };
+        IoFilterChainTemplate template = IoFilterChainTemplate.empty()
+                .addLast("first", first).addLast("failing", failing).addLast("last", new IoFilterAdapter());
+
+        IoFilterChain chain = new DummySessionEx().getFilterChain();
+        chain.addLast("existing", new IoFilterAdapter());
+        try {
+            template.buildFilterChain(chain);
+            fail("expected the template to fail to be added");
+        } catch (IoFilterLifeCycleException e) {
+            // expected
+        }
+
+        assertEquals(1, chain.getAll().size());
+        assertTrue(chain.contains("existing"));
+        assertNull(chain.getEntry("first"));
+        assertNull(chain.getEntry("failing"));
+        assertNull(chain.getEntry("last"));
+        assertEquals(1, removed.size());
+        assertEquals("first", removed.get(0));
+
+        // the names are free again
+        chain.addLast("first", new IoFilterAdapter());
+        assertTrue(chain.contains("first"));
+    }
+
+    @Test
+    public void shouldBuildFromModifiedBuilder() throws Exception {
+        IoFilter first = new IoFilterAdapter();
+        IoFilter second = new IoFilterAdapter();
+        DefaultIoFilterChainBuilderEx builder = new DefaultIoFilterChainBuilderEx();
+        builder.addLast("first", first);
+
+        IoFilterChain chain1 = new DummySessionEx().getFilterChain();
+        builder.buildFilterChain(chain1);
+        builder.addLast("second", second);
+        IoFilterChain chain2 = new DummySessionEx().getFilterChain();
+        builder.buildFilterChain(chain2);
+
+        assertSame(first, chain1.get("first"));
+        assertNull(chain1.getEntry("second"));
+        assertSame(first, chain2.get("first"));
+        assertSame(second, chain2.get("second"));
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.netty;
+
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_NONE;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_POOLED;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.util.internal.DeadLockProofWorker;
+import org.kaazing.mina.netty.ChannelIoBufferAllocator.ChannelIoBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Sustained echo of one message per operation through the I/O buffer allocator: allocate, encode, write, release.
+ * Run with the GC profiler (as main() does) to compare allocation rate and GC counts with and without pooling.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class ChannelIoBufferAllocatorBM {
+
+    @Param({"false", "true"})
+    private boolean pooled;
+
+    @Param({"256", "4096"})
+    private int messageSize;
+
+    private ChannelIoBufferAllocator allocator;
+    private byte[] payload;
+    private ByteBuffer channel;
+
+    @Setup
+    public void init() {
+        allocator = new ChannelIoBufferAllocator(pooled);
+        payload = new byte[messageSize];
+        channel = ByteBuffer.allocateDirect(messageSize);
+
+        // the pool only has arenas for I/O threads, so run as one
+        DeadLockProofWorker.PARENT.set(command -> command.run());
+    }
+
+    @Benchmark
+    public int echo() throws Exception {
+        ChannelIoBuffer buf = allocator.wrap(allocator.allocate(messageSize, FLAG_POOLED), FLAG_NONE);
+        buf.put(payload);
+        buf.flip();
+
+        boolean release = buf.retainForWrite();
+        channel.clear();
+        channel.put(buf.buf());
+        if (release) {
+            buf.release();
+        }
+        buf.release();
+        return channel.position();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ChannelIoBufferAllocatorBM.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
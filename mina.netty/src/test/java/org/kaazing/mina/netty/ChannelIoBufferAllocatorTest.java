@@ -0,0 +1,297 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_DIRECT;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_NONE;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_POOLED;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_SHARED;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+
+import org.jboss.netty.util.internal.DeadLockProofWorker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.netty.ChannelIoBufferAllocator.ChannelIoBuffer;
+
+public class ChannelIoBufferAllocatorTest {
+
+    private static final Executor IO_EXECUTOR = command -> command.run();
+
+    // the pool only has arenas for I/O threads, so run as one
+    @Before
+    public void markIoThread() {
+        DeadLockProofWorker.PARENT.set(IO_EXECUTOR);
+    }
+
+    @After
+    public void unmarkIoThread() {
+        DeadLockProofWorker.PARENT.remove();
+    }
+
+    @Test
+    public void shouldNotReferenceCountUnpooledBuffers() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(false);
+        ChannelIoBuffer buf = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+
+        assertEquals(1, buf.refCount());
+        assertSame(buf, buf.retain());
+        assertFalse(buf.release());
+        assertEquals(0L, allocator.getPoolAllocationCount());
+    }
+
+    @Test
+    public void shouldAllocateExactCapacity() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        ByteBuffer heap = allocator.allocate(100, FLAG_POOLED);
+        ByteBuffer direct = allocator.allocate(100, FLAG_POOLED | FLAG_DIRECT);
+
+        assertEquals(100, heap.capacity());
+        assertEquals(100, heap.remaining());
+        assertEquals(0, heap.arrayOffset());
+        assertFalse(heap.isDirect());
+        assertEquals(100, direct.capacity());
+        assertTrue(direct.isDirect());
+    }
+
+    @Test
+    public void shouldReuseReleasedBuffer() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        ChannelIoBuffer buf = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+        assertEquals(1, buf.refCount());
+
+        buf.retain();
+        assertEquals(2, buf.refCount());
+        assertFalse(buf.release());
+        assertTrue(buf.release());
+
+        allocator.wrap(allocator.allocate(200, FLAG_POOLED), FLAG_NONE);
+        assertEquals(1L, allocator.getPoolAllocationCount());
+        assertEquals(1L, allocator.getPoolReuseCount());
+    }
+
+    @Test
+    public void shouldShareReferenceCountWithDerivedBuffers() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        ChannelIoBuffer buf = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_SHARED);
+        IoBufferEx duplicate = buf.duplicate();
+
+        duplicate.retain();
+        assertEquals(2, buf.refCount());
+        assertFalse(buf.release());
+        assertTrue(duplicate.release());
+    }
+
+    @Test
+    public void shouldRetainBufferForEachWrite() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        ChannelIoBuffer shared = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_SHARED);
+        ChannelIoBuffer unshared = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+
+        assertTrue(shared.retainForWrite());
+        assertEquals(2, shared.refCount());
+        assertFalse(shared.release());
+
+        assertTrue(unshared.retainForWrite());
+        assertEquals(2, unshared.refCount());
+        assertTrue(((ChannelIoBuffer) unshared.duplicate()).retainForWrite());
+        assertEquals(3, unshared.refCount());
+    }
+
+    @Test
+    public void shouldWriteUnsharedBufferTwice() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        ChannelIoBuffer buf = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+        buf.put((byte) 0x01);
+        buf.flip();
+
+        // first write completes before the second one is made
+        write(buf);
+        assertEquals(1, buf.refCount());
+        write(buf);
+        assertEquals(1, buf.refCount());
+
+        // the buffer is still usable by its owner until it is released
+        assertEquals(0x01, buf.get(0));
+        assertTrue(buf.release());
+        assertEquals(0L, allocator.getPoolReuseCount());
+
+        allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+        assertEquals(1L, allocator.getPoolReuseCount());
+    }
+
+    @Test
+    public void shouldWriteUnsharedBufferTwiceConcurrently() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        ChannelIoBuffer buf = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+
+        // both writes are in flight when the owner releases its reference
+        assertTrue(buf.retainForWrite());
+        assertTrue(buf.retainForWrite());
+        assertFalse(buf.release());
+        assertFalse(buf.release());
+        assertTrue(buf.release());
+    }
+
+    @Test
+    public void shouldReturnSharedBufferToArena() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        ChannelIoBuffer shared = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_SHARED);
+
+        // written to several sessions, each write completing in turn
+        write(shared);
+        write(shared);
+        write(shared);
+        assertEquals(1, shared.refCount());
+
+        assertTrue(shared.release());
+        assertEquals(0, shared.refCount());
+
+        ChannelIoBuffer reused = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_SHARED);
+        assertEquals(1L, allocator.getPoolAllocationCount());
+        assertEquals(1L, allocator.getPoolReuseCount());
+        assertEquals(1, reused.refCount());
+    }
+
+    @Test
+    public void shouldRecycleIntoArenaOfReleasingThread() throws Exception {
+        final ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        final ChannelIoBuffer buf = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+
+        Thread releaser = new Thread() {
+            @Override
+            public void run() {
+                DeadLockProofWorker.PARENT.set(IO_EXECUTOR);
+                buf.release();
+                allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+            }
+        };
+        releaser.start();
+        releaser.join();
+        assertEquals(1L, allocator.getPoolReuseCount());
+
+        allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+        assertEquals(2L, allocator.getPoolAllocationCount());
+    }
+
+    @Test
+    public void shouldNotPoolWithoutPooledFlag() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        ChannelIoBuffer buf = allocator.wrap(allocator.allocate(100), FLAG_NONE);
+
+        assertEquals(1, buf.refCount());
+        assertFalse(buf.release());
+        assertEquals(0L, allocator.getPoolAllocationCount());
+    }
+
+    @Test
+    public void shouldNotPoolOutsideIoThreads() throws Exception {
+        final ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+
+        Thread caller = new Thread() {
+            @Override
+            public void run() {
+                allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+            }
+        };
+        caller.start();
+        caller.join();
+        assertEquals(0L, allocator.getPoolAllocationCount());
+    }
+
+    @Test
+    public void shouldNotRecycleOutsideIoThreads() throws Exception {
+        final ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        final ChannelIoBuffer buf = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+
+        Thread releaser = new Thread() {
+            @Override
+            public void run() {
+                buf.release();
+            }
+        };
+        releaser.start();
+        releaser.join();
+        assertEquals(0, buf.refCount());
+
+        allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+        assertEquals(2L, allocator.getPoolAllocationCount());
+        assertEquals(0L, allocator.getPoolReuseCount());
+    }
+
+    @Test
+    public void shouldReturnChunkWhenExpanded() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        ChannelIoBuffer buf = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+        buf.put((byte) 0x01);
+
+        buf.expand(1000, allocator);
+        assertEquals(0x01, buf.get(0));
+        assertFalse(buf.release());
+
+        allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+        assertEquals(1L, allocator.getPoolAllocationCount());
+        assertEquals(1L, allocator.getPoolReuseCount());
+    }
+
+    @Test
+    public void shouldReturnChunkWhenExpandedDuringWrite() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        ChannelIoBuffer buf = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+
+        // the write in flight still reads the original storage
+        assertTrue(buf.retainForWrite());
+        buf.expand(1000, allocator);
+        assertEquals(2, buf.refCount());
+        assertFalse(buf.release());
+        assertTrue(buf.release());
+
+        allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+        assertEquals(1L, allocator.getPoolReuseCount());
+    }
+
+    @Test
+    public void shouldNotPoolLargeBuffers() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        ChannelIoBuffer buf = allocator.wrap(allocator.allocate(1 << 20, FLAG_POOLED), FLAG_NONE);
+
+        assertFalse(buf.release());
+        assertEquals(0L, allocator.getPoolAllocationCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRejectReleaseOfReleasedBuffer() throws Exception {
+        ChannelIoBufferAllocator allocator = new ChannelIoBufferAllocator(true);
+        ChannelIoBuffer buf = allocator.wrap(allocator.allocate(100, FLAG_POOLED), FLAG_NONE);
+
+        buf.release();
+        buf.release();
+    }
+
+    // same reference counting as ChannelIoProcessor for a write that completes
+    private static void write(ChannelIoBuffer buf) {
+        if (buf.retainForWrite()) {
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.mina.netty.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void shouldReportZeroWhenEmpty() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMaxValue());
+        assertEquals(0, histogram.getValueAtPercentile(99.0));
+    }
+
+    @Test
+    public void shouldRecordSmallValuesExactly() {
+        Histogram histogram = new Histogram();
+        for (long value = 0; value < 32; value++) {
+            histogram.recordValue(value);
+        }
+        assertEquals(32, histogram.getTotalCount());
+        assertEquals(15, histogram.getValueAtPercentile(50.0));
+        assertEquals(31, histogram.getValueAtPercentile(100.0));
+    }
+
+    @Test
+    public void shouldReportLargeValuesWithinPrecision() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 1000000; value++) {
+            histogram.recordValue(value * 1000);
+        }
+        assertWithinPrecision(500000000L, histogram.getValueAtPercentile(50.0));
+        assertWithinPrecision(990000000L, histogram.getValueAtPercentile(99.0));
+        assertEquals(1000000000L, histogram.getValueAtPercentile(100.0));
+        assertEquals(1000000000L, histogram.getMaxValue());
+    }
+
+    @Test
+    public void shouldRecordExtremeValues() {
+        Histogram histogram = new Histogram();
+        histogram.recordValue(-1);
+        histogram.recordValue(Long.MAX_VALUE);
+        assertEquals(0, histogram.getValueAtPercentile(50.0));
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100.0));
+    }
+
+    @Test
+    public void shouldMapEveryIndexToItsHighestEquivalentValue() {
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            int index = Histogram.countsIndex(value);
+            long highest = Histogram.highestEquivalentValue(index);
+            assertTrue(value <= highest);
+            assertEquals(index, Histogram.countsIndex(highest));
+            assertEquals(index + 1, Histogram.countsIndex(highest + 1));
+        }
+    }
+
+    @Test
+    public void shouldReportValuesRecordedSinceCopy() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.recordValue(1000000);
+        }
+        Histogram earlier = histogram.copy();
+        for (int i = 0; i < 10; i++) {
+            histogram.recordValue(100);
+        }
+
+        Histogram since = histogram.since(earlier);
+        assertEquals(10, since.getTotalCount());
+        assertWithinPrecision(100, since.getValueAtPercentile(99.0));
+        assertWithinPrecision(100, since.getMaxValue());
+        assertEquals(110, histogram.getTotalCount());
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue(String.format("expected %d but was %d", expected, actual),
+                Math.abs(actual - expected) <= expected / 16);
+    }
+
+}
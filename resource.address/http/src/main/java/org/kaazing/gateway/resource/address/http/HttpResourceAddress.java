@@ -42,6 +42,7 @@ public final class HttpResourceAddress extends ResourceAddress {
     public static final ResourceOption<Integer> MAXIMUM_REDIRECTS = new HttpMaxRedirectOption();
     public static final ResourceOption<Integer> KEEP_ALIVE_TIMEOUT = new HttpKeepAliveTimeoutOption();
     public static final ResourceOption<Integer> KEEP_ALIVE_CONNECTIONS = new HttpKeepAliveConnectionsOption();
+    public static final ResourceOption<Integer> KEEP_ALIVE_MIN_CONNECTIONS = new HttpKeepAliveMinConnectionsOption();
 
     public static final ResourceOption<String[]> REQUIRED_ROLES = new HttpRequiredRolesOption();
     public static final ResourceOption<Set<HttpInjectableHeader>> INJECTABLE_HEADERS = new HttpInjectableHeadersOption();
@@ -72,6 +73,7 @@ public final class HttpResourceAddress extends ResourceAddress {
     private Integer httpMaxRedirects = MAXIMUM_REDIRECTS.defaultValue();
     private Integer keepAliveTimeout = KEEP_ALIVE_TIMEOUT.defaultValue();
     private Integer keepAliveMaxConnections = KEEP_ALIVE_CONNECTIONS.defaultValue();
+    private Integer keepAliveMinConnections = KEEP_ALIVE_MIN_CONNECTIONS.defaultValue();
     private String[] requiredRoles = REQUIRED_ROLES.defaultValue();
     private Set<HttpInjectableHeader> injectableHeaders = INJECTABLE_HEADERS.defaultValue();
     private HttpOriginSecurity originSecurity;
@@ -109,6 +111,8 @@ public final class HttpResourceAddress extends ResourceAddress {
                     return (V) keepAliveTimeout;
                 case KEEP_ALIVE_CONNECTIONS:
                     return (V) keepAliveMaxConnections;
+                case KEEP_ALIVE_MIN_CONNECTIONS:
+                    return (V) keepAliveMinConnections;
                 case REQUIRED_ROLES:
                     return (V) requiredRoles;
                 case INJECTABLE_HEADERS:
@@ -167,6 +171,9 @@ public final class HttpResourceAddress extends ResourceAddress {
                 case KEEP_ALIVE_CONNECTIONS:
                     keepAliveMaxConnections = (Integer) value;
                     return;
+                case KEEP_ALIVE_MIN_CONNECTIONS:
+                    keepAliveMinConnections = (Integer) value;
+                    return;
                 case REQUIRED_ROLES:
                     requiredRoles = (String[]) value;
                     return;
@@ -240,6 +247,7 @@ public final class HttpResourceAddress extends ResourceAddress {
             KEEP_ALIVE,
             KEEP_ALIVE_TIMEOUT,
             KEEP_ALIVE_CONNECTIONS,
+            KEEP_ALIVE_MIN_CONNECTIONS,
             REQUIRED_ROLES,
             INJECTABLE_HEADERS,
             ORIGIN_SECURITY,
@@ -287,6 +295,12 @@ public final class HttpResourceAddress extends ResourceAddress {
         }
     }
 
+    private static final class HttpKeepAliveMinConnectionsOption extends HttpResourceOption<Integer> {
+        private HttpKeepAliveMinConnectionsOption() {
+            super(Kind.KEEP_ALIVE_MIN_CONNECTIONS, "keepalive.min.connections", 0);
+        }
+    }
+
     private static final class HttpMaxRedirectOption extends HttpResourceOption<Integer> {
         private HttpMaxRedirectOption() {
             super(Kind.MAX_REDIRECTS, "maximum.redirects", 0);
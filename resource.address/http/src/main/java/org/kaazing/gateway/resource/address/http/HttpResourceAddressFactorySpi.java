@@ -27,6 +27,7 @@ import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.GATE
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.INJECTABLE_HEADERS;
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.KEEP_ALIVE;
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.KEEP_ALIVE_CONNECTIONS;
+import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.KEEP_ALIVE_MIN_CONNECTIONS;
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.KEEP_ALIVE_TIMEOUT;
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.MAXIMUM_REDIRECTS;
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.MAX_AUTHENTICATION_ATTEMPTS;
@@ -138,6 +139,11 @@ public class HttpResourceAddressFactorySpi extends ResourceAddressFactorySpi<Htt
         if (keepAliveConnections != null) {
             options.setOption(KEEP_ALIVE_CONNECTIONS, keepAliveConnections);
         }
+
+        Integer keepAliveMinConnections = (Integer) optionsByName.remove(KEEP_ALIVE_MIN_CONNECTIONS.name());
+        if (keepAliveMinConnections != null) {
+            options.setOption(KEEP_ALIVE_MIN_CONNECTIONS, keepAliveMinConnections);
+        }
         
         String[] requiredRoles = (String[]) optionsByName.remove(REQUIRED_ROLES.name());
         if (requiredRoles != null) {
@@ -313,6 +319,7 @@ public class HttpResourceAddressFactorySpi extends ResourceAddressFactorySpi<Htt
         address.setOption0(MAXIMUM_REDIRECTS,options.getOption(MAXIMUM_REDIRECTS));
         address.setOption0(KEEP_ALIVE_TIMEOUT, options.getOption(KEEP_ALIVE_TIMEOUT));
         address.setOption0(KEEP_ALIVE_CONNECTIONS, options.getOption(KEEP_ALIVE_CONNECTIONS));
+        address.setOption0(KEEP_ALIVE_MIN_CONNECTIONS, options.getOption(KEEP_ALIVE_MIN_CONNECTIONS));
         address.setOption0(REQUIRED_ROLES, options.getOption(REQUIRED_ROLES));
         address.setOption0(INJECTABLE_HEADERS, options.getOption(INJECTABLE_HEADERS));
         address.setOption0(ORIGIN_SECURITY, options.getOption(ORIGIN_SECURITY));
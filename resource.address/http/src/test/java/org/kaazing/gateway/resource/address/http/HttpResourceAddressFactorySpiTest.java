@@ -29,6 +29,7 @@ import static org.kaazing.gateway.resource.address.ResourceAddress.TRANSPORT_URI
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.DEFAULT_HTTP_KEEPALIVE_CONNECTIONS;
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.KEEP_ALIVE;
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.KEEP_ALIVE_CONNECTIONS;
+import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.KEEP_ALIVE_MIN_CONNECTIONS;
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.KEEP_ALIVE_TIMEOUT;
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.MAXIMUM_REDIRECTS;
 import static org.kaazing.gateway.resource.address.http.HttpResourceAddress.MAX_AUTHENTICATION_ATTEMPTS;
@@ -94,6 +95,7 @@ public class HttpResourceAddressFactorySpiTest {
         options.put("http.keepAlive", false);
         options.put("http.keepAliveTimeout", (int) SECONDS.toMillis(5));
         options.put("http.keepalive.connections", 10);
+        options.put("http.keepalive.min.connections", 4);
         options.put("http.realmName", "demo");
         options.put("http.requiredRoles", new String[] { "admin" });
         options.put("http.transport", "tcp://localhost:2121");
@@ -144,6 +146,7 @@ public class HttpResourceAddressFactorySpiTest {
         assertTrue(address.getOption(KEEP_ALIVE));
         assertEquals(address.getOption(KEEP_ALIVE_TIMEOUT).intValue(), 30);
         assertEquals(address.getOption(KEEP_ALIVE_CONNECTIONS).intValue(), DEFAULT_HTTP_KEEPALIVE_CONNECTIONS);
+        assertEquals(0, address.getOption(KEEP_ALIVE_MIN_CONNECTIONS).intValue());
         assertEmpty(address.getOption(REQUIRED_ROLES));
         assertTrue(address.getOption(SERVER_HEADER_ENABLED));
         assertTrue(address.getOption(USER_AGENT_HEADER_ENABLED));
@@ -161,6 +164,7 @@ public class HttpResourceAddressFactorySpiTest {
         assertNull(address.getOption(TRANSPORT));
         assertEquals(5000L, address.getOption(KEEP_ALIVE_TIMEOUT).longValue());
         assertEquals(10, address.getOption(KEEP_ALIVE_CONNECTIONS).intValue());
+        assertEquals(4, address.getOption(KEEP_ALIVE_MIN_CONNECTIONS).intValue());
         assertFalse(address.getOption(KEEP_ALIVE));
         assertEquals(address.getOption(MAXIMUM_REDIRECTS), new Integer(0));
         assertArrayEquals(new String[] { "admin" }, address.getOption(REQUIRED_ROLES));
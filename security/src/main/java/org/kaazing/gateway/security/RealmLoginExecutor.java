@@ -0,0 +1,103 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.security;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.kaazing.gateway.util.concurrent.BoundedExecutor;
+
+/**
+ * Runs the logins of one realm on at most a fixed number of threads, queueing at most a fixed number of logins
+ * beyond those in progress. Logins submitted when the queue is full are rejected with a
+ * {@link RejectedExecutionException} so that the caller can shed load rather than wait.
+ */
+public final class RealmLoginExecutor implements Executor {
+
+    private static final long MAXIMUM_RETRY_AFTER_SECONDS = 60L;
+
+    private final String realmName;
+    private final BoundedExecutor executor;
+
+    RealmLoginExecutor(String realmName, int concurrency, int queueDepth) {
+        this.realmName = realmName;
+        this.executor = new BoundedExecutor("login-" + realmName + "-", concurrency, queueDepth);
+    }
+
+    @Override
+    public void execute(Runnable login) {
+        executor.execute(login);
+    }
+
+    public String getRealmName() {
+        return realmName;
+    }
+
+    public int getConcurrency() {
+        return executor.getThreadCount();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueueDepth();
+    }
+
+    public int getQueuedLoginCount() {
+        return executor.getQueuedTaskCount();
+    }
+
+    public int getActiveLoginCount() {
+        return executor.getActiveTaskCount();
+    }
+
+    public long getCompletedLoginCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    public long getRejectedLoginCount() {
+        return executor.getRejectedTaskCount();
+    }
+
+    /**
+     * @return the average time completed logins spent queued, in milliseconds
+     */
+    public double getAverageWaitTime() {
+        return executor.getAverageWaitTime();
+    }
+
+    /**
+     * @return the average time completed logins took to run the login module chain, in milliseconds
+     */
+    public double getAverageLoginTime() {
+        return executor.getAverageRunTime();
+    }
+
+    /**
+     * @return an estimate of how long a rejected login should wait before it is retried, based on how long it takes
+     *         to work through the logins currently queued and in progress, at least one second
+     */
+    public long getRetryAfter(TimeUnit unit) {
+        double backlog = getQueuedLoginCount() + getActiveLoginCount();
+        long seconds = (long) Math.ceil(getAverageLoginTime() * backlog / getConcurrency() / SECONDS.toMillis(1));
+        return unit.convert(Math.max(1L, Math.min(seconds, MAXIMUM_RETRY_AFTER_SECONDS)), SECONDS);
+    }
+
+    void shutdownNow() {
+        executor.shutdownNow();
+    }
+}
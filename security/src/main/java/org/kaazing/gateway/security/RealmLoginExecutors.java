@@ -0,0 +1,74 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.security;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The executors running the logins of each realm, so that slow login modules in one realm (for example with an
+ * unresponsive LDAP server) neither delay the logins to other realms nor let pending logins grow without bound.
+ */
+public final class RealmLoginExecutors {
+
+    private final int concurrency;
+    private final int queueDepth;
+    private final ConcurrentMap<String, RealmLoginExecutor> executors;
+
+    /**
+     * @param concurrency  the maximum number of concurrent logins to each realm
+     * @param queueDepth   the maximum number of logins to each realm waiting for one in progress to complete
+     */
+    public RealmLoginExecutors(int concurrency, int queueDepth) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be positive");
+        }
+        if (queueDepth < 0) {
+            throw new IllegalArgumentException("queueDepth must not be negative");
+        }
+        this.concurrency = concurrency;
+        this.queueDepth = queueDepth;
+        this.executors = new ConcurrentHashMap<>();
+    }
+
+    public RealmLoginExecutor getExecutor(String realmName) {
+        RealmLoginExecutor executor = executors.get(realmName);
+        if (executor == null) {
+            RealmLoginExecutor newExecutor = new RealmLoginExecutor(realmName, concurrency, queueDepth);
+            executor = executors.putIfAbsent(realmName, newExecutor);
+            if (executor == null) {
+                executor = newExecutor;
+            } else {
+                newExecutor.shutdownNow();
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * @return the executors of the realms that have been logged in to
+     */
+    public Collection<RealmLoginExecutor> getExecutors() {
+        return executors.values();
+    }
+
+    public void shutdownNow() {
+        for (RealmLoginExecutor executor : executors.values()) {
+            executor.shutdownNow();
+        }
+    }
+}
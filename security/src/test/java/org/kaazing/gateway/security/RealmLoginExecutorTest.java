@@ -0,0 +1,121 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.security;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RealmLoginExecutorTest {
+
+    private final RealmLoginExecutors executors = new RealmLoginExecutors(1, 1);
+
+    @After
+    public void shutdown() {
+        executors.shutdownNow();
+    }
+
+    @Test
+    public void shouldCreateOneExecutorPerRealm() throws Exception {
+        RealmLoginExecutor executor = executors.getExecutor("demo");
+
+        assertSame(executor, executors.getExecutor("demo"));
+        assertNotSame(executor, executors.getExecutor("other"));
+        assertEquals(2, executors.getExecutors().size());
+        assertEquals("demo", executor.getRealmName());
+    }
+
+    @Test
+    public void shouldRejectLoginsBeyondQueueDepth() throws Exception {
+        RealmLoginExecutor executor = executors.getExecutor("demo");
+        CountDownLatch loginStarted = new CountDownLatch(1);
+        CountDownLatch loginBlocked = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            loginStarted.countDown();
+            await(loginBlocked);
+        });
+        loginStarted.await();
+        executor.execute(() -> { });
+        assertEquals(1, executor.getActiveLoginCount());
+        assertEquals(1, executor.getQueuedLoginCount());
+
+        try {
+            executor.execute(() -> { });
+            fail("login should have been rejected");
+        } catch (RejectedExecutionException e) {
+            assertEquals(1, executor.getRejectedLoginCount());
+        }
+        loginBlocked.countDown();
+    }
+
+    @Test
+    public void shouldNotDelayLoginsToOtherRealms() throws Exception {
+        CountDownLatch loginBlocked = new CountDownLatch(1);
+        executors.getExecutor("slow").execute(() -> await(loginBlocked));
+
+        CountDownLatch otherLoginDone = new CountDownLatch(1);
+        executors.getExecutor("fast").execute(otherLoginDone::countDown);
+
+        assertTrue(otherLoginDone.await(5, SECONDS));
+        loginBlocked.countDown();
+    }
+
+    @Test
+    public void shouldMeasureLogins() throws Exception {
+        RealmLoginExecutor executor = executors.getExecutor("demo");
+        CountDownLatch loginDone = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            sleep(20);
+            loginDone.countDown();
+        });
+        loginDone.await();
+        // the login is only counted once it returns
+        while (executor.getCompletedLoginCount() == 0) {
+            Thread.sleep(1);
+        }
+
+        assertTrue(executor.getAverageLoginTime() >= 20.0);
+        assertTrue(executor.getAverageWaitTime() >= 0.0);
+        assertEquals(1L, executor.getRetryAfter(SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
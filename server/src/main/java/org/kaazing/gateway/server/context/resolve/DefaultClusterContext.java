@@ -15,6 +15,7 @@
  */
 package org.kaazing.gateway.server.context.resolve;
 
+import static org.kaazing.gateway.server.context.resolve.DefaultServiceContext.BALANCEE_LOAD_MAP_NAME;
 import static org.kaazing.gateway.server.context.resolve.DefaultServiceContext.BALANCER_MAP_NAME;
 import static org.kaazing.gateway.server.context.resolve.DefaultServiceContext.MEMBERID_BALANCER_MAP_NAME;
 
@@ -76,7 +77,9 @@ import com.hazelcast.map.listener.EntryUpdatedListener;
  * <p/>
  * <br>Balancer data<ol> <li> HttpBalancerService.MEMBERID_BALANCER_MAP_NAME: <ul><li> List of balanced URIs for one member
  * <li>Key: Cluster member id <li>Value: Map(key: balancerURI, value: acceptURIs) </ul> <li>HttpBalancerService.BALANCER_MAP_NAME
- * <ul><li> List of balanced URIs for whole cluster <li>Key: balanceURI <li>Value: acceptURIs </ul> </ol>
+ * <ul><li> List of balanced URIs for whole cluster <li>Key: balanceURI <li>Value: acceptURIs </ul>
+ * <li>HttpBalancerService.BALANCEE_LOAD_MAP_NAME <ul><li> Load of each balanced URI, refreshed periodically by its member
+ * <li>Key: acceptURI <li>Value: session count </ul> </ol>
  */
 public class DefaultClusterContext implements ClusterContext, LogListener {
 
@@ -535,6 +538,8 @@ public class DefaultClusterContext implements ClusterContext, LogListener {
                 throw new IllegalStateException("Shared balanced URIs map is null");
             }
 
+            Map<String, Integer> balanceeLoadMap = getCollectionsFactory().getMap(BALANCEE_LOAD_MAP_NAME);
+
             Map<String, List<String>> memberBalancedUrisMap = memberIdBalancerUriMap.remove(removedMember);
             if (memberBalancedUrisMap != null) {
                 GL.debug(GL.CLUSTER_LOGGER_NAME, "Cleaning up balancer cluster state for member {}", removedMember);
@@ -542,6 +547,9 @@ public class DefaultClusterContext implements ClusterContext, LogListener {
                     for (String key : memberBalancedUrisMap.keySet()) {
                         GL.debug(GL.CLUSTER_LOGGER_NAME, "URI Key: {}", key);
                         List<String> memberBalancedUris = memberBalancedUrisMap.get(key);
+                        for (String memberBalancedUri : memberBalancedUris) {
+                            balanceeLoadMap.remove(memberBalancedUri);
+                        }
                         TreeSet<String> globalBalancedUris;
                         TreeSet<String> newGlobalBalancedUris;
                         do {
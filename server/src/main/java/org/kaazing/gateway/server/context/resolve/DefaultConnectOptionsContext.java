@@ -93,6 +93,12 @@ public class DefaultConnectOptionsContext extends DefaultOptionsContext implemen
             result.put("http[http/1.1].keepalive.connections", keepaliveConnections);
         }
 
+        Integer keepaliveMinConnections = getHttpKeepaliveMinConnections(
+                optionsCopy.remove("http.keepalive.min.connections"));
+        if (keepaliveMinConnections != null) {
+            result.put("http[http/1.1].keepalive.min.connections", keepaliveMinConnections);
+        }
+
         String[] sslCiphers = getSslCiphers(optionsCopy.remove("ssl.ciphers"));
         if (sslCiphers != null) {
             result.put(SSL_CIPHERS, sslCiphers);
@@ -22,6 +22,7 @@ import java.util.HashSet;
 import java.util.Map;
 import org.kaazing.gateway.resource.address.ResourceAddress;
 import org.kaazing.gateway.security.RealmContext;
+import org.kaazing.gateway.security.RealmLoginExecutors;
 import org.kaazing.gateway.server.context.GatewayContext;
 import org.kaazing.gateway.server.context.SchemeContext;
 import org.kaazing.gateway.server.context.ServiceDefaultsContext;
@@ -44,6 +45,7 @@ public class DefaultGatewayContext implements GatewayContext {
     private final File webDir;
     private final File tempDir;
     private final SchedulerProvider schedulerProvider;
+    private final RealmLoginExecutors realmLoginExecutors;
     private final ServiceDefaultsContext serviceDefaults;
 
     // TODO: remove this from here when the launcher goes away and the GatewayContext, Launcher,
@@ -59,7 +61,8 @@ public class DefaultGatewayContext implements GatewayContext {
                                  File webDir,
                                  File tempDir,
                                  ClusterContext cluster,
-                                 SchedulerProvider schedulerProvider) {
+                                 SchedulerProvider schedulerProvider,
+                                 RealmLoginExecutors realmLoginExecutors) {
 
         this.schemes = schemes;
         this.schemeTransports = schemeTransports;
@@ -71,6 +74,7 @@ public class DefaultGatewayContext implements GatewayContext {
         this.tempDir = tempDir;
         this.cluster = cluster;
         this.schedulerProvider = schedulerProvider;
+        this.realmLoginExecutors = realmLoginExecutors;
     }
 
     @Override
@@ -121,6 +125,10 @@ public class DefaultGatewayContext implements GatewayContext {
         cluster.dispose();
 
         schedulerProvider.shutdownNow();
+
+        if (realmLoginExecutors != null) {
+            realmLoginExecutors.shutdownNow();
+        }
     }
 
     @Override
@@ -193,6 +193,21 @@ class DefaultOptionsContext {
         return maxConnections;
     }
 
+    static Integer getHttpKeepaliveMinConnections(String connectionsValue) {
+        Integer minConnections = null;
+        if (connectionsValue != null) {
+            int val = Integer.parseInt(connectionsValue);
+            if (val >= 0) {
+                minConnections = val;
+            } else {
+                String msg = String.format("http.keepalive.min.connections = %s must be >= 0", connectionsValue);
+                throw new IllegalArgumentException(msg);
+            }
+        }
+
+        return minConnections;
+    }
+
     static boolean isHttpKeepaliveEnabled(String httpKeepaliveEnabledValue) {
         boolean httpKeepaliveEnabled = true;
         if (httpKeepaliveEnabledValue != null) {
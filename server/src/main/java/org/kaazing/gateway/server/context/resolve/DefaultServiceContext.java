@@ -52,6 +52,9 @@ import java.util.Properties;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
@@ -104,6 +107,11 @@ public class DefaultServiceContext implements ServiceContext {
 
     public static final String BALANCER_MAP_NAME = "balancerMap";
     public static final String MEMBERID_BALANCER_MAP_NAME = "memberIdBalancerMap";
+    public static final String BALANCEE_LOAD_MAP_NAME = "balanceeLoadMap";
+
+    // how often a balanced service checks whether its session count changed, for balancers to pick the least
+    // loaded balancee; a changed count costs one cluster map write per accept URI, whatever the balancers' strategy
+    static final long BALANCEE_LOAD_PUBLISH_INTERVAL_MILLIS = 1000L;
 
     private static final Charset UTF_8 = Charset.forName("UTF-8");
     private static final String[] EMPTY_REQUIRE_ROLES = new String[]{};
@@ -158,6 +166,7 @@ public class DefaultServiceContext implements ServiceContext {
     private int hashCode = -1;
 
     private final AtomicBoolean started = new AtomicBoolean(false);
+    private ScheduledFuture<?> balanceeLoadPublisher;
     private final Map<String, Object> serviceSpecificObjects;
 
     /**
@@ -619,12 +628,65 @@ public class DefaultServiceContext implements ServiceContext {
                 }
 
                 memberIdBalancerUriMap.put(localMember, memberBalanceUriMap);
+                startPublishingBalanceeLoad(factory);
             }
         }
         GL.debug(GL.CLUSTER_LOGGER_NAME, "Exit Bind");
         clusterContext.logClusterState();
     }
 
+    /**
+     * Periodically publishes the number of active sessions of this service against each of its accept URIs,
+     * so that balancers can take the load of each balancee into account. The count is only written to the
+     * cluster when it has changed since it was last published, so an idle or steady service costs the cluster
+     * nothing, while a busy one costs at most one write per accept URI per publish interval.
+     */
+    private synchronized void startPublishingBalanceeLoad(final CollectionsFactory factory) {
+        if (balanceeLoadPublisher != null || schedulerProvider == null) {
+            return;
+        }
+
+        final Map<String, Integer> balanceeLoads = factory.getMap(BALANCEE_LOAD_MAP_NAME);
+        Runnable publisher = new Runnable() {
+            // runs of a fixed delay task never overlap
+            private int publishedSessionCount = -1;
+
+            @Override
+            public void run() {
+                try {
+                    int sessionCount = activeSessions.size();
+                    if (sessionCount == publishedSessionCount) {
+                        return;
+                    }
+                    for (String acceptURI : accepts) {
+                        balanceeLoads.put(acceptURI, sessionCount);
+                    }
+                    publishedSessionCount = sessionCount;
+                } catch (Exception e) {
+                    // the cluster may be shutting down, try again next time
+                    GL.debug(GL.CLUSTER_LOGGER_NAME, "Unable to publish balancee load of service {}: {}", serviceName, e);
+                }
+            }
+        };
+        ScheduledExecutorService scheduler = schedulerProvider.getScheduler("balanceeLoad", false);
+        balanceeLoadPublisher = scheduler.scheduleWithFixedDelay(publisher, 0, BALANCEE_LOAD_PUBLISH_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void stopPublishingBalanceeLoad(CollectionsFactory factory) {
+        if (balanceeLoadPublisher == null) {
+            return;
+        }
+
+        balanceeLoadPublisher.cancel(false);
+        balanceeLoadPublisher = null;
+
+        Map<String, Integer> balanceeLoads = factory.getMap(BALANCEE_LOAD_MAP_NAME);
+        for (String acceptURI : accepts) {
+            balanceeLoads.remove(acceptURI);
+        }
+    }
+
     private Map<String, Object> buildResourceAddressOptions(String transportURI, AcceptOptionsContext acceptOptionsContext) {
         // options is a new HashMap
         final Map<String, Object> options = acceptOptionsContext.asOptionsMap();
@@ -907,6 +969,8 @@ public class DefaultServiceContext implements ServiceContext {
         if (balances != null && balances.size() > 0) {
             CollectionsFactory factory = clusterContext.getCollectionsFactory();
             if (factory != null) {
+                stopPublishingBalanceeLoad(factory);
+
                 Map<MemberId, Map<String, List<String>>> memberIdBalancerUriMap = factory
                         .getMap(MEMBERID_BALANCER_MAP_NAME);
                 if (memberIdBalancerUriMap == null) {
@@ -25,6 +25,8 @@ import static org.kaazing.gateway.resource.address.uri.URIUtils.getPort;
 import static org.kaazing.gateway.resource.address.uri.URIUtils.getQuery;
 import static org.kaazing.gateway.resource.address.uri.URIUtils.getScheme;
 import static org.kaazing.gateway.service.util.ServiceUtils.LIST_SEPARATOR;
+import static org.kaazing.gateway.util.InternalSystemProperty.LOGIN_CONCURRENCY;
+import static org.kaazing.gateway.util.InternalSystemProperty.LOGIN_QUEUE_DEPTH;
 import static org.kaazing.gateway.util.feature.EarlyAccessFeatures.LOGIN_MODULE_EXPIRING_STATE;
 import static org.kaazing.gateway.util.feature.EarlyAccessFeatures.TCP_REALM_EXTENSION;
 
@@ -59,6 +61,7 @@ import org.kaazing.gateway.resource.address.ResourceAddressFactory;
 import org.kaazing.gateway.security.AuthenticationContext;
 import org.kaazing.gateway.security.CrossSiteConstraintContext;
 import org.kaazing.gateway.security.RealmContext;
+import org.kaazing.gateway.security.RealmLoginExecutors;
 import org.kaazing.gateway.security.SecurityContext;
 import org.kaazing.gateway.security.auth.BasicLoginModule;
 import org.kaazing.gateway.security.auth.NegotiateLoginModule;
@@ -233,6 +236,12 @@ public class GatewayContextResolver {
 
 
         SchedulerProvider schedulerProvider = new SchedulerProvider(configuration);
+        // logins are only bounded per realm when asked for, otherwise they run on the shared scheduler as before
+        RealmLoginExecutors realmLoginExecutors =
+                (LOGIN_CONCURRENCY.isSet(configuration) || LOGIN_QUEUE_DEPTH.isSet(configuration))
+                        ? new RealmLoginExecutors(LOGIN_CONCURRENCY.getIntProperty(configuration),
+                                LOGIN_QUEUE_DEPTH.getIntProperty(configuration))
+                        : null;
         ClusterContext clusterContext = resolveCluster(clusterConfig);
         DefaultSecurityContext securityContext = securityResolver.resolve(securityConfig);
         ExpiringState expiringState = resolveExpiringState(clusterContext);
@@ -267,7 +276,8 @@ public class GatewayContextResolver {
                 webDir,
                 tempDir,
                 clusterContext,
-                schedulerProvider);
+                schedulerProvider,
+                realmLoginExecutors);
 
         injectables.putAll(dependencyContexts);
         injectables.put("serviceRegistry", servicesByURI);
@@ -283,6 +293,7 @@ public class GatewayContextResolver {
         injectables.put("resourceAddressFactory", resourceAddressFactory);
         injectables.put("transportFactory", transportFactory);
         injectables.put("expiringState", expiringState);
+        injectables.put("realmLoginExecutors", realmLoginExecutors);
         gatewayContext.getInjectables().putAll(injectables);
 
         injectResources(services,
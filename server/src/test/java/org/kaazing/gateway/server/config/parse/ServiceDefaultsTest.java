@@ -48,6 +48,7 @@ public class ServiceDefaultsTest {
                 .connectOption("http.keepalive", "disabled")
                 .connectOption("http.keepalive.timeout", "5sec")
                 .connectOption("http.keepalive.connections", "7")
+                .connectOption("http.keepalive.min.connections", "3")
                 .done()
             .service()
                 .type("echo")
@@ -75,6 +76,7 @@ public class ServiceDefaultsTest {
         Assert.assertEquals(5, connectOptionsMap.get("http[http/1.1]."+HTTP_KEEP_ALIVE_TIMEOUT_KEY));
         Assert.assertFalse((Boolean) connectOptionsMap.get("http[http/1.1]."+HTTP_KEEP_ALIVE));
         Assert.assertEquals(7, connectOptionsMap.get("http[http/1.1].keepalive.connections"));
+        Assert.assertEquals(3, connectOptionsMap.get("http[http/1.1].keepalive.min.connections"));
     }
 
     @Test
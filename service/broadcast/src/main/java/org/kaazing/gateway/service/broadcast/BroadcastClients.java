@@ -0,0 +1,171 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.broadcast;
+
+import static java.util.Collections.unmodifiableCollection;
+import static org.kaazing.mina.core.session.IoSessionEx.NO_EXECUTOR;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.util.ConcurrentHashSet;
+import org.kaazing.mina.core.session.IoSessionEx;
+
+/**
+ * The clients of a broadcast service, partitioned by the I/O executor that owns each session so that
+ * a broadcast message can be handed to each worker once and written to its clients without cross-thread handoff.
+ */
+final class BroadcastClients {
+
+    private final ConcurrentMap<IoSession, Partition> partitionsBySession;
+    private final ConcurrentMap<Executor, Partition> partitionsByExecutor;
+    private final Partition unaligned;
+
+    BroadcastClients() {
+        this.partitionsBySession = new ConcurrentHashMap<>();
+        this.partitionsByExecutor = new ConcurrentHashMap<>();
+        this.unaligned = new Partition(null);
+    }
+
+    void add(IoSession session) {
+        Partition partition = join(session);
+        partitionsBySession.put(session, partition);
+    }
+
+    void remove(IoSession session) {
+        Partition partition = partitionsBySession.remove(session);
+        if (partition != null) {
+            leave(partition, session);
+        }
+    }
+
+    /**
+     * Moves a session to the partition of its current I/O executor, if it was realigned since it was added
+     * (e.g. a wseb session attaching a new downstream).
+     */
+    void realign(IoSession session) {
+        Partition oldPartition = partitionsBySession.get(session);
+        if (oldPartition != null && oldPartition.ioExecutor != alignedExecutorOf(session)) {
+            Partition newPartition = join(session);
+            if (partitionsBySession.replace(session, oldPartition, newPartition)) {
+                leave(oldPartition, session);
+            }
+            else {
+                // session was removed concurrently
+                leave(newPartition, session);
+            }
+        }
+    }
+
+    Collection<IoSession> sessions() {
+        return unmodifiableCollection(partitionsBySession.keySet());
+    }
+
+    Collection<Partition> alignedPartitions() {
+        return unmodifiableCollection(partitionsByExecutor.values());
+    }
+
+    Partition unalignedPartition() {
+        return unaligned;
+    }
+
+    private Partition join(IoSession session) {
+        while (true) {
+            Partition partition = partitionFor(session);
+            if (partition == unaligned) {
+                partition.sessions.add(session);
+                return partition;
+            }
+
+            synchronized (partition) {
+                // retry with a new partition if this one was removed after becoming empty
+                if (!partition.retired) {
+                    partition.sessions.add(session);
+                    return partition;
+                }
+            }
+        }
+    }
+
+    private void leave(Partition partition, IoSession session) {
+        partition.sessions.remove(session);
+        if (partition != unaligned && partition.isEmpty()) {
+            synchronized (partition) {
+                if (partition.isEmpty() && !partition.retired) {
+                    partition.retired = true;
+                    partitionsByExecutor.remove(partition.ioExecutor, partition);
+                }
+            }
+        }
+    }
+
+    private Partition partitionFor(IoSession session) {
+        Executor ioExecutor = alignedExecutorOf(session);
+        if (ioExecutor == null) {
+            return unaligned;
+        }
+
+        Partition partition = partitionsByExecutor.get(ioExecutor);
+        if (partition == null) {
+            Partition newPartition = new Partition(ioExecutor);
+            partition = partitionsByExecutor.putIfAbsent(ioExecutor, newPartition);
+            if (partition == null) {
+                partition = newPartition;
+            }
+        }
+        return partition;
+    }
+
+    private static Executor alignedExecutorOf(IoSession session) {
+        if (session instanceof IoSessionEx) {
+            IoSessionEx sessionEx = (IoSessionEx) session;
+            Executor ioExecutor = sessionEx.getIoExecutor();
+            if (sessionEx.isIoAligned() && ioExecutor != NO_EXECUTOR) {
+                return ioExecutor;
+            }
+        }
+        return null;
+    }
+
+    static final class Partition {
+
+        private final Executor ioExecutor;
+        private final Collection<IoSession> sessions;
+
+        // guarded by this partition, set once it is empty and no longer mapped to its executor
+        private boolean retired;
+
+        private Partition(Executor ioExecutor) {
+            this.ioExecutor = ioExecutor;
+            this.sessions = new ConcurrentHashSet<>();
+        }
+
+        Executor getIoExecutor() {
+            return ioExecutor;
+        }
+
+        Collection<IoSession> getSessions() {
+            return sessions;
+        }
+
+        boolean isEmpty() {
+            return sessions.isEmpty();
+        }
+    }
+}
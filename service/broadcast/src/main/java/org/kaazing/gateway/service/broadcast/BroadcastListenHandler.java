@@ -15,35 +15,67 @@
  */
 package org.kaazing.gateway.service.broadcast;
 
-import java.util.Collection;
+import static org.kaazing.gateway.service.broadcast.SlowConsumerPolicy.DISCONNECT;
+
 import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.service.IoHandlerAdapter;
 import org.apache.mina.core.session.IoSession;
 import org.slf4j.Logger;
 
+import org.kaazing.gateway.service.broadcast.BroadcastClients.Partition;
 import org.kaazing.gateway.transport.BridgeSession;
 import org.kaazing.gateway.transport.LoggingUtils;
+import org.kaazing.gateway.transport.TypedAttributeKey;
 import org.kaazing.gateway.transport.bridge.Message;
+import org.kaazing.gateway.transport.io.IoMessage;
 import org.kaazing.gateway.transport.io.filter.IoMessageCodecFilter;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.session.IoSessionEx;
 
 public class BroadcastListenHandler extends IoHandlerAdapter {
 
-    private final Collection<IoSession> clients;
+    private static final TypedAttributeKey<SlowConsumerQueue> PENDING_MESSAGES =
+            new TypedAttributeKey<>(BroadcastListenHandler.class, "pendingMessages");
+
+    private final BroadcastClients clients;
     private final IoMessageCodecFilter codec;
     private final boolean disconnectClientsOnReconnect;
     private final long maximumScheduledWriteBytes;
+    private final SlowConsumerPolicy slowConsumerPolicy;
+    private final long slowConsumerQueueBytes;
+    private final int slowConsumerSampleInterval;
+    private final byte[] conflationDelimiter;
+    private final AtomicLong droppedMessages;
+    private final AtomicLong conflatedMessages;
     private final Logger logger;
 
-	public BroadcastListenHandler(Collection<IoSession> clients, boolean disconnectClientsOnReconnect, long maximumScheduledWriteBytes, Logger logger) {
+	BroadcastListenHandler(BroadcastClients clients, boolean disconnectClientsOnReconnect, long maximumScheduledWriteBytes,
+	        SlowConsumerPolicy slowConsumerPolicy, long slowConsumerQueueBytes, int slowConsumerSampleInterval,
+	        byte[] conflationDelimiter, Logger logger) {
 		this.clients = clients;
 		this.codec = new IoMessageCodecFilter();
 		this.disconnectClientsOnReconnect = disconnectClientsOnReconnect;
 		this.logger = logger;
 		this.maximumScheduledWriteBytes = maximumScheduledWriteBytes;
+		this.slowConsumerPolicy = slowConsumerPolicy;
+		this.slowConsumerQueueBytes = slowConsumerQueueBytes;
+		this.slowConsumerSampleInterval = slowConsumerSampleInterval;
+		this.conflationDelimiter = conflationDelimiter;
+		this.droppedMessages = new AtomicLong();
+		this.conflatedMessages = new AtomicLong();
 	}
 
+    long getDroppedMessageCount() {
+        return droppedMessages.get();
+    }
+
+    long getConflatedMessageCount() {
+        return conflatedMessages.get();
+    }
+
 	@Override
     public void sessionOpened(IoSession session) throws Exception {
 	    session.getFilterChain().addLast("io", codec);
@@ -52,7 +84,7 @@ public class BroadcastListenHandler extends IoHandlerAdapter {
     @Override
     public void sessionClosed(IoSession session) throws Exception {
         if (disconnectClientsOnReconnect) {
-            Iterator<IoSession> clientsIterator = clients.iterator();
+            Iterator<IoSession> clientsIterator = clients.sessions().iterator();
             while (clientsIterator.hasNext()) {
                 clientsIterator.next().close(false);
                 // BroadcastServiceHandler.sessionClosed(IoSession) will take care of removing client from clients
@@ -62,22 +94,27 @@ public class BroadcastListenHandler extends IoHandlerAdapter {
 
     @Override
 	public void messageReceived(IoSession session, Object message) throws Exception {
-        if (message instanceof IoBuffer) {
-			IoBuffer buf = (IoBuffer) message;
-			for (IoSession client : clients) {
-			    writeOrClose(client, buf);
-			}
-			buf.skip(buf.remaining());
-		}
-		else {
-	        if (message instanceof Message) {
-	            ((Message)message).initCache();
-	        }
-
-			for (IoSession client : clients) {
-			    writeOrClose(client, message);
-			}
-		}
+        if (message instanceof IoBufferEx) {
+            // wrap as a cached message so each client transport frames it once per wire format
+            // (see CachingMessageEncoder) instead of once per client
+            IoBufferEx buf = (IoBufferEx) message;
+            IoMessage ioMessage = new IoMessage(buf.duplicate());
+            buf.skip(buf.remaining());
+            message = ioMessage;
+        }
+
+        if (message instanceof Message) {
+            ((Message)message).initCache();
+        }
+
+        // hand the message once to each I/O worker, which then writes to the clients it owns
+        for (Partition partition : clients.alignedPartitions()) {
+            if (!partition.isEmpty()) {
+                partition.getIoExecutor().execute(new BroadcastTask(partition, message));
+            }
+        }
+
+        writeOrClose(clients.unalignedPartition(), message);
 	}
 
     @Override
@@ -85,7 +122,33 @@ public class BroadcastListenHandler extends IoHandlerAdapter {
         LoggingUtils.log(session, logger, cause);
     }
 
+    private void writeOrClose(Partition partition, Object message) {
+        Executor ioExecutor = partition.getIoExecutor();
+        for (IoSession client : partition.getSessions()) {
+            if (ioExecutor != null && ((IoSessionEx) client).getIoExecutor() != ioExecutor) {
+                // session was realigned to another worker, write still succeeds (via handoff) but move it for next time
+                clients.realign(client);
+            }
+            writeOrClose(client, message);
+        }
+    }
+
     private void writeOrClose(IoSession client, Object message) {
+        SlowConsumerQueue pendingMessages = PENDING_MESSAGES.get(client);
+        if (pendingMessages == null) {
+            writeOrHoldBack(client, message, null);
+        }
+        else {
+            // the client's I/O thread also flushes when a write completes, so drain and write under the queue lock
+            // to keep message order, anything held back while the client was slow goes first
+            synchronized (pendingMessages) {
+                flush(client, pendingMessages);
+                writeOrHoldBack(client, message, pendingMessages);
+            }
+        }
+    }
+
+    private void writeOrHoldBack(IoSession client, Object message, SlowConsumerQueue pendingMessages) {
         long scheduledWriteBytes = getScheduledWriteBytes(client);
         if (logger.isDebugEnabled()) {
             logger.debug(String.format("BroadcastListenHandler: session %d: scheduledWriteBytes = %d", client.getId(), scheduledWriteBytes));
@@ -93,13 +156,24 @@ public class BroadcastListenHandler extends IoHandlerAdapter {
 
         if (!client.isClosing()) {
             if (scheduledWriteBytes > maximumScheduledWriteBytes) {
-                if (logger.isInfoEnabled()) {
-                    String logMessage = String.format("Closing client session %s because scheduled write bytes %d exceeds the configured limit of %d",
-                            client, scheduledWriteBytes, maximumScheduledWriteBytes);
-                    logger.info(logMessage);
+                if (slowConsumerPolicy == DISCONNECT) {
+                    if (logger.isInfoEnabled()) {
+                        String logMessage = String.format("Closing client session %s because scheduled write bytes %d exceeds the configured limit of %d",
+                                client, scheduledWriteBytes, maximumScheduledWriteBytes);
+                        logger.info(logMessage);
+                    }
+                    client.close(true);
+                    // BroadcastServiceHandler.sessionClosed(IoSession) will take care of removing client from clients
                 }
-                client.close(true);
-                // BroadcastServiceHandler.sessionClosed(IoSession) will take care of removing client from clients
+                else if (pendingMessages != null) {
+                    pendingMessages.offer(message);
+                }
+                else {
+                    holdBack(client, message);
+                }
+            }
+            else if (pendingMessages != null && !pendingMessages.isEmpty()) {
+                pendingMessages.offer(message);
             }
             else {
                 client.write(message);
@@ -107,6 +181,44 @@ public class BroadcastListenHandler extends IoHandlerAdapter {
         }
     }
 
+    /**
+     * Writes the messages held back from a slow client for as long as it stays below the maximum scheduled write bytes,
+     * called for each broadcast message and whenever a write to the client completes.
+     */
+    void flush(IoSession client) {
+        SlowConsumerQueue pendingMessages = PENDING_MESSAGES.get(client);
+        if (pendingMessages != null) {
+            synchronized (pendingMessages) {
+                flush(client, pendingMessages);
+            }
+        }
+    }
+
+    private void flush(IoSession client, SlowConsumerQueue pendingMessages) {
+        while (!client.isClosing() && getScheduledWriteBytes(client) <= maximumScheduledWriteBytes) {
+            Object message = pendingMessages.poll();
+            if (message == null) {
+                break;
+            }
+            client.write(message);
+        }
+    }
+
+    private void holdBack(IoSession client, Object message) {
+        // retained for the lifetime of the client, so concurrent writers never lose messages to a discarded queue
+        SlowConsumerQueue newPendingMessages = new SlowConsumerQueue(slowConsumerPolicy, slowConsumerQueueBytes,
+                slowConsumerSampleInterval, conflationDelimiter, droppedMessages, conflatedMessages);
+        SlowConsumerQueue pendingMessages = PENDING_MESSAGES.setIfAbsent(client, newPendingMessages);
+        if (pendingMessages == null) {
+            pendingMessages = newPendingMessages;
+            if (logger.isInfoEnabled()) {
+                logger.info(String.format("Holding back messages for slow client session %s using slow consumer policy %s",
+                        client, slowConsumerPolicy));
+            }
+        }
+        pendingMessages.offer(message);
+    }
+
     private long getScheduledWriteBytes(IoSession client) {
         IoSession session = client;
         while (session instanceof BridgeSession) {
@@ -122,4 +234,20 @@ public class BroadcastListenHandler extends IoHandlerAdapter {
         return session.getScheduledWriteBytes();
     }
 
+    private final class BroadcastTask implements Runnable {
+
+        private final Partition partition;
+        private final Object message;
+
+        BroadcastTask(Partition partition, Object message) {
+            this.partition = partition;
+            this.message = message;
+        }
+
+        @Override
+        public void run() {
+            writeOrClose(partition, message);
+        }
+    }
+
 }
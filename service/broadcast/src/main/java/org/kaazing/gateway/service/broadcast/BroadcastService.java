@@ -15,6 +15,7 @@
  */
 package org.kaazing.gateway.service.broadcast;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.kaazing.gateway.util.InternalSystemProperty.BROADCAST_SERVICE_DISCONNECT_CLIENTS_ON_RECONNECT;
 import static org.kaazing.gateway.util.InternalSystemProperty.BROADCAST_SERVICE_MAXIMUM_PENDING_BYTES;
 
@@ -53,6 +54,10 @@ public class BroadcastService implements Service {
     // FIXME: remove me
     // services
     private static final String ON_CLIENT_MESSAGE = "on.client.message";
+    private static final String SLOW_CONSUMER_POLICY = "slow.consumer.policy";
+    private static final String SLOW_CONSUMER_QUEUE_BYTES = "slow.consumer.queue.bytes";
+    private static final String SLOW_CONSUMER_SAMPLE_INTERVAL = "slow.consumer.sample.interval";
+    private static final String SLOW_CONSUMER_CONFLATION_DELIMITER = "slow.consumer.conflation.delimiter";
     // FIXME: end of remove me
 
     private ScheduledExecutorService scheduler;
@@ -106,11 +111,31 @@ public class BroadcastService implements Service {
             gatewayLogger.info(String.format("Broadcast service: limiting maximum scheduled write bytes to %d",
                     maximumScheduledWriteBytes));
         }
+
+        ServiceProperties properties = serviceContext.getProperties();
+        SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.fromString(properties.get(SLOW_CONSUMER_POLICY));
+        long slowConsumerQueueBytes = parsePositiveInteger(SLOW_CONSUMER_QUEUE_BYTES,
+                properties.get(SLOW_CONSUMER_QUEUE_BYTES), 65536);
+        int slowConsumerSampleInterval = (int) parsePositiveInteger(SLOW_CONSUMER_SAMPLE_INTERVAL,
+                properties.get(SLOW_CONSUMER_SAMPLE_INTERVAL), 10);
+        String conflationDelimiter = properties.get(SLOW_CONSUMER_CONFLATION_DELIMITER);
+        if (conflationDelimiter == null) {
+            conflationDelimiter = ":";
+        }
+        else if (conflationDelimiter.codePointCount(0, conflationDelimiter.length()) != 1) {
+            throw new IllegalArgumentException(String.format("%s must be a single character, got \"%s\"",
+                    SLOW_CONSUMER_CONFLATION_DELIMITER, conflationDelimiter));
+        }
+        if (slowConsumerPolicy != SlowConsumerPolicy.DISCONNECT) {
+            gatewayLogger.info(String.format("Broadcast service: slow consumer policy %s, holding back at most %d bytes per client",
+                    slowConsumerPolicy, slowConsumerQueueBytes));
+        }
+
         this.handler = new BroadcastServiceHandler(disconnectClientsOnReconnect, maximumScheduledWriteBytes,
-                onClientMessage, serviceContext.getLogger());
+                onClientMessage, slowConsumerPolicy, slowConsumerQueueBytes, slowConsumerSampleInterval,
+                conflationDelimiter.getBytes(UTF_8), serviceContext.getLogger());
 
         Collection<String> connectURIs = serviceContext.getConnects();
-        ServiceProperties properties = serviceContext.getProperties();
         String reconnectDelay = properties.get("reconnect.delay");
         if ((connectURIs == null || connectURIs.isEmpty())) {
             throw new IllegalArgumentException("Missing required connect");
@@ -120,6 +145,22 @@ public class BroadcastService implements Service {
         this.reconnectDelay = (reconnectDelay != null) ? Integer.parseInt(reconnectDelay) : 3000;
     }
 
+    /**
+     * @return the number of messages discarded for slow clients by the slow consumer policy
+     */
+    public long getDroppedMessageCount() {
+        BroadcastServiceHandler handler = this.handler;
+        return (handler != null) ? handler.getDroppedMessageCount() : 0L;
+    }
+
+    /**
+     * @return the number of messages replaced by a newer message with the same conflation key for slow clients
+     */
+    public long getConflatedMessageCount() {
+        BroadcastServiceHandler handler = this.handler;
+        return (handler != null) ? handler.getConflatedMessageCount() : 0L;
+    }
+
     @Override
     public void start() throws Exception {
         reconnect.set(true);
@@ -18,14 +18,11 @@ package org.kaazing.gateway.service.broadcast;
 import static org.kaazing.gateway.service.broadcast.BroadcastService.OnClientMessage.BROADCAST;
 
 import java.nio.channels.ClosedChannelException;
-import java.util.Collection;
-import java.util.Collections;
 
 import org.apache.mina.core.filterchain.IoFilter;
 import org.apache.mina.core.service.IoHandler;
 import org.apache.mina.core.service.IoHandlerAdapter;
 import org.apache.mina.core.session.IoSession;
-import org.apache.mina.util.ConcurrentHashSet;
 import org.slf4j.Logger;
 import org.kaazing.gateway.service.broadcast.BroadcastService.OnClientMessage;
 import org.kaazing.gateway.transport.LoggingUtils;
@@ -34,18 +31,19 @@ import org.kaazing.gateway.transport.io.filter.IoMessageCodecFilter;
 class BroadcastServiceHandler extends IoHandlerAdapter {
 
     private final IoFilter codec;
-    private final Collection<IoSession> clients;
-    private final IoHandler handler;
+    private final BroadcastClients clients;
+    private final BroadcastListenHandler handler;
     private final Logger logger;
     private IoSession connectSession;
     private final OnClientMessage onClientMessage;
 
-    BroadcastServiceHandler(boolean disconnectClientsOnReconnect, long maximumScheduledWriteBytes, OnClientMessage onClientMessage, Logger logger)
-            throws Exception {
+    BroadcastServiceHandler(boolean disconnectClientsOnReconnect, long maximumScheduledWriteBytes, OnClientMessage onClientMessage,
+            SlowConsumerPolicy slowConsumerPolicy, long slowConsumerQueueBytes, int slowConsumerSampleInterval,
+            byte[] conflationDelimiter, Logger logger) throws Exception {
         this.onClientMessage = onClientMessage;
-        this.clients = new ConcurrentHashSet<>();
-        this.handler = new BroadcastListenHandler(Collections.unmodifiableCollection(clients),
-                disconnectClientsOnReconnect, maximumScheduledWriteBytes, logger);
+        this.clients = new BroadcastClients();
+        this.handler = new BroadcastListenHandler(clients, disconnectClientsOnReconnect, maximumScheduledWriteBytes,
+                slowConsumerPolicy, slowConsumerQueueBytes, slowConsumerSampleInterval, conflationDelimiter, logger);
         this.codec = new IoMessageCodecFilter();
         this.logger = logger;
     }
@@ -62,6 +60,14 @@ class BroadcastServiceHandler extends IoHandlerAdapter {
         return handler;
     }
 
+    long getDroppedMessageCount() {
+        return handler.getDroppedMessageCount();
+    }
+
+    long getConflatedMessageCount() {
+        return handler.getConflatedMessageCount();
+    }
+
     @Override
     public void messageReceived(IoSession session, Object message) throws Exception {
         if (onClientMessage == BROADCAST) {
@@ -69,6 +75,12 @@ class BroadcastServiceHandler extends IoHandlerAdapter {
         }
     }
 
+    @Override
+    public void messageSent(IoSession session, Object message) throws Exception {
+        // a slow client may have caught up
+        handler.flush(session);
+    }
+
     @Override
     public void exceptionCaught(IoSession session, Throwable cause)
             throws Exception {
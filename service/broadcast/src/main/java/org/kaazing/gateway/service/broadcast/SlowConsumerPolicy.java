@@ -0,0 +1,56 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.broadcast;
+
+/**
+ * What the broadcast service does with a client whose scheduled write bytes exceed the configured maximum.
+ */
+public enum SlowConsumerPolicy {
+
+    /** Close the client (the historical behavior). */
+    DISCONNECT("disconnect"),
+
+    /** Hold messages in a bounded per-client queue, discarding the oldest when it is full. */
+    DROP_OLDEST("drop-oldest"),
+
+    /**
+     * Hold only the latest message for each conflation key, discarding the oldest when the queue is full.
+     * Only the data relayed from the connect (an {@link org.kaazing.gateway.transport.io.IoMessage}) has a key,
+     * any other message, such as a transport specific WebSocket message, is held as with {@link #DROP_OLDEST}.
+     */
+    CONFLATE("conflate"),
+
+    /** Hold only one of every N messages, discarding the oldest when the queue is full. */
+    SAMPLE("sample");
+
+    private final String type;
+
+    SlowConsumerPolicy(String type) {
+        this.type = type;
+    }
+
+    static SlowConsumerPolicy fromString(String str) throws Exception {
+        if (str == null) {
+            return SlowConsumerPolicy.DISCONNECT;
+        }
+        for (SlowConsumerPolicy e : SlowConsumerPolicy.values()) {
+            if (e.type.equalsIgnoreCase(str)) {
+                return e;
+            }
+        }
+        throw new Exception(String.format("%s type not valid Enum type for %s", str, SlowConsumerPolicy.class));
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.broadcast;
+
+import static org.kaazing.gateway.service.broadcast.SlowConsumerPolicy.CONFLATE;
+import static org.kaazing.gateway.service.broadcast.SlowConsumerPolicy.SAMPLE;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kaazing.gateway.transport.io.IoMessage;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+
+/**
+ * Queue of the messages held back from a slow broadcast client, bounded by the total size of their content,
+ * applying the configured {@link SlowConsumerPolicy} so that the memory retained per client stays bounded.
+ * The queue is its own lock, which callers hold to drain it and write to the client as one step.
+ */
+final class SlowConsumerQueue {
+
+    private final SlowConsumerPolicy policy;
+    private final long capacity;
+    private final int sampleInterval;
+    private final byte[] conflationDelimiter;
+    private final AtomicLong droppedMessages;
+    private final AtomicLong conflatedMessages;
+
+    // insertion ordered, messages without a conflation key are held under a unique key
+    private final Map<Object, Object> messages;
+    private long size;
+    private int sampleCount;
+
+    /**
+     * @param capacity             the maximum total size in bytes of the messages held back
+     * @param conflationDelimiter  the bytes ending the conflation key of a message
+     */
+    SlowConsumerQueue(SlowConsumerPolicy policy, long capacity, int sampleInterval, byte[] conflationDelimiter,
+            AtomicLong droppedMessages, AtomicLong conflatedMessages) {
+        this.policy = policy;
+        this.capacity = capacity;
+        this.sampleInterval = sampleInterval;
+        this.conflationDelimiter = conflationDelimiter;
+        this.droppedMessages = droppedMessages;
+        this.conflatedMessages = conflatedMessages;
+        this.messages = new LinkedHashMap<>();
+    }
+
+    synchronized void offer(Object message) {
+        if (policy == SAMPLE && sampleCount++ % sampleInterval != 0) {
+            droppedMessages.incrementAndGet();
+            return;
+        }
+
+        int messageSize = sizeOf(message);
+        if (messageSize > capacity) {
+            droppedMessages.incrementAndGet();
+            return;
+        }
+
+        Object key = (policy == CONFLATE) ? conflationKey(message) : null;
+        if (key != null && messages.containsKey(key)) {
+            // replaces the value in place, keeping its position in the queue
+            Object conflated = messages.put(key, message);
+            size += messageSize - sizeOf(conflated);
+            conflatedMessages.incrementAndGet();
+        }
+        else {
+            messages.put((key != null) ? key : new Object(), message);
+            size += messageSize;
+        }
+
+        for (Iterator<Object> eldest = messages.values().iterator(); size > capacity;) {
+            size -= sizeOf(eldest.next());
+            eldest.remove();
+            droppedMessages.incrementAndGet();
+        }
+    }
+
+    synchronized Object poll() {
+        Iterator<Object> eldest = messages.values().iterator();
+        if (!eldest.hasNext()) {
+            return null;
+        }
+        Object message = eldest.next();
+        eldest.remove();
+        size -= sizeOf(message);
+        return message;
+    }
+
+    synchronized boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    synchronized int size() {
+        return messages.size();
+    }
+
+    /**
+     * Every message relayed from the connect is an IoMessage (see {@link #conflationKey(Object)}), other message types
+     * only hold references to shared state and are not counted.
+     */
+    private static int sizeOf(Object message) {
+        return (message instanceof IoMessage) ? ((IoMessage) message).getBuffer().remaining() : 0;
+    }
+
+    /**
+     * The conflation key of a message is its content up to (excluding) the first conflation delimiter,
+     * messages without a delimiter are never conflated. Every message relayed from the connect is an IoMessage
+     * (the listen handler decodes even WebSocket connects to bytes), so other message types, such as WsMessage
+     * from the ws transport this service does not depend on, have no key and are never conflated.
+     */
+    private Object conflationKey(Object message) {
+        if (message instanceof IoMessage) {
+            IoBufferEx buf = ((IoMessage) message).getBuffer();
+            int position = buf.position();
+            int index = indexOf(buf, conflationDelimiter);
+            if (index != -1) {
+                // absolute reads, the same message is being written to other clients concurrently
+                byte[] key = new byte[index - position];
+                for (int i = 0; i < key.length; i++) {
+                    key[i] = buf.get(position + i);
+                }
+                return ByteBuffer.wrap(key);
+            }
+        }
+        return null;
+    }
+
+    private static int indexOf(IoBufferEx buf, byte[] delimiter) {
+        int last = buf.limit() - delimiter.length;
+        for (int index = buf.position(); index <= last; index++) {
+            int matched = 0;
+            while (matched < delimiter.length && buf.get(index + matched) == delimiter[matched]) {
+                matched++;
+            }
+            if (matched == delimiter.length) {
+                return index;
+            }
+        }
+        return -1;
+    }
+}
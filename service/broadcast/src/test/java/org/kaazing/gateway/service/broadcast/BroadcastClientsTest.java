@@ -0,0 +1,219 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.broadcast;
+
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.gateway.service.broadcast.SlowConsumerPolicy.DISCONNECT;
+import static org.kaazing.mina.core.session.IoSessionEx.IMMEDIATE_EXECUTOR;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.mina.core.session.IoSession;
+import org.jmock.Expectations;
+import org.jmock.States;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.action.CustomAction;
+import org.jmock.lib.concurrent.Synchroniser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.kaazing.gateway.service.broadcast.BroadcastClients.Partition;
+import org.kaazing.mina.core.buffer.SimpleBufferAllocator;
+import org.kaazing.mina.core.session.IoSessionEx;
+import org.slf4j.LoggerFactory;
+
+public class BroadcastClientsTest {
+
+    @Rule
+    public JUnitRuleMockery context = new JUnitRuleMockery() {
+        {
+            setThreadingPolicy(new Synchroniser());
+        }
+    };
+
+    @Test
+    public void shouldPartitionByIoExecutor() throws Exception {
+        Executor worker1 = newWorker("worker1");
+        Executor worker2 = newWorker("worker2");
+
+        IoSessionEx session1 = newSession("session1", worker1, true);
+        IoSessionEx session2 = newSession("session2", worker1, true);
+        IoSessionEx session3 = newSession("session3", worker2, true);
+        IoSessionEx unaligned = newSession("unaligned", IMMEDIATE_EXECUTOR, false);
+
+        BroadcastClients clients = new BroadcastClients();
+        clients.add(session1);
+        clients.add(session2);
+        clients.add(session3);
+        clients.add(unaligned);
+
+        assertEquals(4, clients.sessions().size());
+        assertEquals(2, clients.alignedPartitions().size());
+        for (Partition partition : clients.alignedPartitions()) {
+            if (partition.getIoExecutor() == worker1) {
+                assertEquals(2, partition.getSessions().size());
+            }
+            else {
+                assertSame(worker2, partition.getIoExecutor());
+                assertEquals(1, partition.getSessions().size());
+            }
+        }
+        assertTrue(clients.unalignedPartition().getSessions().contains(unaligned));
+
+        clients.remove(session1);
+        clients.remove(session3);
+        clients.remove(unaligned);
+
+        assertEquals(1, clients.sessions().size());
+        assertTrue(clients.unalignedPartition().isEmpty());
+        assertEquals(1, clients.alignedPartitions().size());
+        Partition partition = clients.alignedPartitions().iterator().next();
+        assertSame(worker1, partition.getIoExecutor());
+        assertEquals(1, partition.getSessions().size());
+
+        clients.remove(session2);
+        assertTrue(clients.alignedPartitions().isEmpty());
+
+        clients.add(session1);
+        assertEquals(1, clients.alignedPartitions().size());
+        assertTrue(clients.alignedPartitions().iterator().next().getSessions().contains(session1));
+    }
+
+    @Test
+    public void shouldRemovePartitionLeftByRealignedSession() throws Exception {
+        final Executor worker1 = newWorker("worker1");
+        final Executor worker2 = newWorker("worker2");
+
+        final IoSessionEx session = context.mock(IoSessionEx.class, "session");
+        final States downstream = context.states("downstream").startsAs("worker1");
+        context.checking(new Expectations() {
+            {
+                allowing(session).isIoAligned();
+                will(returnValue(true));
+                allowing(session).getIoExecutor();
+                when(downstream.is("worker1"));
+                will(returnValue(worker1));
+                allowing(session).getIoExecutor();
+                when(downstream.is("worker2"));
+                will(returnValue(worker2));
+            }
+        });
+
+        BroadcastClients clients = new BroadcastClients();
+        clients.add(session);
+
+        downstream.become("worker2");
+        clients.realign(session);
+
+        assertEquals(1, clients.alignedPartitions().size());
+        Partition partition = clients.alignedPartitions().iterator().next();
+        assertSame(worker2, partition.getIoExecutor());
+        assertTrue(partition.getSessions().contains(session));
+
+        clients.remove(session);
+        assertTrue(clients.alignedPartitions().isEmpty());
+    }
+
+    @Test
+    public void shouldWriteToEachClientFromItsIoExecutor() throws Exception {
+        ExecutorService worker1 = newWorker("worker1");
+        ExecutorService worker2 = newWorker("worker2");
+        try {
+            Map<String, String> writeThreads = new ConcurrentHashMap<>();
+            CountDownLatch written = new CountDownLatch(3);
+
+            BroadcastClients clients = new BroadcastClients();
+            clients.add(newClient("session1", worker1, writeThreads, written));
+            clients.add(newClient("session2", worker2, writeThreads, written));
+            clients.add(newClient("session3", worker1, writeThreads, written));
+
+            BroadcastListenHandler handler = new BroadcastListenHandler(clients, false, Long.MAX_VALUE, DISCONNECT, 0, 0,
+                    new byte[0], LoggerFactory.getLogger(BroadcastClientsTest.class));
+            IoSession broadcastSource = context.mock(IoSession.class, "broadcastSource");
+            handler.messageReceived(broadcastSource,
+                    SimpleBufferAllocator.BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap("message".getBytes())));
+
+            assertTrue(written.await(5, SECONDS));
+            assertEquals("worker1", writeThreads.get("session1"));
+            assertEquals("worker2", writeThreads.get("session2"));
+            assertEquals("worker1", writeThreads.get("session3"));
+        }
+        finally {
+            worker1.shutdownNow();
+            worker2.shutdownNow();
+        }
+    }
+
+    private IoSessionEx newSession(String name, final Executor ioExecutor, final boolean ioAligned) {
+        final IoSessionEx session = context.mock(IoSessionEx.class, name);
+        context.checking(new Expectations() {
+            {
+                allowing(session).getIoExecutor();
+                will(returnValue(ioExecutor));
+                allowing(session).isIoAligned();
+                will(returnValue(ioAligned));
+            }
+        });
+        return session;
+    }
+
+    private IoSessionEx newClient(final String name, Executor ioExecutor, final Map<String, String> writeThreads,
+                                  final CountDownLatch written) {
+        final IoSessionEx session = newSession(name, ioExecutor, true);
+        context.checking(new Expectations() {
+            {
+                allowing(session).getId();
+                will(returnValue(0L));
+                allowing(session).getAttribute(with(any(Object.class)));
+                will(returnValue(null));
+                allowing(session).getScheduledWriteBytes();
+                will(returnValue(0L));
+                allowing(session).isClosing();
+                will(returnValue(false));
+                oneOf(session).write(with(any(Object.class)));
+                will(new CustomAction("record write thread") {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        writeThreads.put(name, Thread.currentThread().getName());
+                        written.countDown();
+                        return null;
+                    }
+                });
+            }
+        });
+        return session;
+    }
+
+    private static ExecutorService newWorker(final String name) {
+        return newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, name);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.broadcast;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.kaazing.gateway.service.broadcast.SlowConsumerPolicy.CONFLATE;
+import static org.kaazing.gateway.service.broadcast.SlowConsumerPolicy.DROP_OLDEST;
+import static org.kaazing.gateway.service.broadcast.SlowConsumerPolicy.SAMPLE;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.kaazing.gateway.transport.bridge.Message;
+import org.kaazing.gateway.transport.io.IoMessage;
+import org.kaazing.mina.core.buffer.SimpleBufferAllocator;
+
+public class SlowConsumerQueueTest {
+
+    private static final byte[] DELIMITER = ":".getBytes(UTF_8);
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong conflated = new AtomicLong();
+
+    @Test
+    public void shouldDropOldestWhenFull() throws Exception {
+        SlowConsumerQueue queue = new SlowConsumerQueue(DROP_OLDEST, 6, 1, DELIMITER, dropped, conflated);
+        IoMessage first = message("a:1");
+        IoMessage second = message("b:1");
+        IoMessage third = message("c:1");
+
+        queue.offer(first);
+        queue.offer(second);
+        queue.offer(third);
+
+        assertEquals(1, dropped.get());
+        assertSame(second, queue.poll());
+        assertSame(third, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void shouldBoundTotalSize() throws Exception {
+        SlowConsumerQueue queue = new SlowConsumerQueue(DROP_OLDEST, 10, 1, DELIMITER, dropped, conflated);
+        IoMessage small = message("a:1");
+        IoMessage large = message("b:123456");
+        IoMessage tooLarge = message("c:123456789");
+
+        queue.offer(small);
+        queue.offer(large);
+        queue.offer(tooLarge);
+        assertEquals(2, dropped.get());
+        assertSame(large, queue.poll());
+        assertNull(queue.poll());
+
+        // polled messages no longer count
+        queue.offer(small);
+        queue.offer(small);
+        assertEquals(2, queue.size());
+        assertEquals(2, dropped.get());
+    }
+
+    @Test
+    public void shouldConflateByKey() throws Exception {
+        SlowConsumerQueue queue = new SlowConsumerQueue(CONFLATE, 64, 1, DELIMITER, dropped, conflated);
+        IoMessage a1 = message("a:1");
+        IoMessage b1 = message("b:1");
+        IoMessage a2 = message("a:2");
+        IoMessage noKey = message("no key");
+
+        queue.offer(a1);
+        queue.offer(b1);
+        queue.offer(a2);
+        queue.offer(noKey);
+
+        assertEquals(1, conflated.get());
+        assertEquals(0, dropped.get());
+        assertSame(a2, queue.poll());
+        assertSame(b1, queue.poll());
+        assertSame(noKey, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void shouldConflateByMultibyteDelimiter() throws Exception {
+        SlowConsumerQueue queue = new SlowConsumerQueue(CONFLATE, 64, 1, "\u20ac".getBytes(UTF_8), dropped, conflated);
+        IoMessage a1 = message("a\u20ac1");
+        IoMessage b1 = message("b\u20ac1");
+        IoMessage a2 = message("a\u20ac2");
+
+        queue.offer(a1);
+        queue.offer(b1);
+        queue.offer(a2);
+
+        assertEquals(1, conflated.get());
+        assertSame(a2, queue.poll());
+        assertSame(b1, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void shouldNotConflateOtherMessages() throws Exception {
+        SlowConsumerQueue queue = new SlowConsumerQueue(CONFLATE, 64, 1, DELIMITER, dropped, conflated);
+        Message first = new Message();
+        Message second = new Message();
+
+        queue.offer(first);
+        queue.offer(second);
+
+        assertEquals(0, conflated.get());
+        assertSame(first, queue.poll());
+        assertSame(second, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void shouldSample() throws Exception {
+        SlowConsumerQueue queue = new SlowConsumerQueue(SAMPLE, 64, 3, DELIMITER, dropped, conflated);
+        for (int i = 0; i < 7; i++) {
+            queue.offer(message("m:" + i));
+        }
+
+        assertEquals(3, queue.size());
+        assertEquals(4, dropped.get());
+    }
+
+    private static IoMessage message(String text) {
+        return new IoMessage(SimpleBufferAllocator.BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(text.getBytes(UTF_8))));
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.balancer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kaazing.gateway.service.cluster.ClusterContext;
+import org.kaazing.gateway.service.cluster.MemberId;
+import org.kaazing.gateway.service.cluster.MembershipEventListener;
+
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.MapEvent;
+import com.hazelcast.map.listener.EntryAddedListener;
+import com.hazelcast.map.listener.EntryEvictedListener;
+import com.hazelcast.map.listener.EntryRemovedListener;
+import com.hazelcast.map.listener.EntryUpdatedListener;
+import com.hazelcast.map.listener.MapClearedListener;
+import com.hazelcast.map.listener.MapEvictedListener;
+
+/**
+ * Session counts of balancees as last published by their services to the cluster, read through an immutable local
+ * snapshot so that selecting a balancee does not go to the cluster for every request. The snapshot is updated from
+ * the entry events of the load map, and reloaded when it starts and whenever cluster members join or leave. A map
+ * that does not publish entry events, such as the in-memory map of a standalone gateway, is local and is read
+ * directly instead.
+ * <p>
+ * Sessions redirected by this balancer are added to the published counts until the balancee publishes again, or
+ * at most for the redirect interval, so a balancee that looks idle does not receive every new session until its
+ * next publication.
+ */
+class BalanceeLoads implements MembershipEventListener {
+
+    private final ClusterContext clusterContext;
+    private final long redirectIntervalMillis;
+
+    private volatile IMap<String, Integer> loads;
+    private String listenerId;
+    private volatile Map<String, Integer> publishedSessionCounts;
+
+    private final AtomicLong nextRedirectExpiry = new AtomicLong();
+    private final ConcurrentMap<String, AtomicInteger> redirectedSessionCounts = new ConcurrentHashMap<>();
+
+    BalanceeLoads(ClusterContext clusterContext, long redirectIntervalMillis) {
+        this.clusterContext = clusterContext;
+        this.redirectIntervalMillis = redirectIntervalMillis;
+    }
+
+    synchronized void start() {
+        if (loads != null) {
+            return;
+        }
+
+        loads = clusterContext.getCollectionsFactory().getMap(HttpBalancerService.BALANCEE_LOAD_MAP_NAME);
+        try {
+            listenerId = loads.addEntryListener(new BalanceeLoadMapListener(), true);
+        } catch (UnsupportedOperationException e) {
+            // no entry events, read the map directly
+            return;
+        }
+
+        clusterContext.addMembershipEventListener(this);
+        reload();
+    }
+
+    synchronized void stop() {
+        if (listenerId != null) {
+            clusterContext.removeMembershipEventListener(this);
+            loads.removeEntryListener(listenerId);
+            listenerId = null;
+        }
+        loads = null;
+        publishedSessionCounts = null;
+        redirectedSessionCounts.clear();
+    }
+
+    /**
+     * @return the estimated number of sessions of the given balancee, zero if it has not published any
+     */
+    int getSessionCount(String balanceeURI) {
+        Integer published = getPublishedSessionCount(balanceeURI);
+        AtomicInteger redirected = redirectedSessionCounts.get(balanceeURI);
+        return ((published != null) ? published : 0) + ((redirected != null) ? redirected.get() : 0);
+    }
+
+    void addSession(String balanceeURI) {
+        AtomicInteger redirected = redirectedSessionCounts.get(balanceeURI);
+        if (redirected == null) {
+            AtomicInteger newRedirected = new AtomicInteger();
+            redirected = redirectedSessionCounts.putIfAbsent(balanceeURI, newRedirected);
+            if (redirected == null) {
+                redirected = newRedirected;
+            }
+        }
+        redirected.incrementAndGet();
+    }
+
+    /**
+     * Stops counting the redirected sessions if they have been counted for longer than the redirect interval,
+     * in case their balancees did not publish a changed session count since.
+     */
+    void expireRedirectedSessions() {
+        long now = System.currentTimeMillis();
+        long nextExpiry = nextRedirectExpiry.get();
+        if (now < nextExpiry || !nextRedirectExpiry.compareAndSet(nextExpiry, now + redirectIntervalMillis)) {
+            // not yet, or another thread is expiring them
+            return;
+        }
+
+        redirectedSessionCounts.clear();
+    }
+
+    @Override
+    public void memberAdded(MemberId newMember) {
+        reload();
+    }
+
+    @Override
+    public void memberRemoved(MemberId removedMember) {
+        reload();
+    }
+
+    private Integer getPublishedSessionCount(String balanceeURI) {
+        Map<String, Integer> publishedSessionCounts = this.publishedSessionCounts;
+        if (publishedSessionCounts != null) {
+            return publishedSessionCounts.get(balanceeURI);
+        }
+
+        Map<String, Integer> loads = this.loads;
+        return (loads != null) ? loads.get(balanceeURI) : null;
+    }
+
+    /**
+     * Takes a new snapshot of the whole map, in case entry events were missed.
+     */
+    private synchronized void reload() {
+        if (listenerId == null) {
+            // stopped
+            return;
+        }
+
+        publishedSessionCounts = Collections.unmodifiableMap(new HashMap<>(loads));
+        redirectedSessionCounts.clear();
+    }
+
+    private synchronized void update(String balanceeURI, Integer sessionCount) {
+        if (listenerId == null) {
+            return;
+        }
+
+        Map<String, Integer> newSessionCounts = new HashMap<>(publishedSessionCounts);
+        if (sessionCount != null) {
+            newSessionCounts.put(balanceeURI, sessionCount);
+        } else {
+            newSessionCounts.remove(balanceeURI);
+        }
+
+        publishedSessionCounts = Collections.unmodifiableMap(newSessionCounts);
+        // the published count now includes the sessions redirected before it
+        redirectedSessionCounts.remove(balanceeURI);
+    }
+
+    private final class BalanceeLoadMapListener implements EntryAddedListener<String, Integer>,
+            EntryUpdatedListener<String, Integer>, EntryRemovedListener<String, Integer>,
+            EntryEvictedListener<String, Integer>, MapClearedListener, MapEvictedListener {
+
+        @Override
+        public void entryAdded(EntryEvent<String, Integer> event) {
+            update(event.getKey(), event.getValue());
+        }
+
+        @Override
+        public void entryUpdated(EntryEvent<String, Integer> event) {
+            update(event.getKey(), event.getValue());
+        }
+
+        @Override
+        public void entryRemoved(EntryEvent<String, Integer> event) {
+            update(event.getKey(), null);
+        }
+
+        @Override
+        public void entryEvicted(EntryEvent<String, Integer> event) {
+            update(event.getKey(), null);
+        }
+
+        @Override
+        public void mapCleared(MapEvent event) {
+            reload();
+        }
+
+        @Override
+        public void mapEvicted(MapEvent event) {
+            reload();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.balancer;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Strategies for selecting the balancee a client is redirected to, configured with the "balancee.selection"
+ * property of the balancer service. All but RANDOM use the session counts published by the balanced services.
+ */
+enum BalanceeSelection {
+
+    /**
+     * Any balancee, with equal probability.
+     */
+    RANDOM("random") {
+        @Override
+        String select(List<String> balanceeURIs, BalanceeLoads loads, Random random) {
+            return balanceeURIs.get(random.nextInt(balanceeURIs.size()));
+        }
+    },
+
+    /**
+     * The balancee with the fewest sessions, ties broken at random.
+     */
+    LEAST_SESSIONS("least-sessions") {
+        @Override
+        String select(List<String> balanceeURIs, BalanceeLoads loads, Random random) {
+            String selected = null;
+            int leastSessions = Integer.MAX_VALUE;
+            int ties = 0;
+            for (String balanceeURI : balanceeURIs) {
+                int sessions = loads.getSessionCount(balanceeURI);
+                if (sessions < leastSessions) {
+                    selected = balanceeURI;
+                    leastSessions = sessions;
+                    ties = 1;
+                }
+                else if (sessions == leastSessions && random.nextInt(++ties) == 0) {
+                    // reservoir sampling keeps each tied balancee equally likely
+                    selected = balanceeURI;
+                }
+            }
+            return selected;
+        }
+    },
+
+    /**
+     * Any balancee, with probability proportional to its spare capacity relative to the busiest balancee, so that
+     * lightly loaded balancees catch up without all new sessions landing on a single one.
+     */
+    WEIGHTED("weighted") {
+        @Override
+        String select(List<String> balanceeURIs, BalanceeLoads loads, Random random) {
+            int size = balanceeURIs.size();
+            int[] sessions = new int[size];
+            int mostSessions = 0;
+            for (int i = 0; i < size; i++) {
+                sessions[i] = loads.getSessionCount(balanceeURIs.get(i));
+                mostSessions = Math.max(mostSessions, sessions[i]);
+            }
+
+            // every balancee keeps a weight of at least one, so the busiest still gets an occasional session
+            long totalWeight = 0;
+            for (int i = 0; i < size; i++) {
+                totalWeight += mostSessions - sessions[i] + 1;
+            }
+
+            long point = (long) (random.nextDouble() * totalWeight);
+            for (int i = 0; i < size; i++) {
+                point -= mostSessions - sessions[i] + 1;
+                if (point < 0) {
+                    return balanceeURIs.get(i);
+                }
+            }
+            return balanceeURIs.get(size - 1);
+        }
+    },
+
+    /**
+     * The less loaded of two balancees picked at random, which avoids herding onto the least loaded balancee
+     * while its published session count is stale.
+     */
+    POWER_OF_TWO_CHOICES("power-of-two-choices") {
+        @Override
+        String select(List<String> balanceeURIs, BalanceeLoads loads, Random random) {
+            int size = balanceeURIs.size();
+            if (size == 1) {
+                return balanceeURIs.get(0);
+            }
+
+            int first = random.nextInt(size);
+            int second = random.nextInt(size - 1);
+            if (second >= first) {
+                second++;
+            }
+            String firstURI = balanceeURIs.get(first);
+            String secondURI = balanceeURIs.get(second);
+            return (loads.getSessionCount(secondURI) < loads.getSessionCount(firstURI)) ? secondURI : firstURI;
+        }
+    };
+
+    private final String type;
+
+    BalanceeSelection(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Selects one of the given balancees, which must not be empty, and counts the session redirected to it
+     * until the balancee publishes its load again.
+     */
+    String selectBalancee(List<String> balanceeURIs, BalanceeLoads loads) {
+        if (this == RANDOM) {
+            // no need for the loads
+            return select(balanceeURIs, loads, ThreadLocalRandom.current());
+        }
+
+        loads.expireRedirectedSessions();
+        String selected = select(balanceeURIs, loads, ThreadLocalRandom.current());
+        loads.addSession(selected);
+        return selected;
+    }
+
+    abstract String select(List<String> balanceeURIs, BalanceeLoads loads, Random random);
+
+    static BalanceeSelection fromString(String str) {
+        if (str == null) {
+            return RANDOM;
+        }
+        for (BalanceeSelection selection : values()) {
+            if (selection.type.equalsIgnoreCase(str)) {
+                return selection;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Invalid balancee.selection \"%s\", expected one of: " +
+                "random, least-sessions, weighted, power-of-two-choices", str));
+    }
+}
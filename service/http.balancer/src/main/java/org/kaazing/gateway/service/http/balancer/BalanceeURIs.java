@@ -0,0 +1,234 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.balancer;
+
+import static java.util.Collections.unmodifiableList;
+import static org.kaazing.gateway.resource.address.uri.URIUtils.getScheme;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+import org.kaazing.gateway.resource.address.Protocol;
+import org.kaazing.gateway.service.cluster.ClusterContext;
+import org.kaazing.gateway.service.cluster.MemberId;
+import org.kaazing.gateway.service.cluster.MembershipEventListener;
+import org.kaazing.gateway.transport.TransportFactory;
+import org.kaazing.gateway.util.GL;
+
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.MapEvent;
+import com.hazelcast.map.listener.EntryAddedListener;
+import com.hazelcast.map.listener.EntryEvictedListener;
+import com.hazelcast.map.listener.EntryRemovedListener;
+import com.hazelcast.map.listener.EntryUpdatedListener;
+import com.hazelcast.map.listener.MapClearedListener;
+import com.hazelcast.map.listener.MapEvictedListener;
+
+/**
+ * Balancee URIs that the cluster balancer map holds for the accept URIs of a balancer service, read through an
+ * immutable local snapshot so that balancing a request neither takes the cluster lock of the map nor reads the
+ * map itself. The snapshot is updated from the entry events of the map, and reloaded under the lock when it
+ * starts and whenever cluster members join or leave. A map that does not publish entry events, such as the
+ * in-memory map of a standalone gateway, is local and is read directly instead.
+ */
+class BalanceeURIs implements MembershipEventListener {
+
+    private final ClusterContext clusterContext;
+    private final Collection<String> accepts;
+    private final TransportFactory transportFactory;
+
+    private volatile IMap<String, Collection<String>> balancers;
+    private String listenerId;
+    private Map<String, Collection<String>> entries = Collections.emptyMap();
+    private volatile Snapshot snapshot;
+
+    BalanceeURIs(ClusterContext clusterContext, Collection<String> accepts, TransportFactory transportFactory) {
+        this.clusterContext = clusterContext;
+        this.accepts = accepts;
+        this.transportFactory = transportFactory;
+    }
+
+    synchronized void start() {
+        if (balancers != null) {
+            return;
+        }
+
+        balancers = clusterContext.getCollectionsFactory().getMap(HttpBalancerService.BALANCER_MAP_NAME);
+        try {
+            listenerId = balancers.addEntryListener(new BalancerMapListener(), true);
+        } catch (UnsupportedOperationException e) {
+            // no entry events, read the map directly
+            return;
+        }
+
+        clusterContext.addMembershipEventListener(this);
+        reload();
+    }
+
+    synchronized void stop() {
+        if (listenerId != null) {
+            clusterContext.removeMembershipEventListener(this);
+            balancers.removeEntryListener(listenerId);
+            listenerId = null;
+        }
+        balancers = null;
+        snapshot = null;
+    }
+
+    /**
+     * @return the clear or secure balancee URIs of the accept URIs, which must not be modified
+     */
+    List<String> get(boolean secure) {
+        Snapshot snapshot = this.snapshot;
+        if (snapshot != null) {
+            return secure ? snapshot.secureBalanceeURIs : snapshot.clearBalanceeURIs;
+        }
+
+        Map<String, Collection<String>> balancers = this.balancers;
+        return (balancers != null) ? select(balancers, secure) : Collections.<String>emptyList();
+    }
+
+    @Override
+    public void memberAdded(MemberId newMember) {
+        reload();
+    }
+
+    @Override
+    public void memberRemoved(MemberId removedMember) {
+        reload();
+    }
+
+    /**
+     * Takes a new snapshot of the whole map, in case entry events were missed.
+     */
+    private synchronized void reload() {
+        if (listenerId == null) {
+            // stopped
+            return;
+        }
+
+        Map<String, Collection<String>> newEntries = new HashMap<>();
+        Lock mapLock = clusterContext.getLock(HttpBalancerService.BALANCER_MAP_NAME);
+        mapLock.lock();
+        try {
+            for (String balancerAccept : accepts) {
+                Collection<String> balanceesForAccept = balancers.get(balancerAccept);
+                if (balanceesForAccept != null) {
+                    newEntries.put(balancerAccept, balanceesForAccept);
+                }
+            }
+        } finally {
+            mapLock.unlock();
+        }
+
+        entries = newEntries;
+        publish();
+    }
+
+    private synchronized void update(String balancerAccept, Collection<String> balanceesForAccept) {
+        if (listenerId == null || !accepts.contains(balancerAccept)) {
+            return;
+        }
+
+        Map<String, Collection<String>> newEntries = new HashMap<>(entries);
+        if (balanceesForAccept != null) {
+            newEntries.put(balancerAccept, balanceesForAccept);
+        } else {
+            newEntries.remove(balancerAccept);
+        }
+
+        entries = newEntries;
+        publish();
+    }
+
+    private void publish() {
+        snapshot = new Snapshot(select(entries, false), select(entries, true));
+        clusterContext.logClusterState();
+    }
+
+    private List<String> select(Map<String, Collection<String>> balancers, boolean secure) {
+        List<String> balanceeURIs = new ArrayList<>();
+
+        // For my accept URIs, look up the map to get the balancee URIs for which I am balancing.
+        for (String balancerAccept : accepts) {
+            Collection<String> balanceesForAccept = balancers.get(balancerAccept);
+            GL.debug("ha", String.format("Found balancee URIs %s for accept URI %s", balanceesForAccept, balancerAccept));
+
+            if (balanceesForAccept != null) {
+                for (String balanceeURI : balanceesForAccept) {
+                    // Pick only clear or secure balancees as appropriate.
+                    Protocol protocol = transportFactory.getProtocol(getScheme(balanceeURI));
+                    if (secure == protocol.isSecure()) {
+                        balanceeURIs.add(balanceeURI);
+                    }
+                }
+            }
+        }
+
+        return balanceeURIs;
+    }
+
+    private static final class Snapshot {
+        private final List<String> clearBalanceeURIs;
+        private final List<String> secureBalanceeURIs;
+
+        Snapshot(List<String> clearBalanceeURIs, List<String> secureBalanceeURIs) {
+            this.clearBalanceeURIs = unmodifiableList(clearBalanceeURIs);
+            this.secureBalanceeURIs = unmodifiableList(secureBalanceeURIs);
+        }
+    }
+
+    private final class BalancerMapListener implements EntryAddedListener<String, Collection<String>>,
+            EntryUpdatedListener<String, Collection<String>>, EntryRemovedListener<String, Collection<String>>,
+            EntryEvictedListener<String, Collection<String>>, MapClearedListener, MapEvictedListener {
+
+        @Override
+        public void entryAdded(EntryEvent<String, Collection<String>> event) {
+            update(event.getKey(), event.getValue());
+        }
+
+        @Override
+        public void entryUpdated(EntryEvent<String, Collection<String>> event) {
+            update(event.getKey(), event.getValue());
+        }
+
+        @Override
+        public void entryRemoved(EntryEvent<String, Collection<String>> event) {
+            update(event.getKey(), null);
+        }
+
+        @Override
+        public void entryEvicted(EntryEvent<String, Collection<String>> event) {
+            update(event.getKey(), null);
+        }
+
+        @Override
+        public void mapCleared(MapEvent event) {
+            reload();
+        }
+
+        @Override
+        public void mapEvicted(MapEvent event) {
+            reload();
+        }
+    }
+}
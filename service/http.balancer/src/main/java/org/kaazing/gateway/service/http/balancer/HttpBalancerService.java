@@ -26,6 +26,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
 
@@ -36,6 +37,7 @@ import org.kaazing.gateway.resource.address.URLUtils;
 import org.kaazing.gateway.service.AcceptOptionsContext;
 import org.kaazing.gateway.service.Service;
 import org.kaazing.gateway.service.ServiceContext;
+import org.kaazing.gateway.service.ServiceProperties;
 import org.kaazing.gateway.service.cluster.ClusterContext;
 import org.kaazing.gateway.transport.BridgeSessionInitializer;
 import org.kaazing.gateway.transport.BridgeSessionInitializerAdapter;
@@ -48,6 +50,7 @@ import org.kaazing.gateway.transport.ws.WsProtocol;
 import org.kaazing.gateway.transport.wseb.WsebAcceptor;
 import org.kaazing.gateway.transport.wsn.WsnSession;
 import org.kaazing.gateway.util.GL;
+import org.kaazing.gateway.util.Utils;
 
 
 /**
@@ -57,6 +60,11 @@ import org.kaazing.gateway.util.GL;
 public class HttpBalancerService implements Service {
     public static final String BALANCER_MAP_NAME = "balancerMap";
     public static final String MEMBERID_BALANCER_MAP_NAME = "memberIdBalancerMap";
+    public static final String BALANCEE_LOAD_MAP_NAME = "balanceeLoadMap";
+
+    private static final String BALANCEE_SELECTION = "balancee.selection";
+    private static final String BALANCEE_REDIRECT_INTERVAL = "balancee.redirect.interval";
+    private static final String DEFAULT_BALANCEE_REDIRECT_INTERVAL = "1 second";
 
     private WsebBalancerServiceHandler wsebHandler;
     private WsnBalancerServiceHandler wsnHandler;
@@ -88,6 +96,12 @@ public class HttpBalancerService implements Service {
         wsebHandler = new WsebBalancerServiceHandler();
         wsebHandler.setAccepts(serviceContext.getAccepts());
         wsebHandler.setClusterContext(clusterContext);
+
+        ServiceProperties properties = serviceContext.getProperties();
+        BalanceeSelection balanceeSelection = BalanceeSelection.fromString(properties.get(BALANCEE_SELECTION));
+        long redirectInterval = Utils.parseTimeInterval(properties.get(BALANCEE_REDIRECT_INTERVAL),
+                TimeUnit.MILLISECONDS, DEFAULT_BALANCEE_REDIRECT_INTERVAL);
+        wsebHandler.setBalanceeSelection(balanceeSelection, redirectInterval);
         wsnHandler = new WsnBalancerServiceHandler();
 
         // Register the Gateway's connection capabilities with the handlers so that session counts are tracked
@@ -98,6 +112,8 @@ public class HttpBalancerService implements Service {
 
     @Override
     public void start() throws Exception {
+        wsebHandler.start();
+
         final BridgeSessionInitializer<ConnectFuture> wsBalancerSessionInitializer = new BridgeSessionInitializerAdapter<ConnectFuture>() {
 
             private final BridgeSessionInitializer<ConnectFuture> preUpgradeHttpSessionInitializer = new BridgeSessionInitializerAdapter<ConnectFuture>() {
@@ -109,7 +125,7 @@ public class HttpBalancerService implements Service {
                     if (availableBalanceeURIs.isEmpty()) {
                         selectedBalanceeURIs = Collections.emptyList();
                     } else {
-                        String selectedBalanceeURI = availableBalanceeURIs.get((int) (Math.random() * availableBalanceeURIs.size()));
+                        String selectedBalanceeURI = wsebHandler.selectBalanceeURI(availableBalanceeURIs);
                         selectedBalanceeURIs = new ArrayList<>(1);
                         selectedBalanceeURIs.add(selectedBalanceeURI);
                         GL.debug(GL.CLUSTER_LOGGER_NAME, "HttpBalancerService initializeSession Selected Balancee URI: {}", selectedBalanceeURI);
@@ -150,6 +166,10 @@ public class HttpBalancerService implements Service {
                 session.close(true);
             }
         }
+
+        if (wsebHandler != null) {
+            wsebHandler.stop();
+        }
     }
 
     @Override
@@ -23,13 +23,11 @@ import static org.kaazing.gateway.resource.address.uri.URIUtils.getScheme;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.locks.Lock;
 
-import org.kaazing.gateway.resource.address.Protocol;
 import org.kaazing.gateway.service.cluster.ClusterContext;
-import org.kaazing.gateway.service.collections.CollectionsFactory;
 import org.kaazing.gateway.transport.IoHandlerAdapter;
 import org.kaazing.gateway.transport.TransportFactory;
 import org.kaazing.gateway.transport.http.HttpAcceptSession;
@@ -42,6 +40,9 @@ class WsebBalancerServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
     private Collection<String> accepts;
     private ClusterContext clusterContext;
     private TransportFactory transportFactory;
+    private volatile BalanceeSelection balanceeSelection = BalanceeSelection.RANDOM;
+    private volatile BalanceeLoads balanceeLoads;
+    private volatile BalanceeURIs balanceeURIs;
 
     WsebBalancerServiceHandler() {
     }
@@ -66,6 +67,54 @@ class WsebBalancerServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         this.transportFactory = transportFactory;
     }
 
+    void setBalanceeSelection(BalanceeSelection balanceeSelection, long redirectIntervalMillis) {
+        this.balanceeSelection = balanceeSelection;
+        this.balanceeLoads = new BalanceeLoads(clusterContext, redirectIntervalMillis);
+    }
+
+    /**
+     * Starts following the balancee URIs of the accept URIs in the cluster balancer map, and the loads of
+     * the balancees when the selection strategy needs them.
+     */
+    void start() {
+        if (accepts != null && clusterContext != null && clusterContext.getCollectionsFactory() != null) {
+            BalanceeURIs newBalanceeURIs = new BalanceeURIs(clusterContext, accepts, transportFactory);
+            newBalanceeURIs.start();
+            balanceeURIs = newBalanceeURIs;
+
+            BalanceeLoads balanceeLoads = this.balanceeLoads;
+            if (balanceeSelection != BalanceeSelection.RANDOM && balanceeLoads != null) {
+                balanceeLoads.start();
+            }
+        }
+    }
+
+    void stop() {
+        BalanceeURIs balanceeURIs = this.balanceeURIs;
+        if (balanceeURIs != null) {
+            this.balanceeURIs = null;
+            balanceeURIs.stop();
+        }
+
+        BalanceeLoads balanceeLoads = this.balanceeLoads;
+        if (balanceeLoads != null) {
+            balanceeLoads.stop();
+        }
+    }
+
+    /**
+     * @return one of the given balancee URIs, which must not be empty, as chosen by the configured selection strategy
+     */
+    String selectBalanceeURI(List<String> balanceeURIs) {
+        BalanceeLoads balanceeLoads = this.balanceeLoads;
+        if (balanceeLoads == null) {
+            // selection was not configured, so the loads are not followed
+            balanceeLoads = new BalanceeLoads(clusterContext, 0L);
+            this.balanceeLoads = balanceeLoads;
+        }
+        return balanceeSelection.selectBalancee(balanceeURIs, balanceeLoads);
+    }
+
     @Override
     protected void doExceptionCaught(HttpAcceptSession session, Throwable cause) throws Exception {
         // trigger sessionClosed to update connection capabilities accordingly
@@ -81,7 +130,7 @@ class WsebBalancerServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
            session.setStatus(HttpStatus.CLIENT_NOT_FOUND);
         } else {
 
-            String selectedBalanceeURI = availableBalanceeURIs.get((int) (Math.random() * availableBalanceeURIs.size()));
+            String selectedBalanceeURI = selectBalanceeURI(availableBalanceeURIs);
             GL.debug(GL.CLUSTER_LOGGER_NAME, "WsebBalancerServiceHandler doSessionOpen Selected Balancee URI: {}", selectedBalanceeURI);
 
             URI requestURI = session.getRequestURI();
@@ -113,59 +162,28 @@ class WsebBalancerServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         session.close(false);
     }
 
+    /**
+     * @return the clear or secure balancee URIs of the accept URIs, which must not be modified
+     */
     List<String> getBalanceeURIs(boolean secure) {
-        List<String> balanceeURIs = new ArrayList<>();
-
-        CollectionsFactory collectionsFactory = null;
-        if (clusterContext != null) {
-            collectionsFactory = clusterContext.getCollectionsFactory();
+        BalanceeURIs balanceeURIs = this.balanceeURIs;
+        if (balanceeURIs != null) {
+            return balanceeURIs.get(secure);
         }
 
-        if (accepts != null &&
-            collectionsFactory != null) {
-
-            Lock mapLock = getLock(HttpBalancerService.BALANCER_MAP_NAME);
-            try {
-                mapLock.lock();
-                // Get the map of balance URIs to accept URIs from the cluster.
-                Map<String, Collection<String>> balancers = collectionsFactory.getMap(HttpBalancerService.BALANCER_MAP_NAME);
-
-                // For my accept URIs, look up the map to get the balancee URIs for which I am balancing.
-                for (String balancerAccept : accepts) {
-                    Collection<String> balanceesForAccept = balancers.get(balancerAccept);
-                    GL.debug("ha", String.format("Found balancee URIs %s for accept URI %s", balanceesForAccept, balancerAccept));
-
-                    if (balanceesForAccept != null) {
-                        for (String balanceeURI : balanceesForAccept) {
-                            // Pick only clear or secure balancees as appropriate.
-                            Protocol protocol = transportFactory.getProtocol(getScheme(balanceeURI));
-                            if (secure == protocol.isSecure()) {
-                                balanceeURIs.add(balanceeURI);
-                            }
-                        }
-                    }
-                }
-            } finally {
-                mapLock.unlock();
-            }
-
-        } else {
-            StringBuilder sb = new StringBuilder();
-            sb.append("Returning empty balancee URIs list: ");
+        StringBuilder sb = new StringBuilder();
+        sb.append("Returning empty balancee URIs list: ");
 
-            if (accepts == null) {
-                sb.append("accepts are null, ");
-            }
-
-            if (clusterContext.getCollectionsFactory() == null) {
-                sb.append("cluster context collections factory is null");
-            }
+        if (accepts == null) {
+            sb.append("accepts are null, ");
+        }
 
-            GL.debug("CLUSTER_LOGGER_NAME", sb.toString());
+        if (clusterContext.getCollectionsFactory() == null) {
+            sb.append("cluster context collections factory is null");
         }
-        GL.debug(GL.CLUSTER_LOGGER_NAME,"Exit WsebBalancerService.getBalanceeURIs");
-        clusterContext.logClusterState();
-        return balanceeURIs;
+
+        GL.debug("CLUSTER_LOGGER_NAME", sb.toString());
+        return Collections.emptyList();
     }
 
 
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.balancer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kaazing.gateway.server.context.resolve.StandaloneClusterContext;
+import org.kaazing.gateway.service.cluster.ClusterContext;
+
+public class BalanceeSelectionTest {
+
+    private static final String BALANCEE1 = "ws://node1.example.com:8001/echo";
+    private static final String BALANCEE2 = "ws://node2.example.com:8001/echo";
+    private static final String BALANCEE3 = "ws://node3.example.com:8001/echo";
+    private static final List<String> BALANCEES = Arrays.asList(BALANCEE1, BALANCEE2, BALANCEE3);
+
+    private ClusterContext clusterContext;
+    private Map<String, Integer> publishedLoads;
+
+    @Before
+    public void setup() {
+        clusterContext = new StandaloneClusterContext();
+        publishedLoads = clusterContext.getCollectionsFactory().getMap(HttpBalancerService.BALANCEE_LOAD_MAP_NAME);
+    }
+
+    @Test
+    public void shouldParseSelection() throws Exception {
+        assertEquals(BalanceeSelection.RANDOM, BalanceeSelection.fromString(null));
+        assertEquals(BalanceeSelection.LEAST_SESSIONS, BalanceeSelection.fromString("least-sessions"));
+        assertEquals(BalanceeSelection.WEIGHTED, BalanceeSelection.fromString("Weighted"));
+        assertEquals(BalanceeSelection.POWER_OF_TWO_CHOICES, BalanceeSelection.fromString("power-of-two-choices"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownSelection() throws Exception {
+        BalanceeSelection.fromString("round-robin");
+    }
+
+    @Test
+    public void shouldSelectLeastSessions() throws Exception {
+        publishedLoads.put(BALANCEE1, 50000);
+        publishedLoads.put(BALANCEE2, 10);
+        publishedLoads.put(BALANCEE3, 40000);
+        BalanceeLoads loads = startLoads(60000L);
+
+        assertEquals(BALANCEE2, BalanceeSelection.LEAST_SESSIONS.selectBalancee(BALANCEES, loads));
+    }
+
+    @Test
+    public void shouldCountRedirectedSessionsUntilExpiry() throws Exception {
+        publishedLoads.put(BALANCEE1, 5);
+        publishedLoads.put(BALANCEE2, 0);
+        publishedLoads.put(BALANCEE3, 5);
+        BalanceeLoads loads = startLoads(60000L);
+
+        Map<String, Integer> selections = countSelections(BalanceeSelection.LEAST_SESSIONS, loads, 12);
+
+        // the restarted balancee catches up, then the sessions spread evenly
+        assertTrue(selections.get(BALANCEE2) >= 7);
+        for (String balancee : BALANCEES) {
+            int sessionCount = loads.getSessionCount(balancee);
+            assertTrue(sessionCount == 7 || sessionCount == 8);
+        }
+    }
+
+    @Test
+    public void shouldTreatUnpublishedBalanceeAsIdle() throws Exception {
+        publishedLoads.put(BALANCEE1, 100);
+        publishedLoads.put(BALANCEE3, 100);
+        BalanceeLoads loads = startLoads(60000L);
+
+        assertEquals(BALANCEE2, BalanceeSelection.LEAST_SESSIONS.selectBalancee(BALANCEES, loads));
+    }
+
+    @Test
+    public void shouldNeverSelectBusierOfTwoChoices() throws Exception {
+        publishedLoads.put(BALANCEE1, 1000000);
+        publishedLoads.put(BALANCEE2, 0);
+        publishedLoads.put(BALANCEE3, 0);
+        BalanceeLoads loads = startLoads(60000L);
+
+        // the busiest balancee is always compared with one of the others, so it cannot win
+        for (int i = 0; i < 1000; i++) {
+            assertNotEquals(BALANCEE1, BalanceeSelection.POWER_OF_TWO_CHOICES.selectBalancee(BALANCEES, loads));
+        }
+    }
+
+    @Test
+    public void shouldWeightBySpareCapacity() throws Exception {
+        publishedLoads.put(BALANCEE1, 1000000);
+        publishedLoads.put(BALANCEE2, 0);
+        publishedLoads.put(BALANCEE3, 0);
+        BalanceeLoads loads = startLoads(60000L);
+
+        Map<String, Integer> selections = countSelections(BalanceeSelection.WEIGHTED, loads, 1000);
+
+        Integer busiest = selections.get(BALANCEE1);
+        assertTrue(busiest == null || busiest < 10);
+        assertTrue(selections.get(BALANCEE2) > 400);
+        assertTrue(selections.get(BALANCEE3) > 400);
+    }
+
+    @Test
+    public void shouldSelectAnyBalanceeAtRandom() throws Exception {
+        BalanceeLoads loads = startLoads(60000L);
+
+        Map<String, Integer> selections = countSelections(BalanceeSelection.RANDOM, loads, 3000);
+
+        for (String balancee : BALANCEES) {
+            assertTrue(selections.get(balancee) > 800);
+        }
+    }
+
+    @Test
+    public void shouldReadPublishedLoads() throws Exception {
+        BalanceeLoads loads = startLoads(60000L);
+        assertEquals(0, loads.getSessionCount(BALANCEE1));
+
+        publishedLoads.put(BALANCEE1, 42);
+        assertEquals(42, loads.getSessionCount(BALANCEE1));
+    }
+
+    @Test
+    public void shouldExpireRedirectedSessions() throws Exception {
+        publishedLoads.put(BALANCEE1, 5);
+        BalanceeLoads loads = startLoads(0L);
+        loads.addSession(BALANCEE1);
+        loads.addSession(BALANCEE1);
+        assertEquals(7, loads.getSessionCount(BALANCEE1));
+
+        Thread.sleep(2);
+        loads.expireRedirectedSessions();
+        assertEquals(5, loads.getSessionCount(BALANCEE1));
+    }
+
+    @Test
+    public void shouldNotReadLoadsWhenStopped() throws Exception {
+        publishedLoads.put(BALANCEE1, 42);
+        BalanceeLoads loads = startLoads(60000L);
+        loads.addSession(BALANCEE1);
+
+        loads.stop();
+        assertEquals(0, loads.getSessionCount(BALANCEE1));
+    }
+
+    private BalanceeLoads startLoads(long redirectIntervalMillis) {
+        BalanceeLoads loads = new BalanceeLoads(clusterContext, redirectIntervalMillis);
+        loads.start();
+        return loads;
+    }
+
+    private static Map<String, Integer> countSelections(BalanceeSelection selection, BalanceeLoads loads, int count) {
+        Map<String, Integer> selections = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String selected = selection.selectBalancee(BALANCEES, loads);
+            Integer selectedCount = selections.get(selected);
+            selections.put(selected, (selectedCount == null) ? 1 : selectedCount + 1);
+        }
+        return selections;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.balancer;
+
+import static java.util.Collections.emptyMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kaazing.gateway.server.context.resolve.StandaloneClusterContext;
+import org.kaazing.gateway.service.cluster.ClusterContext;
+import org.kaazing.gateway.transport.TransportFactory;
+
+public class BalanceeURIsTest {
+
+    private static final String ACCEPT = "ws://balancer.example.com:8001/echo";
+    private static final String BALANCEE1 = "ws://node1.example.com:8001/echo";
+    private static final String BALANCEE2 = "wss://node2.example.com:9001/echo";
+
+    private ClusterContext clusterContext;
+    private Map<String, Collection<String>> balancers;
+    private BalanceeURIs balanceeURIs;
+
+    @Before
+    public void setup() {
+        clusterContext = new StandaloneClusterContext();
+        balancers = clusterContext.getCollectionsFactory().getMap(HttpBalancerService.BALANCER_MAP_NAME);
+        TransportFactory transportFactory = TransportFactory.newTransportFactory(emptyMap());
+        balanceeURIs = new BalanceeURIs(clusterContext, Arrays.asList(ACCEPT), transportFactory);
+    }
+
+    @Test
+    public void shouldSelectClearOrSecureBalancees() throws Exception {
+        balancers.put(ACCEPT, new TreeSet<>(Arrays.asList(BALANCEE1, BALANCEE2)));
+        balanceeURIs.start();
+
+        assertEquals(Arrays.asList(BALANCEE1), balanceeURIs.get(false));
+        assertEquals(Arrays.asList(BALANCEE2), balanceeURIs.get(true));
+    }
+
+    @Test
+    public void shouldSeeBalanceesAddedAfterStart() throws Exception {
+        balanceeURIs.start();
+        assertTrue(balanceeURIs.get(false).isEmpty());
+
+        balancers.put(ACCEPT, new TreeSet<>(Arrays.asList(BALANCEE1)));
+
+        assertEquals(Arrays.asList(BALANCEE1), balanceeURIs.get(false));
+    }
+
+    @Test
+    public void shouldReturnNoBalanceesWhenStopped() throws Exception {
+        balancers.put(ACCEPT, new TreeSet<>(Arrays.asList(BALANCEE1)));
+        balanceeURIs.start();
+        balanceeURIs.stop();
+
+        assertTrue(balanceeURIs.get(false).isEmpty());
+    }
+}
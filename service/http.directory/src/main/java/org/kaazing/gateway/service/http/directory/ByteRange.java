@@ -0,0 +1,108 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A satisfiable byte range of a representation, as requested by the Range header (RFC 7233).
+ */
+final class ByteRange {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    // more ranges than this are not worth the response overhead (and amplification), so the full content is sent
+    static final int MAX_RANGES = 16;
+
+    final long first;
+    final long last;
+
+    ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    long length() {
+        return last - first + 1;
+    }
+
+    String toContentRange(long length) {
+        return "bytes " + first + "-" + last + "/" + length;
+    }
+
+    /**
+     * Parses a Range header value against a representation of the given length.
+     *
+     * @return the satisfiable ranges in the requested order, an empty list if none is satisfiable,
+     *         or null if the header should be ignored and the full content sent
+     */
+    static List<ByteRange> parse(String rangeHeader, long length) {
+        if (rangeHeader == null || !rangeHeader.startsWith(BYTES_UNIT)) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>();
+        boolean specified = false;
+        for (String spec : rangeHeader.substring(BYTES_UNIT.length()).split(",")) {
+            spec = spec.trim();
+            if (spec.isEmpty()) {
+                continue;
+            }
+
+            int dash = spec.indexOf('-');
+            if (dash == -1) {
+                return null;
+            }
+            specified = true;
+
+            long first;
+            long last;
+            try {
+                if (dash == 0) {
+                    // suffix range, the final N bytes
+                    long suffixLength = Long.parseLong(spec.substring(1));
+                    if (suffixLength <= 0 || length == 0) {
+                        continue;
+                    }
+                    first = Math.max(0, length - suffixLength);
+                    last = length - 1;
+                }
+                else {
+                    first = Long.parseLong(spec.substring(0, dash));
+                    String lastSpec = spec.substring(dash + 1);
+                    last = lastSpec.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastSpec);
+                    if (first < 0 || last < first) {
+                        return null;
+                    }
+                    if (first >= length) {
+                        continue;
+                    }
+                    last = Math.min(last, length - 1);
+                }
+            }
+            catch (NumberFormatException e) {
+                return null;
+            }
+
+            ranges.add(new ByteRange(first, last));
+            if (ranges.size() > MAX_RANGES) {
+                return null;
+            }
+        }
+        return specified ? ranges : null;
+    }
+}
@@ -0,0 +1,295 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kaazing.gateway.service.http.directory.cachecontrol.CacheControlHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Size-bounded LRU cache of the content served by the directory service, keyed by the resolved path of the request
+ * under the (canonical) base directory. Entries hold the file content as a read-only buffer shared by all sessions,
+ * along with the precomputed response headers. Entries are invalidated when the file system reports a change to the
+ * file, or to the directory it was resolved from, through a {@link WatchService} on the base directory.
+ */
+final class HttpDirectoryContentCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("service.directory");
+
+    static final String GZIP_EXTENSION = ".gz";
+
+    private final Path root;
+    private final long capacity;
+    private final int maxEntrySize;
+
+    // access ordered, so iteration starts from the least recently used entry
+    private final Map<Path, Entry> entries;
+    private long size;
+
+    // incremented on each invalidation, so that content read concurrently with a change is not cached
+    private final AtomicLong version = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private volatile WatchService watchService;
+
+    HttpDirectoryContentCache(File baseDir, long capacity, int maxEntrySize) throws IOException {
+        this.root = baseDir.getCanonicalFile().toPath();
+        this.capacity = capacity;
+        this.maxEntrySize = maxEntrySize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Starts watching the base directory for changes.
+     */
+    void start() throws IOException {
+        WatchService newWatchService = root.getFileSystem().newWatchService();
+        try {
+            registerAll(newWatchService, root);
+        }
+        catch (IOException e) {
+            newWatchService.close();
+            throw e;
+        }
+        watchService = newWatchService;
+
+        Thread watcher = new Thread(() -> processEvents(newWatchService), "directory-content-cache " + root);
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Stops watching the base directory and discards all entries.
+     */
+    void stop() {
+        WatchService oldWatchService = watchService;
+        watchService = null;
+        if (oldWatchService != null) {
+            try {
+                oldWatchService.close();
+            }
+            catch (IOException e) {
+                LOGGER.debug("Exception closing watch service for {}", root, e);
+            }
+        }
+        invalidateAll();
+    }
+
+    /**
+     * @return the key for the given request path, or null if the path cannot be cached
+     */
+    Path keyFor(String pathInfo) {
+        int start = 0;
+        while (start < pathInfo.length() && pathInfo.charAt(start) == '/') {
+            start++;
+        }
+        try {
+            return root.resolve(pathInfo.substring(start));
+        }
+        catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Only content read from the canonical location of the key can be cached, so that paths containing
+     * dot segments or symbolic links, which would not be invalidated reliably, are always resolved again.
+     */
+    boolean isCacheable(Path key, File canonicalFile) {
+        return canonicalFile.length() <= maxEntrySize && canonicalFile.toPath().equals(key);
+    }
+
+    long version() {
+        return version.get();
+    }
+
+    /**
+     * @return the cached entry, or null if not cached or if the base directory is not being watched
+     */
+    synchronized Entry get(Path key) {
+        Entry entry = (watchService != null) ? entries.get(key) : null;
+        if (entry != null) {
+            hits.incrementAndGet();
+        }
+        else {
+            misses.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Caches an entry, unless the cache was invalidated since the given version was obtained.
+     */
+    synchronized void put(Path key, Entry entry, long expectedVersion) {
+        int entrySize = entry.content.remaining();
+        if (watchService == null || expectedVersion != version.get() || entrySize > capacity) {
+            return;
+        }
+
+        Entry oldEntry = entries.put(key, entry);
+        if (oldEntry != null) {
+            size -= oldEntry.content.remaining();
+        }
+        size += entrySize;
+
+        for (Iterator<Entry> eldest = entries.values().iterator(); size > capacity && eldest.hasNext();) {
+            size -= eldest.next().content.remaining();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Invalidates the entries for a changed path: the path itself, any path below it (if it is a directory),
+     * its parent directory (which may have been resolved to a welcome file) and, for a precompressed file,
+     * the path it was compressed from.
+     */
+    synchronized void invalidate(Path path) {
+        version.incrementAndGet();
+        Path parent = path.getParent();
+        String fileName = path.getFileName().toString();
+        Path source = fileName.endsWith(GZIP_EXTENSION)
+                ? path.resolveSibling(fileName.substring(0, fileName.length() - GZIP_EXTENSION.length())) : null;
+        for (Iterator<Map.Entry<Path, Entry>> i = entries.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<Path, Entry> mapEntry = i.next();
+            Path key = mapEntry.getKey();
+            if (key.startsWith(path) || key.equals(parent) || key.equals(source)) {
+                size -= mapEntry.getValue().content.remaining();
+                i.remove();
+            }
+        }
+    }
+
+    synchronized void invalidateAll() {
+        version.incrementAndGet();
+        entries.clear();
+        size = 0;
+    }
+
+    synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getMissCount() {
+        return misses.get();
+    }
+
+    long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private void processEvents(WatchService watchService) {
+        try {
+            for (;;) {
+                WatchKey key = watchService.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        invalidateAll();
+                        continue;
+                    }
+
+                    // watch a new directory before invalidating, so that content cached afterwards is watched
+                    Path child = dir.resolve((Path) event.context());
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, NOFOLLOW_LINKS)) {
+                        registerAll(watchService, child);
+                    }
+                    invalidate(child);
+                }
+                key.reset();
+            }
+        }
+        catch (ClosedWatchServiceException | InterruptedException e) {
+            // stopped
+        }
+        catch (IOException e) {
+            LOGGER.warn("Unable to watch {} for changes, content caching disabled", root, e);
+            stop();
+        }
+    }
+
+    private static void registerAll(WatchService watchService, Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                // content below an unreadable directory is never served, so need not be watched
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    static final class Entry {
+        final File file;
+        final ByteBuffer content;
+        final String etag;
+        final String lastModified;
+        final String contentType;
+        final CacheControlHandler cacheControlHandler;
+        final boolean welcomeFile;
+        final File gzipFile;
+        final String gzipETag;
+
+        Entry(File file, ByteBuffer content, String etag, String lastModified, String contentType,
+                CacheControlHandler cacheControlHandler, boolean welcomeFile, File gzipFile, String gzipETag) {
+            this.file = file;
+            this.content = content.asReadOnlyBuffer();
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.cacheControlHandler = cacheControlHandler;
+            this.welcomeFile = welcomeFile;
+            this.gzipFile = gzipFile;
+            this.gzipETag = gzipETag;
+        }
+    }
+}
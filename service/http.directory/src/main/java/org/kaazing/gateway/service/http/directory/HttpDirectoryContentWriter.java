@@ -0,0 +1,294 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.mina.core.future.IoFutureListener;
+import org.apache.mina.core.future.WriteFuture;
+import org.kaazing.gateway.transport.http.HttpAcceptSession;
+import org.kaazing.gateway.transport.http.HttpHeaders;
+import org.kaazing.gateway.transport.http.HttpMethod;
+import org.kaazing.gateway.transport.http.HttpStatus;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the content of a file (or its cached copy) to an HTTP session, honoring single and multiple byte range
+ * requests. Content larger than a window is streamed one window at a time from a memory mapping of the file, writing
+ * the next window only when the previous write has completed, so the memory held per response is bounded by the
+ * window size regardless of the size of the file.
+ */
+final class HttpDirectoryContentWriter implements IoFutureListener<WriteFuture> {
+
+    static final int WINDOW_SIZE = 64 * 1024;
+
+    // files larger than this are mapped in regions, the mappings themselves do not use heap
+    private static final long MAPPING_SIZE = 64L * 1024 * 1024;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("service.directory");
+
+    private final HttpAcceptSession session;
+    private final ByteBuffer content;
+    private final File file;
+    private final long length;
+    private final Deque<Part> parts;
+
+    private FileChannel channel;
+    private ByteBuffer mapping;
+    private long mappingPosition;
+
+    /**
+     * Writes content already held in memory.
+     */
+    HttpDirectoryContentWriter(HttpAcceptSession session, ByteBuffer content) {
+        this(session, content, null, content.remaining());
+    }
+
+    /**
+     * Writes the content of a file.
+     */
+    HttpDirectoryContentWriter(HttpAcceptSession session, File file) {
+        this(session, null, file, file.length());
+    }
+
+    private HttpDirectoryContentWriter(HttpAcceptSession session, ByteBuffer content, File file, long length) {
+        this.session = session;
+        this.content = content;
+        this.file = file;
+        this.length = length;
+        this.parts = new ArrayDeque<>();
+    }
+
+    /**
+     * Sets the response status and content headers, according to the Range and If-Range request headers,
+     * then writes the content and closes the session.
+     */
+    void write(String contentType, String etag, String lastModified) throws IOException {
+        // Accept-Ranges is optional (RFC 7233, section 2.3) and not sent, range requests are honored regardless
+        List<ByteRange> ranges = null;
+        if (session.getMethod() == HttpMethod.GET && isRangeApplicable(etag, lastModified)) {
+            ranges = ByteRange.parse(session.getReadHeader("Range"), length);
+        }
+
+        long contentLength;
+        if (ranges == null) {
+            parts.add(new Part(null, 0, length));
+            contentLength = length;
+        }
+        else if (ranges.isEmpty()) {
+            session.setStatus(HttpStatus.CLIENT_REQUEST_RANGE_NOT_SATISFIABLE);
+            session.setWriteHeader("Content-Range", "bytes */" + length);
+            session.setWriteHeader(HttpHeaders.HEADER_CONTENT_LENGTH, "0");
+            session.close(false);
+            return;
+        }
+        else if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            session.setStatus(HttpStatus.SUCCESS_PARTIAL_CONTENT);
+            session.setWriteHeader("Content-Range", range.toContentRange(length));
+            parts.add(new Part(null, range.first, range.last + 1));
+            contentLength = range.length();
+        }
+        else {
+            String boundary = String.format("%016x", ThreadLocalRandom.current().nextLong());
+            session.setStatus(HttpStatus.SUCCESS_PARTIAL_CONTENT);
+            session.setWriteHeader(HttpHeaders.HEADER_CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+            contentLength = addMultipartParts(ranges, boundary, contentType);
+        }
+
+        session.setWriteHeader(HttpHeaders.HEADER_CONTENT_LENGTH, Long.toString(contentLength));
+        if (session.getMethod() == HttpMethod.HEAD) {
+            session.close(false);
+            return;
+        }
+
+        writeNext();
+    }
+
+    @Override
+    public void operationComplete(WriteFuture future) {
+        if (future.isWritten()) {
+            writeNext();
+        }
+        else {
+            abort(future.getException());
+        }
+    }
+
+    private boolean isRangeApplicable(String etag, String lastModified) {
+        // If-Range only applies the Range when the representation is unchanged, which weak
+        // entity tags cannot tell (RFC 7233, section 3.2)
+        String ifRange = session.getReadHeader("If-Range");
+        return ifRange == null || ifRange.equals(lastModified) || (!etag.startsWith("W/") && ifRange.equals(etag));
+    }
+
+    private long addMultipartParts(List<ByteRange> ranges, String boundary, String contentType) {
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            StringBuilder header = new StringBuilder();
+            if (!parts.isEmpty()) {
+                header.append("\r\n");
+            }
+            header.append("--").append(boundary).append("\r\n");
+            if (contentType != null) {
+                header.append("Content-Type: ").append(contentType).append("\r\n");
+            }
+            header.append("Content-Range: ").append(range.toContentRange(length)).append("\r\n\r\n");
+            byte[] headerBytes = header.toString().getBytes(US_ASCII);
+
+            parts.add(new Part(headerBytes, range.first, range.last + 1));
+            contentLength += headerBytes.length + range.length();
+        }
+
+        byte[] trailer = ("\r\n--" + boundary + "--\r\n").getBytes(US_ASCII);
+        parts.add(new Part(trailer, 0, 0));
+        return contentLength + trailer.length;
+    }
+
+    private void writeNext() {
+        try {
+            for (;;) {
+                IoBufferEx buf = nextWindow();
+                if (buf == null) {
+                    close();
+                    session.close(false);
+                    return;
+                }
+
+                // continue inline while writes complete immediately, otherwise when this write completes
+                WriteFuture future = session.write(buf);
+                if (!future.isDone()) {
+                    future.addListener(this);
+                    return;
+                }
+                if (!future.isWritten()) {
+                    abort(future.getException());
+                    return;
+                }
+            }
+        }
+        catch (IOException e) {
+            abort(e);
+        }
+    }
+
+    private IoBufferEx nextWindow() throws IOException {
+        Part part = parts.peek();
+        if (part == null) {
+            return null;
+        }
+
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        if (part.header != null) {
+            byte[] header = part.header;
+            part.header = null;
+            return allocator.wrap(ByteBuffer.wrap(header));
+        }
+
+        // content in memory is shared rather than copied, so need not be windowed
+        int windowSize = (int) Math.min(content != null ? Integer.MAX_VALUE : WINDOW_SIZE, part.end - part.position);
+        if (windowSize == 0) {
+            parts.poll();
+            return nextWindow();
+        }
+
+        ByteBuffer window = window(part.position, windowSize);
+        part.position += windowSize;
+        return allocator.wrap(window);
+    }
+
+    private ByteBuffer window(long position, int windowSize) throws IOException {
+        if (content != null) {
+            ByteBuffer window = content.duplicate();
+            window.position(window.position() + (int) position);
+            window.limit(window.position() + windowSize);
+            return window.slice();
+        }
+
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), READ);
+        }
+
+        if (length <= WINDOW_SIZE) {
+            // not worth a mapping
+            ByteBuffer window = ByteBuffer.allocate(windowSize);
+            while (window.hasRemaining()) {
+                if (channel.read(window, position + window.position()) == -1) {
+                    throw new IOException("Unexpected end of file: " + file);
+                }
+            }
+            window.flip();
+            return window;
+        }
+
+        if (mapping == null || position < mappingPosition || position + windowSize > mappingPosition + mapping.capacity()) {
+            mappingPosition = position;
+            mapping = channel.map(MapMode.READ_ONLY, position, Math.min(MAPPING_SIZE, length - position));
+        }
+        ByteBuffer window = mapping.duplicate();
+        window.position((int) (position - mappingPosition));
+        window.limit(window.position() + windowSize);
+        return window.slice();
+    }
+
+    private void abort(Throwable cause) {
+        if (cause != null && LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Failed to write " + (file != null ? file : "cached content") + " to " + session, cause);
+        }
+        close();
+        session.close(true);
+    }
+
+    private void close() {
+        parts.clear();
+        mapping = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            }
+            catch (IOException e) {
+                // ignore
+            }
+            channel = null;
+        }
+    }
+
+    private static final class Part {
+        byte[] header;
+        long position;
+        final long end;
+
+        Part(byte[] header, long position, long end) {
+            this.header = header;
+            this.position = position;
+            this.end = end;
+        }
+    }
+}
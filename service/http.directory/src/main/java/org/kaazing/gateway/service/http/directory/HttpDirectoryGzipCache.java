@@ -0,0 +1,189 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Size-bounded LRU cache of the gzip compressed form of content served by the directory service. Entries are keyed
+ * by the entity tag of the uncompressed content, which changes with the last modification time of the file, so
+ * content is compressed once per version of a file and stale entries simply age out.
+ */
+final class HttpDirectoryGzipCache {
+
+    static final String GZIP = "gzip";
+
+    // below this size the gzip header and trailer outweigh any saving
+    static final int MIN_COMPRESSIBLE_SIZE = 256;
+
+    private final long capacity;
+    private final int maxSourceSize;
+
+    // access ordered, so iteration starts from the least recently used entry
+    private final Map<String, Entry> entries;
+    private long size;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong compressions = new AtomicLong();
+
+    HttpDirectoryGzipCache(long capacity, int maxSourceSize) {
+        this.capacity = capacity;
+        this.maxSourceSize = maxSourceSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @return true if content of the given type and length is worth compressing on the fly
+     */
+    boolean isCompressible(String contentType, long length) {
+        return length >= MIN_COMPRESSIBLE_SIZE && length <= maxSourceSize && isCompressibleType(contentType);
+    }
+
+    /**
+     * @return the compressed form of the content with the given entity tag, or null if not cached
+     */
+    synchronized Entry get(String etag) {
+        Entry entry = entries.get(etag);
+        if (entry != null) {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Compresses the given content and caches the result under its entity tag.
+     */
+    Entry compress(String etag, ByteBuffer content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.remaining() / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            Channels.newChannel(gzip).write(content.duplicate());
+        }
+        compressions.incrementAndGet();
+
+        Entry entry = new Entry(ByteBuffer.wrap(out.toByteArray()), gzipETag(etag));
+        put(etag, entry);
+        return entry;
+    }
+
+    synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getCompressionCount() {
+        return compressions.get();
+    }
+
+    private synchronized void put(String etag, Entry entry) {
+        int entrySize = entry.content.remaining();
+        if (entrySize > capacity) {
+            return;
+        }
+
+        Entry oldEntry = entries.put(etag, entry);
+        if (oldEntry != null) {
+            size -= oldEntry.content.remaining();
+        }
+        size += entrySize;
+
+        for (Iterator<Entry> eldest = entries.values().iterator(); size > capacity && eldest.hasNext();) {
+            size -= eldest.next().content.remaining();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * @return true if the Accept-Encoding request header values accept the gzip content coding (RFC 7231, section 5.3.4)
+     */
+    static boolean acceptsGzip(List<String> acceptEncodings) {
+        if (acceptEncodings == null) {
+            return false;
+        }
+
+        float gzipQuality = -1;
+        float anyQuality = -1;
+        for (String acceptEncoding : acceptEncodings) {
+            for (String coding : acceptEncoding.split(",")) {
+                String[] params = coding.split(";");
+                String name = params[0].trim();
+                float quality = 1;
+                for (int i = 1; i < params.length; i++) {
+                    String param = params[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            quality = Float.parseFloat(param.substring(2));
+                        }
+                        catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+
+                if (GZIP.equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name)) {
+                    gzipQuality = Math.max(gzipQuality, quality);
+                }
+                else if ("*".equals(name)) {
+                    anyQuality = quality;
+                }
+            }
+        }
+        return gzipQuality > 0 || (gzipQuality < 0 && anyQuality > 0);
+    }
+
+    /**
+     * @return the entity tag of the gzip compressed form of content with the given entity tag
+     */
+    static String gzipETag(String etag) {
+        int end = etag.lastIndexOf('"');
+        return (end > 0) ? etag.substring(0, end) + "-" + GZIP + etag.substring(end) : etag + "-" + GZIP;
+    }
+
+    private static boolean isCompressibleType(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        return type.startsWith("text/") ||
+               type.startsWith("application/javascript") ||
+               type.startsWith("application/json") ||
+               type.startsWith("application/xml") ||
+               type.startsWith("image/svg+xml") ||
+               type.contains("+xml") ||
+               type.contains("+json");
+    }
+
+    static final class Entry {
+        final ByteBuffer content;
+        final String etag;
+
+        Entry(ByteBuffer content, String etag) {
+            this.content = content.asReadOnlyBuffer();
+            this.etag = etag;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package org.kaazing.gateway.service.http.directory;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -34,6 +35,7 @@ import org.kaazing.gateway.service.ServiceProperties;
 import org.kaazing.gateway.service.http.directory.cachecontrol.ConflictResolverUtils;
 import org.kaazing.gateway.service.http.directory.cachecontrol.PatternCacheControl;
 import org.kaazing.gateway.service.http.directory.cachecontrol.PatternMatcherUtils;
+import org.kaazing.gateway.util.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +53,10 @@ public class HttpDirectoryService implements Service {
                 }
             };
 
+    private static final String DEFAULT_CONTENT_CACHE_SIZE = "16m";
+    private static final String DEFAULT_CONTENT_CACHE_MAX_FILE_SIZE = "1m";
+    private static final String DEFAULT_COMPRESSION_CACHE_SIZE = "8m";
+
     private final Logger logger = LoggerFactory.getLogger("service.directory");
 
     private HttpDirectoryServiceHandler handler;
@@ -123,9 +129,47 @@ public class HttpDirectoryService implements Service {
             handler.setIndexes(true);
         }
 
+        handler.setContentCache(newContentCache(directoryFile, properties));
+        handler.setGzipCache(newGzipCache(properties));
+
         // Register the Gateway's connection capabilities with the handler so that session counts are tracked
     }
 
+    /**
+     * Creates the content cache, unless disabled by a content-cache-size of 0
+     */
+    private HttpDirectoryContentCache newContentCache(File directoryFile, ServiceProperties properties) throws Exception {
+        String cacheSize = properties.get("content-cache-size");
+        int capacity = Utils.parseDataSize(cacheSize != null ? cacheSize : DEFAULT_CONTENT_CACHE_SIZE);
+        if (capacity <= 0) {
+            return null;
+        }
+
+        String maxFileSize = properties.get("content-cache-max-file-size");
+        int maxEntrySize = Utils.parseDataSize(maxFileSize != null ? maxFileSize : DEFAULT_CONTENT_CACHE_MAX_FILE_SIZE);
+        return new HttpDirectoryContentCache(directoryFile, capacity, maxEntrySize);
+    }
+
+    /**
+     * Creates the cache of content compressed on the fly, if enabled by a compression of gzip. Precompressed
+     * files are served regardless.
+     */
+    private HttpDirectoryGzipCache newGzipCache(ServiceProperties properties) throws Exception {
+        String compression = properties.get("compression");
+        if (compression == null) {
+            return null;
+        }
+        if (!HttpDirectoryGzipCache.GZIP.equalsIgnoreCase(compression)) {
+            throw new IllegalArgumentException("Unsupported compression: " + compression);
+        }
+
+        String cacheSize = properties.get("compression-cache-size");
+        int capacity = Utils.parseDataSize(cacheSize != null ? cacheSize : DEFAULT_COMPRESSION_CACHE_SIZE);
+        String maxFileSize = properties.get("content-cache-max-file-size");
+        int maxSourceSize = Utils.parseDataSize(maxFileSize != null ? maxFileSize : DEFAULT_CONTENT_CACHE_MAX_FILE_SIZE);
+        return new HttpDirectoryGzipCache(capacity, maxSourceSize);
+    }
+
     /**
      * Creates the list of PatternCacheControl objects
      * @param properties - list of ServiceProperties from the configuration file
@@ -220,6 +264,15 @@ public class HttpDirectoryService implements Service {
 
     @Override
     public void start() throws Exception {
+        HttpDirectoryContentCache contentCache = handler.getContentCache();
+        if (contentCache != null) {
+            try {
+                contentCache.start();
+            }
+            catch (IOException e) {
+                logger.warn("Unable to watch directory {} for changes, content caching disabled", handler.getBaseDir(), e);
+            }
+        }
         serviceContext.bind(serviceContext.getAccepts(), handler);
     }
 
@@ -234,6 +287,11 @@ public class HttpDirectoryService implements Service {
         }
         if (handler != null) {
             handler.emptyUrlCacheControlMap();
+
+            HttpDirectoryContentCache contentCache = handler.getContentCache();
+            if (contentCache != null) {
+                contentCache.stop();
+            }
         }
     }
 
@@ -247,4 +305,29 @@ public class HttpDirectoryService implements Service {
     @Override
     public void destroy() throws Exception {
     }
+
+    public long getContentCacheHitCount() {
+        HttpDirectoryContentCache contentCache = (handler != null) ? handler.getContentCache() : null;
+        return (contentCache != null) ? contentCache.getHitCount() : 0;
+    }
+
+    public long getContentCacheMissCount() {
+        HttpDirectoryContentCache contentCache = (handler != null) ? handler.getContentCache() : null;
+        return (contentCache != null) ? contentCache.getMissCount() : 0;
+    }
+
+    public long getContentCacheEvictionCount() {
+        HttpDirectoryContentCache contentCache = (handler != null) ? handler.getContentCache() : null;
+        return (contentCache != null) ? contentCache.getEvictionCount() : 0;
+    }
+
+    public long getCompressionCacheHitCount() {
+        HttpDirectoryGzipCache gzipCache = (handler != null) ? handler.getGzipCache() : null;
+        return (gzipCache != null) ? gzipCache.getHitCount() : 0;
+    }
+
+    public long getCompressionCount() {
+        HttpDirectoryGzipCache gzipCache = (handler != null) ? handler.getGzipCache() : null;
+        return (gzipCache != null) ? gzipCache.getCompressionCount() : 0;
+    }
 }
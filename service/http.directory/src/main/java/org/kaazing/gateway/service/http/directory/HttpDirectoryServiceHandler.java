@@ -57,6 +57,8 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
 
     private List<PatternCacheControl> patterns;
     private Map<String, CacheControlHandler> urlCacheControlMap = new ConcurrentHashMap<>();
+    private HttpDirectoryContentCache contentCache;
+    private HttpDirectoryGzipCache gzipCache;
 
     private static final DateFormat RFC822_FORMAT_PATTERN =
             new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH);
@@ -109,6 +111,22 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         this.patterns = patterns;
     }
 
+    void setContentCache(HttpDirectoryContentCache contentCache) {
+        this.contentCache = contentCache;
+    }
+
+    HttpDirectoryContentCache getContentCache() {
+        return contentCache;
+    }
+
+    void setGzipCache(HttpDirectoryGzipCache gzipCache) {
+        this.gzipCache = gzipCache;
+    }
+
+    HttpDirectoryGzipCache getGzipCache() {
+        return gzipCache;
+    }
+
     void emptyUrlCacheControlMap() {
         urlCacheControlMap.clear();
     }
@@ -144,8 +162,24 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         // get relative path from service path
         String pathInfo = session.getPathInfo().getPath();
 
+        // serve previously resolved content from the cache, skipping the file system checks below
+        Path cacheKey = null;
+        long cacheVersion = 0;
+        if (contentCache != null) {
+            cacheKey = contentCache.keyFor(pathInfo);
+            if (cacheKey != null) {
+                cacheVersion = contentCache.version();
+                HttpDirectoryContentCache.Entry entry = contentCache.get(cacheKey);
+                if (entry != null && (!entry.welcomeFile || session.getRequestURI().getPath().endsWith("/"))) {
+                    writeCachedContent(session, entry);
+                    return;
+                }
+            }
+        }
+
         // construct file reference from configured base directory
         File requestFile = new File(baseDir, "/" + pathInfo);
+        boolean welcomeFileRequest = false;
         // check if this is a directory reference
         if (requestFile.isDirectory()) {
             String requestPath = session.getRequestURI().getPath();
@@ -194,6 +228,7 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
                 // welcome file.
                 if (testWelcomeFile.exists() || !generateIndex) {
                     requestFile = testWelcomeFile;
+                    welcomeFileRequest = true;
                     generateIndex = false;
                 }
             }
@@ -235,41 +270,111 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         }
 
         String requestPath = requestFile.getPath().replaceAll("\\\\", "/");
-        addCacheControl(session, requestFile, requestPath);
+        CacheControlHandler cacheControlHandler = addCacheControl(session, requestFile, requestPath);
 
-        // check to see if the file has been modified since the last request
         String etag = HttpUtils.getETagHeaderValue(requestFile);
-        boolean modified = HttpUtils.hasBeenModified(session, etag, requestFile);
-        if (!modified) {
+        String lastModified = RFC822_FORMAT_PATTERN.format(requestFile.lastModified());
+
+        // the content type is based on the file extension
+        String contentType = serviceContext.getContentType(FileUtils.getFileExtension(requestFile));
+
+        File gzipFile = getPrecompressedFile(requestFile);
+        String gzipETag = (gzipFile != null) ? HttpUtils.getETagHeaderValue(gzipFile) : null;
+
+        // small files are cached, others are streamed from the file
+        ByteBuffer content = null;
+        if (cacheKey != null && contentCache.isCacheable(welcomeFileRequest ? cacheKey.resolve(welcomeFile) : cacheKey,
+                requestFile.getCanonicalFile())) {
+            content = ByteBuffer.wrap(Files.readAllBytes(requestFile.toPath()));
+            contentCache.put(cacheKey, new HttpDirectoryContentCache.Entry(requestFile, content, etag, lastModified,
+                    contentType, cacheControlHandler, welcomeFileRequest, gzipFile, gzipETag), cacheVersion);
+        }
+
+        writeContent(session, requestFile, content, etag, lastModified, contentType, gzipFile, gzipETag);
+    }
+
+    private void writeCachedContent(HttpAcceptSession session, HttpDirectoryContentCache.Entry entry) throws IOException {
+        if (entry.cacheControlHandler != null) {
+            addCacheControlHeader(session, entry.file, entry.cacheControlHandler);
+        }
+
+        // each session writes its own view of the shared content
+        writeContent(session, entry.file, entry.content, entry.etag, entry.lastModified, entry.contentType,
+                entry.gzipFile, entry.gzipETag);
+    }
+
+    /**
+     * Writes the content of a file, or the gzip content coding of it when accepted by the client and either
+     * precompressed or worth compressing, unless not modified since the last request.
+     */
+    private void writeContent(HttpAcceptSession session, File file, ByteBuffer content, String etag,
+            String lastModified, String contentType, File gzipFile, String gzipETag) throws IOException {
+        HttpDirectoryContentWriter writer = null;
+        long length = (content != null) ? content.remaining() : file.length();
+        if (gzipFile != null || (gzipCache != null && gzipCache.isCompressible(contentType, length))) {
+            session.setWriteHeader("Vary", "Accept-Encoding");
+            if (HttpDirectoryGzipCache.acceptsGzip(session.getReadHeaders("Accept-Encoding"))) {
+                if (gzipFile != null) {
+                    writer = new HttpDirectoryContentWriter(session, gzipFile);
+                    etag = gzipETag;
+                }
+                else {
+                    HttpDirectoryGzipCache.Entry gzipEntry = gzipCache.get(etag);
+                    if (gzipEntry == null) {
+                        ByteBuffer source = (content != null) ? content : ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+                        gzipEntry = gzipCache.compress(etag, source);
+                    }
+
+                    // content that does not compress is sent as is
+                    if (gzipEntry.content.remaining() < length) {
+                        writer = new HttpDirectoryContentWriter(session, gzipEntry.content);
+                        etag = gzipEntry.etag;
+                    }
+                }
+            }
+        }
+
+        // check to see if the file has been modified since the last request
+        if (!HttpUtils.hasBeenModified(session, etag, file)) {
             // file has not been modified so set status and close session
             session.setWriteHeader("ETag", etag);
-            session.setWriteHeader("Last-Modified", RFC822_FORMAT_PATTERN.format(requestFile.lastModified()));
+            session.setWriteHeader("Last-Modified", lastModified);
             session.setStatus(HttpStatus.REDIRECT_NOT_MODIFIED);
             session.close(false);
             return;
         }
 
         // add cached content file headers.
-        HttpUtils.addLastModifiedHeader(session, requestFile);
-
+        session.setWriteHeader("Last-Modified", lastModified);
         session.setWriteHeader("ETag", etag);
-
-        // add the content type, based on file extension.
-        String contentType = serviceContext.getContentType(FileUtils.getFileExtension(requestFile));
         if (contentType != null) {
             session.setWriteHeader("Content-Type", contentType);
         }
 
-        // get io buffer for file
-        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
-        IoBufferEx buf = HttpUtils.getBufferForFile(allocator, requestFile);
+        if (writer != null) {
+            session.setWriteHeader("Content-Encoding", HttpDirectoryGzipCache.GZIP);
+        }
+        else if (content != null) {
+            writer = new HttpDirectoryContentWriter(session, content);
+        }
+        else {
+            writer = new HttpDirectoryContentWriter(session, file);
+        }
 
-        // add content length
-        session.setWriteHeader(HttpHeaders.HEADER_CONTENT_LENGTH, Integer.toString(buf.remaining()));
+        // write content (or the requested ranges) and close session
+        writer.write(contentType, etag, lastModified);
+    }
 
-        // write buffer and close session
-        session.write(buf);
-        session.close(false);
+    /**
+     * @return the precompressed gzip sibling of a file, or null if there is none or it is older than the file
+     */
+    private static File getPrecompressedFile(File requestFile) {
+        File gzipFile = new File(requestFile.getPath() + HttpDirectoryContentCache.GZIP_EXTENSION);
+        if (gzipFile.isFile() && gzipFile.lastModified() >= requestFile.lastModified()
+                && !Files.isSymbolicLink(gzipFile.toPath())) {
+            return gzipFile;
+        }
+        return null;
     }
 
     @Override
@@ -307,8 +412,9 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
      * @param session
      * @param requestFile
      * @param requestPath
+     * @return the cache control handler for the file, or null if no pattern matches
      */
-    private void addCacheControl(HttpAcceptSession session, File requestFile, String requestPath) {
+    private CacheControlHandler addCacheControl(HttpAcceptSession session, File requestFile, String requestPath) {
         CacheControlHandler cacheControlHandler = urlCacheControlMap.computeIfAbsent(requestPath, 
                 path -> patterns.stream()
                      .filter(patternCacheControl -> PatternMatcherUtils.caseInsensitiveMatch(requestPath, patternCacheControl.getPattern()))
@@ -320,6 +426,7 @@ class HttpDirectoryServiceHandler extends IoHandlerAdapter<HttpAcceptSession> {
         if (cacheControlHandler != null) {
             addCacheControlHeader(session, requestFile, cacheControlHandler);
         }
+        return cacheControlHandler;
     }
 
     private static final void addCacheControlHeader(HttpSession session, File requestFile,
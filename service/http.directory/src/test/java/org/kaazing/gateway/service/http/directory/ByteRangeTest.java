@@ -0,0 +1,74 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class ByteRangeTest {
+
+    @Test
+    public void shouldParseRanges() throws Exception {
+        List<ByteRange> ranges = ByteRange.parse("bytes=0-9, 20-, -5, 95-200", 100);
+
+        assertEquals(4, ranges.size());
+        assertRange(0, 9, ranges.get(0));
+        assertRange(20, 99, ranges.get(1));
+        assertRange(95, 99, ranges.get(2));
+        assertRange(95, 99, ranges.get(3));
+        assertEquals("bytes 20-99/100", ranges.get(1).toContentRange(100));
+    }
+
+    @Test
+    public void shouldIgnoreUnsatisfiableRanges() throws Exception {
+        List<ByteRange> ranges = ByteRange.parse("bytes=100-, 0-0", 100);
+
+        assertEquals(1, ranges.size());
+        assertRange(0, 0, ranges.get(0));
+        assertTrue(ByteRange.parse("bytes=100-200", 100).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", 100).isEmpty());
+    }
+
+    @Test
+    public void shouldIgnoreInvalidRangeHeader() throws Exception {
+        assertNull(ByteRange.parse(null, 100));
+        assertNull(ByteRange.parse("items=0-9", 100));
+        assertNull(ByteRange.parse("bytes=9-0", 100));
+        assertNull(ByteRange.parse("bytes=a-b", 100));
+        assertNull(ByteRange.parse("bytes=5", 100));
+        assertNull(ByteRange.parse("bytes=", 100));
+    }
+
+    @Test
+    public void shouldIgnoreTooManyRanges() throws Exception {
+        StringBuilder rangeHeader = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= ByteRange.MAX_RANGES; i++) {
+            rangeHeader.append(',').append(i).append('-').append(i);
+        }
+
+        assertNull(ByteRange.parse(rangeHeader.toString(), 100));
+    }
+
+    private static void assertRange(long first, long last, ByteRange range) {
+        assertEquals(first, range.first);
+        assertEquals(last, range.last);
+    }
+}
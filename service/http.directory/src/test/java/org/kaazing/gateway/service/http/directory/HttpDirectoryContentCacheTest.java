@@ -0,0 +1,164 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kaazing.gateway.service.http.directory.HttpDirectoryContentCache.Entry;
+
+public class HttpDirectoryContentCacheTest {
+
+    @Rule
+    public TemporaryFolder baseDir = new TemporaryFolder();
+
+    private HttpDirectoryContentCache cache;
+
+    @Before
+    public void startCache() throws Exception {
+        cache = new HttpDirectoryContentCache(baseDir.getRoot(), 10, 8);
+        cache.start();
+    }
+
+    @After
+    public void stopCache() throws Exception {
+        cache.stop();
+    }
+
+    @Test
+    public void shouldCountHitsAndMisses() throws Exception {
+        Path key = cache.keyFor("/index.html");
+
+        assertNull(cache.get(key));
+        cache.put(key, entry(key, "abcd"), cache.version());
+        Entry entry = cache.get(key);
+
+        assertNotNull(entry);
+        assertTrue(entry.content.isReadOnly());
+        assertEquals(1L, cache.getHitCount());
+        assertEquals(1L, cache.getMissCount());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        Path first = cache.keyFor("first.html");
+        Path second = cache.keyFor("second.html");
+        Path third = cache.keyFor("third.html");
+
+        cache.put(first, entry(first, "1111"), cache.version());
+        cache.put(second, entry(second, "2222"), cache.version());
+        cache.get(first);
+        cache.put(third, entry(third, "3333"), cache.version());
+
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(1L, cache.getEvictionCount());
+        assertNotNull(cache.get(first));
+        assertNull(cache.get(second));
+        assertNotNull(cache.get(third));
+    }
+
+    @Test
+    public void shouldNotCacheContentReadDuringInvalidation() throws Exception {
+        Path key = cache.keyFor("index.html");
+
+        long version = cache.version();
+        cache.invalidate(key);
+        cache.put(key, entry(key, "abcd"), version);
+
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void shouldOnlyCacheCanonicalFilesWithinSizeLimit() throws Exception {
+        File small = baseDir.newFile("small.html");
+        Files.write(small.toPath(), "abcd".getBytes(UTF_8));
+        File large = baseDir.newFile("large.html");
+        Files.write(large.toPath(), "abcdefghi".getBytes(UTF_8));
+
+        assertTrue(cache.isCacheable(cache.keyFor("small.html"), small.getCanonicalFile()));
+        assertFalse(cache.isCacheable(cache.keyFor("large.html"), large.getCanonicalFile()));
+        assertFalse(cache.isCacheable(cache.keyFor("sub/../small.html"), small.getCanonicalFile()));
+    }
+
+    @Test
+    public void shouldInvalidateWhenFileModified() throws Exception {
+        File file = baseDir.newFile("index.html");
+        Path key = cache.keyFor("index.html");
+        cache.put(key, entry(key, "abcd"), cache.version());
+        assertEquals(1, cache.getEntryCount());
+
+        Files.write(file.toPath(), "efgh".getBytes(UTF_8));
+
+        // file system events are delivered asynchronously
+        for (int i = 0; i < 100 && cache.getEntryCount() != 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void shouldInvalidateWhenPrecompressedFileCreated() throws Exception {
+        baseDir.newFile("script.js");
+        Path key = cache.keyFor("script.js");
+        cache.put(key, entry(key, "abcd"), cache.version());
+        assertEquals(1, cache.getEntryCount());
+
+        baseDir.newFile("script.js.gz");
+
+        for (int i = 0; i < 100 && cache.getEntryCount() != 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void shouldInvalidateWelcomeFileWhenDirectoryChanged() throws Exception {
+        long version = cache.version();
+        File dir = baseDir.newFolder("dir");
+        // wait for the new directory to be watched
+        for (int i = 0; i < 100 && cache.version() == version; i++) {
+            Thread.sleep(100);
+        }
+        Path key = cache.keyFor("dir/");
+        cache.put(key, entry(key, "abcd"), cache.version());
+
+        new File(dir, "index.html").createNewFile();
+
+        for (int i = 0; i < 100 && cache.getEntryCount() != 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    private static Entry entry(Path key, String content) {
+        return new Entry(key.toFile(), ByteBuffer.wrap(content.getBytes(UTF_8)), "W/\"etag\"",
+                "Thu, 01 Jan 1970 00:00:00 GMT", "text/html", null, false, null, null);
+    }
+}
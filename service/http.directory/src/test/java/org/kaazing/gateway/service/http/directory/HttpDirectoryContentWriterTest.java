@@ -0,0 +1,193 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.kaazing.gateway.service.http.directory.HttpDirectoryContentWriter.WINDOW_SIZE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.mina.core.future.DefaultWriteFuture;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kaazing.gateway.transport.http.HttpAcceptSession;
+import org.kaazing.gateway.transport.http.HttpMethod;
+import org.kaazing.gateway.transport.http.HttpStatus;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.buffer.SimpleBufferAllocator;
+
+public class HttpDirectoryContentWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Mockery mockery;
+    private HttpAcceptSession session;
+    private File file;
+    private byte[] content;
+
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private final List<Integer> writeSizes = new ArrayList<>();
+    private final List<DefaultWriteFuture> pendingWrites = new ArrayList<>();
+    private boolean completeWrites = true;
+
+    @Before
+    public void setup() throws Exception {
+        mockery = new Mockery() {
+            {
+                setImposteriser(ClassImposteriser.INSTANCE);
+            }
+        };
+        session = mockery.mock(HttpAcceptSession.class);
+
+        content = new byte[5 * WINDOW_SIZE / 2];
+        new Random(0).nextBytes(content);
+        file = folder.newFile("large.bin");
+        Files.write(file.toPath(), content);
+
+        mockery.checking(new Expectations() {
+            {
+                allowing(session).getMethod();
+                will(returnValue(HttpMethod.GET));
+                allowing(session).getReadHeader("If-Range");
+                will(returnValue(null));
+                allowing(session).getBufferAllocator();
+                will(returnValue(SimpleBufferAllocator.BUFFER_ALLOCATOR));
+                allowing(session).write(with(any(Object.class)));
+                will(new CustomAction("write") {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        IoBufferEx buf = (IoBufferEx) invocation.getParameter(0);
+                        writeSizes.add(buf.remaining());
+                        byte[] bytes = new byte[buf.remaining()];
+                        buf.get(bytes);
+                        written.write(bytes);
+
+                        DefaultWriteFuture future = new DefaultWriteFuture(session);
+                        if (completeWrites) {
+                            future.setWritten();
+                        }
+                        else {
+                            pendingWrites.add(future);
+                        }
+                        return future;
+                    }
+                });
+            }
+        });
+    }
+
+    @Test
+    public void shouldStreamFileInWindows() throws Exception {
+        mockery.checking(new Expectations() {
+            {
+                allowing(session).getReadHeader("Range");
+                will(returnValue(null));
+                oneOf(session).setWriteHeader("Content-Length", Integer.toString(content.length));
+                oneOf(session).close(false);
+            }
+        });
+
+        new HttpDirectoryContentWriter(session, file).write("application/octet-stream", "W/\"etag\"", "date");
+
+        mockery.assertIsSatisfied();
+        assertArrayEquals(content, written.toByteArray());
+        assertEquals(Arrays.asList(WINDOW_SIZE, WINDOW_SIZE, WINDOW_SIZE / 2), writeSizes);
+    }
+
+    @Test
+    public void shouldWriteNextWindowWhenPreviousWriteComplete() throws Exception {
+        completeWrites = false;
+        mockery.checking(new Expectations() {
+            {
+                allowing(session).getReadHeader("Range");
+                will(returnValue(null));
+                oneOf(session).setWriteHeader("Content-Length", Integer.toString(content.length));
+            }
+        });
+
+        new HttpDirectoryContentWriter(session, file).write("application/octet-stream", "W/\"etag\"", "date");
+        assertEquals(1, writeSizes.size());
+
+        mockery.checking(new Expectations() {
+            {
+                oneOf(session).close(false);
+            }
+        });
+        for (int i = 0; i < pendingWrites.size(); i++) {
+            pendingWrites.get(i).setWritten();
+        }
+
+        mockery.assertIsSatisfied();
+        assertEquals(3, writeSizes.size());
+        assertArrayEquals(content, written.toByteArray());
+    }
+
+    @Test
+    public void shouldStreamRangeOfFile() throws Exception {
+        final int first = WINDOW_SIZE - 10;
+        final int last = 2 * WINDOW_SIZE + 9;
+        mockery.checking(new Expectations() {
+            {
+                allowing(session).getReadHeader("Range");
+                will(returnValue("bytes=" + first + "-" + last));
+                oneOf(session).setStatus(HttpStatus.SUCCESS_PARTIAL_CONTENT);
+                oneOf(session).setWriteHeader("Content-Range", "bytes " + first + "-" + last + "/" + content.length);
+                oneOf(session).setWriteHeader("Content-Length", Integer.toString(last - first + 1));
+                oneOf(session).close(false);
+            }
+        });
+
+        new HttpDirectoryContentWriter(session, file).write("application/octet-stream", "W/\"etag\"", "date");
+
+        mockery.assertIsSatisfied();
+        assertArrayEquals(Arrays.copyOfRange(content, first, last + 1), written.toByteArray());
+    }
+
+    @Test
+    public void shouldWriteCachedContentWithoutWindowing() throws Exception {
+        mockery.checking(new Expectations() {
+            {
+                allowing(session).getReadHeader("Range");
+                will(returnValue(null));
+                oneOf(session).setWriteHeader("Content-Length", Integer.toString(content.length));
+                oneOf(session).close(false);
+            }
+        });
+
+        ByteBuffer cached = ByteBuffer.wrap(content).asReadOnlyBuffer();
+        new HttpDirectoryContentWriter(session, cached).write("application/octet-stream", "W/\"etag\"", "date");
+
+        mockery.assertIsSatisfied();
+        assertEquals(Arrays.asList(content.length), writeSizes);
+        assertEquals(content.length, cached.remaining());
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.directory;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+import org.kaazing.gateway.service.http.directory.HttpDirectoryGzipCache.Entry;
+
+public class HttpDirectoryGzipCacheTest {
+
+    @Test
+    public void shouldCompressOnceAndCacheByETag() throws Exception {
+        HttpDirectoryGzipCache cache = new HttpDirectoryGzipCache(1024, 1024);
+        byte[] content = new byte[512];
+        Arrays.fill(content, (byte) 'a');
+
+        assertNull(cache.get("W/\"etag\""));
+        Entry entry = cache.compress("W/\"etag\"", ByteBuffer.wrap(content));
+
+        assertSame(entry, cache.get("W/\"etag\""));
+        assertEquals("W/\"etag-gzip\"", entry.etag);
+        assertTrue(entry.content.isReadOnly());
+        assertArrayEquals(content, gunzip(entry.content));
+        assertEquals(1L, cache.getCompressionCount());
+        assertEquals(1L, cache.getHitCount());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        byte[] content = new byte[512];
+        Arrays.fill(content, (byte) 'a');
+        int compressedSize = new HttpDirectoryGzipCache(1024, 1024).compress("", ByteBuffer.wrap(content)).content.remaining();
+        HttpDirectoryGzipCache cache = new HttpDirectoryGzipCache(2 * compressedSize, 1024);
+
+        cache.compress("first", ByteBuffer.wrap(content));
+        cache.compress("second", ByteBuffer.wrap(content));
+        cache.get("first");
+        cache.compress("third", ByteBuffer.wrap(content));
+
+        assertEquals(2, cache.getEntryCount());
+        assertNull(cache.get("second"));
+    }
+
+    @Test
+    public void shouldOnlyCompressTextWithinSizeLimits() throws Exception {
+        HttpDirectoryGzipCache cache = new HttpDirectoryGzipCache(1024, 1024);
+
+        assertTrue(cache.isCompressible("text/html", 512));
+        assertTrue(cache.isCompressible("application/javascript", 512));
+        assertTrue(cache.isCompressible("application/atom+xml", 512));
+        assertFalse(cache.isCompressible("image/png", 512));
+        assertFalse(cache.isCompressible(null, 512));
+        assertFalse(cache.isCompressible("text/html", HttpDirectoryGzipCache.MIN_COMPRESSIBLE_SIZE - 1));
+        assertFalse(cache.isCompressible("text/html", 1025));
+    }
+
+    @Test
+    public void shouldNegotiateGzipContentCoding() throws Exception {
+        assertTrue(HttpDirectoryGzipCache.acceptsGzip(singletonList("gzip")));
+        assertTrue(HttpDirectoryGzipCache.acceptsGzip(asList("deflate", "gzip;q=0.5")));
+        assertTrue(HttpDirectoryGzipCache.acceptsGzip(singletonList("gzip, deflate, sdch")));
+        assertTrue(HttpDirectoryGzipCache.acceptsGzip(singletonList("x-gzip")));
+        assertTrue(HttpDirectoryGzipCache.acceptsGzip(singletonList("*")));
+        assertFalse(HttpDirectoryGzipCache.acceptsGzip(null));
+        assertFalse(HttpDirectoryGzipCache.acceptsGzip(singletonList("identity")));
+        assertFalse(HttpDirectoryGzipCache.acceptsGzip(singletonList("gzip;q=0, *")));
+        assertFalse(HttpDirectoryGzipCache.acceptsGzip(singletonList("*;q=0.0")));
+    }
+
+    private static byte[] gunzip(ByteBuffer content) throws Exception {
+        byte[] compressed = new byte[content.remaining()];
+        content.duplicate().get(compressed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buf = new byte[256];
+            for (int n = in.read(buf); n != -1; n = in.read(buf)) {
+                out.write(buf, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+}
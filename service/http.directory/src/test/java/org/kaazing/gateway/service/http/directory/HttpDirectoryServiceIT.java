@@ -40,6 +40,7 @@ public class HttpDirectoryServiceIT {
     private static final String DIRECTORY_SERVICE_DOT_SLASH = "http://localhost:8006/";
     private static final String DIRECTORY_SERVICE_NO_PATH = "http://localhost:8007/";
     private static final String DIRECTORY_SERVICE_WRONG_PATH = "http://localhost:8008/";
+    private static final String COMPRESSION_DIRECTORY_SERVICE_ACCEPT = "http://localhost:8009/";
 
     private final K3poRule robot = new K3poRule();
 
@@ -110,6 +111,12 @@ public class HttpDirectoryServiceIT {
                             .property("directory", ".public")
                             .property("welcome-file", "index.html")
                         .done()
+                        .service()
+                            .accept(COMPRESSION_DIRECTORY_SERVICE_ACCEPT)
+                            .type("directory")
+                            .property("directory", "/public")
+                            .property("compression", "gzip")
+                        .done()
                     .done();
             // @formatter:on
             init(configuration);
@@ -131,6 +138,42 @@ public class HttpDirectoryServiceIT {
         robot.finish();
     }
 
+    @Specification("get.range.single")
+    @Test
+    public void testGetSingleRange() throws Exception {
+        robot.finish();
+    }
+
+    @Specification("get.range.multiple")
+    @Test
+    public void testGetMultipleRanges() throws Exception {
+        robot.finish();
+    }
+
+    @Specification("get.range.not.satisfiable")
+    @Test
+    public void testGetRangeNotSatisfiable() throws Exception {
+        robot.finish();
+    }
+
+    @Specification("get.gzip.precompressed")
+    @Test
+    public void testGetPrecompressedGzip() throws Exception {
+        robot.finish();
+    }
+
+    @Specification("get.gzip.not.accepted")
+    @Test
+    public void testGetGzipNotAccepted() throws Exception {
+        robot.finish();
+    }
+
+    @Specification("get.gzip.compressed")
+    @Test
+    public void testGetCompressedGzip() throws Exception {
+        robot.finish();
+    }
+
     @Specification("get.nonexistent.page.check.status.code.404")
     @Test
     public void testGetNonexistantPageCheckStatusCode404() throws Exception {
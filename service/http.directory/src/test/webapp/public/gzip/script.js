@@ -0,0 +1,13 @@
+var messages = [];
+messages.push("message number 0 from the directory service");
+messages.push("message number 1 from the directory service");
+messages.push("message number 2 from the directory service");
+messages.push("message number 3 from the directory service");
+messages.push("message number 4 from the directory service");
+messages.push("message number 5 from the directory service");
+messages.push("message number 6 from the directory service");
+messages.push("message number 7 from the directory service");
+messages.push("message number 8 from the directory service");
+messages.push("message number 9 from the directory service");
+messages.push("message number 10 from the directory service");
+messages.push("message number 11 from the directory service");
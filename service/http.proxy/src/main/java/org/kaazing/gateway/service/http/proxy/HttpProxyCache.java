@@ -0,0 +1,1192 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.proxy;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_AUTHORIZATION;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_CACHE_CONTROL;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_CONNECTION;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_CONTENT_LENGTH;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_DATE;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_E_TAG;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_EXPIRES;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_IF_MATCH;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_IF_MODIFIED_SINCE;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_IF_NONE_MATCH;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_IF_UNMODIFIED_SINCE;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_LAST_MODIFIED;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_SET_COOKIE;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_TRAILER;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_TRANSFER_ENCODING;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_UPGRADE;
+import static org.kaazing.gateway.transport.http.HttpStatus.CLIENT_GONE;
+import static org.kaazing.gateway.transport.http.HttpStatus.CLIENT_METHOD_NOT_ALLOWED;
+import static org.kaazing.gateway.transport.http.HttpStatus.CLIENT_NOT_FOUND;
+import static org.kaazing.gateway.transport.http.HttpStatus.CLIENT_REQUEST_URI_TOO_LONG;
+import static org.kaazing.gateway.transport.http.HttpStatus.REDIRECT_NOT_MODIFIED;
+import static org.kaazing.gateway.transport.http.HttpStatus.SERVER_NOT_IMPLEMENTED;
+import static org.kaazing.gateway.transport.http.HttpStatus.SUCCESS_NON_AUTHORATIVE_INFORMATION;
+import static org.kaazing.gateway.transport.http.HttpStatus.SUCCESS_NO_CONTENT;
+import static org.kaazing.gateway.transport.http.HttpStatus.SUCCESS_OK;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.kaazing.gateway.transport.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared cache (RFC 7234) of the responses proxied by an http.proxy service, keyed by request URI with one entry
+ * per variant selected by the Vary response header. Content is held in memory up to a capacity, beyond which the
+ * least recently used entries are spilled to files in an optional spill directory, itself bounded by a capacity.
+ * Spilled entries are read back into memory when next used. Spill files only live as long as the service.
+ * Spill files are written, read back and deleted on a dedicated thread, never on the calling (I/O) thread, and
+ * entries are still served from memory until their spill file has been written.
+ * <p>
+ * Concurrent fetches of the same request URI are collapsed: the first request to miss leads the fetch from the
+ * origin server, the others wait for it to complete then look up the cache again.
+ */
+final class HttpProxyCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("service.http.proxy");
+
+    private static final String HEADER_AGE = "Age";
+    private static final String HEADER_PRAGMA = "Pragma";
+    private static final String HEADER_VARY = "Vary";
+    private static final String HEADER_CONTENT_RANGE = "Content-Range";
+    private static final String HEADER_IF_RANGE = "If-Range";
+    private static final String HEADER_RANGE = "Range";
+
+    // status codes that are cacheable by default (RFC 7231, section 6.1), except for redirects, the content of which
+    // is not proxied
+    private static final Set<HttpStatus> CACHEABLE_BY_DEFAULT = Collections.unmodifiableSet(EnumSet.of(SUCCESS_OK,
+            SUCCESS_NON_AUTHORATIVE_INFORMATION, SUCCESS_NO_CONTENT, CLIENT_NOT_FOUND, CLIENT_METHOD_NOT_ALLOWED,
+            CLIENT_GONE, CLIENT_REQUEST_URI_TOO_LONG, SERVER_NOT_IMPLEMENTED));
+
+    // response headers that are not stored, either hop-by-hop or set when a stored response is served
+    private static final Set<String> UNSTORED_HEADERS;
+    static {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(Arrays.asList(HEADER_CONNECTION, "Keep-Alive", "Proxy-Authenticate", "Proxy-Connection", "TE",
+                HEADER_TRAILER, HEADER_TRANSFER_ENCODING, HEADER_UPGRADE, HEADER_CONTENT_LENGTH, HEADER_AGE));
+        UNSTORED_HEADERS = Collections.unmodifiableSet(set);
+    }
+
+    // stored response headers sent with a 304 response (RFC 7232, section 4.1)
+    static final Set<String> NOT_MODIFIED_HEADERS;
+    static {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(Arrays.asList(HEADER_CACHE_CONTROL, "Content-Location", HEADER_DATE, HEADER_E_TAG, HEADER_EXPIRES,
+                HEADER_LAST_MODIFIED, HEADER_VARY));
+        NOT_MODIFIED_HEADERS = Collections.unmodifiableSet(set);
+    }
+
+    // heuristic freshness is a fraction of the time since last modification (RFC 7234, section 4.2.2), capped so
+    // that no warning is required
+    private static final int HEURISTIC_FRACTION = 10;
+    private static final long MAXIMUM_HEURISTIC_LIFETIME = HOURS.toMillis(24);
+
+    // delta-seconds beyond this are treated as this (RFC 7234, section 1.2.1)
+    private static final long MAXIMUM_DELTA_SECONDS = 1L << 31;
+
+    private final long capacity;
+    private final int maxEntrySize;
+    private final Path spillDirectory;
+    private final long spillCapacity;
+
+    // variants by request URI
+    private final Map<String, List<Entry>> variants;
+
+    // access ordered, so iteration starts from the least recently used entry
+    private final Map<Entry, ByteBuffer> memory;
+    private final Map<Entry, Path> spilled;
+    // evicted from memory and not yet written to a spill file, so still served from memory
+    private final Map<Entry, ByteBuffer> spilling;
+    private long memorySize;
+    private long spilledSize;
+    private final AtomicLong spillSequence = new AtomicLong();
+    private final Executor spillExecutor;
+    private final ExecutorService ownSpillExecutor;
+
+    private final ConcurrentMap<String, CompletableFuture<Void>> fetches = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity        the maximum total size of the content held in memory
+     * @param maxEntrySize    the maximum size of the content of a single response
+     * @param spillDirectory  the directory for content evicted from memory, or null to discard it
+     * @param spillCapacity   the maximum total size of the content in the spill directory
+     */
+    HttpProxyCache(long capacity, int maxEntrySize, File spillDirectory, long spillCapacity) throws IOException {
+        this(capacity, maxEntrySize, spillDirectory, spillCapacity, null);
+    }
+
+    /**
+     * @param spillExecutor  the executor for spill file work, or null for a thread of the cache's own
+     */
+    HttpProxyCache(long capacity, int maxEntrySize, File spillDirectory, long spillCapacity, Executor spillExecutor)
+            throws IOException {
+        this.capacity = capacity;
+        this.maxEntrySize = maxEntrySize;
+        this.spillDirectory = (spillDirectory != null && spillCapacity > 0) ? spillDirectory.toPath() : null;
+        this.spillCapacity = spillCapacity;
+        this.variants = new HashMap<>();
+        this.memory = new LinkedHashMap<>(16, 0.75f, true);
+        this.spilled = new LinkedHashMap<>(16, 0.75f, true);
+        this.spilling = new HashMap<>();
+
+        if (this.spillDirectory != null) {
+            Files.createDirectories(this.spillDirectory);
+        }
+
+        if (this.spillDirectory == null || spillExecutor != null) {
+            this.ownSpillExecutor = null;
+            this.spillExecutor = spillExecutor;
+        }
+        else {
+            // one thread keeps the spill file work in order, and the I/O threads never wait on the file system
+            this.ownSpillExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "http.proxy-cache-spill");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.spillExecutor = ownSpillExecutor;
+        }
+    }
+
+    /**
+     * @return whether a GET or HEAD request may be served from, or its response stored in, the cache. Range
+     *         requests and preconditions other than those used for validation are passed on to the origin server.
+     */
+    static boolean isCacheableRequest(Map<String, List<String>> requestHeaders) {
+        return !requestHeaders.containsKey(HEADER_RANGE) && !requestHeaders.containsKey(HEADER_IF_RANGE)
+                && !requestHeaders.containsKey(HEADER_IF_MATCH) && !requestHeaders.containsKey(HEADER_IF_UNMODIFIED_SINCE)
+                && !requestHeaders.containsKey(HEADER_UPGRADE);
+    }
+
+    /**
+     * @return whether the request carries its own validators, in which case a stale entry is not revalidated on
+     *         its behalf
+     */
+    static boolean hasValidators(Map<String, List<String>> requestHeaders) {
+        return requestHeaders.containsKey(HEADER_IF_NONE_MATCH) || requestHeaders.containsKey(HEADER_IF_MODIFIED_SINCE);
+    }
+
+    /**
+     * @return whether a response may be stored (RFC 7234, section 3)
+     */
+    static boolean isStorable(Map<String, List<String>> requestHeaders, HttpStatus status,
+            Map<String, List<String>> responseHeaders) {
+        Directives request = Directives.ofRequest(requestHeaders);
+        Directives response = Directives.parse(responseHeaders.get(HEADER_CACHE_CONTROL));
+        if (request.noStore || response.noStore || response.isPrivate || !CACHEABLE_BY_DEFAULT.contains(status)) {
+            return false;
+        }
+
+        // responses setting cookies are specific to a client, partial content is not supported
+        if (responseHeaders.containsKey(HEADER_SET_COOKIE) || responseHeaders.containsKey(HEADER_CONTENT_RANGE)) {
+            return false;
+        }
+
+        for (String name : varyHeaderNames(responseHeaders)) {
+            if ("*".equals(name)) {
+                return false;
+            }
+        }
+
+        // responses to authorized requests must be explicitly shareable (RFC 7234, section 3.2)
+        return !requestHeaders.containsKey(HEADER_AUTHORIZATION)
+                || response.isPublic || response.mustRevalidate || response.sMaxAge != -1;
+    }
+
+    /**
+     * @return the stored response for the variant of the request URI selected by the request headers, fresh or
+     *         not, or null if there is none
+     */
+    synchronized Entry select(String key, Map<String, List<String>> requestHeaders) {
+        List<Entry> entries = variants.get(key);
+        if (entries != null) {
+            for (Entry entry : entries) {
+                if (entry.matches(requestHeaders)) {
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a future of a read-only view of the content of an entry, or of null if the entry is no longer cached.
+     *         The future is already completed unless the content has to be read back from the spill directory,
+     *         in which case it is completed on the spill thread.
+     */
+    CompletableFuture<ByteBuffer> content(Entry entry) {
+        Path file;
+        synchronized (this) {
+            ByteBuffer content = memory.get(entry);
+            if (content == null) {
+                content = spilling.get(entry);
+            }
+            if (content != null) {
+                return CompletableFuture.completedFuture(content.duplicate());
+            }
+            file = spilled.get(entry);
+            if (file == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+
+        try {
+            return CompletableFuture.supplyAsync(() -> readBack(entry, file), spillExecutor);
+        }
+        catch (RejectedExecutionException e) {
+            // disposed
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private ByteBuffer readBack(Entry entry, Path file) {
+        ByteBuffer content;
+        try {
+            content = ByteBuffer.wrap(Files.readAllBytes(file)).asReadOnlyBuffer();
+        }
+        catch (IOException e) {
+            LOGGER.debug("Unable to read cached response from {}", file, e);
+            invalidate(entry);
+            return null;
+        }
+
+        Housekeeping housekeeping = new Housekeeping();
+        synchronized (this) {
+            // another thread may have read it back, or it may have been removed, in the meantime
+            if (spilled.remove(entry) != null) {
+                spilledSize -= entry.length;
+                housekeeping.delete(file);
+                memory.put(entry, content);
+                memorySize += entry.length;
+                evict(housekeeping);
+            }
+        }
+        // already on the spill thread
+        housekeeping.run();
+        return content.duplicate();
+    }
+
+    /**
+     * Stores a response, replacing the stored response for the same variant, if any.
+     */
+    void put(Entry entry, ByteBuffer content) {
+        if (entry.length > maxEntrySize || entry.length > capacity) {
+            return;
+        }
+
+        Housekeeping housekeeping = new Housekeeping();
+        synchronized (this) {
+            List<Entry> entries = variants.computeIfAbsent(entry.key, key -> new ArrayList<>(1));
+            for (Iterator<Entry> i = entries.iterator(); i.hasNext();) {
+                Entry oldEntry = i.next();
+                if (Objects.equals(oldEntry.varyValues, entry.varyValues)) {
+                    i.remove();
+                    discard(oldEntry, housekeeping);
+                }
+            }
+            entries.add(entry);
+            memory.put(entry, content.asReadOnlyBuffer());
+            memorySize += entry.length;
+            evict(housekeeping);
+        }
+        housekeeping.schedule();
+    }
+
+    /**
+     * Replaces a stale entry by the entry updated from a 304 response, keeping its content where it is.
+     */
+    void revalidated(Entry stale, Entry fresh, ByteBuffer content) {
+        Housekeeping housekeeping = new Housekeeping();
+        boolean replaced = false;
+        synchronized (this) {
+            List<Entry> entries = variants.get(stale.key);
+            int index = (entries != null) ? indexOf(entries, stale) : -1;
+            if (index != -1) {
+                ByteBuffer storedContent = memory.remove(stale);
+                ByteBuffer spillingContent = spilling.remove(stale);
+                Path file = spilled.remove(stale);
+                if (storedContent != null || spillingContent != null || file != null) {
+                    entries.set(index, fresh);
+                    if (storedContent != null) {
+                        memory.put(fresh, storedContent);
+                    }
+                    else if (spillingContent != null) {
+                        // just used, so back to memory, and the spill file of the stale entry is deleted once written
+                        memory.put(fresh, spillingContent);
+                        memorySize += fresh.length;
+                        evict(housekeeping);
+                    }
+                    else {
+                        spilled.put(fresh, file);
+                    }
+                    replaced = true;
+                }
+            }
+        }
+        housekeeping.schedule();
+
+        if (!replaced) {
+            // evicted in the meantime
+            put(fresh, content);
+        }
+    }
+
+    /**
+     * Removes the stored responses for a request URI, as after an unsafe request (RFC 7234, section 4.4).
+     */
+    void invalidate(String key) {
+        Housekeeping housekeeping = new Housekeeping();
+        synchronized (this) {
+            List<Entry> entries = variants.remove(key);
+            if (entries != null) {
+                for (Entry entry : entries) {
+                    discard(entry, housekeeping);
+                }
+            }
+        }
+        housekeeping.schedule();
+    }
+
+    /**
+     * Removes all the stored responses, including their spill files, then waits for the spill file work in
+     * progress to complete and stops the spill thread.
+     */
+    void dispose() throws InterruptedException {
+        invalidateAll();
+        if (ownSpillExecutor != null) {
+            ownSpillExecutor.shutdown();
+            if (!ownSpillExecutor.awaitTermination(10, SECONDS)) {
+                LOGGER.warn("Timed out waiting for response cache spill files to be deleted from {}", spillDirectory);
+            }
+        }
+    }
+
+    /**
+     * Removes all the stored responses, including their spill files.
+     */
+    void invalidateAll() {
+        Housekeeping housekeeping = new Housekeeping();
+        synchronized (this) {
+            housekeeping.files.addAll(spilled.values());
+            variants.clear();
+            memory.clear();
+            spilling.clear();
+            spilled.clear();
+            memorySize = 0;
+            spilledSize = 0;
+        }
+        housekeeping.schedule();
+    }
+
+    /**
+     * Starts a fetch of the request URI from the origin server, unless one is already in progress.
+     *
+     * @return null if the caller leads the fetch and must end it, otherwise a future completed when the fetch
+     *         in progress ends
+     */
+    CompletableFuture<Void> beginFetch(String key) {
+        return fetches.putIfAbsent(key, new CompletableFuture<>());
+    }
+
+    void endFetch(String key) {
+        CompletableFuture<Void> fetch = fetches.remove(key);
+        if (fetch != null) {
+            fetch.complete(null);
+        }
+    }
+
+    /**
+     * @param stale         the entry to revalidate, or null
+     * @param staleContent  the content of the entry to revalidate, or null
+     * @param leader        whether the fetch leads a collapsed fetch, to be ended on completion
+     */
+    Fetch newFetch(String key, Map<String, List<String>> requestHeaders, Entry stale, ByteBuffer staleContent,
+            long requestTime, boolean leader) {
+        return new Fetch(key, requestHeaders, stale, staleContent, requestTime, leader);
+    }
+
+    /**
+     * Completes a fetch when the response from the origin server has ended, storing it if possible and ending the
+     * collapsed fetch it leads. Completing a fetch more than once has no effect.
+     *
+     * @return the revalidated entry if the origin server responded 304 to the revalidation of a stale entry, to be
+     *         served instead, otherwise null
+     */
+    Entry complete(Fetch fetch) {
+        if (!fetch.completed.compareAndSet(false, true)) {
+            return null;
+        }
+
+        try {
+            if (fetch.aborted || fetch.status == null) {
+                return null;
+            }
+
+            if (fetch.notModified) {
+                Entry fresh = fetch.stale.revalidate(fetch.responseHeaders, fetch.requestTime, fetch.responseTime);
+                revalidated(fetch.stale, fresh, fetch.staleContent);
+                return fresh;
+            }
+
+            if (fetch.content != null) {
+                long contentLength = contentLength(fetch.responseHeaders);
+                if (contentLength == -1 || contentLength == fetch.length) {
+                    Entry entry = newEntry(fetch.key, fetch.requestHeaders, fetch.status, fetch.reason,
+                            fetch.responseHeaders, fetch.requestTime, fetch.responseTime, fetch.length);
+
+                    // a response that is stale on arrival and cannot be revalidated would never be used
+                    if (entry.freshnessLifetime > 0 || entry.hasValidators()) {
+                        put(entry, ByteBuffer.wrap(fetch.content, 0, fetch.length).slice());
+                    }
+                }
+            }
+            return null;
+        }
+        finally {
+            if (fetch.leader) {
+                endFetch(fetch.key);
+            }
+        }
+    }
+
+    static Entry newEntry(String key, Map<String, List<String>> requestHeaders, HttpStatus status, String reason,
+            Map<String, List<String>> responseHeaders, long requestTime, long responseTime, int length) {
+        Map<String, String> varyValues = null;
+        List<String> varyHeaderNames = varyHeaderNames(responseHeaders);
+        if (!varyHeaderNames.isEmpty()) {
+            varyValues = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (String name : varyHeaderNames) {
+                varyValues.put(name, headerValues(requestHeaders, name));
+            }
+        }
+        return new Entry(key, status, reason, storedHeaders(responseHeaders), varyValues, length, requestTime,
+                responseTime, ageValue(responseHeaders));
+    }
+
+    void recordHit(int length) {
+        hits.increment();
+        bytesSaved.add(length);
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordRevalidation() {
+        revalidations.increment();
+    }
+
+    void recordNotModified(int length) {
+        bytesSaved.add(length);
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+    long getRevalidationCount() {
+        return revalidations.sum();
+    }
+
+    long getBytesSavedCount() {
+        return bytesSaved.sum();
+    }
+
+    long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    synchronized int getEntryCount() {
+        return memory.size() + spilling.size() + spilled.size();
+    }
+
+    synchronized int getSpilledEntryCount() {
+        return spilled.size();
+    }
+
+    private synchronized void invalidate(Entry entry) {
+        List<Entry> entries = variants.get(entry.key);
+        int index = (entries != null) ? indexOf(entries, entry) : -1;
+        if (index != -1) {
+            entries.remove(index);
+            if (entries.isEmpty()) {
+                variants.remove(entry.key);
+            }
+            Housekeeping housekeeping = new Housekeeping();
+            discard(entry, housekeeping);
+            housekeeping.schedule();
+        }
+    }
+
+    private void discard(Entry entry, Housekeeping housekeeping) {
+        if (memory.remove(entry) != null) {
+            memorySize -= entry.length;
+        }
+        spilling.remove(entry);
+        Path file = spilled.remove(entry);
+        if (file != null) {
+            spilledSize -= entry.length;
+            housekeeping.delete(file);
+        }
+    }
+
+    private void unindex(Entry entry) {
+        List<Entry> entries = variants.get(entry.key);
+        int index = (entries != null) ? indexOf(entries, entry) : -1;
+        if (index != -1) {
+            entries.remove(index);
+            if (entries.isEmpty()) {
+                variants.remove(entry.key);
+            }
+        }
+    }
+
+    private boolean isIndexed(Entry entry) {
+        List<Entry> entries = variants.get(entry.key);
+        return entries != null && indexOf(entries, entry) != -1;
+    }
+
+    // evicts the least recently used entries from memory, to be spilled outside the lock
+    private void evict(Housekeeping housekeeping) {
+        for (Iterator<Map.Entry<Entry, ByteBuffer>> eldest = memory.entrySet().iterator();
+                memorySize > capacity && eldest.hasNext();) {
+            Map.Entry<Entry, ByteBuffer> mapEntry = eldest.next();
+            Entry entry = mapEntry.getKey();
+            eldest.remove();
+            memorySize -= entry.length;
+            if (spillDirectory != null && entry.length <= spillCapacity) {
+                spilling.put(entry, mapEntry.getValue());
+                housekeeping.spill(entry, mapEntry.getValue());
+            }
+            else {
+                unindex(entry);
+                evictions.increment();
+            }
+        }
+    }
+
+    private synchronized void spilled(Entry entry, Path file, Housekeeping housekeeping) {
+        // removed or revalidated while its spill file was written
+        if (spilling.remove(entry) == null || !isIndexed(entry)) {
+            housekeeping.delete(file);
+            return;
+        }
+
+        spilled.put(entry, file);
+        spilledSize += entry.length;
+        for (Iterator<Map.Entry<Entry, Path>> eldest = spilled.entrySet().iterator();
+                spilledSize > spillCapacity && eldest.hasNext();) {
+            Map.Entry<Entry, Path> mapEntry = eldest.next();
+            eldest.remove();
+            spilledSize -= mapEntry.getKey().length;
+            unindex(mapEntry.getKey());
+            housekeeping.delete(mapEntry.getValue());
+            evictions.increment();
+        }
+    }
+
+    private static int indexOf(List<Entry> entries, Entry entry) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i) == entry) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * File system work resulting from changes made under the lock, done on the spill thread once the lock is
+     * released.
+     */
+    private final class Housekeeping {
+        private final List<Entry> spillEntries = new ArrayList<>(0);
+        private final List<ByteBuffer> spillContents = new ArrayList<>(0);
+        private final List<Path> files = new ArrayList<>(0);
+
+        void spill(Entry entry, ByteBuffer content) {
+            spillEntries.add(entry);
+            spillContents.add(content);
+        }
+
+        void delete(Path file) {
+            files.add(file);
+        }
+
+        void schedule() {
+            if (!spillEntries.isEmpty() || !files.isEmpty()) {
+                try {
+                    spillExecutor.execute(this::run);
+                }
+                catch (RejectedExecutionException e) {
+                    LOGGER.debug("Response cache disposed, not spilling or deleting {} files", files.size());
+                }
+            }
+        }
+
+        void run() {
+            for (int i = 0; i < spillEntries.size(); i++) {
+                Entry entry = spillEntries.get(i);
+                Path file = spillDirectory.resolve(Long.toHexString(spillSequence.incrementAndGet()));
+                try (FileChannel channel = FileChannel.open(file, CREATE_NEW, WRITE)) {
+                    ByteBuffer content = spillContents.get(i).duplicate();
+                    while (content.hasRemaining()) {
+                        channel.write(content);
+                    }
+                }
+                catch (IOException e) {
+                    LOGGER.debug("Unable to spill cached response to {}", file, e);
+                    files.add(file);
+                    invalidate(entry);
+                    evictions.increment();
+                    continue;
+                }
+                spilled(entry, file, this);
+            }
+
+            for (Path file : files) {
+                try {
+                    Files.deleteIfExists(file);
+                }
+                catch (IOException e) {
+                    LOGGER.debug("Unable to delete spilled response {}", file, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A request forwarded to the origin server, the response to which may be stored or may revalidate a stale
+     * entry. Response events are delivered on the I/O thread of the connect session, while abort may be called
+     * from any thread.
+     */
+    final class Fetch {
+        final String key;
+        final Map<String, List<String>> requestHeaders;
+        final Entry stale;
+        final ByteBuffer staleContent;
+        final long requestTime;
+        final boolean leader;
+
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean aborted;
+
+        private HttpStatus status;
+        private String reason;
+        private Map<String, List<String>> responseHeaders;
+        private long responseTime;
+        private boolean notModified;
+        private byte[] content;
+        private int length;
+
+        private Fetch(String key, Map<String, List<String>> requestHeaders, Entry stale, ByteBuffer staleContent,
+                long requestTime, boolean leader) {
+            this.key = key;
+            this.requestHeaders = requestHeaders;
+            this.stale = stale;
+            this.staleContent = staleContent;
+            this.requestTime = requestTime;
+            this.leader = leader;
+        }
+
+        boolean isRevalidation() {
+            return stale != null;
+        }
+
+        /**
+         * @return whether the origin server responded 304 to the revalidation, in which case the stored response
+         *         is served instead of the response from the origin server
+         */
+        boolean isNotModified() {
+            return notModified;
+        }
+
+        /**
+         * Records the response status and headers, only the first time it is called.
+         */
+        void responseReceived(HttpStatus status, String reason, Map<String, List<String>> responseHeaders, long now) {
+            if (this.status != null) {
+                return;
+            }
+
+            this.status = status;
+            this.reason = reason;
+            this.responseHeaders = responseHeaders;
+            this.responseTime = now;
+
+            if (stale != null && status == REDIRECT_NOT_MODIFIED) {
+                notModified = true;
+            }
+            else if (isStorable(requestHeaders, status, responseHeaders)) {
+                long contentLength = contentLength(responseHeaders);
+                if (contentLength <= maxEntrySize) {
+                    content = new byte[(contentLength != -1) ? (int) contentLength : min(8192, maxEntrySize)];
+                }
+            }
+        }
+
+        /**
+         * Records content, unless the response cannot be stored or its content grows beyond the maximum entry size.
+         */
+        void contentReceived(ByteBuffer buf) {
+            int remaining = buf.remaining();
+            if (content == null || remaining == 0) {
+                return;
+            }
+
+            int newLength = length + remaining;
+            if (newLength > maxEntrySize) {
+                content = null;
+                return;
+            }
+            if (newLength > content.length) {
+                content = Arrays.copyOf(content, min(max(newLength, content.length * 2), maxEntrySize));
+            }
+            buf.duplicate().get(content, length, remaining);
+            length = newLength;
+        }
+
+        /**
+         * Prevents the response from being stored, as when it is cut short.
+         */
+        void abort() {
+            aborted = true;
+        }
+    }
+
+    /**
+     * A stored response, along with what is needed to compute its age and freshness (RFC 7234, section 4.2).
+     */
+    static final class Entry {
+        final String key;
+        final HttpStatus status;
+        final String reason;
+        final Map<String, List<String>> headers;
+        final Map<String, String> varyValues;
+        final int length;
+        final long responseTime;
+        final long correctedInitialAge;
+        final long freshnessLifetime;
+        final boolean noCache;
+        final boolean mustRevalidate;
+        final String etag;
+        final String lastModified;
+
+        private final long requestTime;
+
+        private Entry(String key, HttpStatus status, String reason, Map<String, List<String>> headers,
+                Map<String, String> varyValues, int length, long requestTime, long responseTime, long ageValue) {
+            this.key = key;
+            this.status = status;
+            this.reason = reason;
+            this.headers = headers;
+            this.varyValues = varyValues;
+            this.length = length;
+            this.requestTime = requestTime;
+            this.responseTime = responseTime;
+            this.etag = header(headers, HEADER_E_TAG);
+            this.lastModified = header(headers, HEADER_LAST_MODIFIED);
+
+            long date = parseDate(header(headers, HEADER_DATE));
+            if (date == -1) {
+                date = responseTime;
+            }
+            long apparentAge = max(0, responseTime - date);
+            long correctedAgeValue = ageValue + (responseTime - requestTime);
+            this.correctedInitialAge = max(apparentAge, correctedAgeValue);
+
+            Directives directives = Directives.parse(headers.get(HEADER_CACHE_CONTROL));
+            this.noCache = directives.noCache;
+            this.mustRevalidate = directives.mustRevalidate || directives.sMaxAge != -1;
+            this.freshnessLifetime = freshnessLifetime(directives, date);
+        }
+
+        boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+
+        boolean matches(Map<String, List<String>> requestHeaders) {
+            if (varyValues != null) {
+                for (Map.Entry<String, String> varyValue : varyValues.entrySet()) {
+                    if (!Objects.equals(varyValue.getValue(), headerValues(requestHeaders, varyValue.getKey()))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        long currentAge(long now) {
+            return correctedInitialAge + max(0, now - responseTime);
+        }
+
+        boolean isStale(long now) {
+            return noCache || currentAge(now) >= freshnessLifetime;
+        }
+
+        /**
+         * @return whether the entry can be used without revalidation, given the request cache directives
+         */
+        boolean isFresh(long now, Directives request) {
+            if (noCache || request.noCache) {
+                return false;
+            }
+
+            long age = currentAge(now);
+            if (request.maxAge != -1 && age >= SECONDS.toMillis(request.maxAge)) {
+                return false;
+            }
+
+            long remaining = freshnessLifetime - age;
+            if (request.minFresh != -1) {
+                remaining -= SECONDS.toMillis(request.minFresh);
+            }
+            if (remaining > 0) {
+                return true;
+            }
+
+            // stale responses may only be served when explicitly allowed (RFC 7234, section 4.2.4)
+            return !mustRevalidate && request.maxStale != -1 && -remaining <= SECONDS.toMillis(request.maxStale);
+        }
+
+        /**
+         * @return whether the validators of the request match the entry, so that 304 can be sent instead
+         */
+        boolean isNotModified(Map<String, List<String>> requestHeaders) {
+            if (status != SUCCESS_OK) {
+                return false;
+            }
+
+            String ifNoneMatch = headerValues(requestHeaders, HEADER_IF_NONE_MATCH);
+            if (ifNoneMatch != null) {
+                if (etag == null) {
+                    return false;
+                }
+                for (String tag : ifNoneMatch.split(",")) {
+                    tag = tag.trim();
+                    if ("*".equals(tag) || weakTag(tag).equals(weakTag(etag))) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            String ifModifiedSince = header(requestHeaders, HEADER_IF_MODIFIED_SINCE);
+            if (ifModifiedSince != null && lastModified != null) {
+                long since = parseDate(ifModifiedSince);
+                long modified = parseDate(lastModified);
+                return since != -1 && modified != -1 && modified <= since;
+            }
+            return false;
+        }
+
+        /**
+         * @return the entry updated with the headers of a 304 response (RFC 7234, section 4.3.4)
+         */
+        Entry revalidate(Map<String, List<String>> notModifiedHeaders, long requestTime, long responseTime) {
+            Map<String, List<String>> updatedHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            updatedHeaders.putAll(headers);
+            updatedHeaders.putAll(storedHeaders(notModifiedHeaders));
+            return new Entry(key, status, reason, Collections.unmodifiableMap(updatedHeaders), varyValues, length,
+                    requestTime, responseTime, ageValue(notModifiedHeaders));
+        }
+
+        private long freshnessLifetime(Directives directives, long date) {
+            if (directives.sMaxAge != -1) {
+                return SECONDS.toMillis(directives.sMaxAge);
+            }
+            if (directives.maxAge != -1) {
+                return SECONDS.toMillis(directives.maxAge);
+            }
+            String expires = header(headers, HEADER_EXPIRES);
+            if (expires != null) {
+                // invalid dates, such as 0, represent a time in the past
+                long expiresTime = parseDate(expires);
+                return (expiresTime != -1) ? max(0, expiresTime - date) : 0;
+            }
+            long modified = parseDate(lastModified);
+            if (modified != -1 && CACHEABLE_BY_DEFAULT.contains(status)) {
+                return min(max(0, date - modified) / HEURISTIC_FRACTION, MAXIMUM_HEURISTIC_LIFETIME);
+            }
+            return 0;
+        }
+
+        private static String weakTag(String tag) {
+            return tag.startsWith("W/") ? tag.substring(2) : tag;
+        }
+    }
+
+    /**
+     * Cache-Control directives (RFC 7234, section 5.2) that apply to the cache, with delta-seconds of -1 when
+     * absent. Field names qualifying no-cache and private are ignored, applying the directive to the whole response.
+     */
+    static final class Directives {
+        boolean noStore;
+        boolean noCache;
+        boolean isPrivate;
+        boolean isPublic;
+        boolean mustRevalidate;
+        boolean onlyIfCached;
+        long maxAge = -1;
+        long sMaxAge = -1;
+        long maxStale = -1;
+        long minFresh = -1;
+
+        private Directives() {
+        }
+
+        static Directives ofRequest(Map<String, List<String>> requestHeaders) {
+            List<String> cacheControl = requestHeaders.get(HEADER_CACHE_CONTROL);
+            Directives directives = parse(cacheControl);
+            if (cacheControl == null) {
+                // Pragma: no-cache is only honored without Cache-Control (RFC 7234, section 5.4)
+                String pragma = headerValues(requestHeaders, HEADER_PRAGMA);
+                directives.noCache = pragma != null && pragma.toLowerCase(Locale.ENGLISH).contains("no-cache");
+            }
+            return directives;
+        }
+
+        static Directives parse(List<String> values) {
+            Directives directives = new Directives();
+            if (values != null) {
+                for (String value : values) {
+                    directives.parse(value);
+                }
+            }
+            return directives;
+        }
+
+        private void parse(String value) {
+            int length = value.length();
+            int start = 0;
+            while (start < length) {
+                // commas may appear in quoted arguments
+                int end = start;
+                boolean quoted = false;
+                while (end < length && (quoted || value.charAt(end) != ',')) {
+                    char c = value.charAt(end);
+                    if (c == '"') {
+                        quoted = !quoted;
+                    }
+                    else if (c == '\\' && quoted) {
+                        end++;
+                    }
+                    end++;
+                }
+
+                String directive = value.substring(start, min(end, length)).trim();
+                start = end + 1;
+
+                int equals = directive.indexOf('=');
+                String name = (equals == -1 ? directive : directive.substring(0, equals)).trim().toLowerCase(Locale.ENGLISH);
+                String argument = (equals == -1) ? null : unquote(directive.substring(equals + 1).trim());
+                switch (name) {
+                case "no-store":
+                    noStore = true;
+                    break;
+                case "no-cache":
+                    noCache = true;
+                    break;
+                case "private":
+                    isPrivate = true;
+                    break;
+                case "public":
+                    isPublic = true;
+                    break;
+                case "must-revalidate":
+                case "proxy-revalidate":
+                    mustRevalidate = true;
+                    break;
+                case "only-if-cached":
+                    onlyIfCached = true;
+                    break;
+                case "max-age":
+                    maxAge = deltaSeconds(argument, 0);
+                    break;
+                case "s-maxage":
+                    sMaxAge = deltaSeconds(argument, 0);
+                    break;
+                case "max-stale":
+                    maxStale = (argument != null) ? deltaSeconds(argument, 0) : MAXIMUM_DELTA_SECONDS;
+                    break;
+                case "min-fresh":
+                    minFresh = deltaSeconds(argument, 0);
+                    break;
+                default:
+                    // unrecognized directives are ignored (RFC 7234, section 5.2.3)
+                    break;
+                }
+            }
+        }
+
+        private static String unquote(String argument) {
+            int length = argument.length();
+            if (length >= 2 && argument.charAt(0) == '"' && argument.charAt(length - 1) == '"') {
+                return argument.substring(1, length - 1);
+            }
+            return argument;
+        }
+    }
+
+    private static List<String> varyHeaderNames(Map<String, List<String>> responseHeaders) {
+        List<String> values = responseHeaders.get(HEADER_VARY);
+        if (values == null) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>();
+        for (String value : values) {
+            for (String name : value.split(",")) {
+                name = name.trim();
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    private static Map<String, List<String>> storedHeaders(Map<String, List<String>> responseHeaders) {
+        Set<String> connectionHeaders = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        List<String> connection = responseHeaders.get(HEADER_CONNECTION);
+        if (connection != null) {
+            for (String value : connection) {
+                for (String name : value.split(",")) {
+                    connectionHeaders.add(name.trim());
+                }
+            }
+        }
+
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            String name = header.getKey();
+            if (!UNSTORED_HEADERS.contains(name) && !connectionHeaders.contains(name)) {
+                headers.put(name, Collections.unmodifiableList(new ArrayList<>(header.getValue())));
+            }
+        }
+        return Collections.unmodifiableMap(headers);
+    }
+
+    private static long ageValue(Map<String, List<String>> responseHeaders) {
+        return SECONDS.toMillis(deltaSeconds(header(responseHeaders, HEADER_AGE), 0));
+    }
+
+    private static long contentLength(Map<String, List<String>> responseHeaders) {
+        String contentLength = header(responseHeaders, HEADER_CONTENT_LENGTH);
+        if (contentLength != null) {
+            try {
+                return Long.parseLong(contentLength.trim());
+            }
+            catch (NumberFormatException e) {
+                // treated as absent
+            }
+        }
+        return -1;
+    }
+
+    private static String header(Map<String, List<String>> headers, String name) {
+        List<String> values = headers.get(name);
+        return (values != null && !values.isEmpty()) ? values.get(0) : null;
+    }
+
+    private static String headerValues(Map<String, List<String>> headers, String name) {
+        List<String> values = headers.get(name);
+        return (values != null && !values.isEmpty()) ? String.join(", ", values) : null;
+    }
+
+    /**
+     * @return the delta-seconds value, or the given value if invalid
+     */
+    static long deltaSeconds(String value, long invalidValue) {
+        if (value == null || value.isEmpty()) {
+            return invalidValue;
+        }
+        long seconds = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return invalidValue;
+            }
+            seconds = min(seconds * 10 + (c - '0'), MAXIMUM_DELTA_SECONDS);
+        }
+        return seconds;
+    }
+
+    /**
+     * @return the time of an HTTP-date, or -1 if absent or invalid
+     */
+    static long parseDate(String value) {
+        if (value != null) {
+            try {
+                return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            }
+            catch (DateTimeParseException e) {
+                // invalid
+            }
+        }
+        return -1;
+    }
+}
@@ -18,13 +18,21 @@ package org.kaazing.gateway.service.http.proxy;
 import static java.lang.String.format;
 
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
+import java.util.function.ToLongFunction;
 
 import javax.annotation.Resource;
 
 import org.kaazing.gateway.resource.address.uri.URIUtils;
 import org.kaazing.gateway.service.ServiceContext;
 import org.kaazing.gateway.service.proxy.AbstractProxyService;
+import org.kaazing.gateway.service.proxy.UpstreamPool;
+import org.kaazing.gateway.transport.BridgeServiceFactory;
+import org.kaazing.gateway.transport.Transport;
+import org.kaazing.gateway.transport.http.HttpConnector;
+import org.kaazing.gateway.transport.http.PersistentConnectionStatistics;
 import org.kaazing.gateway.util.feature.EarlyAccessFeatures;
 
 /**
@@ -35,6 +43,8 @@ public class HttpProxyService extends AbstractProxyService<HttpProxyServiceHandl
             + "One has a trailing slash and one doesn't. Both URIs either need to include a trailing slash or omit it.";
 
     private Properties configuration;
+    private BridgeServiceFactory bridgeServiceFactory;
+    private Collection<String> connectURIs;
 
     @Override
     public String getType() {
@@ -45,7 +55,7 @@ public class HttpProxyService extends AbstractProxyService<HttpProxyServiceHandl
     public void init(ServiceContext serviceContext) throws Exception {
         EarlyAccessFeatures.HTTP_PROXY_SERVICE.assertEnabled(configuration, serviceContext.getLogger());
         super.init(serviceContext);
-        Collection<String> connectURIs = serviceContext.getConnects();
+        connectURIs = serviceContext.getConnects();
         if (connectURIs == null || connectURIs.isEmpty()) {
             throw new IllegalArgumentException("Missing required element: <connect>");
         }
@@ -57,34 +67,123 @@ public class HttpProxyService extends AbstractProxyService<HttpProxyServiceHandl
         handler.init();
     }
 
+    @Override
+    public void start() throws Exception {
+        super.start();
+        HttpProxyServiceHandler handler = getHandler();
+        UpstreamPool upstreamPool = handler.getUpstreamPool();
+        if (upstreamPool != null) {
+            upstreamPool.start(scheduler, handler.newHealthCheck());
+        }
+    }
+
+    @Override
+    public void stop() throws Exception {
+        UpstreamPool upstreamPool = getHandler().getUpstreamPool();
+        if (upstreamPool != null) {
+            upstreamPool.stop();
+        }
+        super.stop();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        super.destroy();
+        getHandler().destroy();
+    }
+
+    public long getResponseCacheHitCount() {
+        HttpProxyCache responseCache = getHandler().getResponseCache();
+        return (responseCache != null) ? responseCache.getHitCount() : 0;
+    }
+
+    public long getResponseCacheMissCount() {
+        HttpProxyCache responseCache = getHandler().getResponseCache();
+        return (responseCache != null) ? responseCache.getMissCount() : 0;
+    }
+
+    public long getResponseCacheRevalidationCount() {
+        HttpProxyCache responseCache = getHandler().getResponseCache();
+        return (responseCache != null) ? responseCache.getRevalidationCount() : 0;
+    }
+
+    public long getResponseCacheBytesSaved() {
+        HttpProxyCache responseCache = getHandler().getResponseCache();
+        return (responseCache != null) ? responseCache.getBytesSavedCount() : 0;
+    }
+
+    public long getConnectionPoolHitCount() {
+        return sumConnectionPoolStatistics(PersistentConnectionStatistics::getHitCount);
+    }
+
+    public long getConnectionPoolMissCount() {
+        return sumConnectionPoolStatistics(PersistentConnectionStatistics::getMissCount);
+    }
+
+    public long getConnectionPoolCreateCount() {
+        return sumConnectionPoolStatistics(PersistentConnectionStatistics::getCreateCount);
+    }
+
+    public long getConnectionPoolEvictionCount() {
+        return sumConnectionPoolStatistics(PersistentConnectionStatistics::getEvictionCount);
+    }
+
     @Resource(name = "configuration")
     public void setConfiguration(Properties configuration) {
         this.configuration = configuration;
     }
 
+    @Resource(name = "bridgeServiceFactory")
+    public void setBridgeServiceFactory(BridgeServiceFactory bridgeServiceFactory) {
+        this.bridgeServiceFactory = bridgeServiceFactory;
+    }
+
+    // the persistent connections to the origin servers are pooled by the http connector, shared by all services
+    private long sumConnectionPoolStatistics(ToLongFunction<PersistentConnectionStatistics> counter) {
+        if (bridgeServiceFactory == null || connectURIs == null) {
+            return 0;
+        }
+        Transport http = bridgeServiceFactory.getTransportFactory().getTransport("http");
+        if (http == null) {
+            return 0;
+        }
+
+        // connect URIs on the same origin server share its statistics
+        HttpConnector connector = (HttpConnector) http.getConnector();
+        Set<PersistentConnectionStatistics> counted = new HashSet<>();
+        long sum = 0;
+        for (String connectURI : connectURIs) {
+            PersistentConnectionStatistics statistics = connector.getPersistentConnectionStatistics(connectURI);
+            if (statistics != null && counted.add(statistics)) {
+                sum += counter.applyAsLong(statistics);
+            }
+        }
+        return sum;
+    }
+
     private void checkForTrailingSlashes(ServiceContext serviceContext) {
         Collection<String> acceptURIs = serviceContext.getAccepts();
         Collection<String> connectURIs = serviceContext.getConnects();
 
         assert acceptURIs.size() == 1;
-        assert connectURIs.size() == 1;
 
         String acceptURI = acceptURIs.iterator().next();
-        String connectURI = connectURIs.iterator().next();
         String acceptPath = URIUtils.getPath(acceptURI);
-        String connectPath = URIUtils.getPath(connectURI);
 
         boolean acceptPathIsSlash = acceptPath.endsWith("/");
-        boolean connectPathIsSlash = connectPath.endsWith("/");
         if (!acceptPathIsSlash) {
             String msg = String.format("The path %s of accept URI %s for service %s needs to end with /",
                     acceptPath, acceptURI, serviceContext.getServiceName());
             throw new IllegalArgumentException(msg);
         }
-        if (!connectPathIsSlash) {
-            String msg = String.format("The path %s of connect URI %s for service %s needs to end with /",
-                    connectPath, connectURI, serviceContext.getServiceName());
-            throw new IllegalArgumentException(msg);
+        for (String connectURI : connectURIs) {
+            String connectPath = URIUtils.getPath(connectURI);
+            boolean connectPathIsSlash = connectPath.endsWith("/");
+            if (!connectPathIsSlash) {
+                String msg = String.format("The path %s of connect URI %s for service %s needs to end with /",
+                        connectPath, connectURI, serviceContext.getServiceName());
+                throw new IllegalArgumentException(msg);
+            }
         }
     }
 
@@ -16,12 +16,20 @@
 package org.kaazing.gateway.service.http.proxy;
 
 import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_CONNECTION;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_CONTENT_LENGTH;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_IF_MODIFIED_SINCE;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_IF_NONE_MATCH;
 import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_LOCATION;
 import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_SET_COOKIE;
 import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_UPGRADE;
 import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_VIA;
 import static org.kaazing.gateway.transport.http.HttpStatus.CLIENT_NOT_FOUND;
 import static org.kaazing.gateway.transport.http.HttpStatus.INFO_SWITCHING_PROTOCOLS;
+import static org.kaazing.gateway.transport.http.HttpStatus.REDIRECT_NOT_MODIFIED;
+import static org.kaazing.gateway.transport.http.HttpStatus.SERVER_BAD_GATEWAY;
+import static org.kaazing.gateway.transport.http.HttpStatus.SERVER_GATEWAY_TIMEOUT;
+import static org.kaazing.gateway.transport.http.HttpStatus.SERVER_SERVICE_UNAVAILABLE;
+import static org.kaazing.gateway.transport.http.HttpStatus.SUCCESS_NO_CONTENT;
 import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_FORWARDED;
 import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_X_FORWARDED_FOR;
 import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_X_FORWARDED_HOST;
@@ -29,7 +37,12 @@ import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_X_FORWARDED_
 import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_X_FORWARDED_SERVER;
 import static java.lang.String.format;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -39,10 +52,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.core.future.CloseFuture;
 import org.apache.mina.core.future.ConnectFuture;
 import org.apache.mina.core.future.IoFutureListener;
@@ -55,13 +71,25 @@ import org.kaazing.gateway.service.ServiceContext;
 import org.kaazing.gateway.service.ServiceProperties;
 import org.kaazing.gateway.service.proxy.AbstractProxyAcceptHandler;
 import org.kaazing.gateway.service.proxy.AbstractProxyHandler;
+import org.kaazing.gateway.service.proxy.UpstreamPool;
+import org.kaazing.gateway.service.proxy.UpstreamPool.HealthCheck;
+import org.kaazing.gateway.service.proxy.UpstreamPool.Strategy;
+import org.kaazing.gateway.service.proxy.UpstreamPool.Upstream;
 import org.kaazing.gateway.transport.BridgeSession;
+import org.kaazing.gateway.service.http.proxy.HttpProxyCache.Directives;
+import org.kaazing.gateway.service.http.proxy.HttpProxyCache.Entry;
+import org.kaazing.gateway.service.http.proxy.HttpProxyCache.Fetch;
 import org.kaazing.gateway.transport.IoHandlerAdapter;
+import org.kaazing.gateway.transport.TypedAttributeKey;
 import org.kaazing.gateway.transport.http.DefaultHttpSession;
 import org.kaazing.gateway.transport.http.HttpAcceptSession;
 import org.kaazing.gateway.transport.http.HttpConnectSession;
+import org.kaazing.gateway.transport.http.HttpCookie;
+import org.kaazing.gateway.transport.http.HttpMethod;
 import org.kaazing.gateway.transport.http.HttpSession;
 import org.kaazing.gateway.transport.http.HttpStatus;
+import org.kaazing.gateway.util.Utils;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.session.IoSessionEx;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,6 +105,18 @@ class HttpProxyServiceHandler extends AbstractProxyAcceptHandler {
     private static final String FORWARDED_BY = "by";
     private static final String FORWARDED_PROTO = "proto";
     private static final String FORWARDED_HOST = "host";
+    private static final String HEADER_AGE = "Age";
+    private static final String HEADER_WARNING = "Warning";
+    private static final String WARNING_STALE = "110 - \"Response is Stale\"";
+    private static final String DEFAULT_CACHE_MAX_ENTRY_SIZE = "1m";
+    private static final String HASH_KEY_REMOTE_ADDRESS = "remote-address";
+    private static final String HASH_KEY_HEADER_PREFIX = "header:";
+    private static final String HASH_KEY_COOKIE_PREFIX = "cookie:";
+
+    private static final TypedAttributeKey<Fetch> FETCH_KEY = new TypedAttributeKey<>(HttpProxyServiceHandler.class,
+            "fetch");
+    private static final TypedAttributeKey<UpstreamRequest> UPSTREAM_REQUEST_KEY =
+            new TypedAttributeKey<>(HttpProxyServiceHandler.class, "upstreamRequest");
 
     private static final Set KNOWN_SIMPLE_PROPERTIES;
     static {
@@ -85,6 +125,13 @@ class HttpProxyServiceHandler extends AbstractProxyAcceptHandler {
         set.add("rewrite-cookie-path");
         set.add("rewrite-location");
         set.add("use-forwarded");
+        set.add("cache-size");
+        set.add("cache-max-entry-size");
+        set.add("cache-spill-size");
+        set.add("cache-spill-directory");
+        set.add("connect.hash.key");
+        set.add("health.check.path");
+        set.addAll(UpstreamPool.PROPERTY_NAMES);
         KNOWN_SIMPLE_PROPERTIES = Collections.unmodifiableSet(set);
     }
     private static final Set KNOWN_NESTED_PROPERTIES;
@@ -116,12 +163,17 @@ class HttpProxyServiceHandler extends AbstractProxyAcceptHandler {
     private Map<String, String> cookieDomainMap;
     private Map<String, String> cookiePathMap;
     private Map<String, String> locationMap;
+    private HttpProxyCache responseCache;
+    private File spillDirectory;
+    private String hashHeader;
+    private String hashCookie;
+    private String healthCheckPath;
 
     public HttpProxyServiceHandler() {
         viaHeader = String.format(VIA_HEADER_FORMATTER, UUID.randomUUID());
     }
 
-    void init() {
+    void init() throws IOException {
         ServiceContext serviceContext = getServiceContext();
         serviceName = serviceContext.getServiceName();
 
@@ -161,7 +213,9 @@ class HttpProxyServiceHandler extends AbstractProxyAcceptHandler {
             for (ServiceProperties sp : locationProperties) {
                 locationMap.put(sp.get("from"), sp.get("to"));
             }
-            locationMap.put(connectURI, acceptURI);
+            for (String uri : connectURIs) {
+                locationMap.put(uri, acceptURI);
+            }
         }
 
         useForwarded = properties.get("use-forwarded");
@@ -172,6 +226,114 @@ class HttpProxyServiceHandler extends AbstractProxyAcceptHandler {
             throw new IllegalArgumentException(serviceContext.getServiceName()
                     + " http.proxy service specifies unknown property value : " + useForwarded + " for use-forwarded");
         }
+
+        responseCache = newResponseCache(serviceContext, properties);
+
+        if (connectURIs.size() > 1) {
+            setUpstreamPool(UpstreamPool.newUpstreamPool(serviceContext, connectURIs));
+            initAffinityKey(serviceContext, properties);
+            healthCheckPath = properties.get("health.check.path");
+        }
+    }
+
+    /*
+     * The consistent-hash balancer maps requests with the same client address, or value of the configured request
+     * header or cookie, to the same upstream.
+     */
+    private void initAffinityKey(ServiceContext serviceContext, ServiceProperties properties) {
+        String hashKey = properties.get("connect.hash.key");
+        if (hashKey == null || hashKey.equals(HASH_KEY_REMOTE_ADDRESS)) {
+            return;
+        }
+        if (hashKey.startsWith(HASH_KEY_HEADER_PREFIX) && hashKey.length() > HASH_KEY_HEADER_PREFIX.length()) {
+            hashHeader = hashKey.substring(HASH_KEY_HEADER_PREFIX.length());
+        }
+        else if (hashKey.startsWith(HASH_KEY_COOKIE_PREFIX) && hashKey.length() > HASH_KEY_COOKIE_PREFIX.length()) {
+            hashCookie = hashKey.substring(HASH_KEY_COOKIE_PREFIX.length());
+        }
+        else {
+            throw new IllegalArgumentException(serviceContext.getServiceName()
+                    + " http.proxy service specifies unknown property value : " + hashKey + " for connect.hash.key");
+        }
+    }
+
+    /*
+     * The response cache is disabled unless cache-size is specified. Content evicted from memory is spilled to a
+     * directory, created under cache-spill-directory (or the gateway temp directory) and deleted with the service,
+     * when cache-spill-size is specified.
+     */
+    private HttpProxyCache newResponseCache(ServiceContext serviceContext, ServiceProperties properties)
+            throws IOException {
+        long capacity = parseDataSize(serviceContext, properties, "cache-size", "0");
+        if (capacity <= 0) {
+            return null;
+        }
+        int maxEntrySize = parseDataSize(serviceContext, properties, "cache-max-entry-size", DEFAULT_CACHE_MAX_ENTRY_SIZE);
+        long spillCapacity = parseDataSize(serviceContext, properties, "cache-spill-size", "0");
+
+        if (spillCapacity > 0) {
+            File tempDirectory = serviceContext.getTempDirectory();
+            String spillDirectoryName = properties.get("cache-spill-directory");
+            File parentDirectory = tempDirectory;
+            if (spillDirectoryName != null) {
+                parentDirectory = new File(spillDirectoryName);
+                if (!parentDirectory.isAbsolute()) {
+                    parentDirectory = new File(tempDirectory, spillDirectoryName);
+                }
+            }
+            Files.createDirectories(parentDirectory.toPath());
+            spillDirectory = Files.createTempDirectory(parentDirectory.toPath(), "http.proxy").toFile();
+        }
+
+        return new HttpProxyCache(capacity, maxEntrySize, spillDirectory, spillCapacity);
+    }
+
+    private static int parseDataSize(ServiceContext serviceContext, ServiceProperties properties, String name,
+            String defaultValue) {
+        String value = properties.get(name);
+        try {
+            return Utils.parseDataSize(value != null ? value : defaultValue);
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException(serviceContext.getServiceName()
+                    + " http.proxy service specifies invalid property value : " + value + " for " + name, e);
+        }
+    }
+
+    void destroy() throws IOException, InterruptedException {
+        if (responseCache != null) {
+            responseCache.dispose();
+        }
+        if (spillDirectory != null) {
+            Files.deleteIfExists(spillDirectory.toPath());
+        }
+    }
+
+    HttpProxyCache getResponseCache() {
+        return responseCache;
+    }
+
+    /*
+     * Health checks request health.check.path, relative to the connect URI, when specified, otherwise only connect
+     */
+    HealthCheck newHealthCheck() {
+        if (healthCheckPath == null) {
+            return UpstreamPool.newConnectHealthCheck(getServiceContext());
+        }
+        return (connectURI, result) -> {
+            ConnectFuture future = getServiceContext().connect(connectURI, new HealthCheckHandler(result),
+                    (session, connectFuture) -> {
+                        HttpConnectSession connectSession = (HttpConnectSession) session;
+                        connectSession.setMethod(HttpMethod.GET);
+                        connectSession.setRequestURI(connectSession.getRequestURI().resolve(healthCheckPath));
+                        connectSession.addWriteHeader(HEADER_VIA, viaHeader);
+                    });
+            future.addListener(f -> {
+                if (!future.isConnected()) {
+                    result.accept(false);
+                }
+            });
+        };
     }
 
     private void validateProperties(ServiceContext serviceContext) {
@@ -228,11 +390,181 @@ class HttpProxyServiceHandler extends AbstractProxyAcceptHandler {
                 return;
             }
 
-            ConnectSessionInitializer sessionInitializer = new ConnectSessionInitializer(acceptSession);
+            if (responseCache != null && serveFromCache(acceptSession, true)) {
+                return;
+            }
+
+            connect(acceptSession);
+        }
+    }
+
+    @Override
+    public void sessionClosed(IoSession session) {
+        // a response cut short by the client is not stored, and the requests waiting for it look up the cache again
+        // (if the connect session already has the fetch, completing it again when that session closes has no effect)
+        Fetch fetch = FETCH_KEY.remove(session);
+        if (fetch != null) {
+            fetch.abort();
+            responseCache.complete(fetch);
+        }
+        super.sessionClosed(session);
+    }
+
+    private void connect(DefaultHttpSession acceptSession) {
+        UpstreamPool upstreamPool = getUpstreamPool();
+        if (upstreamPool != null) {
+            new UpstreamRequest(acceptSession, upstreamPool).connect();
+        } else {
+            ConnectSessionInitializer sessionInitializer = new ConnectSessionInitializer(acceptSession, null);
             ConnectFuture future = getServiceContext().connect(connectURI, getConnectHandler(), sessionInitializer);
-            future.addListener(new ConnectListener(acceptSession));
-            super.sessionOpened(acceptSession);
+            future.addListener(new ConnectListener(acceptSession, connectURI));
+        }
+        super.sessionOpened(acceptSession);
+    }
+
+    private String getAffinityKey(HttpAcceptSession acceptSession) {
+        if (hashHeader != null) {
+            return acceptSession.getReadHeader(hashHeader);
+        }
+        if (hashCookie != null) {
+            Collection<HttpCookie> cookies = acceptSession.getReadCookies();
+            if (cookies != null) {
+                for (HttpCookie cookie : cookies) {
+                    if (hashCookie.equals(cookie.getName())) {
+                        return cookie.getValue();
+                    }
+                }
+            }
+            return null;
+        }
+        return getResourceIpAddress(acceptSession, FORWARDED_FOR);
+    }
+
+    /*
+     * Serves the request from the response cache when possible, otherwise prepares the fetch of the response from
+     * the origin server, to be stored or to revalidate a stale response. Concurrent misses for the same request URI
+     * wait for the first one to complete, then look up the cache again. Content spilled from memory is read back
+     * on the cache's spill thread, and the request is then served from the I/O thread of the accept session.
+     *
+     * Returns whether the request has been handled, either served or waiting for a fetch in progress.
+     */
+    private boolean serveFromCache(DefaultHttpSession acceptSession, boolean collapse) {
+        String key = acceptSession.getRequestURI().toString();
+        HttpMethod method = acceptSession.getMethod();
+        if (method != HttpMethod.GET && method != HttpMethod.HEAD) {
+            // unsafe methods invalidate the stored responses (RFC 7234, section 4.4)
+            if (method != HttpMethod.OPTIONS && method != HttpMethod.TRACE) {
+                responseCache.invalidate(key);
+            }
+            return false;
+        }
+
+        Map<String, List<String>> requestHeaders = acceptSession.getReadHeaders();
+        if (!HttpProxyCache.isCacheableRequest(requestHeaders)) {
+            return false;
+        }
+
+        Entry entry = responseCache.select(key, requestHeaders);
+        CompletableFuture<ByteBuffer> content = (entry != null) ? responseCache.content(entry) : null;
+        if (content != null && !content.isDone()) {
+            // spilled content is read back off the I/O thread
+            content.whenComplete((spilledContent, cause) -> acceptSession.getIoExecutor().execute(() -> {
+                if (!acceptSession.isClosing()
+                        && !serveFromCache(acceptSession, collapse, key, requestHeaders, entry, spilledContent)) {
+                    connect(acceptSession);
+                }
+            }));
+            return true;
+        }
+        return serveFromCache(acceptSession, collapse, key, requestHeaders, entry,
+                (content != null) ? content.join() : null);
+    }
+
+    private boolean serveFromCache(DefaultHttpSession acceptSession, boolean collapse, String key,
+            Map<String, List<String>> requestHeaders, Entry entry, ByteBuffer content) {
+        HttpMethod method = acceptSession.getMethod();
+        long now = System.currentTimeMillis();
+        Directives directives = Directives.ofRequest(requestHeaders);
+        if (content != null && entry.isFresh(now, directives)) {
+            responseCache.recordHit(entry.length);
+            writeCachedResponse(acceptSession, entry, content, now);
+            return true;
+        }
+
+        if (directives.onlyIfCached) {
+            acceptSession.setStatus(SERVER_GATEWAY_TIMEOUT);
+            acceptSession.close(false);
+            return true;
+        }
+
+        if (method != HttpMethod.GET) {
+            responseCache.recordMiss();
+            return false;
+        }
+
+        if (collapse) {
+            CompletableFuture<Void> fetchInProgress = responseCache.beginFetch(key);
+            if (fetchInProgress != null) {
+                fetchInProgress.thenRun(() -> acceptSession.getIoExecutor().execute(() -> {
+                    if (!acceptSession.isClosing() && !serveFromCache(acceptSession, false)) {
+                        connect(acceptSession);
+                    }
+                }));
+                return true;
+            }
+        }
+
+        // revalidate the stale response on behalf of the client, unless it has validators of its own
+        boolean revalidate = content != null && entry.hasValidators() && !HttpProxyCache.hasValidators(requestHeaders);
+        if (revalidate) {
+            responseCache.recordRevalidation();
+        }
+        else {
+            responseCache.recordMiss();
+        }
+        FETCH_KEY.set(acceptSession, responseCache.newFetch(key, requestHeaders, revalidate ? entry : null,
+                revalidate ? content : null, now, collapse));
+        return false;
+    }
+
+    private void writeCachedResponse(HttpAcceptSession acceptSession, Entry entry, ByteBuffer content, long now) {
+        boolean notModified = entry.isNotModified(acceptSession.getReadHeaders());
+        if (notModified) {
+            acceptSession.setStatus(REDIRECT_NOT_MODIFIED);
+        }
+        else {
+            acceptSession.setStatus(entry.status);
+            acceptSession.setReason(entry.reason);
+        }
+
+        for (Map.Entry<String, List<String>> header : entry.headers.entrySet()) {
+            String name = header.getKey();
+            if (notModified && !HttpProxyCache.NOT_MODIFIED_HEADERS.contains(name)) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                if (rewriteLocation && name.equalsIgnoreCase(HEADER_LOCATION)) {
+                    value = processLocationHeader(value, locationMap);
+                }
+                acceptSession.addWriteHeader(name, value);
+            }
+        }
+        acceptSession.setWriteHeader(HEADER_AGE, Long.toString(entry.currentAge(now) / 1000));
+        if (entry.isStale(now)) {
+            acceptSession.addWriteHeader(HEADER_WARNING, WARNING_STALE);
+        }
+
+        if (notModified || entry.status == SUCCESS_NO_CONTENT) {
+            acceptSession.close(false);
+            return;
+        }
+
+        acceptSession.setWriteHeader(HEADER_CONTENT_LENGTH, Integer.toString(entry.length));
+        if (acceptSession.getMethod() != HttpMethod.HEAD && content.hasRemaining()) {
+            IoBufferAllocatorEx<?> allocator = acceptSession.getBufferAllocator();
+            acceptSession.write(allocator.wrap(content));
         }
+        acceptSession.close(false);
     }
 
     private boolean validateRequestPath(DefaultHttpSession acceptSession) {
@@ -266,9 +598,11 @@ class HttpProxyServiceHandler extends AbstractProxyAcceptHandler {
      */
     private class ConnectSessionInitializer implements IoSessionInitializer<ConnectFuture> {
         private final DefaultHttpSession acceptSession;
+        private final UpstreamRequest upstreamRequest;
 
-        ConnectSessionInitializer(DefaultHttpSession acceptSession) {
+        ConnectSessionInitializer(DefaultHttpSession acceptSession, UpstreamRequest upstreamRequest) {
             this.acceptSession = acceptSession;
+            this.upstreamRequest = upstreamRequest;
         }
 
         @Override
@@ -279,6 +613,23 @@ class HttpProxyServiceHandler extends AbstractProxyAcceptHandler {
             URI connectURI = computeConnectPath(connectSession.getRequestURI());
             connectSession.setRequestURI(connectURI);
             processRequestHeaders(acceptSession, connectSession);
+
+            Fetch fetch = FETCH_KEY.get(acceptSession);
+            if (fetch != null) {
+                if (fetch.isRevalidation()) {
+                    Entry stale = fetch.stale;
+                    if (stale.etag != null) {
+                        connectSession.setWriteHeader(HEADER_IF_NONE_MATCH, stale.etag);
+                    }
+                    if (stale.lastModified != null) {
+                        connectSession.setWriteHeader(HEADER_IF_MODIFIED_SINCE, stale.lastModified);
+                    }
+                }
+                FETCH_KEY.set(connectSession, fetch);
+            }
+            if (upstreamRequest != null) {
+                UPSTREAM_REQUEST_KEY.set(connectSession, upstreamRequest);
+            }
         }
 
         private URI computeConnectPath(URI connectURI) {
@@ -292,14 +643,15 @@ class HttpProxyServiceHandler extends AbstractProxyAcceptHandler {
 
     private class ConnectListener implements IoFutureListener<ConnectFuture> {
         private final DefaultHttpSession acceptSession;
+        private final String connectURI;
 
-        ConnectListener(DefaultHttpSession acceptSession) {
+        ConnectListener(DefaultHttpSession acceptSession, String connectURI) {
             this.acceptSession = acceptSession;
+            this.connectURI = connectURI;
         }
 
         @Override
         public void operationComplete(ConnectFuture future) {
-            String connectURI = getConnectURIs().iterator().next();
             if (future.isConnected()) {
                 DefaultHttpSession connectSession = (DefaultHttpSession) future.getSession();
 
@@ -316,6 +668,11 @@ class HttpProxyServiceHandler extends AbstractProxyAcceptHandler {
                 }
             } else {
                 LOGGER.warn("Connection to " + connectURI + " failed [" + acceptSession + "->]");
+                Fetch fetch = FETCH_KEY.remove(acceptSession);
+                if (fetch != null) {
+                    fetch.abort();
+                    responseCache.complete(fetch);
+                }
                 acceptSession.setStatus(HttpStatus.SERVER_GATEWAY_TIMEOUT);
                 acceptSession.close(true);
             }
@@ -323,22 +680,156 @@ class HttpProxyServiceHandler extends AbstractProxyAcceptHandler {
 
     }
 
+    /*
+     * A request proxied to an upstream selected from the pool. Connection failures are retried on the next upstream
+     * until every upstream has been tried, and the outcome of the request is recorded against the upstream once the
+     * response status is known.
+     */
+    private class UpstreamRequest implements IoFutureListener<ConnectFuture> {
+        private final DefaultHttpSession acceptSession;
+        private final UpstreamPool upstreamPool;
+        private final String affinityKey;
+        private final List<Upstream> triedUpstreams = new ArrayList<>(2);
+        private Upstream upstream;
+        private long requestTime;
+
+        UpstreamRequest(DefaultHttpSession acceptSession, UpstreamPool upstreamPool) {
+            this.acceptSession = acceptSession;
+            this.upstreamPool = upstreamPool;
+            this.affinityKey = (upstreamPool.getStrategy() == Strategy.CONSISTENT_HASH) ? getAffinityKey(acceptSession)
+                    : null;
+        }
+
+        void connect() {
+            upstream = upstreamPool.select(affinityKey, triedUpstreams);
+            triedUpstreams.add(upstream);
+            requestTime = System.nanoTime();
+
+            ConnectSessionInitializer sessionInitializer = new ConnectSessionInitializer(acceptSession, this);
+            ConnectFuture future = getServiceContext().connect(upstream.getConnectURI(), getConnectHandler(),
+                    sessionInitializer);
+            future.addListener(this);
+        }
+
+        @Override
+        public void operationComplete(ConnectFuture future) {
+            final Upstream upstream = this.upstream;
+            if (future.isConnected()) {
+                future.getSession().getCloseFuture().addListener(closeFuture -> upstreamPool.release(upstream));
+            } else {
+                upstreamPool.release(upstream);
+                if (!acceptSession.isClosing()) {
+                    upstreamPool.failed(upstream);
+                    if (triedUpstreams.size() < upstreamPool.getUpstreams().size()) {
+                        LOGGER.info("Connection to " + upstream + " failed, trying the next upstream [" + acceptSession
+                                + "->]");
+                        connect();
+                        return;
+                    }
+                }
+            }
+            new ConnectListener(acceptSession, upstream.getConnectURI()).operationComplete(future);
+        }
+
+        // an error status from the upstream, or no response at all, counts as a failure
+        void responded(HttpStatus status) {
+            if (status == null || status == SERVER_BAD_GATEWAY || status == SERVER_SERVICE_UNAVAILABLE
+                    || status == SERVER_GATEWAY_TIMEOUT) {
+                upstreamPool.failed(upstream);
+            } else {
+                upstreamPool.succeeded(upstream, System.nanoTime() - requestTime);
+            }
+        }
+    }
+
+    /*
+     * Handler for health check requests, closed as soon as they are sent. An upstream is healthy when it responds
+     * without a server error.
+     */
+    private static final class HealthCheckHandler extends IoHandlerAdapter<HttpConnectSession> {
+        private final Consumer<Boolean> result;
+
+        HealthCheckHandler(Consumer<Boolean> result) {
+            this.result = result;
+        }
+
+        @Override
+        protected void doSessionOpened(HttpConnectSession session) throws Exception {
+            session.getResponseFuture().addListener(future -> {
+                HttpStatus status = session.getStatus();
+                result.accept(status != null && status.code() < 500);
+            });
+            session.close(false);
+        }
+
+        @Override
+        protected void doSessionClosed(HttpConnectSession session) throws Exception {
+            if (session.getStatus() == null) {
+                result.accept(false);
+            }
+        }
+    }
+
     private class ConnectHandler extends AbstractProxyHandler {
 
         @Override
         public void messageReceived(IoSession session, Object message) {
             processResponseHeaders(session);
+            Fetch fetch = FETCH_KEY.get(session);
+            if (fetch != null) {
+                if (fetch.isNotModified()) {
+                    // the stored response is served instead
+                    return;
+                }
+                if (message instanceof IoBuffer) {
+                    fetch.contentReceived(((IoBuffer) message).buf());
+                }
+            }
             super.messageReceived(session, message);
         }
 
+        @Override
+        public void exceptionCaught(IoSession session, Throwable cause) throws Exception {
+            Fetch fetch = FETCH_KEY.get(session);
+            if (fetch != null) {
+                fetch.abort();
+            }
+            super.exceptionCaught(session, cause);
+        }
+
         @Override
         public void sessionClosed(IoSession session) {
             processResponseHeaders(session);
+            Fetch fetch = FETCH_KEY.remove(session);
+            if (fetch != null) {
+                Entry revalidated = responseCache.complete(fetch);
+                AttachedSessionManager attachedSessionManager = getAttachedSessionManager(session);
+                if (revalidated != null && attachedSessionManager != null) {
+                    HttpAcceptSession acceptSession = (HttpAcceptSession) attachedSessionManager.getAttachedSession();
+                    if (!acceptSession.isClosing()) {
+                        responseCache.recordNotModified(revalidated.length);
+                        writeCachedResponse(acceptSession, revalidated, fetch.staleContent.duplicate(),
+                                System.currentTimeMillis());
+                    }
+                }
+            }
             super.sessionClosed(session);
         }
 
         private void processResponseHeaders(IoSession session) {
             HttpConnectSession connectSession = (HttpConnectSession) session;
+            UpstreamRequest upstreamRequest = UPSTREAM_REQUEST_KEY.remove(session);
+            if (upstreamRequest != null) {
+                upstreamRequest.responded(connectSession.getStatus());
+            }
+            Fetch fetch = FETCH_KEY.get(session);
+            if (fetch != null && connectSession.getStatus() != null) {
+                fetch.responseReceived(connectSession.getStatus(), connectSession.getReason(),
+                        connectSession.getReadHeaders(), System.currentTimeMillis());
+                if (fetch.isNotModified()) {
+                    return;
+                }
+            }
             AttachedSessionManager attachedSessionManager = getAttachedSessionManager(session);
             if (attachedSessionManager != null) {
                 HttpAcceptSession acceptSession = (HttpAcceptSession) attachedSessionManager.getAttachedSession();
@@ -426,14 +917,14 @@ class HttpProxyServiceHandler extends AbstractProxyAcceptHandler {
             return cookie;
         }
 
-        private String processLocationHeader(String location, Map<String, String> locationMap) {
-            return locationMap.entrySet().stream()
-                    .filter(e -> location.startsWith(e.getKey()))
-                    .findFirst()
-                    .map(e -> location.replaceFirst(Pattern.quote(e.getKey()), e.getValue()))
-                    .orElse(location);
-        }
+    }
 
+    private static String processLocationHeader(String location, Map<String, String> locationMap) {
+        return locationMap.entrySet().stream()
+                .filter(e -> location.startsWith(e.getKey()))
+                .findFirst()
+                .map(e -> location.replaceFirst(Pattern.quote(e.getKey()), e.getValue()))
+                .orElse(location);
     }
 
     /*
@@ -0,0 +1,375 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.proxy;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.gateway.transport.http.HttpStatus.REDIRECT_FOUND;
+import static org.kaazing.gateway.transport.http.HttpStatus.REDIRECT_NOT_MODIFIED;
+import static org.kaazing.gateway.transport.http.HttpStatus.SUCCESS_OK;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kaazing.gateway.service.http.proxy.HttpProxyCache.Directives;
+import org.kaazing.gateway.service.http.proxy.HttpProxyCache.Entry;
+import org.kaazing.gateway.service.http.proxy.HttpProxyCache.Fetch;
+
+public class HttpProxyCacheTest {
+
+    private static final long NOW = 1_500_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldServeFreshResponseUntilMaxAge() throws Exception {
+        HttpProxyCache cache = new HttpProxyCache(1024, 1024, null, 0);
+        store(cache, "/a", headers(), headers("Cache-Control", "max-age=60"), "hello");
+
+        Entry entry = cache.select("/a", headers());
+        assertNotNull(entry);
+        assertEquals("hello", UTF_8.decode(cache.content(entry).join()).toString());
+        assertTrue(entry.isFresh(NOW + 59_000, Directives.ofRequest(headers())));
+        assertFalse(entry.isFresh(NOW + 60_000, Directives.ofRequest(headers())));
+    }
+
+    @Test
+    public void shouldHonorRequestDirectives() throws Exception {
+        HttpProxyCache cache = new HttpProxyCache(1024, 1024, null, 0);
+        store(cache, "/a", headers(), headers("Cache-Control", "max-age=60"), "hello");
+        Entry entry = cache.select("/a", headers());
+
+        assertFalse(entry.isFresh(NOW, Directives.ofRequest(headers("Cache-Control", "no-cache"))));
+        assertFalse(entry.isFresh(NOW, Directives.ofRequest(headers("Pragma", "no-cache"))));
+        assertFalse(entry.isFresh(NOW + 10_000, Directives.ofRequest(headers("Cache-Control", "max-age=10"))));
+        assertFalse(entry.isFresh(NOW + 30_000, Directives.ofRequest(headers("Cache-Control", "min-fresh=40"))));
+        assertTrue(entry.isFresh(NOW + 70_000, Directives.ofRequest(headers("Cache-Control", "max-stale=20"))));
+        assertTrue(entry.isFresh(NOW + 700_000, Directives.ofRequest(headers("Cache-Control", "max-stale"))));
+        assertTrue(Directives.ofRequest(headers("Cache-Control", "only-if-cached")).onlyIfCached);
+    }
+
+    @Test
+    public void shouldNotServeStaleResponseThatMustBeRevalidated() throws Exception {
+        HttpProxyCache cache = new HttpProxyCache(1024, 1024, null, 0);
+        store(cache, "/a", headers(), headers("Cache-Control", "max-age=60, must-revalidate"), "hello");
+        Entry entry = cache.select("/a", headers());
+
+        assertFalse(entry.isFresh(NOW + 70_000, Directives.ofRequest(headers("Cache-Control", "max-stale"))));
+    }
+
+    @Test
+    public void shouldNotStoreUncacheableResponses() throws Exception {
+        assertFalse(HttpProxyCache.isStorable(headers(), SUCCESS_OK, headers("Cache-Control", "no-store")));
+        assertFalse(HttpProxyCache.isStorable(headers(), SUCCESS_OK, headers("Cache-Control", "private, max-age=60")));
+        assertFalse(HttpProxyCache.isStorable(headers("Cache-Control", "no-store"), SUCCESS_OK,
+                headers("Cache-Control", "max-age=60")));
+        assertFalse(HttpProxyCache.isStorable(headers(), SUCCESS_OK,
+                headers("Cache-Control", "max-age=60", "Set-Cookie", "a=b")));
+        assertFalse(HttpProxyCache.isStorable(headers(), SUCCESS_OK, headers("Cache-Control", "max-age=60", "Vary", "*")));
+        assertFalse(HttpProxyCache.isStorable(headers(), REDIRECT_FOUND, headers("Cache-Control", "max-age=60")));
+        assertFalse(HttpProxyCache.isStorable(headers("Authorization", "Basic YTpi"), SUCCESS_OK,
+                headers("Cache-Control", "max-age=60")));
+        assertTrue(HttpProxyCache.isStorable(headers("Authorization", "Basic YTpi"), SUCCESS_OK,
+                headers("Cache-Control", "public, max-age=60")));
+
+        assertFalse(HttpProxyCache.isCacheableRequest(headers("Range", "bytes=0-10")));
+        assertFalse(HttpProxyCache.isCacheableRequest(headers("If-Match", "\"a\"")));
+    }
+
+    @Test
+    public void shouldNotStoreResponseWithoutFreshnessOrValidators() throws Exception {
+        HttpProxyCache cache = new HttpProxyCache(1024, 1024, null, 0);
+        store(cache, "/a", headers(), headers(), "hello");
+
+        assertNull(cache.select("/a", headers()));
+    }
+
+    @Test
+    public void shouldNotStoreTruncatedResponse() throws Exception {
+        HttpProxyCache cache = new HttpProxyCache(1024, 1024, null, 0);
+        store(cache, "/a", headers(), headers("Cache-Control", "max-age=60", "Content-Length", "10"), "hello");
+
+        assertNull(cache.select("/a", headers()));
+    }
+
+    @Test
+    public void shouldNotStoreAbortedResponse() throws Exception {
+        HttpProxyCache cache = new HttpProxyCache(1024, 1024, null, 0);
+        Fetch fetch = cache.newFetch("/a", headers(), null, null, NOW, false);
+        fetch.responseReceived(SUCCESS_OK, "OK", headers("Cache-Control", "max-age=60"), NOW);
+        fetch.contentReceived(UTF_8.encode("hello"));
+        fetch.abort();
+        cache.complete(fetch);
+
+        assertNull(cache.select("/a", headers()));
+    }
+
+    @Test
+    public void shouldSelectVariantByVaryHeaders() throws Exception {
+        HttpProxyCache cache = new HttpProxyCache(1024, 1024, null, 0);
+        store(cache, "/a", headers("Accept-Language", "en"), headers("Cache-Control", "max-age=60", "Vary", "Accept-Language"),
+                "hello");
+        store(cache, "/a", headers("Accept-Language", "fr"), headers("Cache-Control", "max-age=60", "Vary", "Accept-Language"),
+                "bonjour");
+
+        assertEquals("hello",
+                UTF_8.decode(cache.content(cache.select("/a", headers("accept-language", "en"))).join()).toString());
+        assertEquals("bonjour",
+                UTF_8.decode(cache.content(cache.select("/a", headers("Accept-Language", "fr"))).join()).toString());
+        assertNull(cache.select("/a", headers("Accept-Language", "de")));
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    @Test
+    public void shouldInvalidateAllVariants() throws Exception {
+        HttpProxyCache cache = new HttpProxyCache(1024, 1024, null, 0);
+        store(cache, "/a", headers("Accept-Language", "en"), headers("Cache-Control", "max-age=60", "Vary", "Accept-Language"),
+                "hello");
+        store(cache, "/a", headers("Accept-Language", "fr"), headers("Cache-Control", "max-age=60", "Vary", "Accept-Language"),
+                "bonjour");
+        cache.invalidate("/a");
+
+        assertNull(cache.select("/a", headers("Accept-Language", "en")));
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedWithoutSpillDirectory() throws Exception {
+        HttpProxyCache cache = new HttpProxyCache(10, 10, null, 0);
+        store(cache, "/a", headers(), headers("Cache-Control", "max-age=60"), "aaaaa");
+        store(cache, "/b", headers(), headers("Cache-Control", "max-age=60"), "bbbbb");
+        cache.content(cache.select("/a", headers())).join();
+        store(cache, "/c", headers(), headers("Cache-Control", "max-age=60"), "ccccc");
+
+        assertNotNull(cache.select("/a", headers()));
+        assertNull(cache.select("/b", headers()));
+        assertNotNull(cache.select("/c", headers()));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void shouldSpillAndReadBackEvictedContent() throws Exception {
+        File spillDirectory = folder.newFolder();
+        HttpProxyCache cache = new HttpProxyCache(10, 10, spillDirectory, 100, Runnable::run);
+        store(cache, "/a", headers(), headers("Cache-Control", "max-age=60"), "aaaaa");
+        store(cache, "/b", headers(), headers("Cache-Control", "max-age=60"), "bbbbb");
+        store(cache, "/c", headers(), headers("Cache-Control", "max-age=60"), "ccccc");
+
+        assertEquals(1, cache.getSpilledEntryCount());
+        assertEquals(1, spillDirectory.list().length);
+
+        ByteBuffer content = cache.content(cache.select("/a", headers())).join();
+        assertEquals("aaaaa", UTF_8.decode(content).toString());
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(0, cache.getEvictionCount());
+
+        cache.invalidateAll();
+        assertEquals(0, spillDirectory.list().length);
+    }
+
+    @Test
+    public void shouldSpillAndReadBackOnSpillExecutor() throws Exception {
+        File spillDirectory = folder.newFolder();
+        List<Runnable> spillTasks = new ArrayList<>();
+        HttpProxyCache cache = new HttpProxyCache(10, 10, spillDirectory, 100, spillTasks::add);
+        store(cache, "/a", headers(), headers("Cache-Control", "max-age=60"), "aaaaa");
+        store(cache, "/b", headers(), headers("Cache-Control", "max-age=60"), "bbbbb");
+        store(cache, "/c", headers(), headers("Cache-Control", "max-age=60"), "ccccc");
+
+        // nothing written by the storing thread
+        assertEquals(1, spillTasks.size());
+        assertEquals(0, spillDirectory.list().length);
+        runAll(spillTasks);
+        assertEquals(1, cache.getSpilledEntryCount());
+        assertEquals(1, spillDirectory.list().length);
+
+        // nor read back by the serving thread
+        CompletableFuture<ByteBuffer> content = cache.content(cache.select("/a", headers()));
+        assertFalse(content.isDone());
+        runAll(spillTasks);
+        assertEquals("aaaaa", UTF_8.decode(content.get()).toString());
+
+        // reading /a back evicted /b from memory, spilled in turn while the spill file of /a was deleted
+        assertTrue(spillTasks.isEmpty());
+        assertEquals(1, cache.getSpilledEntryCount());
+        assertEquals(1, spillDirectory.list().length);
+        assertTrue(cache.content(cache.select("/a", headers())).isDone());
+    }
+
+    @Test
+    public void shouldServeEntryFromMemoryUntilSpilled() throws Exception {
+        File spillDirectory = folder.newFolder();
+        List<Runnable> spillTasks = new ArrayList<>();
+        HttpProxyCache cache = new HttpProxyCache(10, 10, spillDirectory, 100, spillTasks::add);
+        store(cache, "/a", headers(), headers("Cache-Control", "max-age=60"), "aaaaa");
+        store(cache, "/b", headers(), headers("Cache-Control", "max-age=60"), "bbbbb");
+        store(cache, "/c", headers(), headers("Cache-Control", "max-age=60"), "ccccc");
+
+        // evicted from memory, but its spill file is not written yet
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(0, cache.getSpilledEntryCount());
+        CompletableFuture<ByteBuffer> content = cache.content(cache.select("/a", headers()));
+        assertTrue(content.isDone());
+        assertEquals("aaaaa", UTF_8.decode(content.get()).toString());
+
+        runAll(spillTasks);
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(1, cache.getSpilledEntryCount());
+    }
+
+    @Test
+    public void shouldNotSpillEntryInvalidatedWhileSpilling() throws Exception {
+        File spillDirectory = folder.newFolder();
+        List<Runnable> spillTasks = new ArrayList<>();
+        HttpProxyCache cache = new HttpProxyCache(10, 10, spillDirectory, 100, spillTasks::add);
+        store(cache, "/a", headers(), headers("Cache-Control", "max-age=60"), "aaaaa");
+        store(cache, "/b", headers(), headers("Cache-Control", "max-age=60"), "bbbbb");
+        store(cache, "/c", headers(), headers("Cache-Control", "max-age=60"), "ccccc");
+
+        cache.invalidate("/a");
+        assertEquals(2, cache.getEntryCount());
+
+        runAll(spillTasks);
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(0, cache.getSpilledEntryCount());
+        assertEquals(0, spillDirectory.list().length);
+    }
+
+    @Test
+    public void shouldDeleteSpillFilesWhenDisposed() throws Exception {
+        File spillDirectory = folder.newFolder();
+        HttpProxyCache cache = new HttpProxyCache(10, 10, spillDirectory, 100);
+        store(cache, "/a", headers(), headers("Cache-Control", "max-age=60"), "aaaaa");
+        store(cache, "/b", headers(), headers("Cache-Control", "max-age=60"), "bbbbb");
+        store(cache, "/c", headers(), headers("Cache-Control", "max-age=60"), "ccccc");
+
+        cache.dispose();
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, spillDirectory.list().length);
+    }
+
+    @Test
+    public void shouldFreshenStoredResponseWhenNotModified() throws Exception {
+        HttpProxyCache cache = new HttpProxyCache(1024, 1024, null, 0);
+        store(cache, "/a", headers(), headers("Cache-Control", "max-age=60", "ETag", "\"v1\"", "X-Test", "a"), "hello");
+        Entry stale = cache.select("/a", headers());
+        long later = NOW + 120_000;
+        assertFalse(stale.isFresh(later, Directives.ofRequest(headers())));
+
+        ByteBuffer content = cache.content(stale).join();
+        Fetch fetch = cache.newFetch("/a", headers(), stale, content, later, false);
+        fetch.responseReceived(REDIRECT_NOT_MODIFIED, "Not Modified",
+                headers("Cache-Control", "max-age=60", "ETag", "\"v1\"", "X-Test", "b"), later);
+        assertTrue(fetch.isNotModified());
+
+        Entry fresh = cache.complete(fetch);
+        assertNotNull(fresh);
+        assertSame(fresh, cache.select("/a", headers()));
+        assertTrue(fresh.isFresh(later, Directives.ofRequest(headers())));
+        assertEquals("b", fresh.headers.get("x-test").get(0));
+        assertEquals("hello", UTF_8.decode(cache.content(fresh).join()).toString());
+        assertNull(cache.complete(fetch));
+    }
+
+    @Test
+    public void shouldMatchClientValidators() throws Exception {
+        HttpProxyCache cache = new HttpProxyCache(1024, 1024, null, 0);
+        store(cache, "/a", headers(), headers("Cache-Control", "max-age=60", "ETag", "W/\"v1\"",
+                "Last-Modified", "Fri, 14 Jul 2017 02:40:00 GMT"), "hello");
+        Entry entry = cache.select("/a", headers());
+
+        assertTrue(entry.isNotModified(headers("If-None-Match", "\"v0\", \"v1\"")));
+        assertFalse(entry.isNotModified(headers("If-None-Match", "\"v2\"")));
+        assertTrue(entry.isNotModified(headers("If-Modified-Since", "Fri, 14 Jul 2017 02:40:00 GMT")));
+        assertFalse(entry.isNotModified(headers("If-Modified-Since", "Thu, 13 Jul 2017 02:40:00 GMT")));
+    }
+
+    @Test
+    public void shouldComputeAgeAndHeuristicFreshness() throws Exception {
+        HttpProxyCache cache = new HttpProxyCache(1024, 1024, null, 0);
+        String date = httpDate(NOW);
+        String lastModified = httpDate(NOW - 100_000_000);
+        store(cache, "/a", headers(), headers("Date", date, "Age", "30", "Last-Modified", lastModified), "hello");
+        Entry entry = cache.select("/a", headers());
+
+        assertEquals(30_000, entry.currentAge(NOW));
+        assertEquals(40_000, entry.currentAge(NOW + 10_000));
+        assertEquals(10_000_000, entry.freshnessLifetime);
+    }
+
+    @Test
+    public void shouldCollapseConcurrentFetches() throws Exception {
+        HttpProxyCache cache = new HttpProxyCache(1024, 1024, null, 0);
+        assertNull(cache.beginFetch("/a"));
+        CompletableFuture<Void> fetchInProgress = cache.beginFetch("/a");
+        assertNotNull(fetchInProgress);
+        assertFalse(fetchInProgress.isDone());
+
+        Fetch fetch = cache.newFetch("/a", headers(), null, null, NOW, true);
+        fetch.responseReceived(SUCCESS_OK, "OK", headers("Cache-Control", "max-age=60"), NOW);
+        fetch.contentReceived(UTF_8.encode("hello"));
+        cache.complete(fetch);
+
+        assertTrue(fetchInProgress.isDone());
+        assertNotNull(cache.select("/a", headers()));
+        assertNull(cache.beginFetch("/a"));
+    }
+
+    private static void store(HttpProxyCache cache, String key, Map<String, List<String>> requestHeaders,
+            Map<String, List<String>> responseHeaders, String content) {
+        Fetch fetch = cache.newFetch(key, requestHeaders, null, null, NOW, false);
+        fetch.responseReceived(SUCCESS_OK, "OK", responseHeaders, NOW);
+        fetch.contentReceived(UTF_8.encode(content));
+        cache.complete(fetch);
+    }
+
+    private static Map<String, List<String>> headers(String... namesAndValues) {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            headers.computeIfAbsent(namesAndValues[i], name -> new ArrayList<>()).add(namesAndValues[i + 1]);
+        }
+        return headers;
+    }
+
+    private static String httpDate(long time) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(time).atZone(ZoneOffset.UTC));
+    }
+
+    private static void runAll(List<Runnable> tasks) {
+        List<Runnable> pending = new ArrayList<>(tasks);
+        tasks.clear();
+        for (Runnable task : pending) {
+            task.run();
+        }
+    }
+}
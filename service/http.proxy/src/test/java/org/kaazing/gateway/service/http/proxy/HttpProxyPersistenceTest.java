@@ -18,6 +18,7 @@ package org.kaazing.gateway.service.http.proxy;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.EOFException;
 import java.io.IOException;
@@ -97,6 +98,55 @@ public class HttpProxyPersistenceTest {
         }
     }
 
+    @Test
+    public void minPersistentIdleConnections() throws Exception {
+        Gateway gateway = new Gateway();
+        // @formatter:off
+        GatewayConfiguration configuration =
+                new GatewayConfigurationBuilder()
+                    .property(EarlyAccessFeatures.HTTP_PROXY_SERVICE.getPropertyName(), "true")
+                    .service()
+                        .accept("http://localhost:8110")
+                        .connect("http://localhost:8080")
+                        .type("http.proxy")
+                        .connectOption("http.keepalive.timeout", String.valueOf(KEEP_ALIVE_TIMEOUT))
+                        .connectOption("http.keepalive.connections", String.valueOf(KEEP_ALIVE_CONNECTIONS))
+                        .connectOption("http.keepalive.min.connections", String.valueOf(KEEP_ALIVE_CONNECTIONS))
+                    .done()
+                    .property(TCP_PROCESSOR_COUNT.getPropertyName(), "1")
+                .done();
+        // @formatter:on
+
+        ServerHandler handler = new ServerHandler(0);
+        OriginServer originServer = new OriginServer(8080, handler);
+
+        try {
+            originServer.start();
+            gateway.start(configuration);
+
+            // first request finds no cached connection, so the pool is filled up in the background
+            new HttpClient().run();
+            long deadline = System.currentTimeMillis() + SECONDS.toMillis(5);
+            while (handler.getConnections() < 1 + KEEP_ALIVE_CONNECTIONS) {
+                assertTrue("idle connections not opened", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+
+            // subsequent requests reuse the warm connections
+            for (int i = 0; i < 4; i++) {
+                new HttpClient().run();
+            }
+            assertEquals(1 + KEEP_ALIVE_CONNECTIONS, handler.getConnections());
+
+            // idle connections at the minimum are kept rather than evicted and replaced
+            Thread.sleep(SECONDS.toMillis(KEEP_ALIVE_TIMEOUT + 1));
+            assertEquals(1 + KEEP_ALIVE_CONNECTIONS, handler.getConnections());
+        } finally {
+            gateway.stop();
+            originServer.stop();
+        }
+    }
+
     private static class HttpClient implements Runnable {
         static final byte[] HTTP_REQUEST =
                 ("GET / HTTP/1.1\r\n" +
@@ -139,7 +189,16 @@ public class HttpProxyPersistenceTest {
                 "0\r\n" +
                 "\r\n").getBytes(UTF_8);
 
-        private int connections;
+        private final long responseDelay;
+        private volatile int connections;
+
+        ServerHandler() {
+            this(2000);
+        }
+
+        ServerHandler(long responseDelay) {
+            this.responseDelay = responseDelay;
+        }
 
         @Override
         public void handle(Socket serverSocket) throws IOException {
@@ -151,7 +210,7 @@ public class HttpProxyPersistenceTest {
 
                     // read and write HTTP request and response headers
                     while(OriginServer.parseHttpHeaders(in)) {
-                        Thread.sleep(2000);
+                        Thread.sleep(responseDelay);
                         out.write(HTTP_RESPONSE);
                         out.flush();
                     }
@@ -0,0 +1,279 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.proxy;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.SocketFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.kaazing.gateway.server.test.Gateway;
+import org.kaazing.gateway.server.test.config.GatewayConfiguration;
+import org.kaazing.gateway.server.test.config.builder.GatewayConfigurationBuilder;
+import org.kaazing.gateway.util.feature.EarlyAccessFeatures;
+import org.kaazing.test.util.ITUtil;
+
+public class HttpProxyResponseCacheTest {
+
+    private static final String CONTENT = "<html>Hellooo</html>";
+
+    @Rule
+    public TestRule timeout = ITUtil.createRuleChain(15, SECONDS);
+
+    @Test
+    public void shouldServeRepeatedRequestFromCache() throws Exception {
+        CachingOriginHandler handler = new CachingOriginHandler("max-age=60", 0);
+        withGateway("1m", handler, () -> {
+            Response first = get("/");
+            Response second = get("/");
+
+            assertEquals(200, first.status);
+            assertEquals(CONTENT, first.content);
+            assertEquals(200, second.status);
+            assertEquals(CONTENT, second.content);
+            assertNotNull(second.headers.get("Age"));
+            assertEquals(1, handler.requests.get());
+        });
+    }
+
+    @Test
+    public void shouldRevalidateStaleResponse() throws Exception {
+        CachingOriginHandler handler = new CachingOriginHandler("max-age=0", 0);
+        withGateway("1m", handler, () -> {
+            Response first = get("/");
+            Response second = get("/");
+
+            assertEquals(CONTENT, first.content);
+            assertEquals(200, second.status);
+            assertEquals(CONTENT, second.content);
+            assertEquals(2, handler.requests.get());
+            assertEquals(1, handler.notModified.get());
+        });
+    }
+
+    @Test
+    public void shouldCollapseConcurrentMisses() throws Exception {
+        CachingOriginHandler handler = new CachingOriginHandler("max-age=60", 1000);
+        withGateway("1m", handler, () -> {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<Response>> responses = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    responses.add(executor.submit(() -> get("/")));
+                }
+                for (Future<Response> response : responses) {
+                    assertEquals(CONTENT, response.get().content);
+                }
+            }
+            finally {
+                executor.shutdownNow();
+            }
+            assertEquals(1, handler.requests.get());
+        });
+    }
+
+    @Test
+    public void shouldNotCacheWhenDisabled() throws Exception {
+        CachingOriginHandler handler = new CachingOriginHandler("max-age=60", 0);
+        withGateway("0", handler, () -> {
+            get("/");
+            get("/");
+
+            assertEquals(2, handler.requests.get());
+        });
+    }
+
+    @Test
+    public void shouldNotHangRequestsAfterClientClosedBeforeConnect() throws Exception {
+        // the origin server is not running, so the connect fails, usually after the client has gone
+        withGateway("1m", null, () -> {
+            for (int i = 0; i < 10; i++) {
+                try (Socket socket = SocketFactory.getDefault().createSocket("localhost", 8110);
+                     OutputStream out = socket.getOutputStream()) {
+                    out.write(("GET / HTTP/1.1\r\n" +
+                            "Host: localhost:8110\r\n" +
+                            "\r\n").getBytes(UTF_8));
+                }
+            }
+
+            // not waiting for a fetch abandoned by a client that closed
+            try (Socket socket = SocketFactory.getDefault().createSocket("localhost", 8110);
+                 InputStream in = socket.getInputStream();
+                 OutputStream out = socket.getOutputStream()) {
+                out.write(("GET / HTTP/1.1\r\n" +
+                        "Host: localhost:8110\r\n" +
+                        "\r\n").getBytes(UTF_8));
+                assertTrue(readLine(in).startsWith("HTTP/1.1 504 "));
+            }
+        });
+    }
+
+    private static void withGateway(String cacheSize, CachingOriginHandler handler, ProxyTest test) throws Exception {
+        Gateway gateway = new Gateway();
+        // @formatter:off
+        GatewayConfiguration configuration =
+                new GatewayConfigurationBuilder()
+                    .property(EarlyAccessFeatures.HTTP_PROXY_SERVICE.getPropertyName(), "true")
+                    .service()
+                        .accept("http://localhost:8110/")
+                        .connect("http://localhost:8080/")
+                        .type("http.proxy")
+                        .property("cache-size", cacheSize)
+                    .done()
+                .done();
+        // @formatter:on
+
+        OriginServer originServer = (handler != null) ? new OriginServer(8080, handler) : null;
+        try {
+            if (originServer != null) {
+                originServer.start();
+            }
+            gateway.start(configuration);
+            test.run();
+        } finally {
+            gateway.stop();
+            if (originServer != null) {
+                originServer.stop();
+            }
+        }
+    }
+
+    private static Response get(String path) throws IOException {
+        try (Socket socket = SocketFactory.getDefault().createSocket("localhost", 8110);
+             InputStream in = socket.getInputStream();
+             OutputStream out = socket.getOutputStream()) {
+
+            out.write(("GET " + path + " HTTP/1.1\r\n" +
+                    "Host: localhost:8110\r\n" +
+                    "\r\n").getBytes(UTF_8));
+            Response response = new Response();
+            String statusLine = readLine(in);
+            response.status = Integer.parseInt(statusLine.split(" ")[1]);
+            readHeaders(in, response.headers);
+            int contentLength = Integer.parseInt(response.headers.get("Content-Length"));
+            byte[] content = new byte[contentLength];
+            HttpProxyPersistenceTest.readFully(in, content);
+            response.content = new String(content, UTF_8);
+            return response;
+        }
+    }
+
+    static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            if (b == -1) {
+                throw new IOException("Unexpected end of stream");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return new String(line.toByteArray(), UTF_8);
+    }
+
+    static void readHeaders(InputStream in, Map<String, String> headers) throws IOException {
+        for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+            int colon = line.indexOf(':');
+            headers.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+        }
+    }
+
+    private interface ProxyTest {
+        void run() throws Exception;
+    }
+
+    private static class Response {
+        int status;
+        final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        String content;
+    }
+
+    /*
+     * Responds with an ETag and the given Cache-Control, or 304 when the request matches the ETag.
+     */
+    private static class CachingOriginHandler implements OriginServer.Handler {
+        private static final String ETAG = "\"v1\"";
+
+        private final String cacheControl;
+        private final long delay;
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger notModified = new AtomicInteger();
+
+        CachingOriginHandler(String cacheControl, long delay) {
+            this.cacheControl = cacheControl;
+            this.delay = delay;
+        }
+
+        @Override
+        public void handle(Socket serverSocket) throws IOException {
+            new Thread(() -> {
+                try (Socket socket = serverSocket;
+                     InputStream in = socket.getInputStream();
+                     OutputStream out = socket.getOutputStream()) {
+
+                    while (true) {
+                        String requestLine = readLine(in);
+                        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                        readHeaders(in, headers);
+                        assertTrue(requestLine.startsWith("GET "));
+                        requests.incrementAndGet();
+                        Thread.sleep(delay);
+
+                        if (ETAG.equals(headers.get("If-None-Match"))) {
+                            notModified.incrementAndGet();
+                            out.write(("HTTP/1.1 304 Not Modified\r\n" +
+                                    "ETag: " + ETAG + "\r\n" +
+                                    "Cache-Control: " + cacheControl + "\r\n" +
+                                    "\r\n").getBytes(UTF_8));
+                        } else {
+                            out.write(("HTTP/1.1 200 OK\r\n" +
+                                    "Content-Type: text/html;charset=UTF-8\r\n" +
+                                    "Content-Length: " + CONTENT.length() + "\r\n" +
+                                    "ETag: " + ETAG + "\r\n" +
+                                    "Cache-Control: " + cacheControl + "\r\n" +
+                                    "\r\n" +
+                                    CONTENT).getBytes(UTF_8));
+                        }
+                        out.flush();
+                    }
+                } catch (IOException | InterruptedException e) {
+                    // connection closed
+                }
+            }).start();
+        }
+    }
+
+}
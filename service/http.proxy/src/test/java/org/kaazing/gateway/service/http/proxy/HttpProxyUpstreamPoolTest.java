@@ -0,0 +1,212 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.http.proxy;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.kaazing.gateway.service.http.proxy.HttpProxyResponseCacheTest.readHeaders;
+import static org.kaazing.gateway.service.http.proxy.HttpProxyResponseCacheTest.readLine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.SocketFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.kaazing.gateway.server.test.Gateway;
+import org.kaazing.gateway.server.test.config.GatewayConfiguration;
+import org.kaazing.gateway.server.test.config.builder.AbstractGatewayConfigurationBuilder;
+import org.kaazing.gateway.server.test.config.builder.AbstractServiceConfigurationBuilder;
+import org.kaazing.gateway.server.test.config.builder.GatewayConfigurationBuilder;
+import org.kaazing.gateway.util.feature.EarlyAccessFeatures;
+import org.kaazing.test.util.ITUtil;
+
+public class HttpProxyUpstreamPoolTest {
+
+    @Rule
+    public TestRule timeout = ITUtil.createRuleChain(15, SECONDS);
+
+    @Test
+    public void shouldSpreadRequestsOverUpstreams() throws Exception {
+        UpstreamHandler first = new UpstreamHandler("first", 200);
+        UpstreamHandler second = new UpstreamHandler("second", 200);
+        withGateway(first, second, emptyMap(), () -> {
+            for (int i = 0; i < 4; i++) {
+                assertEquals(200, get("/", null));
+            }
+            assertEquals(2, first.requests.get());
+            assertEquals(2, second.requests.get());
+        });
+    }
+
+    @Test
+    public void shouldFailOverToAvailableUpstream() throws Exception {
+        UpstreamHandler first = new UpstreamHandler("first", 200);
+        withGateway(first, null, emptyMap(), () -> {
+            for (int i = 0; i < 4; i++) {
+                assertEquals(200, get("/", null));
+            }
+            assertEquals(4, first.requests.get());
+        });
+    }
+
+    @Test
+    public void shouldSelectSameUpstreamForSameHashKey() throws Exception {
+        UpstreamHandler first = new UpstreamHandler("first", 200);
+        UpstreamHandler second = new UpstreamHandler("second", 200);
+        Map<String, String> properties = new HashMap<>();
+        properties.put("connect.balancer", "consistent-hash");
+        properties.put("connect.hash.key", "header:X-User");
+        withGateway(first, second, properties, () -> {
+            for (int i = 0; i < 4; i++) {
+                assertEquals(200, get("/", "alice"));
+            }
+            assertEquals(4, first.requests.get() + second.requests.get());
+            assertEquals(4, Math.max(first.requests.get(), second.requests.get()));
+        });
+    }
+
+    @Test
+    public void shouldNotSelectUnhealthyUpstream() throws Exception {
+        UpstreamHandler first = new UpstreamHandler("first", 200);
+        UpstreamHandler second = new UpstreamHandler("second", 503);
+        Map<String, String> properties = new HashMap<>();
+        properties.put("health.check.interval", "100ms");
+        properties.put("health.check.path", "health");
+        withGateway(first, second, properties, () -> {
+            // the first health checks have completed once the next ones start
+            while (second.healthChecks.get() < 2 || first.healthChecks.get() < 2) {
+                Thread.sleep(50);
+            }
+            for (int i = 0; i < 4; i++) {
+                assertEquals(200, get("/", null));
+            }
+            assertEquals(4, first.requests.get());
+            assertEquals(0, second.requests.get());
+        });
+    }
+
+    private static void withGateway(UpstreamHandler first, UpstreamHandler second, Map<String, String> properties,
+            ProxyTest test) throws Exception {
+        Gateway gateway = new Gateway();
+        // @formatter:off
+        AbstractServiceConfigurationBuilder<? extends AbstractGatewayConfigurationBuilder<GatewayConfiguration>> service =
+                new GatewayConfigurationBuilder()
+                    .property(EarlyAccessFeatures.HTTP_PROXY_SERVICE.getPropertyName(), "true")
+                    .service()
+                        .accept("http://localhost:8110/")
+                        .connect("http://localhost:8080/")
+                        .connect("http://localhost:8081/")
+                        .type("http.proxy");
+        // @formatter:on
+        properties.forEach(service::property);
+        GatewayConfiguration configuration = service.done().done();
+
+        OriginServer firstServer = new OriginServer(8080, first);
+        OriginServer secondServer = (second != null) ? new OriginServer(8081, second) : null;
+        try {
+            firstServer.start();
+            if (secondServer != null) {
+                secondServer.start();
+            }
+            gateway.start(configuration);
+            test.run();
+        } finally {
+            gateway.stop();
+            firstServer.stop();
+            if (secondServer != null) {
+                secondServer.stop();
+            }
+        }
+    }
+
+    private static int get(String path, String user) throws IOException {
+        try (Socket socket = SocketFactory.getDefault().createSocket("localhost", 8110);
+             InputStream in = socket.getInputStream();
+             OutputStream out = socket.getOutputStream()) {
+
+            out.write(("GET " + path + " HTTP/1.1\r\n" +
+                    "Host: localhost:8110\r\n" +
+                    (user != null ? "X-User: " + user + "\r\n" : "") +
+                    "\r\n").getBytes(UTF_8));
+            String statusLine = readLine(in);
+            Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            readHeaders(in, headers);
+            byte[] content = new byte[Integer.parseInt(headers.get("Content-Length"))];
+            HttpProxyPersistenceTest.readFully(in, content);
+            return Integer.parseInt(statusLine.split(" ")[1]);
+        }
+    }
+
+    private interface ProxyTest {
+        void run() throws Exception;
+    }
+
+    /*
+     * Responds to one request per connection with its name, or with the given status to health checks.
+     */
+    private static class UpstreamHandler implements OriginServer.Handler {
+        private final String name;
+        private final int healthStatus;
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger healthChecks = new AtomicInteger();
+
+        UpstreamHandler(String name, int healthStatus) {
+            this.name = name;
+            this.healthStatus = healthStatus;
+        }
+
+        @Override
+        public void handle(Socket serverSocket) throws IOException {
+            new Thread(() -> {
+                try (Socket socket = serverSocket;
+                     InputStream in = socket.getInputStream();
+                     OutputStream out = socket.getOutputStream()) {
+
+                    String requestLine = readLine(in);
+                    readHeaders(in, new TreeMap<>(String.CASE_INSENSITIVE_ORDER));
+                    int status = 200;
+                    if (requestLine.startsWith("GET /health ")) {
+                        healthChecks.incrementAndGet();
+                        status = healthStatus;
+                    } else {
+                        requests.incrementAndGet();
+                    }
+                    out.write(("HTTP/1.1 " + status + " Status\r\n" +
+                            "Content-Type: text/plain\r\n" +
+                            "Content-Length: " + name.length() + "\r\n" +
+                            "Connection: close\r\n" +
+                            "\r\n" +
+                            name).getBytes(UTF_8));
+                    out.flush();
+                } catch (IOException e) {
+                    // connection closed
+                }
+            }).start();
+        }
+    }
+
+}
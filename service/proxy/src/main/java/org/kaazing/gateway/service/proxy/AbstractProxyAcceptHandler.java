@@ -30,6 +30,7 @@ public abstract class AbstractProxyAcceptHandler extends AbstractProxyHandler {
     private AbstractProxyHandler connectHandler;
     private Collection<String> connectURIs;
     private ServiceConnectManager serviceConnectManager = null;
+    private UpstreamPool upstreamPool;
 
     protected AbstractProxyAcceptHandler() {
         connectHandler = createConnectHandler();
@@ -65,6 +66,17 @@ public abstract class AbstractProxyAcceptHandler extends AbstractProxyHandler {
         serviceConnectManager.start();
     }
 
+    /**
+     * Sets the pool of upstreams to balance connections over, when the service has more than one connect URI.
+     */
+    public void setUpstreamPool(UpstreamPool upstreamPool) {
+        this.upstreamPool = upstreamPool;
+    }
+
+    public UpstreamPool getUpstreamPool() {
+        return upstreamPool;
+    }
+
     public ConnectFuture getNextConnectFuture(final IoSessionInitializer<ConnectFuture> connectInitializer) {
         return serviceConnectManager.getNextConnectFuture(connectInitializer);
     }
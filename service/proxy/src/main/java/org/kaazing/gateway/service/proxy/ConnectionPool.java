@@ -30,6 +30,7 @@ import org.apache.mina.core.session.IoSession;
 import org.apache.mina.core.session.IoSessionInitializer;
 import org.kaazing.gateway.service.ServiceContext;
 import org.kaazing.gateway.service.proxy.ServiceConnectManager.HeartbeatFilter;
+import org.kaazing.mina.core.filterchain.IoFilterChainTemplate;
 
 class ConnectionPool {
     private static final AttributeKey CONNECT_FUTURE_KEY = new AttributeKey(ServiceConnectManager.class, "connectFutureKey");
@@ -37,12 +38,11 @@ class ConnectionPool {
     private final ServiceContext serviceContext;
     private final AbstractProxyHandler connectHandler;
     private final String connectURI;
-    private final HeartbeatFilter heartbeatFilter;
     private final IoFutureListener<ConnectFuture> connectListener;
     private final int preparedConnectionCount;
 
     private final AtomicInteger currentPreparedConnectionCount;
-    private final PreConnectFilter preConnectFilter;
+    private final IoFilterChainTemplate connectFilters;
     private final AtomicBoolean preConnectFlag;
     private final ConnectFutures connectFutures;
     private boolean active = false;
@@ -55,12 +55,15 @@ class ConnectionPool {
         this.serviceContext = serviceContext;
         this.connectHandler = connectHandler;
         this.connectURI = connectURI;
-        this.heartbeatFilter = heartbeatFilter;
         this.connectListener = connectListener;
         this.preparedConnectionCount = preparedConnectionCount;
         preConnectFlag = new AtomicBoolean(false);
         currentPreparedConnectionCount = new AtomicInteger(0);
-        preConnectFilter = new PreConnectFilter(this);
+        IoFilterChainTemplate connectFilters = IoFilterChainTemplate.empty();
+        if (heartbeatFilter != null) {
+            connectFilters = connectFilters.addLast("ServiceHeartbeat", heartbeatFilter);
+        }
+        this.connectFilters = connectFilters.addLast("PreConnectFilter", new PreConnectFilter(this));
         connectFutures = ConnectFutures.createConnectFutures(preparedConnectionCount, isThreadAligned);
     }
 
@@ -142,10 +145,7 @@ class ConnectionPool {
         ConnectFuture future = serviceContext.connect(connectURI, connectHandler, new IoSessionInitializer<ConnectFuture>() {
             @Override
             public void initializeSession(IoSession connectSession, ConnectFuture future) {
-                if (heartbeatFilter != null) {
-                    connectSession.getFilterChain().addLast("ServiceHeartbeat", heartbeatFilter);
-                }
-                connectSession.getFilterChain().addLast("PreConnectFilter", preConnectFilter);
+                connectFilters.buildFilterChain(connectSession.getFilterChain());
 
                 if (connectInitializer != null) {
                     connectInitializer.initializeSession(connectSession, future);
@@ -30,6 +30,7 @@ import org.kaazing.gateway.transport.BridgeServiceFactory;
  */
 public class ProxyService extends AbstractProxyService<ProxyServiceHandler> {
     private BridgeServiceFactory bridgeServiceFactory;
+    private UpstreamPool.HealthCheck healthCheck;
 
     public ProxyService() {
     }
@@ -58,7 +59,14 @@ public class ProxyService extends AbstractProxyService<ProxyServiceHandler> {
         }
         ProxyServiceHandler handler = getHandler();
         handler.setConnectURIs(connectURIs);
-        handler.initServiceConnectManager(bridgeServiceFactory);
+        if (connectURIs.size() > 1) {
+            // prepared connections and the recovery heartbeat only apply to a single connect URI, health checks and
+            // outlier ejection take their place
+            handler.setUpstreamPool(UpstreamPool.newUpstreamPool(serviceContext, connectURIs));
+            healthCheck = UpstreamPool.newConnectHealthCheck(serviceContext);
+        } else {
+            handler.initServiceConnectManager(bridgeServiceFactory);
+        }
 
         // Instantiate any proxy service extensions and register them with the handler
         ServiceLoader<ProxyServiceExtensionSpi> proxyServiceExtensions = load(ProxyServiceExtensionSpi.class);
@@ -70,7 +78,22 @@ public class ProxyService extends AbstractProxyService<ProxyServiceHandler> {
     @Override
     public void start() throws Exception {
         super.start();
-        getHandler().startServiceConnectManager();
+        ProxyServiceHandler handler = getHandler();
+        UpstreamPool upstreamPool = handler.getUpstreamPool();
+        if (upstreamPool != null) {
+            upstreamPool.start(scheduler, healthCheck);
+        } else {
+            handler.startServiceConnectManager();
+        }
+    }
+
+    @Override
+    public void stop() throws Exception {
+        UpstreamPool upstreamPool = getHandler().getUpstreamPool();
+        if (upstreamPool != null) {
+            upstreamPool.stop();
+        }
+        super.stop();
     }
 
     // FIXME:  How should this be exposed to Management?  For now the service connect manager object is exposed through this method, but
@@ -78,4 +101,11 @@ public class ProxyService extends AbstractProxyService<ProxyServiceHandler> {
     public ServiceConnectManager getServiceConnectManager() {
         return getHandler().getServiceConnectManager();
     }
+
+    /**
+     * @return the upstreams balanced over when the service has more than one connect URI, otherwise null
+     */
+    public UpstreamPool getUpstreamPool() {
+        return getHandler().getUpstreamPool();
+    }
 }
@@ -15,6 +15,8 @@
  */
 package org.kaazing.gateway.service.proxy;
 
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,6 +25,9 @@ import org.apache.mina.core.future.ConnectFuture;
 import org.apache.mina.core.future.IoFutureListener;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.core.session.IoSessionInitializer;
+import org.kaazing.gateway.resource.address.ResourceAddress;
+import org.kaazing.gateway.service.proxy.UpstreamPool.Strategy;
+import org.kaazing.gateway.service.proxy.UpstreamPool.Upstream;
 import org.kaazing.gateway.transport.BridgeSession;
 import org.kaazing.mina.core.session.IoSessionEx;
 import org.slf4j.Logger;
@@ -59,11 +64,7 @@ public class ProxyServiceHandler extends AbstractProxyAcceptHandler {
         if (!acceptSession.isClosing()) {
             final String nextProtocol = BridgeSession.NEXT_PROTOCOL_KEY.get(acceptSession);
 
-            // TODO: implement ServiceContext.connect(Collection<URI> connectURIs, connectHandler, sessionInitializer)
-            // see commented ProxyConnectManager below for implementation hint.
-            // Note: simpler to randomize order into a copy before initial connect, then consume until no connectURI
-            // alternatives left
-            final ConnectFuture future = getNextConnectFuture(new IoSessionInitializer<ConnectFuture>() {
+            IoSessionInitializer<ConnectFuture> connectInitializer = new IoSessionInitializer<ConnectFuture>() {
                 @Override
                 public void initializeSession(IoSession connectSession, ConnectFuture future) {
                     if (acceptSession.isClosing()) {
@@ -82,23 +83,21 @@ public class ProxyServiceHandler extends AbstractProxyAcceptHandler {
                         }
                     }
                 }
-            });
+            };
 
-            if (future == null) {
-                acceptSession.close(false);
+            UpstreamPool upstreamPool = getUpstreamPool();
+            if (upstreamPool != null) {
+                new UpstreamConnector(acceptSession, upstreamPool, connectInitializer).connect();
             } else {
-                // If accept session is closed, fail the connect future
-                acceptSession.getCloseFuture().addListener(new IoFutureListener<CloseFuture>() {
-                    @Override
-                    public void operationComplete(CloseFuture ioFuture) {
-                        if (!future.isConnected()) {
-                            future.setException(new RuntimeException("Failing connect future because accept is closed"));
-                        }
-                    }
-                });
+                final ConnectFuture future = getNextConnectFuture(connectInitializer);
+                if (future == null) {
+                    acceptSession.close(false);
+                } else {
+                    failOnClose(acceptSession, future);
 
-                // flush queued messages and attach the accept and connected sessions together
-                future.addListener(new ConnectListener(acceptSession));
+                    // flush queued messages and attach the accept and connected sessions together
+                    future.addListener(new ConnectListener(acceptSession));
+                }
             }
 
             super.sessionOpened(acceptSession);
@@ -111,6 +110,34 @@ public class ProxyServiceHandler extends AbstractProxyAcceptHandler {
         }
     }
 
+    // If accept session is closed, fail the connect future
+    private static void failOnClose(IoSession acceptSession, final ConnectFuture future) {
+        acceptSession.getCloseFuture().addListener(new IoFutureListener<CloseFuture>() {
+            @Override
+            public void operationComplete(CloseFuture ioFuture) {
+                if (!future.isConnected()) {
+                    future.setException(new RuntimeException("Failing connect future because accept is closed"));
+                }
+            }
+        });
+    }
+
+    /*
+     * Host of the client, for clients to keep connecting to the same upstream with the consistent-hash strategy
+     */
+    private static String getRemoteHost(IoSession acceptSession) {
+        SocketAddress remoteAddress = acceptSession.getRemoteAddress();
+        if (remoteAddress instanceof ResourceAddress) {
+            ResourceAddress tcpAddress = ((ResourceAddress) remoteAddress).findTransport("tcp");
+            ResourceAddress address = (tcpAddress != null) ? tcpAddress : (ResourceAddress) remoteAddress;
+            return address.getResource().getHost();
+        }
+        if (remoteAddress instanceof InetSocketAddress) {
+            return ((InetSocketAddress) remoteAddress).getHostString();
+        }
+        return null;
+    }
+
     @Override
     protected AbstractProxyHandler createConnectHandler() {
         return new ConnectHandler();
@@ -152,101 +179,64 @@ public class ProxyServiceHandler extends AbstractProxyAcceptHandler {
         }
     }
 
-//    private class ProxyConnectManager {
-//        private final IoSession acceptSession;
-//        private final Object serviceRegistration;
-//        private final Object subject;
-//        private final int numEntries;
-//        private boolean multipleConnects;
-//        private int numRemaining;
-//        boolean[] triedEntryFlags;
-//
-//        public ProxyConnectManager(IoSession session, Object subject, Object serviceRegistration, int numEntries) {
-//            this.acceptSession = session;
-//            this.subject = subject;
-//            this.serviceRegistration = serviceRegistration;
-//            this.numEntries = numEntries;
-//            this.numRemaining = numEntries;
-//            this.multipleConnects = !(numEntries == 1);
-//            triedEntryFlags = new boolean[numEntries];
-//            if (multipleConnects) {
-//                for (int i = 0; i < numEntries; i++) {
-//                    triedEntryFlags[i] = false;
-//                }
-//            }
-//        }
-//
-//        private URI getNextConnectURI() {
-//            if (!multipleConnects) {
-//                return connectURIs[0];
-//            }
-//            else {
-//                while (true) {
-//                    int next = Math.abs(Utils.randomInt()) % numEntries;
-//                    if (!triedEntryFlags[next]) {
-//                        triedEntryFlags[next] = true;
-//                        numRemaining = numRemaining - 1;
-//                        return connectURIs[next];
-//                    }
-//                    if (numRemaining > 0) {
-//                        continue;
-//                    }
-//                    break;
-//                }
-//                return null;
-//            }
-//        }
-//
-//        private void connect() {
-//            URI connectURI = getNextConnectURI();
-//            if (connectURI == null) {
-//                // no more fallback URLs to connect to close the session
-//                logger.warn("Connection to proxy server unavailable");
-//                acceptSession.close(false);
-//                acceptSession.resumeRead();
-//                acceptSession.resumeWrite();
-//                return;
-//            }
-//
-//            ConnectFuture future = service.connect(connectURI, connectHandler, new IoSessionInitializer<ConnectFuture>() {
-//                @Override
-//                public void initializeSession(IoSession clientSession, ConnectFuture future) {
-//                    clientSession.setAttribute(HttpSubjectSecurityFilter.SUBJECT_KEY, subject);
-//                    clientSession.setAttribute(HttpAcceptor.SERVICE_REGISTRATION_KEY, serviceRegistration);
-//                }
-//            });
-//            future.addListener(new ConnectListener(acceptSession, connectURI));
-//        }
-//
-//        private class ConnectListener implements IoFutureListener<ConnectFuture> {
-//            private final IoSession acceptSession;
-//            private final URI connectURI;
-//
-//            public ConnectListener(IoSession acceptSession, URI connectURI) {
-//                this.acceptSession = acceptSession;
-//                this.connectURI = connectURI;
-//            }
-//
-//            public void operationComplete(ConnectFuture future) {
-//                if (future.isConnected()) {
-//                    logger.info("Incoming connection routed to : " + connectURI);
-//                    IoSession connectSession = future.getSession();
-//                    AbstractProxyHandler.attachSessions(acceptSession, connectSession);
-//                    connectSession.resumeRead();
-//                    connectSession.resumeWrite();
-//
-//                    acceptSession.resumeRead();
-//                    acceptSession.resumeWrite();
-//                }
-//                else {
-//                    logger.warn("Connection to " + connectURI + " failed trying the next one in the list");
-//                    connect();
-//                }
-//
-//            }
-//        }
-//
-//    }
+    /*
+     * Connects to an upstream selected from the pool, trying the next one each time a connection fails until every
+     * upstream has been tried.
+     */
+    private class UpstreamConnector implements IoFutureListener<ConnectFuture> {
+        private final IoSession acceptSession;
+        private final UpstreamPool upstreamPool;
+        private final IoSessionInitializer<ConnectFuture> connectInitializer;
+        private final String affinityKey;
+        private final List<Upstream> triedUpstreams = new ArrayList<>(2);
+        private Upstream upstream;
+        private long connectTime;
+
+        UpstreamConnector(IoSession acceptSession, UpstreamPool upstreamPool,
+                IoSessionInitializer<ConnectFuture> connectInitializer) {
+            this.acceptSession = acceptSession;
+            this.upstreamPool = upstreamPool;
+            this.connectInitializer = connectInitializer;
+            this.affinityKey = (upstreamPool.getStrategy() == Strategy.CONSISTENT_HASH) ? getRemoteHost(acceptSession) : null;
+        }
+
+        void connect() {
+            upstream = upstreamPool.select(affinityKey, triedUpstreams);
+            if (upstream == null) {
+                logger.warn("Connection to every upstream failed [" + acceptSession + "->]");
+                acceptSession.close(true);
+                return;
+            }
+            triedUpstreams.add(upstream);
+            connectTime = System.nanoTime();
+
+            ConnectFuture future = getServiceContext().connect(upstream.getConnectURI(), getConnectHandler(),
+                    connectInitializer);
+            failOnClose(acceptSession, future);
+            future.addListener(this);
+        }
+
+        @Override
+        public void operationComplete(ConnectFuture future) {
+            final Upstream upstream = this.upstream;
+            if (future.isConnected()) {
+                upstreamPool.succeeded(upstream, System.nanoTime() - connectTime);
+                future.getSession().getCloseFuture().addListener(closeFuture -> upstreamPool.release(upstream));
+                new ConnectListener(acceptSession).operationComplete(future);
+            } else {
+                upstreamPool.release(upstream);
+                if (acceptSession.isClosing()) {
+                    // the connection was abandoned, not refused
+                    return;
+                }
+                upstreamPool.failed(upstream);
+                if (logger.isInfoEnabled()) {
+                    logger.info("Connection to " + upstream + " failed, trying next upstream [" + acceptSession + "->]");
+                }
+                connect();
+            }
+        }
+    }
 
     private class ConnectHandler extends AbstractProxyHandler {
     }
@@ -0,0 +1,418 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.proxy;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.kaazing.gateway.service.util.ServiceUtils.getOptionalIntProperty;
+import static org.kaazing.gateway.service.util.ServiceUtils.getOptionalProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.apache.mina.core.future.ConnectFuture;
+import org.apache.mina.core.service.IoHandlerAdapter;
+import org.apache.mina.core.session.IoSession;
+import org.kaazing.gateway.service.ServiceContext;
+import org.kaazing.gateway.service.ServiceProperties;
+import org.kaazing.gateway.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The upstreams a proxy service connects to when it is configured with more than one connect URI. Each connection
+ * (or request, for the http.proxy service) selects an upstream according to the balancing strategy, skipping
+ * upstreams that are ejected after consecutive failures or slow responses, or that failed their last health check.
+ * When every upstream is unavailable, selection ignores availability rather than failing all connections.
+ * <p>
+ * Selection and outcome recording are lock-free, as they happen on I/O threads.
+ */
+public final class UpstreamPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UpstreamPool.class);
+
+    static final String PROPERTY_BALANCER = "connect.balancer";
+    static final String PROPERTY_OUTLIER_CONSECUTIVE_FAILURES = "outlier.consecutive.failures";
+    static final String PROPERTY_OUTLIER_LATENCY_THRESHOLD = "outlier.latency.threshold";
+    static final String PROPERTY_OUTLIER_EJECTION_TIME = "outlier.ejection.time";
+    static final String PROPERTY_HEALTH_CHECK_INTERVAL = "health.check.interval";
+
+    /**
+     * The names of the service properties configuring the pool.
+     */
+    public static final Collection<String> PROPERTY_NAMES = Collections.unmodifiableList(Arrays.asList(PROPERTY_BALANCER,
+            PROPERTY_OUTLIER_CONSECUTIVE_FAILURES, PROPERTY_OUTLIER_LATENCY_THRESHOLD, PROPERTY_OUTLIER_EJECTION_TIME,
+            PROPERTY_HEALTH_CHECK_INTERVAL));
+
+    private static final int PROPERTY_OUTLIER_CONSECUTIVE_FAILURES_DEFAULT = 5;
+    private static final String PROPERTY_OUTLIER_LATENCY_THRESHOLD_DEFAULT = "0";
+    private static final String PROPERTY_OUTLIER_EJECTION_TIME_DEFAULT = "30s";
+    private static final String PROPERTY_HEALTH_CHECK_INTERVAL_DEFAULT = "0";
+
+    // an upstream ejected repeatedly stays out longer each time, up to this many ejection times
+    private static final int MAXIMUM_EJECTION_MULTIPLIER = 10;
+
+    // points per upstream on the consistent hash ring, so that keys spread evenly
+    private static final int RING_POINTS_PER_UPSTREAM = 100;
+
+    public enum Strategy {
+        ROUND_ROBIN("round-robin"),
+        LEAST_OUTSTANDING("least-outstanding"),
+        CONSISTENT_HASH("consistent-hash");
+
+        private final String propertyValue;
+
+        Strategy(String propertyValue) {
+            this.propertyValue = propertyValue;
+        }
+
+        public String getPropertyValue() {
+            return propertyValue;
+        }
+
+        static Strategy forPropertyValue(String propertyValue) {
+            for (Strategy strategy : values()) {
+                if (strategy.propertyValue.equals(propertyValue)) {
+                    return strategy;
+                }
+            }
+            throw new IllegalArgumentException(format("Unknown %s %s, expected one of round-robin, least-outstanding, "
+                    + "consistent-hash", PROPERTY_BALANCER, propertyValue));
+        }
+    }
+
+    /**
+     * Actively checks the health of an upstream.
+     */
+    public interface HealthCheck {
+
+        /**
+         * Checks an upstream, reporting whether it is healthy once known.
+         */
+        void check(String connectURI, Consumer<Boolean> result);
+    }
+
+    public static final class Upstream {
+        private final String connectURI;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicInteger consecutiveEjections = new AtomicInteger();
+        private final LongAdder selections = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder ejections = new LongAdder();
+        private volatile long ejectedUntil;
+        private volatile boolean healthy = true;
+
+        Upstream(String connectURI) {
+            this.connectURI = connectURI;
+        }
+
+        public String getConnectURI() {
+            return connectURI;
+        }
+
+        public int getOutstandingCount() {
+            return outstanding.get();
+        }
+
+        public long getSelectionCount() {
+            return selections.sum();
+        }
+
+        public long getFailureCount() {
+            return failures.sum();
+        }
+
+        public long getEjectionCount() {
+            return ejections.sum();
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        boolean isAvailable(long now) {
+            return healthy && ejectedUntil <= now;
+        }
+
+        @Override
+        public String toString() {
+            return connectURI;
+        }
+    }
+
+    private final List<Upstream> upstreams;
+    private final Strategy strategy;
+    private final int consecutiveFailureThreshold;
+    private final long latencyThreshold;
+    private final long ejectionTime;
+    private final long healthCheckInterval;
+    private final LongSupplier clock;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+
+    // consistent hash ring, sorted by hash
+    private final long[] ringHashes;
+    private final Upstream[] ringUpstreams;
+
+    private volatile ScheduledFuture<?> healthChecks;
+
+    /**
+     * @param latencyThreshold     the latency beyond which a success counts as a failure, in nanoseconds, or 0
+     * @param ejectionTime         the time an upstream is first ejected for, in milliseconds
+     * @param healthCheckInterval  the time between health checks, in milliseconds, or 0 for no health checks
+     * @param clock                the current time in milliseconds
+     */
+    UpstreamPool(Collection<String> connectURIs, Strategy strategy, int consecutiveFailureThreshold, long latencyThreshold,
+            long ejectionTime, long healthCheckInterval, LongSupplier clock) {
+        List<Upstream> upstreams = new ArrayList<>(connectURIs.size());
+        for (String connectURI : connectURIs) {
+            upstreams.add(new Upstream(connectURI));
+        }
+        this.upstreams = Collections.unmodifiableList(upstreams);
+        this.strategy = strategy;
+        this.consecutiveFailureThreshold = consecutiveFailureThreshold;
+        this.latencyThreshold = latencyThreshold;
+        this.ejectionTime = ejectionTime;
+        this.healthCheckInterval = healthCheckInterval;
+        this.clock = clock;
+
+        int ringSize = (strategy == Strategy.CONSISTENT_HASH) ? upstreams.size() * RING_POINTS_PER_UPSTREAM : 0;
+        long[][] points = new long[ringSize][];
+        for (int i = 0; i < ringSize; i++) {
+            int upstreamIndex = i / RING_POINTS_PER_UPSTREAM;
+            String point = upstreams.get(upstreamIndex).connectURI + "#" + (i % RING_POINTS_PER_UPSTREAM);
+            points[i] = new long[] { hash(point), upstreamIndex };
+        }
+        Arrays.sort(points, (p1, p2) -> Long.compare(p1[0], p2[0]));
+        this.ringHashes = new long[ringSize];
+        this.ringUpstreams = new Upstream[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            ringHashes[i] = points[i][0];
+            ringUpstreams[i] = upstreams.get((int) points[i][1]);
+        }
+    }
+
+    /**
+     * Creates a pool of the connect URIs configured by the service properties.
+     */
+    public static UpstreamPool newUpstreamPool(ServiceContext serviceContext, Collection<String> connectURIs) {
+        ServiceProperties properties = serviceContext.getProperties();
+        Strategy strategy = Strategy.forPropertyValue(getOptionalProperty(properties, PROPERTY_BALANCER,
+                Strategy.ROUND_ROBIN.getPropertyValue()));
+        int consecutiveFailures = getOptionalIntProperty(properties, PROPERTY_OUTLIER_CONSECUTIVE_FAILURES,
+                PROPERTY_OUTLIER_CONSECUTIVE_FAILURES_DEFAULT);
+        long latencyThreshold = Utils.parseTimeInterval(getOptionalProperty(properties, PROPERTY_OUTLIER_LATENCY_THRESHOLD,
+                PROPERTY_OUTLIER_LATENCY_THRESHOLD_DEFAULT), NANOSECONDS);
+        long ejectionTime = Utils.parseTimeInterval(getOptionalProperty(properties, PROPERTY_OUTLIER_EJECTION_TIME,
+                PROPERTY_OUTLIER_EJECTION_TIME_DEFAULT), MILLISECONDS);
+        long healthCheckInterval = Utils.parseTimeInterval(getOptionalProperty(properties, PROPERTY_HEALTH_CHECK_INTERVAL,
+                PROPERTY_HEALTH_CHECK_INTERVAL_DEFAULT), MILLISECONDS);
+        if (consecutiveFailures < 1) {
+            throw new IllegalArgumentException(format("%s must be at least 1 for service %s",
+                    PROPERTY_OUTLIER_CONSECUTIVE_FAILURES, serviceContext.getServiceName()));
+        }
+        return new UpstreamPool(connectURIs, strategy, consecutiveFailures, latencyThreshold, ejectionTime,
+                healthCheckInterval, System::currentTimeMillis);
+    }
+
+    /**
+     * @return a health check that connects to the upstream and closes the connection as soon as it is open
+     */
+    public static HealthCheck newConnectHealthCheck(ServiceContext serviceContext) {
+        return (connectURI, result) -> {
+            ConnectFuture future = serviceContext.connect(connectURI, new IoHandlerAdapter() {
+                @Override
+                public void sessionOpened(IoSession session) throws Exception {
+                    session.close(false);
+                }
+            }, null);
+            future.addListener(f -> result.accept(future.isConnected()));
+        };
+    }
+
+    public List<Upstream> getUpstreams() {
+        return upstreams;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Starts the health checks, if configured.
+     */
+    public void start(ScheduledExecutorService scheduler, HealthCheck healthCheck) {
+        if (healthCheckInterval > 0 && healthChecks == null) {
+            healthChecks = scheduler.scheduleWithFixedDelay(() -> checkHealth(healthCheck), 0, healthCheckInterval,
+                    MILLISECONDS);
+        }
+    }
+
+    public void stop() {
+        ScheduledFuture<?> healthChecks = this.healthChecks;
+        if (healthChecks != null) {
+            healthChecks.cancel(false);
+            this.healthChecks = null;
+        }
+    }
+
+    /**
+     * Selects an upstream for a new connection or request, which must be released when it ends.
+     *
+     * @param affinityKey  the key mapped to an upstream by the consistent-hash strategy, or null
+     * @param excluded     upstreams not to select, such as those already tried for the same connection
+     * @return the selected upstream, or null if every upstream is excluded
+     */
+    public Upstream select(String affinityKey, Collection<Upstream> excluded) {
+        long now = clock.getAsLong();
+        Upstream selected = select(affinityKey, excluded, now, true);
+        if (selected == null) {
+            // every upstream is unavailable, rather than failing everything spread the load over all of them
+            selected = select(affinityKey, excluded, now, false);
+        }
+        if (selected != null) {
+            selected.outstanding.incrementAndGet();
+            selected.selections.increment();
+        }
+        return selected;
+    }
+
+    public void release(Upstream upstream) {
+        upstream.outstanding.decrementAndGet();
+    }
+
+    /**
+     * Records a success, which counts as a failure when slower than the latency threshold.
+     *
+     * @param latency  the time to connect or to respond, in nanoseconds
+     */
+    public void succeeded(Upstream upstream, long latency) {
+        if (latencyThreshold > 0 && latency > latencyThreshold) {
+            failed(upstream);
+        }
+        else {
+            upstream.consecutiveFailures.set(0);
+            upstream.consecutiveEjections.set(0);
+        }
+    }
+
+    /**
+     * Records a failure, ejecting the upstream after too many consecutive failures.
+     */
+    public void failed(Upstream upstream) {
+        upstream.failures.increment();
+        if (upstream.consecutiveFailures.incrementAndGet() >= consecutiveFailureThreshold) {
+            long now = clock.getAsLong();
+            if (upstream.ejectedUntil <= now) {
+                upstream.consecutiveFailures.set(0);
+                int multiplier = Math.min(upstream.consecutiveEjections.incrementAndGet(), MAXIMUM_EJECTION_MULTIPLIER);
+                upstream.ejectedUntil = now + ejectionTime * multiplier;
+                upstream.ejections.increment();
+                if (LOGGER.isInfoEnabled()) {
+                    LOGGER.info(format("Ejecting upstream %s for %d ms after %d consecutive failures", upstream,
+                            ejectionTime * multiplier, consecutiveFailureThreshold));
+                }
+            }
+        }
+    }
+
+    void checkHealth(HealthCheck healthCheck) {
+        for (Upstream upstream : upstreams) {
+            try {
+                healthCheck.check(upstream.connectURI, healthy -> {
+                    if (upstream.healthy != healthy && LOGGER.isInfoEnabled()) {
+                        LOGGER.info(format("Upstream %s is %s", upstream, healthy ? "healthy" : "unhealthy"));
+                    }
+                    upstream.healthy = healthy;
+                });
+            }
+            catch (RuntimeException e) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(format("Health check of upstream %s failed", upstream), e);
+                }
+                upstream.healthy = false;
+            }
+        }
+    }
+
+    private Upstream select(String affinityKey, Collection<Upstream> excluded, long now, boolean availableOnly) {
+        if (strategy == Strategy.CONSISTENT_HASH && affinityKey != null) {
+            int start = ringIndex(hash(affinityKey));
+            for (int i = 0; i < ringUpstreams.length; i++) {
+                Upstream upstream = ringUpstreams[(start + i) % ringUpstreams.length];
+                if (isSelectable(upstream, excluded, now, availableOnly)) {
+                    return upstream;
+                }
+            }
+            return null;
+        }
+
+        // start from the next upstream in turn, so that least-outstanding ties are also spread
+        int size = upstreams.size();
+        int start = (nextIndex.getAndIncrement() & Integer.MAX_VALUE) % size;
+        Upstream selected = null;
+        for (int i = 0; i < size; i++) {
+            Upstream upstream = upstreams.get((start + i) % size);
+            if (isSelectable(upstream, excluded, now, availableOnly)) {
+                if (strategy != Strategy.LEAST_OUTSTANDING) {
+                    return upstream;
+                }
+                if (selected == null || upstream.outstanding.get() < selected.outstanding.get()) {
+                    selected = upstream;
+                }
+            }
+        }
+        return selected;
+    }
+
+    private static boolean isSelectable(Upstream upstream, Collection<Upstream> excluded, long now,
+            boolean availableOnly) {
+        return !excluded.contains(upstream) && (!availableOnly || upstream.isAvailable(now));
+    }
+
+    // index of the first ring point at or after the hash, wrapping around
+    private int ringIndex(long hash) {
+        int index = Arrays.binarySearch(ringHashes, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return (index < ringHashes.length) ? index : 0;
+    }
+
+    // 64-bit FNV-1a, finalized so that similar keys land far apart on the ring
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
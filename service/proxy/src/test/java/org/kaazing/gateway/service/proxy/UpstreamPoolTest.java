@@ -0,0 +1,218 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.service.proxy;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.kaazing.gateway.service.proxy.UpstreamPool.Strategy;
+import org.kaazing.gateway.service.proxy.UpstreamPool.Upstream;
+
+public class UpstreamPoolTest {
+
+    private static final Collection<String> CONNECT_URIS = asList("tcp://localhost:8001", "tcp://localhost:8002",
+            "tcp://localhost:8003");
+    private static final long EJECTION_TIME = 30000L;
+
+    private final AtomicLong clock = new AtomicLong(1000000L);
+
+    private UpstreamPool newPool(Strategy strategy) {
+        return new UpstreamPool(CONNECT_URIS, strategy, 3, 0L, EJECTION_TIME, 0L, clock::get);
+    }
+
+    @Test
+    public void shouldSelectRoundRobin() {
+        UpstreamPool pool = newPool(Strategy.ROUND_ROBIN);
+        Upstream first = pool.select(null, emptyList());
+        Upstream second = pool.select(null, emptyList());
+        Upstream third = pool.select(null, emptyList());
+        assertEquals(3, new HashSet<>(asList(first, second, third)).size());
+        assertSame(first, pool.select(null, emptyList()));
+        assertEquals(2, first.getOutstandingCount());
+        assertEquals(2, first.getSelectionCount());
+    }
+
+    @Test
+    public void shouldSelectLeastOutstanding() {
+        UpstreamPool pool = newPool(Strategy.LEAST_OUTSTANDING);
+        Upstream first = pool.select(null, emptyList());
+        Upstream second = pool.select(null, emptyList());
+        Upstream third = pool.select(null, emptyList());
+        assertEquals(3, new HashSet<>(asList(first, second, third)).size());
+
+        pool.release(second);
+        assertSame(second, pool.select(null, emptyList()));
+        pool.release(third);
+        assertSame(third, pool.select(null, emptyList()));
+    }
+
+    @Test
+    public void shouldSelectSameUpstreamForSameKey() {
+        UpstreamPool pool = newPool(Strategy.CONSISTENT_HASH);
+        Set<Upstream> selected = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            String key = "client-" + i;
+            Upstream upstream = pool.select(key, emptyList());
+            assertSame(upstream, pool.select(key, emptyList()));
+            selected.add(upstream);
+        }
+        assertEquals(3, selected.size());
+    }
+
+    @Test
+    public void shouldRemapOnlyKeysOfEjectedUpstream() {
+        UpstreamPool pool = newPool(Strategy.CONSISTENT_HASH);
+        Upstream ejected = pool.select("client-0", emptyList());
+        for (int i = 0; i < 3; i++) {
+            pool.failed(ejected);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            String key = "client-" + i;
+            UpstreamPool reference = newPool(Strategy.CONSISTENT_HASH);
+            Upstream before = reference.select(key, emptyList());
+            Upstream after = pool.select(key, emptyList());
+            assertNotEquals(ejected, after);
+            if (!before.getConnectURI().equals(ejected.getConnectURI())) {
+                assertEquals(before.getConnectURI(), after.getConnectURI());
+            }
+        }
+    }
+
+    @Test
+    public void shouldEjectAfterConsecutiveFailures() {
+        UpstreamPool pool = newPool(Strategy.ROUND_ROBIN);
+        Upstream failing = pool.getUpstreams().get(0);
+        pool.failed(failing);
+        pool.failed(failing);
+        pool.succeeded(failing, 0L);
+        pool.failed(failing);
+        pool.failed(failing);
+        assertTrue(failing.isAvailable(clock.get()));
+
+        pool.failed(failing);
+        assertFalse(failing.isAvailable(clock.get()));
+        assertEquals(1, failing.getEjectionCount());
+        for (int i = 0; i < 10; i++) {
+            assertNotEquals(failing, pool.select(null, emptyList()));
+        }
+
+        clock.addAndGet(EJECTION_TIME);
+        assertTrue(failing.isAvailable(clock.get()));
+    }
+
+    @Test
+    public void shouldEjectLongerAfterRepeatedEjections() {
+        UpstreamPool pool = newPool(Strategy.ROUND_ROBIN);
+        Upstream failing = pool.getUpstreams().get(0);
+        for (int i = 0; i < 3; i++) {
+            pool.failed(failing);
+        }
+        clock.addAndGet(EJECTION_TIME);
+        for (int i = 0; i < 3; i++) {
+            pool.failed(failing);
+        }
+
+        clock.addAndGet(EJECTION_TIME);
+        assertFalse(failing.isAvailable(clock.get()));
+        clock.addAndGet(EJECTION_TIME);
+        assertTrue(failing.isAvailable(clock.get()));
+    }
+
+    @Test
+    public void shouldCountSlowResponsesAsFailures() {
+        UpstreamPool pool = new UpstreamPool(CONNECT_URIS, Strategy.ROUND_ROBIN, 1, 1000000L, EJECTION_TIME, 0L,
+                clock::get);
+        Upstream upstream = pool.getUpstreams().get(0);
+        pool.succeeded(upstream, 999999L);
+        assertTrue(upstream.isAvailable(clock.get()));
+
+        pool.succeeded(upstream, 1000001L);
+        assertFalse(upstream.isAvailable(clock.get()));
+        assertEquals(1, upstream.getFailureCount());
+    }
+
+    @Test
+    public void shouldSelectUnavailableUpstreamsWhenAllAreUnavailable() {
+        UpstreamPool pool = newPool(Strategy.ROUND_ROBIN);
+        for (Upstream upstream : pool.getUpstreams()) {
+            for (int i = 0; i < 3; i++) {
+                pool.failed(upstream);
+            }
+        }
+        assertNotNull(pool.select(null, emptyList()));
+    }
+
+    @Test
+    public void shouldNotSelectExcludedUpstreams() {
+        UpstreamPool pool = newPool(Strategy.CONSISTENT_HASH);
+        List<Upstream> upstreams = pool.getUpstreams();
+        Upstream selected = pool.select("client", asList(upstreams.get(0), upstreams.get(1)));
+        assertSame(upstreams.get(2), selected);
+        assertNull(pool.select("client", upstreams));
+    }
+
+    @Test
+    public void shouldNotSelectUnhealthyUpstreams() {
+        UpstreamPool pool = newPool(Strategy.ROUND_ROBIN);
+        Upstream unhealthy = pool.getUpstreams().get(1);
+        pool.checkHealth((connectURI, result) -> result.accept(!connectURI.equals(unhealthy.getConnectURI())));
+        assertFalse(unhealthy.isHealthy());
+        for (int i = 0; i < 10; i++) {
+            assertNotEquals(unhealthy, pool.select(null, singletonList(pool.getUpstreams().get(0))));
+        }
+
+        pool.checkHealth((connectURI, result) -> result.accept(true));
+        assertTrue(unhealthy.isHealthy());
+    }
+
+    @Test
+    public void shouldMarkUpstreamUnhealthyWhenHealthCheckThrows() {
+        UpstreamPool pool = newPool(Strategy.ROUND_ROBIN);
+        pool.checkHealth((connectURI, result) -> {
+            throw new IllegalStateException();
+        });
+        for (Upstream upstream : pool.getUpstreams()) {
+            assertFalse(upstream.isHealthy());
+        }
+    }
+
+    @Test
+    public void shouldParseStrategy() {
+        assertEquals(Strategy.LEAST_OUTSTANDING, Strategy.forPropertyValue("least-outstanding"));
+        assertEquals("consistent-hash", Strategy.CONSISTENT_HASH.getPropertyValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownStrategy() {
+        Strategy.forPropertyValue("random");
+    }
+}
@@ -20,6 +20,7 @@ import static java.util.Collections.unmodifiableMap;
 import static java.util.EnumSet.allOf;
 import static java.util.EnumSet.complementOf;
 import static java.util.EnumSet.of;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.kaazing.gateway.resource.address.ResourceAddress.NEXT_PROTOCOL;
 import static org.kaazing.gateway.resource.address.ResourceAddress.QUALIFIER;
 import static org.kaazing.gateway.resource.address.ResourceAddress.TRANSPORT;
@@ -41,6 +42,8 @@ import static org.kaazing.gateway.transport.http.bridge.filter.HttpNextProtocolH
 import static org.kaazing.gateway.transport.http.bridge.filter.HttpProtocolFilter.PROTOCOL_HTTP_1_1;
 import static org.kaazing.gateway.transport.http.resource.HttpDynamicResourceFactory.newHttpDynamicResourceFactory;
 import static org.kaazing.gateway.util.InternalSystemProperty.HTTPXE_SPECIFICATION;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_LOGIN_CACHE_MAXIMUM_ENTRIES;
+import static org.kaazing.gateway.util.InternalSystemProperty.HTTP_LOGIN_CACHE_TTL;
 
 import java.io.IOException;
 import java.net.SocketAddress;
@@ -69,6 +72,7 @@ import org.kaazing.gateway.resource.address.ResourceAddress;
 import org.kaazing.gateway.resource.address.ResourceAddressFactory;
 import org.kaazing.gateway.resource.address.ResourceOptions;
 import org.kaazing.gateway.resource.address.uri.URIUtils;
+import org.kaazing.gateway.security.RealmLoginExecutors;
 import org.kaazing.gateway.security.auth.context.ResultAwareLoginContext;
 import org.kaazing.gateway.server.spi.security.ExpiringState;
 import org.kaazing.gateway.transport.AbstractBridgeAcceptor;
@@ -89,15 +93,18 @@ import org.kaazing.gateway.transport.http.bridge.HttpRequestMessage;
 import org.kaazing.gateway.transport.http.bridge.HttpResponseMessage;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpBuffer;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpBufferAllocator;
+import org.kaazing.gateway.transport.http.bridge.filter.HttpLoginResultCache;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpNextAddressFilter;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpProtocolDecoderException;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpSerializeRequestsFilter;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpSubjectSecurityFilter;
 import org.kaazing.gateway.transport.http.resource.HttpDynamicResource;
 import org.kaazing.gateway.transport.http.resource.HttpDynamicResourceFactory;
+import org.kaazing.gateway.util.Utils;
 import org.kaazing.gateway.util.scheduler.SchedulerProvider;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.filterchain.IoFilterChainTemplate;
 import org.kaazing.mina.core.future.UnbindFuture;
 import org.kaazing.mina.core.service.IoProcessorEx;
 import org.kaazing.mina.core.session.IoSessionEx;
@@ -122,6 +129,7 @@ public class HttpAcceptor extends AbstractBridgeAcceptor<DefaultHttpSession, Htt
     private ResourceAddressFactory addressFactory;
 
     private IoFilter httpNextAddress;
+    private Map<String, IoFilterChainTemplate> acceptTemplatesByProtocol;
 
     private SchedulerProvider schedulerProvider;
 
@@ -131,6 +139,10 @@ public class HttpAcceptor extends AbstractBridgeAcceptor<DefaultHttpSession, Htt
 
     private boolean httpxeSpecCompliant;
 
+    private HttpLoginResultCache loginResultCache;
+
+    private RealmLoginExecutors realmLoginExecutors;
+
     @Resource(name = "schedulerProvider")
     public void setSchedulerProvider(SchedulerProvider provider) {
         this.schedulerProvider = provider;
@@ -141,10 +153,27 @@ public class HttpAcceptor extends AbstractBridgeAcceptor<DefaultHttpSession, Htt
         this.expiringState = expiringState;
     }
 
+    @Resource(name = "realmLoginExecutors")
+    public void setRealmLoginExecutors(RealmLoginExecutors realmLoginExecutors) {
+        this.realmLoginExecutors = realmLoginExecutors;
+    }
+
     @Resource(name = "configuration")
     public void setConfiguration(Properties configuration) {
         this.configuration = configuration;
         httpxeSpecCompliant = HTTPXE_SPECIFICATION.getBooleanProperty(configuration);
+
+        long loginCacheTimeToLive = Utils.parseTimeInterval(HTTP_LOGIN_CACHE_TTL.getProperty(configuration), MILLISECONDS);
+        loginResultCache = (loginCacheTimeToLive > 0)
+                ? new HttpLoginResultCache(loginCacheTimeToLive, MILLISECONDS, HTTP_LOGIN_CACHE_MAXIMUM_ENTRIES.getIntProperty(configuration))
+                : null;
+    }
+
+    /**
+     * @return the successful logins reused by requests presenting the same token, or null if logins are not cached
+     */
+    public HttpLoginResultCache getLoginResultCache() {
+        return loginResultCache;
     }
 
     public HttpAcceptor() {
@@ -245,6 +274,12 @@ public class HttpAcceptor extends AbstractBridgeAcceptor<DefaultHttpSession, Htt
         httpNextAddress.setBindings(bindings);
         this.httpNextAddress = httpNextAddress;
 
+        Map<String, IoFilterChainTemplate> acceptTemplatesByProtocol = new HashMap<>();
+        for (Map.Entry<String, Set<HttpAcceptFilter>> entry : acceptFiltersByProtocol.entrySet()) {
+            acceptTemplatesByProtocol.put(entry.getKey(), toTemplate(entry.getValue()));
+        }
+        this.acceptTemplatesByProtocol = unmodifiableMap(acceptTemplatesByProtocol);
+
         // TODO: verify injections and throw exception if not in a valid start state
     }
 
@@ -557,32 +592,44 @@ public class HttpAcceptor extends AbstractBridgeAcceptor<DefaultHttpSession, Htt
             logger.trace(format("Adding http accept bridge filters using nextProtocol: %s", nextProtocol));
         }
 
-        Set<HttpAcceptFilter> acceptFilters = acceptFiltersByProtocol.get(nextProtocol);
-        assert (acceptFilters != null && !acceptFilters.isEmpty());
+        IoFilterChainTemplate acceptFilters = acceptTemplatesByProtocol.get(nextProtocol);
+        assert (acceptFilters != null && acceptFilters.size() != 0);
+
+        acceptFilters.buildFilterChain(chain);
+    }
 
+    private IoFilterChainTemplate toTemplate(Set<HttpAcceptFilter> acceptFilters) {
+        IoFilterChainTemplate template = IoFilterChainTemplate.empty();
         for (HttpAcceptFilter acceptFilter : acceptFilters) {
             switch (acceptFilter) {
             case NEXT_ADDRESS:
-                chain.addLast(acceptFilter.filterName(), httpNextAddress);
+                template = template.addLast(acceptFilter.filterName(), httpNextAddress);
                 break;
             case ELEVATE_EMULATED_REQUEST:
                 // a session-specific filter added when necessary by the protocol compatibility filter
                 break;
             case HTTP_SERIALIZE_REQUEST_FILTER:
                 // session-specific always-added filter.
-                chain.addLast(acceptFilter.filterName(), new HttpSerializeRequestsFilter(logger));
+                template = template.addLast(acceptFilter.filterName(), () -> new HttpSerializeRequestsFilter(logger));
                 break;
             case SUBJECT_SECURITY:
                 // One instance of HttpSubjectSecurityFilter per session
-                HttpSubjectSecurityFilter filter = new HttpSubjectSecurityFilter(LoggerFactory.getLogger(SECURITY_LOGGER_NAME), expiringState);
-                filter.setSchedulerProvider(schedulerProvider);
-                chain.addLast(acceptFilter.filterName(), filter);
+                template = template.addLast(acceptFilter.filterName(), this::newSubjectSecurityFilter);
                 break;
             default:
-                chain.addLast(acceptFilter.filterName(), acceptFilter.filter());
+                template = template.addLast(acceptFilter.filterName(), acceptFilter.filter());
                 break;
             }
         }
+        return template;
+    }
+
+    private HttpSubjectSecurityFilter newSubjectSecurityFilter() {
+        HttpSubjectSecurityFilter filter = new HttpSubjectSecurityFilter(LoggerFactory.getLogger(SECURITY_LOGGER_NAME), expiringState);
+        filter.setSchedulerProvider(schedulerProvider);
+        filter.setLoginResultCache(loginResultCache);
+        filter.setRealmLoginExecutors(realmLoginExecutors);
+        return filter;
     }
 
     @Override
@@ -18,8 +18,8 @@ package org.kaazing.gateway.transport.http;
 import java.net.URI;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Map.Entry;
-import java.util.NavigableSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
@@ -165,6 +165,9 @@ public class HttpBindings extends Bindings<HttpBinding> {
 
         private final ConcurrentNavigableMap<String, Binding> bindingsByPath;
 
+        // copy of bindingsByPath for lookup, rebuilt whenever a path is bound or unbound
+        private volatile HttpPathTrie<Binding> bindingsTrie;
+
         @Override
         public int hashCode() {
             int hashCode = super.hashCode();
@@ -215,6 +218,7 @@ public class HttpBindings extends Bindings<HttpBinding> {
         HttpBinding(ResourceAddress bindAddress) {
             super(bindAddress);
             bindingsByPath = new ConcurrentSkipListMap<>(PATH_ASCENDING);
+            bindingsTrie = HttpPathTrie.empty();
         }
         
         boolean isEmpty() {
@@ -226,30 +230,60 @@ public class HttpBindings extends Bindings<HttpBinding> {
         }
 
         Binding get(String path)  {
-            NavigableSet<String> paths = bindingsByPath.navigableKeySet();
-            NavigableSet<String> candidatePaths = paths.headSet(path, true);
-
-            for (Iterator<String> $i = candidatePaths.descendingIterator(); $i.hasNext(); ) {
-                String candidatePath = $i.next();
-                if (path.startsWith(candidatePath)) {
-                    return bindingsByPath.get(candidatePath);
+            // PATH_ASCENDING orders paths of only slashes before "", and both before any other path, so a path of
+            // only slashes can only match a bound path of only slashes
+            if (isSlashes(path)) {
+                Entry<String, Binding> first = bindingsByPath.firstEntry();
+                if (first != null && isSlashes(first.getKey()) && first.getKey().length() <= path.length()) {
+                    return first.getValue();
                 }
+                return null;
             }
-            
-            return null;
+
+            // otherwise the binding of the longest bound path that is a prefix of the path
+            return bindingsTrie.get(path);
         }
 
         Binding put(String path, Binding binding)  {
-            return bindingsByPath.putIfAbsent(path, binding);
+            Binding oldBinding = bindingsByPath.putIfAbsent(path, binding);
+            if (oldBinding == null) {
+                rebuildTrie();
+            }
+            return oldBinding;
         }
 
         boolean remove(String path, Binding binding)  {
             if ( binding == (bindingsByPath.get(path))) {
                 if (binding != null && binding.decrementReferenceCount() == 0 ) {
-                    return bindingsByPath.remove(path, binding);
+                    if (bindingsByPath.remove(path, binding)) {
+                        rebuildTrie();
+                        return true;
+                    }
                 }
             }
             return false;
         }
+
+        private synchronized void rebuildTrie() {
+            // always built from the current paths, so concurrent changes cannot leave a stale trie behind
+            Map<String, Binding> paths = bindingsByPath;
+            if (bindingsByPath.containsKey("")) {
+                // "" is ordered after paths of only slashes, so takes precedence over them
+                paths = bindingsByPath.tailMap("");
+            }
+            bindingsTrie = HttpPathTrie.build(paths);
+        }
+
+        private static boolean isSlashes(String path) {
+            if (path.isEmpty()) {
+                return false;
+            }
+            for (int i = 0; i < path.length(); i++) {
+                if (path.charAt(i) != '/') {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 }
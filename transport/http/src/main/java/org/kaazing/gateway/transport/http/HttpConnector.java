@@ -88,6 +88,7 @@ import org.kaazing.gateway.transport.http.bridge.filter.HttpBufferAllocator;
 import org.kaazing.gateway.transport.http.security.auth.WWWAuthChallenge;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.filterchain.IoFilterChainTemplate;
 import org.kaazing.mina.core.service.IoProcessorEx;
 import org.kaazing.mina.core.session.IoSessionEx;
 
@@ -96,10 +97,11 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
     private static final TypedAttributeKey<HttpConnectSessionFactory> HTTP_SESSION_FACTORY_KEY = new TypedAttributeKey<>(HttpConnector.class, "httpSessionFactory");
     public static final TypedAttributeKey<DefaultHttpSession> HTTP_SESSION_KEY = new TypedAttributeKey<>(HttpConnector.class, "httpSession");
     private static final TypedAttributeKey<ConnectFuture> HTTP_CONNECT_FUTURE_KEY = new TypedAttributeKey<>(HttpConnector.class, "httpConnectFuture");
+    private static final TypedAttributeKey<HttpResourceAddress> IDLE_CONNECT_ADDRESS_KEY = new TypedAttributeKey<>(HttpConnector.class, "idleConnectAddress");
     private Properties configuration;
     private boolean appendQueryWhenFollowingRedirect = true;
     
-    private final Map<String, Set<HttpConnectFilter>> connectFiltersByProtocol;
+    private final Map<String, IoFilterChainTemplate> connectFiltersByProtocol;
     private final Set<HttpConnectFilter> allConnectFilters;
     private BridgeServiceFactory bridgeServiceFactory;
     ResourceAddressFactory addressFactory;
@@ -109,12 +111,12 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
         super(new DefaultIoSessionConfigEx());
 
         // note: content length adjustment filter is added dynamically for httpxe/1.1, and not needed by http/1.1
-        Map<String, Set<HttpConnectFilter>> connectFiltersByProtocol = new HashMap<>();
-        connectFiltersByProtocol.put(PROTOCOL_HTTP_1_1, complementOf(of(CONTENT_LENGTH_ADJUSTMENT, PROTOCOL_HTTPXE)));
-        connectFiltersByProtocol.put(PROTOCOL_HTTPXE_1_1, complementOf(of(CONTENT_LENGTH_ADJUSTMENT)));
+        Map<String, IoFilterChainTemplate> connectFiltersByProtocol = new HashMap<>();
+        connectFiltersByProtocol.put(PROTOCOL_HTTP_1_1, toTemplate(complementOf(of(CONTENT_LENGTH_ADJUSTMENT, PROTOCOL_HTTPXE))));
+        connectFiltersByProtocol.put(PROTOCOL_HTTPXE_1_1, toTemplate(complementOf(of(CONTENT_LENGTH_ADJUSTMENT))));
         this.connectFiltersByProtocol = unmodifiableMap(connectFiltersByProtocol);
         this.allConnectFilters = allOf(HttpConnectFilter.class);
-        this.persistentConnectionsStore = new PersistentConnectionPool(logger);
+        this.persistentConnectionsStore = new PersistentConnectionPool(logger, this::connectIdle);
     }
 
     @Resource(name = "configuration")
@@ -133,6 +135,14 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
         this.addressFactory = resourceAddressFactory;
     }
 
+    /**
+     * @return the statistics of the persistent connections to the given connect URI, or null if it has not been
+     *         connected to
+     */
+    public PersistentConnectionStatistics getPersistentConnectionStatistics(String connectURI) {
+        return persistentConnectionsStore.getStatistics(connectURI);
+    }
+
     @Override
     protected IoProcessorEx<DefaultHttpSession> initProcessor() {
         return new HttpConnectProcessor(persistentConnectionsStore, logger);
@@ -219,6 +229,16 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
 
     }
 
+    /*
+     * Opens a transport connection with no HTTP session, cached by the persistent connection pool once open
+     */
+    private ConnectFuture connectIdle(HttpResourceAddress address) {
+        ResourceAddress transportAddress = address.getTransport();
+        BridgeConnector connector = bridgeServiceFactory.newBridgeConnector(transportAddress);
+        return connector.connect(transportAddress, bridgeHandler,
+                (parent, future) -> IDLE_CONNECT_ADDRESS_KEY.set(parent, address));
+    }
+
     @SuppressWarnings("deprecation")
     @Override
     public void addBridgeFilters(IoFilterChain chain) {
@@ -236,13 +256,19 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
         }
 
         assert nextProtocol != null;
-        Set<HttpConnectFilter> connectFilters = connectFiltersByProtocol.get(nextProtocol);
-        assert (connectFilters != null && !connectFilters.isEmpty());
+        IoFilterChainTemplate connectFilters = connectFiltersByProtocol.get(nextProtocol);
+        assert (connectFilters != null && connectFilters.size() != 0);
 
+        connectFilters.buildFilterChain(chain);
+        LoggingFilter.moveAfterCodec(transport);
+    }
+
+    private static IoFilterChainTemplate toTemplate(Set<HttpConnectFilter> connectFilters) {
+        IoFilterChainTemplate template = IoFilterChainTemplate.empty();
         for (HttpConnectFilter connectFilter : connectFilters) {
-            chain.addLast(connectFilter.filterName(), connectFilter.filter());
+            template = template.addLast(connectFilter.filterName(), connectFilter.filter());
         }
-        LoggingFilter.moveAfterCodec(transport);
+        return template;
     }
 
     @Override
@@ -293,6 +319,12 @@ public class HttpConnector extends AbstractBridgeConnector<DefaultHttpSession> {
         @Override
         protected void doSessionOpened(IoSessionEx session) throws Exception {
 
+            HttpResourceAddress idleAddress = IDLE_CONNECT_ADDRESS_KEY.remove(session);
+            if (idleAddress != null) {
+                persistentConnectionsStore.cacheIdle(idleAddress, session);
+                return;
+            }
+
             IoFilterChain filterChain = session.getFilterChain();
             addBridgeFilters(filterChain);
 
@@ -56,6 +56,7 @@ public interface HttpHeaders {
     String HEADER_X_SEQUENCE_NO = "X-Sequence-No";
     String HEADER_SET_COOKIE = "Set-Cookie";
     String HEADER_LOCATION = "Location";
+    String HEADER_RETRY_AFTER = "Retry-After";
     String HEADER_WWW_AUTHENTICATE = "WWW-Authenticate";
 
     String HEADER_SEC_CHALLENGE_IDENTITY = "Sec-Challenge-Identity";
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable radix trie of bound paths, answering which bound path is the longest prefix of a request path in time
+ * proportional to the length of the request path, regardless of the number of bound paths. Instances are never
+ * modified once built, so they can be read without locking and replaced as a whole when the bound paths change.
+ */
+final class HttpPathTrie<V> {
+
+    private static final HttpPathTrie<?> EMPTY = new HttpPathTrie<>(new Node<>(""));
+
+    private final Node<V> root;
+
+    private HttpPathTrie(Node<V> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> HttpPathTrie<V> empty() {
+        return (HttpPathTrie<V>) EMPTY;
+    }
+
+    /**
+     * Builds a trie of the given paths.
+     */
+    static <V> HttpPathTrie<V> build(Map<String, V> valuesByPath) {
+        if (valuesByPath.isEmpty()) {
+            return empty();
+        }
+
+        Node<V> root = new Node<>("");
+        for (Map.Entry<String, V> entry : valuesByPath.entrySet()) {
+            root.insert(entry.getKey(), 0, entry.getValue());
+        }
+        return new HttpPathTrie<>(root);
+    }
+
+    /**
+     * @return the value of the longest path that is a prefix of the given path, or null if there is none
+     */
+    V get(String path) {
+        Node<V> node = root;
+        V value = node.value;
+        int position = 0;
+        while (position < path.length()) {
+            node = node.child(path.charAt(position));
+            if (node == null || !path.startsWith(node.label, position)) {
+                break;
+            }
+            position += node.label.length();
+            if (node.value != null) {
+                value = node.value;
+            }
+        }
+        return value;
+    }
+
+    private static final class Node<V> {
+
+        @SuppressWarnings("rawtypes")
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        // the edge label, non-empty except at the root
+        private String label;
+        private V value;
+
+        // sorted by the first character of their labels, which are distinct
+        private Node<V>[] children;
+
+        @SuppressWarnings("unchecked")
+        Node(String label) {
+            this.label = label;
+            this.children = NO_CHILDREN;
+        }
+
+        Node<V> child(char c) {
+            int index = indexOf(c);
+            return (index >= 0) ? children[index] : null;
+        }
+
+        void insert(String path, int position, V newValue) {
+            if (position == path.length()) {
+                value = newValue;
+                return;
+            }
+
+            int index = indexOf(path.charAt(position));
+            if (index < 0) {
+                Node<V> leaf = new Node<>(path.substring(position));
+                leaf.value = newValue;
+                addChild(-(index + 1), leaf);
+                return;
+            }
+
+            Node<V> child = children[index];
+            String childLabel = child.label;
+            int common = 1;
+            int maxCommon = Math.min(childLabel.length(), path.length() - position);
+            while (common < maxCommon && childLabel.charAt(common) == path.charAt(position + common)) {
+                common++;
+            }
+
+            if (common < childLabel.length()) {
+                // split the edge, the child keeps the remainder of its label below the new intermediate node
+                Node<V> intermediate = new Node<>(childLabel.substring(0, common));
+                child.label = childLabel.substring(common);
+                intermediate.addChild(0, child);
+                children[index] = intermediate;
+                child = intermediate;
+            }
+            child.insert(path, position + common, newValue);
+        }
+
+        private int indexOf(char c) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char midChar = children[mid].label.charAt(0);
+                if (midChar < c) {
+                    low = mid + 1;
+                }
+                else if (midChar > c) {
+                    high = mid - 1;
+                }
+                else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void addChild(int index, Node<V> child) {
+            Node<V>[] newChildren = Arrays.copyOf(children, children.length + 1);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            newChildren[index] = child;
+            children = newChildren;
+        }
+    }
+}
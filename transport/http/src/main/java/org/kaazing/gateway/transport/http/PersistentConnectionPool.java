@@ -17,12 +17,15 @@ package org.kaazing.gateway.transport.http;
 
 import org.apache.mina.core.filterchain.IoFilterChain;
 import org.apache.mina.core.future.CloseFuture;
+import org.apache.mina.core.future.ConnectFuture;
 import org.apache.mina.core.future.IoFutureListener;
 import org.apache.mina.core.session.IdleStatus;
 import org.apache.mina.core.session.IoSession;
 import org.kaazing.gateway.resource.address.http.HttpResourceAddress;
+import org.kaazing.gateway.resource.address.uri.URIUtils;
 import org.kaazing.gateway.transport.TypedAttributeKey;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpFilterAdapter;
+import org.kaazing.mina.core.session.AbstractIoSessionEx;
 import org.kaazing.mina.core.session.IoSessionEx;
 import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
 import org.slf4j.Logger;
@@ -31,11 +34,20 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 /*
  * A pool for reusable persistent transport connections. HttpConnector
  * may pick one of the transport connections instead of creating a new
  * one while connecting to the origin server.
+ *
+ * When the keepalive.min.connections option is set, each worker that
+ * connects to a server keeps that many idle connections to it. They are
+ * opened in the background after a connect finds none cached, and are not
+ * evicted when idle. Connections closed by the server are not replaced
+ * until the next connect that finds none cached.
  */
 class PersistentConnectionPool {
 
@@ -43,28 +55,50 @@ class PersistentConnectionPool {
     private static final TypedAttributeKey<HttpResourceAddress> SERVER_ADDRESS =
             new TypedAttributeKey<>(PersistentConnectionPool.class, "address");
 
+    /*
+     * Opens a new transport connection to the server on the current worker,
+     * to be handed to cache() once open.
+     */
+    interface IdleConnector {
+        ConnectFuture connect(HttpResourceAddress serverAddress);
+    }
+
     // server address -> set of persistent connections (per thread).
     // Using ThreadLocal for the following reasons:
     // - we need to return thread-aligned IoSession
     // - it reduces contention compared to synchronized ServerConnections
     private final ThreadLocal<ServerConnections> connections;
 
+    // server origin (scheme://authority) -> statistics, for all threads
+    private final ConcurrentMap<String, PersistentConnectionStatistics> statistics;
+
     private final Logger logger;
+    private final IdleConnector idleConnector;
     private final HttpConnectIdleFilter idleFilter;
     private final CloseListener closeListener;
 
-    PersistentConnectionPool(Logger logger) {
+    PersistentConnectionPool(Logger logger, IdleConnector idleConnector) {
         this.connections = new VicariousThreadLocal<ServerConnections>() {
             @Override
             protected  ServerConnections initialValue() {
                 return new ServerConnections();
             }
         };
+        this.statistics = new ConcurrentHashMap<>();
         this.logger = logger;
-        this.idleFilter = new HttpConnectIdleFilter(logger);
+        this.idleConnector = idleConnector;
+        this.idleFilter = new HttpConnectIdleFilter(this, logger);
         this.closeListener = new CloseListener(this);
     }
 
+    /*
+     * @return the statistics of the connections to the origin of the server URI,
+     *         or null if it has never been connected to
+     */
+    PersistentConnectionStatistics getStatistics(String serverURI) {
+        return statistics.get(getOrigin(serverURI));
+    }
+
     /*
      * Cache existing transport session so that it can be used for future
      * connect requests to server
@@ -73,12 +107,27 @@ class PersistentConnectionPool {
      *         false otherwise
      */
     boolean recycle(DefaultHttpSession httpSession) {
-        if (!add(httpSession)) {
-            return false;
-        }
-
         HttpResourceAddress serverAddress = (HttpResourceAddress)httpSession.getRemoteAddress();
         IoSession transportSession = httpSession.getParent();
+        return cache(serverAddress, transportSession);
+    }
+
+    /*
+     * Caches a new idle transport session opened by the IdleConnector, or
+     * closes it when there is no room left for it
+     */
+    void cacheIdle(HttpResourceAddress serverAddress, IoSession transportSession) {
+        if (cache(serverAddress, transportSession)) {
+            getOrCreateStatistics(serverAddress).recordCreate();
+        } else {
+            transportSession.close(false);
+        }
+    }
+
+    private boolean cache(HttpResourceAddress serverAddress, IoSession transportSession) {
+        if (!add(serverAddress, transportSession)) {
+            return false;
+        }
 
         SERVER_ADDRESS.set(transportSession, serverAddress);
 
@@ -104,7 +153,13 @@ class PersistentConnectionPool {
      */
     IoSession take(HttpResourceAddress serverAddress) {
         IoSession transportSession = removeThreadAligned(serverAddress);
-        if (transportSession != null) {
+        PersistentConnectionStatistics serverStatistics = getOrCreateStatistics(serverAddress);
+        if (transportSession == null) {
+            serverStatistics.recordMiss();
+            // connections are in demand on this worker, make sure there are some ready for next time
+            replenish(serverAddress);
+        } else {
+            serverStatistics.recordHit();
             // Got a cached persistent connection
 
             // Remove session idle tracking for this session
@@ -124,11 +179,64 @@ class PersistentConnectionPool {
         return transportSession;
     }
 
-    private boolean add(DefaultHttpSession httpSession) {
-        HttpResourceAddress serverAddress = (HttpResourceAddress)httpSession.getRemoteAddress();
-        IoSession transportSession = httpSession.getParent();
+    /*
+     * Opens connections to the server in the background, from the current
+     * worker so that they are aligned with it, until the minimum number of
+     * idle connections is cached or being opened
+     */
+    private void replenish(HttpResourceAddress serverAddress) {
+        int minConnections = getMinConnections(serverAddress);
+        Executor worker = AbstractIoSessionEx.CURRENT_WORKER.get();
+        if (minConnections <= 0 || idleConnector == null || worker == null) {
+            return;
+        }
 
+        ServerConnections serverConnections = connections.get();
+        int needed = minConnections - serverConnections.cachedConnections(serverAddress)
+                - serverConnections.pendingConnections(serverAddress);
+        for (int i = 0; i < needed; i++) {
+            serverConnections.addPending(serverAddress, 1);
+            ConnectFuture future = idleConnector.connect(serverAddress);
+            future.addListener(f -> worker.execute(() -> connections.get().addPending(serverAddress, -1)));
+        }
+        if (needed > 0 && logger.isDebugEnabled()) {
+            logger.debug(String.format("Opening %d idle persistent connections: server = %s",
+                    needed, serverAddress.getResource()));
+        }
+    }
+
+    /*
+     * @return true if evicting an idle connection to the server would leave
+     *         fewer than the minimum number of idle connections on this worker
+     */
+    private boolean isAtMinimum(HttpResourceAddress serverAddress) {
+        int minConnections = getMinConnections(serverAddress);
+        return minConnections > 0 && connections.get().cachedConnections(serverAddress) <= minConnections;
+    }
+
+    private static int getMinConnections(HttpResourceAddress serverAddress) {
+        return Math.min(serverAddress.getOption(HttpResourceAddress.KEEP_ALIVE_MIN_CONNECTIONS),
+                serverAddress.getOption(HttpResourceAddress.KEEP_ALIVE_CONNECTIONS));
+    }
+
+    private PersistentConnectionStatistics getOrCreateStatistics(HttpResourceAddress serverAddress) {
+        String origin = getOrigin(serverAddress.getExternalURI());
+        PersistentConnectionStatistics serverStatistics = statistics.get(origin);
+        if (serverStatistics == null) {
+            serverStatistics = new PersistentConnectionStatistics();
+            PersistentConnectionStatistics existing = statistics.putIfAbsent(origin, serverStatistics);
+            if (existing != null) {
+                serverStatistics = existing;
+            }
+        }
+        return serverStatistics;
+    }
 
+    private static String getOrigin(String serverURI) {
+        return URIUtils.getScheme(serverURI) + "://" + URIUtils.getAuthority(serverURI);
+    }
+
+    private boolean add(HttpResourceAddress serverAddress, IoSession transportSession) {
         ServerConnections serverConnections = connections.get();
         boolean cached = serverConnections.add(serverAddress, transportSession);
         if (cached) {
@@ -203,9 +311,11 @@ class PersistentConnectionPool {
      * Filter to detect if a persistent connection is idle
      */
     private static class HttpConnectIdleFilter extends HttpFilterAdapter<IoSessionEx> {
+        private final PersistentConnectionPool store;
         private final Logger logger;
 
-        HttpConnectIdleFilter(Logger logger) {
+        HttpConnectIdleFilter(PersistentConnectionPool store, Logger logger) {
+            this.store = store;
             this.logger = logger;
         }
 
@@ -215,6 +325,15 @@ class PersistentConnectionPool {
                 logger.debug(String.format("Idle cached persistent connection: session=%s", session));
             }
 
+            HttpResourceAddress serverAddress = SERVER_ADDRESS.get(session);
+            if (serverAddress != null) {
+                if (store.isAtMinimum(serverAddress)) {
+                    // keep the minimum number of idle connections warm
+                    return;
+                }
+                store.getOrCreateStatistics(serverAddress).recordEviction();
+            }
+
             // Transport connection will be removed from pool in an listener of CloseFuture
             session.close(false);
         }
@@ -230,8 +349,26 @@ class PersistentConnectionPool {
         // null means empty spot, non null means already cached connection
         private final Map<HttpResourceAddress, IoSession[]> addressToConnections;
 
+        // number of idle connections being opened
+        private final Map<HttpResourceAddress, Integer> addressToPendingConnections;
+
         private ServerConnections() {
             this.addressToConnections = new HashMap<>();
+            this.addressToPendingConnections = new HashMap<>();
+        }
+
+        private void addPending(HttpResourceAddress serverAddress, int delta) {
+            int pending = pendingConnections(serverAddress) + delta;
+            if (pending > 0) {
+                addressToPendingConnections.put(serverAddress, pending);
+            } else {
+                addressToPendingConnections.remove(serverAddress);
+            }
+        }
+
+        private int pendingConnections(HttpResourceAddress serverAddress) {
+            Integer pending = addressToPendingConnections.get(serverAddress);
+            return (pending != null) ? pending : 0;
         }
 
         /*
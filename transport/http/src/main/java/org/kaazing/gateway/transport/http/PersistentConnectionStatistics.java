@@ -0,0 +1,73 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the persistent connections to an upstream server, summed over all the I/O workers.
+ */
+public final class PersistentConnectionStatistics {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder creates = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @return the number of connects that reused a cached connection
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of connects that found no cached connection and opened a new one
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of idle connections opened in advance to keep the minimum number cached
+     */
+    public long getCreateCount() {
+        return creates.sum();
+    }
+
+    /**
+     * @return the number of cached connections closed after being idle for the keep-alive timeout
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordCreate() {
+        creates.increment();
+    }
+
+    void recordEviction() {
+        evictions.increment();
+    }
+}
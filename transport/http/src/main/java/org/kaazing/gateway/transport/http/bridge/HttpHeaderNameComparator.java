@@ -23,6 +23,11 @@ public class HttpHeaderNameComparator implements Comparator<String> {
 
     @Override
     public int compare(String o1, String o2) {
+        if (o1 == o2) {
+            // decoded well-known header names are shared constants
+            return 0;
+        }
+
         // Note: this is reverse ordering to deal with
         // explicit ordering of WebSocket handshake headers
         return -o1.compareToIgnoreCase(o2);
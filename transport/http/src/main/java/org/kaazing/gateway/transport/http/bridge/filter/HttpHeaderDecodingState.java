@@ -23,9 +23,7 @@ import java.nio.charset.CharsetDecoder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.filter.codec.ProtocolDecoderException;
@@ -35,52 +33,12 @@ import org.apache.mina.filter.codec.statemachine.DecodingState;
 import org.apache.mina.filter.codec.statemachine.LinearWhitespaceSkippingState;
 import org.kaazing.gateway.transport.DecodingStateMachine;
 import org.kaazing.gateway.transport.http.bridge.HttpHeaderNameComparator;
+import org.kaazing.gateway.transport.http.bridge.filter.HttpHeaderNames.HttpHeaderName;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.filter.codec.statemachine.ConsumeToCrLfDecodingState;
 import org.kaazing.mina.filter.codec.statemachine.ConsumeToTerminatorDecodingState;
 
 public abstract class HttpHeaderDecodingState extends DecodingStateMachine {
-    private static final Set<String> COMMA_SEPARATED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-    static {
-        COMMA_SEPARATED_HEADERS.add("Accept-Ranges");
-        COMMA_SEPARATED_HEADERS.add("Accept");
-        COMMA_SEPARATED_HEADERS.add("Accept-Charset");
-        COMMA_SEPARATED_HEADERS.add("Accept-Encoding");
-        COMMA_SEPARATED_HEADERS.add("Accept-Language");
-        COMMA_SEPARATED_HEADERS.add("Allow");
-
-        COMMA_SEPARATED_HEADERS.add("Connection");
-        COMMA_SEPARATED_HEADERS.add("Content-Encoding");
-        COMMA_SEPARATED_HEADERS.add("Content-Language");
-        COMMA_SEPARATED_HEADERS.add("If-Match");
-        COMMA_SEPARATED_HEADERS.add("If-None-Match");
-        COMMA_SEPARATED_HEADERS.add("Cache-Control");
-        COMMA_SEPARATED_HEADERS.add("Pragma");
-        COMMA_SEPARATED_HEADERS.add("Proxy-Authenticate");
-
-        COMMA_SEPARATED_HEADERS.add("Sec-WebSocket-Protocol");
-        COMMA_SEPARATED_HEADERS.add("Sec-WebSocket-Extensions");
-        COMMA_SEPARATED_HEADERS.add("Sec-WebSocket-Version");
-
-        COMMA_SEPARATED_HEADERS.add("X-WebSocket-Protocol");
-        COMMA_SEPARATED_HEADERS.add("X-WebSocket-Extensions");
-
-        COMMA_SEPARATED_HEADERS.add("TE");
-        COMMA_SEPARATED_HEADERS.add("Transfer-Encoding");
-        COMMA_SEPARATED_HEADERS.add("Upgrade");
-        COMMA_SEPARATED_HEADERS.add("Vary");
-        COMMA_SEPARATED_HEADERS.add("Via");
-        COMMA_SEPARATED_HEADERS.add("Warning");
-        COMMA_SEPARATED_HEADERS.add("WWW-Authenticate");
-
-        COMMA_SEPARATED_HEADERS.add("Forwarded");
-        COMMA_SEPARATED_HEADERS.add("X-Forwarded-For");
-        COMMA_SEPARATED_HEADERS.add("X-Forwarded-Server");
-        COMMA_SEPARATED_HEADERS.add("X-Forwarded-Proto");
-        COMMA_SEPARATED_HEADERS.add("X-Forwarded-Host");
-
-    }
-
     private static final String HEADER_WEBSOCKET_KEY_PREFIX = "Sec-WebSocket-Key";
 
     private static final Charset US_ASCII = Charset.forName("US-ASCII");
@@ -92,6 +50,8 @@ public abstract class HttpHeaderDecodingState extends DecodingStateMachine {
     // use list to preserve header value ordering
     private Map<String, List<String>> headers;
     private String lastHeaderName;
+    private boolean lastHeaderCommaSeparated;
+    private byte[] scratch = new byte[64];
 
     private final DecodingState FIND_EMPTY_LINE = new CrLfDecodingState() {
         @Override
@@ -115,9 +75,19 @@ public abstract class HttpHeaderDecodingState extends DecodingStateMachine {
             if (buffer == null || !buffer.hasRemaining()) {
                 throw new ProtocolDecoderException("Invalid header name in the request");
             }
-            lastHeaderName = buffer.getString(asciiDecoder);
-            if (!lastHeaderName.trim().equals(lastHeaderName)) {
-                throw new HttpProtocolDecoderException(CLIENT_BAD_REQUEST);
+            int position = buffer.position();
+            int length = buffer.remaining();
+            byte[] name = getBytes(buffer);
+            HttpHeaderName wellKnownName = HttpHeaderNames.lookup(name, length);
+            lastHeaderCommaSeparated = wellKnownName != null && wellKnownName.commaSeparated;
+            if (wellKnownName != null && wellKnownName.matches(name)) {
+                lastHeaderName = wellKnownName.name;
+            } else {
+                buffer.position(position);
+                lastHeaderName = buffer.getString(asciiDecoder);
+                if (!lastHeaderName.trim().equals(lastHeaderName)) {
+                    throw new HttpProtocolDecoderException(CLIENT_BAD_REQUEST);
+                }
             }
             return AFTER_READ_HEADER_NAME;
         }
@@ -134,21 +104,34 @@ public abstract class HttpHeaderDecodingState extends DecodingStateMachine {
         @Override
         protected DecodingState finishDecode(IoBuffer buffer,
                                              ProtocolDecoderOutput out) throws Exception {
-            String value = buffer.getString(utf8Decoder);
             List<String> values = headers.get(lastHeaderName);
             if (values == null) {
                 values = new ArrayList<>();
                 headers.put(lastHeaderName, values);
             }
 
-            if (COMMA_SEPARATED_HEADERS.contains(lastHeaderName)) {
-                // multiple values for the same header has comma separator
-                String[] separatedValues = value.split(",");
-                for (String separatedValue : separatedValues) {
-                    values.add(separatedValue.trim());
+            int position = buffer.position();
+            int length = buffer.remaining();
+            byte[] bytes = getBytes(buffer);
+            if (isAsciiText(bytes, length)) {
+                // common case, build the value strings straight from the bytes without a charset decoder
+                if (lastHeaderCommaSeparated) {
+                    addSeparatedValues(bytes, length, values);
+                } else {
+                    values.add(getAsciiString(bytes, 0, length));
                 }
             } else {
-                values.add(value);
+                buffer.position(position);
+                String value = buffer.getString(utf8Decoder);
+                if (lastHeaderCommaSeparated) {
+                    // multiple values for the same header has comma separator
+                    String[] separatedValues = value.split(",");
+                    for (String separatedValue : separatedValues) {
+                        values.add(separatedValue.trim());
+                    }
+                } else {
+                    values.add(value);
+                }
             }
 
             return AFTER_READ_HEADER_VALUE;
@@ -183,4 +166,71 @@ public abstract class HttpHeaderDecodingState extends DecodingStateMachine {
     private void initHeaders() {
         headers = new TreeMap<>(HttpHeaderNameComparator.INSTANCE);
     }
+
+    /**
+     * Consumes the remaining bytes of the buffer into a scratch array reused across header lines.
+     */
+    private byte[] getBytes(IoBuffer buffer) {
+        int length = buffer.remaining();
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(scratch, 0, length);
+        return scratch;
+    }
+
+    /**
+     * @return true if the bytes are all US-ASCII with no NUL, so they decode the same one byte per character
+     */
+    private static boolean isAsciiText(byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the comma separated values in the bytes, trimmed, with the same results as
+     * splitting the decoded value on commas.
+     */
+    private static void addSeparatedValues(byte[] bytes, int length, List<String> values) {
+        if (length == 0) {
+            values.add("");
+            return;
+        }
+
+        // like String.split, trailing empty values are dropped
+        int limit = length;
+        while (limit > 0 && bytes[limit - 1] == ',') {
+            limit--;
+        }
+
+        int start = 0;
+        while (start < limit) {
+            int end = start;
+            while (end < limit && bytes[end] != ',') {
+                end++;
+            }
+            values.add(getTrimmedAsciiString(bytes, start, end));
+            start = end + 1;
+        }
+    }
+
+    private static String getTrimmedAsciiString(byte[] bytes, int start, int end) {
+        while (start < end && bytes[start] <= ' ') {
+            start++;
+        }
+        while (end > start && bytes[end - 1] <= ' ') {
+            end--;
+        }
+        return getAsciiString(bytes, start, end);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static String getAsciiString(byte[] bytes, int start, int end) {
+        // the bytes are known to be US-ASCII, so each is the low byte of its character
+        return (start == end) ? "" : new String(bytes, 0, start, end - start);
+    }
 }
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Table of well-known header names, matched directly against the bytes of a decoded header name so that the
+ * common headers of a request or response resolve to shared constants instead of newly decoded strings.
+ */
+final class HttpHeaderNames {
+
+    // multiple values for these headers are comma separated
+    private static final String[] COMMA_SEPARATED_HEADERS = {
+        "Accept-Ranges",
+        "Accept",
+        "Accept-Charset",
+        "Accept-Encoding",
+        "Accept-Language",
+        "Allow",
+
+        "Connection",
+        "Content-Encoding",
+        "Content-Language",
+        "If-Match",
+        "If-None-Match",
+        "Cache-Control",
+        "Pragma",
+        "Proxy-Authenticate",
+
+        "Sec-WebSocket-Protocol",
+        "Sec-WebSocket-Extensions",
+        "Sec-WebSocket-Version",
+
+        "X-WebSocket-Protocol",
+        "X-WebSocket-Extensions",
+
+        "TE",
+        "Transfer-Encoding",
+        "Upgrade",
+        "Vary",
+        "Via",
+        "Warning",
+        "WWW-Authenticate",
+
+        "Forwarded",
+        "X-Forwarded-For",
+        "X-Forwarded-Server",
+        "X-Forwarded-Proto",
+        "X-Forwarded-Host"
+    };
+
+    private static final String[] OTHER_HEADERS = {
+        "Authorization",
+        "Content-Length",
+        "Content-Type",
+        "Cookie",
+        "Date",
+        "ETag",
+        "Expires",
+        "Host",
+        "If-Modified-Since",
+        "If-Unmodified-Since",
+        "Keep-Alive",
+        "Last-Modified",
+        "Location",
+        "Origin",
+        "Proxy-Authorization",
+        "Range",
+        "Referer",
+        "Sec-WebSocket-Accept",
+        "Sec-WebSocket-Key",
+        "Server",
+        "Set-Cookie",
+        "User-Agent",
+        "X-Accept-Commands",
+        "X-Create-Encoding",
+        "X-Next-Protocol",
+        "X-Origin",
+        "X-Sequence-No",
+        "X-WebSocket-Version"
+    };
+
+    // well-known names indexed by length, so a lookup compares against only a handful of candidates
+    private static final HttpHeaderName[][] NAMES_BY_LENGTH;
+
+    static {
+        List<List<HttpHeaderName>> namesByLength = new ArrayList<>();
+        for (String name : COMMA_SEPARATED_HEADERS) {
+            add(namesByLength, new HttpHeaderName(name, true));
+        }
+        for (String name : OTHER_HEADERS) {
+            add(namesByLength, new HttpHeaderName(name, false));
+        }
+
+        NAMES_BY_LENGTH = new HttpHeaderName[namesByLength.size()][];
+        for (int length = 0; length < NAMES_BY_LENGTH.length; length++) {
+            List<HttpHeaderName> names = namesByLength.get(length);
+            NAMES_BY_LENGTH[length] = names.toArray(new HttpHeaderName[names.size()]);
+        }
+    }
+
+    private HttpHeaderNames() {
+        // utility
+    }
+
+    /**
+     * @return the well-known header name that matches the given bytes ignoring case, or null if none
+     */
+    static HttpHeaderName lookup(byte[] name, int length) {
+        if (length >= NAMES_BY_LENGTH.length) {
+            return null;
+        }
+
+        for (HttpHeaderName candidate : NAMES_BY_LENGTH[length]) {
+            if (candidate.matchesIgnoreCase(name)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static void add(List<List<HttpHeaderName>> namesByLength, HttpHeaderName name) {
+        int length = name.bytes.length;
+        while (namesByLength.size() <= length) {
+            namesByLength.add(new ArrayList<HttpHeaderName>());
+        }
+        namesByLength.get(length).add(name);
+    }
+
+    static final class HttpHeaderName {
+        final String name;
+        final boolean commaSeparated;
+
+        private final byte[] bytes;
+
+        private HttpHeaderName(String name, boolean commaSeparated) {
+            this.name = name;
+            this.commaSeparated = commaSeparated;
+            this.bytes = new byte[name.length()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) name.charAt(i);
+            }
+        }
+
+        /**
+         * @return true if the given bytes spell this name with exactly the same case
+         */
+        boolean matches(byte[] name) {
+            for (int i = 0; i < bytes.length; i++) {
+                if (name[i] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matchesIgnoreCase(byte[] name) {
+            for (int i = 0; i < bytes.length; i++) {
+                byte b = name[i];
+                if (b != bytes[i] && toLowerCase(b) != toLowerCase(bytes[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int toLowerCase(byte b) {
+            return (b >= 'A' && b <= 'Z') ? b + ('a' - 'A') : b;
+        }
+    }
+}
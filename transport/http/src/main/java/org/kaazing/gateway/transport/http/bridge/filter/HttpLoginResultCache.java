@@ -0,0 +1,280 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.Subject;
+
+import org.kaazing.gateway.security.auth.DefaultLoginResult;
+import org.kaazing.gateway.server.spi.security.AuthenticationToken;
+
+/**
+ * Successful logins to each realm, keyed by the authentication scheme and token, so that a client reconnecting with
+ * the same token (for example a WSEB long-poll or a balancer redirect) does not run the login module chain again.
+ * <p/>
+ * A login is reused for at most the configured time to live, and never beyond the session timeout set by the login
+ * modules, which is how they bound a login by the expiry of its token. Concurrent logins with the same token are
+ * coalesced: the first runs the login module chain while the others wait for it to complete before looking up its
+ * result. Tokens are only retained as digests.
+ * <p/>
+ * The cache assumes that the login modules of a realm only depend on the token, so it must not be enabled for
+ * realms that authorize by, for example, the remote address of the client.
+ */
+public final class HttpLoginResultCache {
+
+    private static final ThreadLocal<MessageDigest> TOKEN_DIGEST = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    };
+
+    private final long timeToLiveMillis;
+    private final int maximumEntries;
+    private final ConcurrentMap<String, RealmCache> realmCaches;
+
+    public HttpLoginResultCache(long timeToLive, TimeUnit unit, int maximumEntries) {
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException("timeToLive must be positive");
+        }
+        if (maximumEntries <= 0) {
+            throw new IllegalArgumentException("maximumEntries must be positive");
+        }
+        this.timeToLiveMillis = unit.toMillis(timeToLive);
+        this.maximumEntries = maximumEntries;
+        this.realmCaches = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Forgets the login of the given token to the given realm, for example when the token has been revoked.
+     *
+     * @return true iff a login was cached for the token
+     */
+    public boolean invalidate(String realmName, AuthenticationToken token) {
+        RealmCache realmCache = realmCaches.get(realmName);
+        return realmCache != null && realmCache.entries.remove(key(token)) != null;
+    }
+
+    /**
+     * Forgets all logins to the given realm of the subjects holding the given principal, for example when a user
+     * has been disabled.
+     *
+     * @return the number of logins forgotten
+     */
+    public int invalidate(String realmName, Principal principal) {
+        RealmCache realmCache = realmCaches.get(realmName);
+        if (realmCache == null) {
+            return 0;
+        }
+
+        int invalidated = 0;
+        for (Iterator<CachedLoginResult> i = realmCache.entries.values().iterator(); i.hasNext();) {
+            if (i.next().principals.contains(principal)) {
+                i.remove();
+                invalidated++;
+            }
+        }
+        return invalidated;
+    }
+
+    /**
+     * Forgets all logins to the given realm, for example when its login modules have been reconfigured.
+     */
+    public void invalidate(String realmName) {
+        RealmCache realmCache = realmCaches.get(realmName);
+        if (realmCache != null) {
+            realmCache.entries.clear();
+        }
+    }
+
+    public void invalidateAll() {
+        for (RealmCache realmCache : realmCaches.values()) {
+            realmCache.entries.clear();
+        }
+    }
+
+    /**
+     * @return the number of logins cached for the given realm, including expired ones not yet evicted
+     */
+    public int size(String realmName) {
+        RealmCache realmCache = realmCaches.get(realmName);
+        return realmCache != null ? realmCache.entries.size() : 0;
+    }
+
+    /**
+     * @return the key under which logins with the given token are cached
+     */
+    static String key(AuthenticationToken token) {
+        MessageDigest digest = TOKEN_DIGEST.get();
+        update(digest, token.getScheme());
+        for (int i = 0; i < token.size(); i++) {
+            update(digest, token.get(i));
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    /**
+     * @return the cached login, or null if the token has not logged in to the realm or its login has expired
+     */
+    CachedLoginResult get(String realmName, String key) {
+        RealmCache realmCache = realmCaches.get(realmName);
+        if (realmCache == null) {
+            return null;
+        }
+
+        CachedLoginResult cached = realmCache.entries.get(key);
+        if (cached != null && cached.isExpired(System.currentTimeMillis())) {
+            realmCache.entries.remove(key, cached);
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * Caches a successful login, unless the realm is full of unexpired logins. The subject is copied so that logging
+     * out of the original login context does not affect the cached login.
+     */
+    void put(String realmName, String key, Subject subject, DefaultLoginResult loginResult) {
+        long now = System.currentTimeMillis();
+        Long sessionTimeout = loginResult.getSessionTimeout();
+        long sessionExpiration = (sessionTimeout != null) ? now + TimeUnit.SECONDS.toMillis(sessionTimeout) : Long.MAX_VALUE;
+        long expiration = Math.min(now + timeToLiveMillis, sessionExpiration);
+
+        RealmCache realmCache = realmCache(realmName);
+        if (realmCache.entries.size() >= maximumEntries) {
+            realmCache.evictExpired(now);
+            if (realmCache.entries.size() >= maximumEntries) {
+                return;
+            }
+        }
+        realmCache.entries.put(key, new CachedLoginResult(subject, sessionTimeout != null, sessionExpiration, expiration));
+    }
+
+    /**
+     * Registers a login in progress with the given token.
+     *
+     * @return null if the caller should login, and call {@link #endLogin(String, String)} when done, otherwise the
+     *         future completed when the login already in progress is done
+     */
+    CompletableFuture<Void> beginLogin(String realmName, String key) {
+        return realmCache(realmName).logins.putIfAbsent(key, new CompletableFuture<>());
+    }
+
+    void endLogin(String realmName, String key) {
+        CompletableFuture<Void> login = realmCache(realmName).logins.remove(key);
+        if (login != null) {
+            login.complete(null);
+        }
+    }
+
+    private RealmCache realmCache(String realmName) {
+        RealmCache realmCache = realmCaches.get(realmName);
+        if (realmCache == null) {
+            RealmCache newRealmCache = new RealmCache();
+            realmCache = realmCaches.putIfAbsent(realmName, newRealmCache);
+            if (realmCache == null) {
+                realmCache = newRealmCache;
+            }
+        }
+        return realmCache;
+    }
+
+    private static void update(MessageDigest digest, String component) {
+        if (component == null) {
+            digest.update((byte) 0);
+        } else {
+            // prefix each component with its length so that adjacent components cannot be confused
+            byte[] bytes = component.getBytes(UTF_8);
+            int length = bytes.length + 1;
+            digest.update(new byte[] { (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length });
+            digest.update(bytes);
+        }
+    }
+
+    private static final class RealmCache {
+        private final ConcurrentMap<String, CachedLoginResult> entries = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, CompletableFuture<Void>> logins = new ConcurrentHashMap<>();
+
+        private void evictExpired(long now) {
+            for (Iterator<CachedLoginResult> i = entries.values().iterator(); i.hasNext();) {
+                if (i.next().isExpired(now)) {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * A snapshot of the subject and session timeout of a successful login.
+     */
+    static final class CachedLoginResult {
+        private final Set<Principal> principals;
+        private final Set<Object> publicCredentials;
+        private final Set<Object> privateCredentials;
+        private final boolean hasSessionTimeout;
+        private final long sessionExpiration;
+        private final long expiration;
+
+        private CachedLoginResult(Subject subject, boolean hasSessionTimeout, long sessionExpiration, long expiration) {
+            this.principals = new HashSet<>(subject.getPrincipals());
+            this.publicCredentials = new HashSet<>(subject.getPublicCredentials());
+            this.privateCredentials = new HashSet<>(subject.getPrivateCredentials());
+            this.hasSessionTimeout = hasSessionTimeout;
+            this.sessionExpiration = sessionExpiration;
+            this.expiration = expiration;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expiration;
+        }
+
+        /**
+         * @return a new subject, so that sessions reusing this login cannot affect each other
+         */
+        Subject newSubject() {
+            return new Subject(false, principals, publicCredentials, privateCredentials);
+        }
+
+        /**
+         * @return a successful login result whose session timeout, if any, is what remains of the original one
+         */
+        DefaultLoginResult newLoginResult(long now) {
+            DefaultLoginResult loginResult = new DefaultLoginResult();
+            if (hasSessionTimeout) {
+                long remainingMillis = Math.max(sessionExpiration - now, 1L);
+                loginResult.setSessionTimeout((remainingMillis + 999L) / 1000L);
+            }
+            return loginResult;
+        }
+    }
+}
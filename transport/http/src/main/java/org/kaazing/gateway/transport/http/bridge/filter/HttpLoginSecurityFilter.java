@@ -81,6 +81,11 @@ public abstract class HttpLoginSecurityFilter extends HttpBaseSecurityFilter {
 
     private final ExpiringState expiringState;
 
+    /**
+     * Successful logins shared by all sessions, or null if logins are not cached.
+     */
+    private HttpLoginResultCache loginResultCache;
+
 	public HttpLoginSecurityFilter() {
         super();
         this.expiringState = null;
@@ -91,6 +96,70 @@ public abstract class HttpLoginSecurityFilter extends HttpBaseSecurityFilter {
         this.expiringState = expiringState;
     }
 
+    public void setLoginResultCache(HttpLoginResultCache loginResultCache) {
+        this.loginResultCache = loginResultCache;
+    }
+
+    /**
+     * @return the key under which a login with the given token is cached, or null if such a login cannot be cached
+     *         (logins are not cached, there is no token, or the login depends on the subjects of other realms)
+     */
+    protected String getLoginResultCacheKey(AuthenticationToken authToken, HttpRealmInfo[] realms) {
+        if (loginResultCache == null || realms.length != 1 || authTokenIsMissing(authToken)) {
+            return null;
+        }
+        return HttpLoginResultCache.key(authToken);
+    }
+
+    protected HttpLoginResultCache getLoginResultCache() {
+        return loginResultCache;
+    }
+
+    /**
+     * Login using a cached successful login with the same token, without running the login module chain.
+     * @return true iff a login was cached and its subject has the roles required by the request.
+     */
+    protected boolean loginFromCache(HttpRequestMessage httpRequest,
+                                     String cacheKey,
+                                     HttpRealmInfo realm,
+                                     int realmIndex,
+                                     LoginContext[] loginContexts) {
+        HttpLoginResultCache.CachedLoginResult cached = loginResultCache.get(realm.getName(), cacheKey);
+        if (cached == null) {
+            return false;
+        }
+
+        // the cached login may be for a service of the realm requiring other roles
+        Collection<String> requireRoles = asList(httpRequest.getLocalAddress().getOption(REQUIRED_ROLES));
+        Subject subject = cached.newSubject();
+        if (!getAuthorizedRoles(subject).containsAll(requireRoles) && !isSubjectAutomaticallyAuthorized(subject, requireRoles)) {
+            return false;
+        }
+
+        ResultAwareLoginContext loginContext;
+        try {
+            // logging out of this login context runs no login modules and so leaves the cached login intact
+            loginContext = new ResultAwareLoginContext(realm.getName(), subject, null, new SuccessConfiguration(),
+                                                       cached.newLoginResult(System.currentTimeMillis()));
+        } catch (LoginException e) {
+            if (loggerEnabled()) {
+                log("Cached login failed.", e);
+            }
+            return false;
+        }
+
+        if (loginContexts != null) {
+            loginContexts[realmIndex] = loginContext;
+        }
+        httpRequest.setLoginContext(loginContext);
+        httpRequest.setSubject(subject);
+
+        if (loggerEnabled()) {
+            log("Login module login not required - token logged in recently; [realm=%s].", realm.getName());
+        }
+        return true;
+    }
+
     /**
      * A session is "already logged in" under either of these circumstances:
      * <ol>
@@ -317,6 +386,12 @@ public abstract class HttpLoginSecurityFilter extends HttpBaseSecurityFilter {
         }
 
 
+        // A token that logged in to this realm recently does not need to run the login module chain again.
+        String cacheKey = rolesAreSufficient ? null : getLoginResultCacheKey(authToken, realms);
+        if (cacheKey != null && loginFromCache(httpRequest, cacheKey, realm, realmIndex, loginContexts)) {
+            return true;
+        }
+
         if (!rolesAreSufficient) {
             // We have a token to validate - let us validate it by logging in to a login module.
             final LoginContextFactory loginContextFactory = realm.getLoginContextFactory();
@@ -393,6 +468,11 @@ public abstract class HttpLoginSecurityFilter extends HttpBaseSecurityFilter {
                     }
                     return false;
                 }
+
+                if (cacheKey != null && resultType == SUCCESS && !loginResult.hasLoginAuthorizationAttachment()) {
+                    // the authorization attachment (e.g. a session cookie) is specific to this login
+                    loginResultCache.put(realm.getName(), cacheKey, subject, loginResult);
+                }
             } catch (Exception e) {
                 loginOK = false;
 
@@ -15,13 +15,18 @@
  */
 package org.kaazing.gateway.transport.http.bridge.filter;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_RETRY_AFTER;
 import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_SEC_CHALLENGE_IDENTITY;
 
 import java.security.Principal;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Function;
 
@@ -34,6 +39,8 @@ import org.apache.mina.core.write.WriteRequest;
 import org.kaazing.gateway.resource.address.ResourceAddress;
 import org.kaazing.gateway.resource.address.http.HttpRealmInfo;
 import org.kaazing.gateway.resource.address.http.HttpResourceAddress;
+import org.kaazing.gateway.security.RealmLoginExecutor;
+import org.kaazing.gateway.security.RealmLoginExecutors;
 import org.kaazing.gateway.security.TypedCallbackHandlerMap;
 import org.kaazing.gateway.security.auth.DefaultLoginResult;
 import org.kaazing.gateway.security.auth.NamedSubjectCallbackHandler;
@@ -50,7 +57,9 @@ import org.kaazing.gateway.transport.http.bridge.HttpResponseMessage;
 import org.kaazing.gateway.transport.http.security.auth.token.AuthenticationTokenExtractor;
 import org.kaazing.gateway.transport.http.security.auth.token.DefaultAuthenticationTokenExtractor;
 import org.kaazing.gateway.util.scheduler.SchedulerProvider;
+import org.kaazing.mina.core.future.DefaultWriteFutureEx;
 import org.kaazing.mina.core.session.IoSessionEx;
+import org.kaazing.mina.core.write.DefaultWriteRequestEx;
 import org.slf4j.Logger;
 
 
@@ -70,6 +79,8 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
 
     private ScheduledExecutorService scheduler;
 
+    private RealmLoginExecutors realmLoginExecutors;
+
     public HttpSubjectSecurityFilter() {
         this(null, null);
     }
@@ -90,6 +101,13 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
         this.scheduler = provider.getScheduler("loginmodule", false);
     }
 
+    /**
+     * Runs the logins to each realm on its own executor rather than on the shared scheduler.
+     */
+    public void setRealmLoginExecutors(RealmLoginExecutors realmLoginExecutors) {
+        this.realmLoginExecutors = realmLoginExecutors;
+    }
+
     // --------------------------------------------------------
     // Security code for subject-security LEGACY
 
@@ -384,6 +402,13 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
         // check for such things.
         authToken.setScheme(expectedChallengeScheme);
 
+        // A token that logged in recently does not need to leave the I/O thread
+        String cacheKey = getLoginResultCacheKey(authToken, realms);
+        if (cacheKey != null && loginFromCache(httpRequest, cacheKey, realm, realmIndex, loginContexts)) {
+            super.doMessageReceived(nextFilter, session, httpRequest);
+            return;
+        }
+
         // Suspend incoming events into this filter. Will resume after LoginContext.login() completion
         suspendIncoming(session);
 
@@ -395,9 +420,33 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
             additionalCallbacks.put(NamedSubjectCallback.class, callbackHandler);
         }
 
+        Executor loginExecutor = (realmLoginExecutors != null) ? realmLoginExecutors.getExecutor(realm.getName()) : scheduler;
+
+        if (cacheKey != null) {
+            CompletableFuture<Void> loginInProgress = getLoginResultCache().beginLogin(realm.getName(), cacheKey);
+            if (loginInProgress != null) {
+                // Another request is logging in with the same token, so login after it completes using its result
+                LoginContextTask loginContextTask = new LoginContextTask(nextFilter, session, httpRequest, authToken,
+                        additionalCallbacks, realms, realmIndex, loginContexts, null);
+                loginInProgress.thenRun(() -> executeLoginTask(loginExecutor, loginContextTask));
+                return;
+            }
+        }
+
         // Schedule LoginContext.login() execution using a separate thread
-        LoginContextTask loginContextTask = new LoginContextTask(nextFilter, session, httpRequest, authToken, additionalCallbacks, realms, realmIndex, loginContexts);
-        scheduler.execute(loginContextTask);
+        LoginContextTask loginContextTask = new LoginContextTask(nextFilter, session, httpRequest, authToken, additionalCallbacks, realms, realmIndex, loginContexts, cacheKey);
+        executeLoginTask(loginExecutor, loginContextTask);
+    }
+
+    private void executeLoginTask(Executor loginExecutor, LoginContextTask loginContextTask) {
+        try {
+            loginExecutor.execute(loginContextTask);
+        } catch (RejectedExecutionException e) {
+            // Too many logins to the realm are pending, so shed this one rather than let the backlog grow
+            long retryAfter = (loginExecutor instanceof RealmLoginExecutor)
+                    ? ((RealmLoginExecutor) loginExecutor).getRetryAfter(SECONDS) : 1L;
+            loginContextTask.reject(retryAfter);
+        }
     }
 
     private Subject findNamedSubject(String name, HttpRealmInfo[] realms, int realmIndex, LoginContext[] loginContexts) {
@@ -434,10 +483,15 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
         private final HttpRealmInfo[] realms;
         private final int realmStartAt;
         private final LoginContext[] loginContexts;
+        private final String cacheKey;
 
+        /**
+         * @param cacheKey the key of the login in progress registered in the login result cache by this task,
+         *                 or null if none
+         */
         LoginContextTask(NextFilter nextFilter, IoSession session, HttpRequestMessage httpRequest,
                          DefaultAuthenticationToken authToken, TypedCallbackHandlerMap additionalCallbacks,
-                         HttpRealmInfo[] realms, int realmIndex, LoginContext[] loginContexts) {
+                         HttpRealmInfo[] realms, int realmIndex, LoginContext[] loginContexts, String cacheKey) {
             this.nextFilter = nextFilter;
             this.session = session;
             this.httpRequest = httpRequest;
@@ -447,6 +501,36 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
             this.realms = realms;
             this.realmStartAt = realmIndex;
             this.loginContexts = loginContexts != null ? loginContexts : new LoginContext[realms.length];
+            this.cacheKey = cacheKey;
+        }
+
+        /**
+         * Responds that the login cannot be run now, asking the client to retry after the given number of seconds.
+         * The response is written on the I/O thread of the session, as a follower is rejected on the login thread
+         * of the login it waited for.
+         */
+        void reject(long retryAfter) {
+            if (cacheKey != null) {
+                getLoginResultCache().endLogin(realms[realmStartAt].getName(), cacheKey);
+            }
+            if (loggerEnabled()) {
+                logger.trace(String.format("Login rejected because too many logins to realm '%s' are pending",
+                        realms[realmStartAt].getName()));
+            }
+
+            ((IoSessionEx) session).getIoExecutor().execute(() -> {
+                HttpResponseMessage httpResponse = new HttpResponseMessage();
+                httpResponse.setVersion(httpRequest.getVersion());
+                httpResponse.setStatus(HttpStatus.SERVER_SERVICE_UNAVAILABLE);
+                httpResponse.setHeader(HEADER_RETRY_AFTER, Long.toString(retryAfter));
+                nextFilter.filterWrite(session, new DefaultWriteRequestEx(httpResponse, new DefaultWriteFutureEx(session)));
+
+                try {
+                    HttpSubjectSecurityFilter.super.resumeIncoming(session);
+                } catch (Exception e) {
+                    session.getFilterChain().fireExceptionCaught(e);
+                }
+            });
         }
 
         @Override
@@ -457,8 +541,15 @@ public class HttpSubjectSecurityFilter extends HttpLoginSecurityFilter {
             }
 
             boolean succeeded = true;
-            for (int realmIndex = realmStartAt; succeeded && realmIndex < realms.length; realmIndex++) {
-                succeeded &= login(nextFilter, session, httpRequest, authToken, additionalCallbacks, realms, realmIndex, loginContexts);
+            try {
+                for (int realmIndex = realmStartAt; succeeded && realmIndex < realms.length; realmIndex++) {
+                    succeeded &= login(nextFilter, session, httpRequest, authToken, additionalCallbacks, realms, realmIndex, loginContexts);
+                }
+            } finally {
+                if (cacheKey != null) {
+                    // Let concurrent requests with the same token use the result of this login
+                    getLoginResultCache().endLogin(realms[realmStartAt].getName(), cacheKey);
+                }
             }
 
             //
@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import org.apache.mina.core.future.IoFuture;
@@ -420,6 +421,109 @@ public class HttpBindingsTest {
         assertSame(fizBinding, httpBindings.getBinding(addressFactory.newResourceAddress("http://example.com/bar/fiz/extra", makeOpts())));
     }
 
+    @Test
+    public void shouldGetBindingOfLongestBoundPathPrefix() throws Exception {
+        ResourceAddress address = addressFactory.newResourceAddress("http://example.com/", makeOpts());
+        HttpBindings.HttpBinding httpBinding = new HttpBindings.HttpBinding(address);
+        Bindings.Binding rootBinding = new Bindings.Binding(address, handler);
+        Bindings.Binding fooBinding = new Bindings.Binding(address, handler);
+        Bindings.Binding fooBarBinding = new Bindings.Binding(address, handler);
+        Bindings.Binding dirBinding = new Bindings.Binding(address, handler);
+
+        assertNull(httpBinding.put("/", rootBinding));
+        assertNull(httpBinding.put("/foo", fooBinding));
+        assertNull(httpBinding.put("/foo/bar", fooBarBinding));
+        assertNull(httpBinding.put("/dir/", dirBinding));
+
+        assertSame(rootBinding, httpBinding.get("/"));
+        assertSame(rootBinding, httpBinding.get("/fo"));
+        assertSame(fooBinding, httpBinding.get("/foo"));
+        assertSame(fooBinding, httpBinding.get("/foo/"));
+        assertSame(fooBinding, httpBinding.get("/foo/ba"));
+        assertSame(fooBarBinding, httpBinding.get("/foo/bar/baz"));
+        assertNull(httpBinding.get(""));
+
+        // paths are matched as string prefixes, so /foo also serves /foobar
+        assertSame(fooBinding, httpBinding.get("/foobar"));
+
+        // paths differing only by trailing slashes are bound once, under the path bound first
+        assertSame(dirBinding, httpBinding.put("/dir", new Bindings.Binding(address, handler)));
+        assertSame(rootBinding, httpBinding.get("/dir"));
+        assertSame(dirBinding, httpBinding.get("/dir/index.html"));
+    }
+
+    @Test
+    public void shouldGetBindingOfLongestBoundPathPrefixAfterUnbind() throws Exception {
+        ResourceAddress address = addressFactory.newResourceAddress("http://example.com/", makeOpts());
+        HttpBindings.HttpBinding httpBinding = new HttpBindings.HttpBinding(address);
+        Bindings.Binding fooBinding = new Bindings.Binding(address, handler);
+        Bindings.Binding fooBarBinding = new Bindings.Binding(address, handler);
+        fooBinding.incrementReferenceCount();
+        fooBarBinding.incrementReferenceCount();
+
+        httpBinding.put("/foo", fooBinding);
+        httpBinding.put("/foo/bar", fooBarBinding);
+        assertTrue(httpBinding.remove("/foo/bar", fooBarBinding));
+
+        assertSame(fooBinding, httpBinding.get("/foo/bar/baz"));
+        assertTrue(httpBinding.remove("/foo", fooBinding));
+        assertNull(httpBinding.get("/foo/bar/baz"));
+        assertTrue(httpBinding.isEmpty());
+    }
+
+    @Test
+    public void shouldOrderEmptyPathAfterSlashes() throws Exception {
+        ResourceAddress address = addressFactory.newResourceAddress("http://example.com/", makeOpts());
+        HttpBindings.HttpBinding httpBinding = new HttpBindings.HttpBinding(address);
+        Bindings.Binding emptyBinding = new Bindings.Binding(address, handler);
+        Bindings.Binding slashBinding = new Bindings.Binding(address, handler);
+
+        assertNull(httpBinding.put("/", slashBinding));
+        assertSame(slashBinding, httpBinding.get("/foo"));
+        assertNull(httpBinding.put("", emptyBinding));
+
+        assertSame(emptyBinding, httpBinding.get("/foo"));
+        assertSame(emptyBinding, httpBinding.get(""));
+        assertSame(slashBinding, httpBinding.get("/"));
+        assertSame(slashBinding, httpBinding.get("//"));
+    }
+
+    @Test
+    public void shouldGetSameBindingsAsLinearScan() throws Exception {
+        ResourceAddress address = addressFactory.newResourceAddress("http://example.com/", makeOpts());
+        HttpBindings.HttpBinding httpBinding = new HttpBindings.HttpBinding(address);
+        Map<String, Bindings.Binding> bindingsByPath = new HashMap<>();
+
+        Random random = new Random(0);
+        String[] segments = { "a", "ab", "b", "ws", "wse", "" };
+        for (int i = 0; i < 200; i++) {
+            String path = randomPath(random, segments);
+            Bindings.Binding binding = new Bindings.Binding(address, handler);
+            if (httpBinding.put(path, binding) == null) {
+                bindingsByPath.put(path, binding);
+            }
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            String path = randomPath(random, segments);
+            String longestPath = null;
+            for (String boundPath : bindingsByPath.keySet()) {
+                if (path.startsWith(boundPath) && (longestPath == null || boundPath.length() > longestPath.length())) {
+                    longestPath = boundPath;
+                }
+            }
+            assertSame(path, longestPath != null ? bindingsByPath.get(longestPath) : null, httpBinding.get(path));
+        }
+    }
+
+    private static String randomPath(Random random, String[] segments) {
+        StringBuilder path = new StringBuilder();
+        for (int i = random.nextInt(4); i >= 0; i--) {
+            path.append('/').append(segments[random.nextInt(segments.length)]);
+        }
+        return path.toString();
+    }
+
     @Test
     public void testBindPutLogic() throws Exception {
 
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.http.bridge.filter;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import javax.security.auth.Subject;
+
+import org.junit.Test;
+import org.kaazing.gateway.security.auth.DefaultLoginResult;
+import org.kaazing.gateway.security.auth.token.DefaultAuthenticationToken;
+import org.kaazing.gateway.transport.http.bridge.filter.HttpLoginResultCache.CachedLoginResult;
+
+public class HttpLoginResultCacheTest {
+
+    private static final String REALM = "demo";
+
+    private static final Principal AUTHORIZED = new Principal() {
+        @Override
+        public String getName() {
+            return "AUTHORIZED";
+        }
+    };
+
+    @Test
+    public void shouldKeyByScheme() throws Exception {
+        String key = HttpLoginResultCache.key(new DefaultAuthenticationToken("Basic", "am9lOndlbGNvbWU="));
+
+        assertEquals(key, HttpLoginResultCache.key(new DefaultAuthenticationToken("Basic", "am9lOndlbGNvbWU=")));
+        assertNotEquals(key, HttpLoginResultCache.key(new DefaultAuthenticationToken("Token", "am9lOndlbGNvbWU=")));
+    }
+
+    @Test
+    public void shouldKeyByAllComponents() throws Exception {
+        DefaultAuthenticationToken token = new DefaultAuthenticationToken("Token", "ab");
+        token.add("c");
+        DefaultAuthenticationToken otherToken = new DefaultAuthenticationToken("Token", "a");
+        otherToken.add("bc");
+
+        assertNotEquals(HttpLoginResultCache.key(token), HttpLoginResultCache.key(otherToken));
+    }
+
+    @Test
+    public void shouldNotRetainToken() throws Exception {
+        String key = HttpLoginResultCache.key(new DefaultAuthenticationToken("Token", "gobbledegook"));
+
+        assertFalse(key.contains("gobbledegook"));
+    }
+
+    @Test
+    public void shouldGetCachedLogin() throws Exception {
+        HttpLoginResultCache cache = new HttpLoginResultCache(1, MINUTES, 10);
+        Subject subject = newSubject();
+        cache.put(REALM, "key", subject, new DefaultLoginResult());
+
+        CachedLoginResult cached = cache.get(REALM, "key");
+        assertNotNull(cached);
+        assertNull(cache.get(REALM, "other key"));
+        assertNull(cache.get("other realm", "key"));
+
+        Subject cachedSubject = cached.newSubject();
+        assertNotSame(subject, cachedSubject);
+        assertEquals(subject.getPrincipals(), cachedSubject.getPrincipals());
+        assertNull(cached.newLoginResult(System.currentTimeMillis()).getSessionTimeout());
+    }
+
+    @Test
+    public void shouldNotBeAffectedByLogout() throws Exception {
+        HttpLoginResultCache cache = new HttpLoginResultCache(1, MINUTES, 10);
+        Subject subject = newSubject();
+        cache.put(REALM, "key", subject, new DefaultLoginResult());
+
+        // login modules typically remove their principals on logout
+        subject.getPrincipals().clear();
+
+        assertTrue(cache.get(REALM, "key").newSubject().getPrincipals().contains(AUTHORIZED));
+    }
+
+    @Test
+    public void shouldExpireCachedLogin() throws Exception {
+        HttpLoginResultCache cache = new HttpLoginResultCache(1, MILLISECONDS, 10);
+        cache.put(REALM, "key", newSubject(), new DefaultLoginResult());
+
+        Thread.sleep(5);
+
+        assertNull(cache.get(REALM, "key"));
+        assertEquals(0, cache.size(REALM));
+    }
+
+    @Test
+    public void shouldBoundSessionTimeoutByOriginalLogin() throws Exception {
+        HttpLoginResultCache cache = new HttpLoginResultCache(10, MINUTES, 10);
+        DefaultLoginResult loginResult = new DefaultLoginResult();
+        loginResult.setSessionTimeout(30);
+        cache.put(REALM, "key", newSubject(), loginResult);
+        long now = System.currentTimeMillis();
+
+        CachedLoginResult cached = cache.get(REALM, "key");
+        assertEquals(Long.valueOf(30), cached.newLoginResult(now).getSessionTimeout());
+        assertEquals(Long.valueOf(10), cached.newLoginResult(now + 20000).getSessionTimeout());
+
+        // the token expires before the time to live of the cache
+        assertFalse(cached.isExpired(now + 29000));
+        assertTrue(cached.isExpired(now + 31000));
+    }
+
+    @Test
+    public void shouldInvalidateByToken() throws Exception {
+        HttpLoginResultCache cache = new HttpLoginResultCache(1, MINUTES, 10);
+        DefaultAuthenticationToken token = new DefaultAuthenticationToken("Token", "gobbledegook");
+        cache.put(REALM, HttpLoginResultCache.key(token), newSubject(), new DefaultLoginResult());
+
+        assertTrue(cache.invalidate(REALM, token));
+        assertFalse(cache.invalidate(REALM, token));
+        assertNull(cache.get(REALM, HttpLoginResultCache.key(token)));
+    }
+
+    @Test
+    public void shouldInvalidateByPrincipal() throws Exception {
+        HttpLoginResultCache cache = new HttpLoginResultCache(1, MINUTES, 10);
+        cache.put(REALM, "key1", newSubject(), new DefaultLoginResult());
+        cache.put(REALM, "key2", newSubject(), new DefaultLoginResult());
+        cache.put(REALM, "key3", new Subject(), new DefaultLoginResult());
+
+        assertEquals(2, cache.invalidate(REALM, AUTHORIZED));
+        assertEquals(1, cache.size(REALM));
+    }
+
+    @Test
+    public void shouldInvalidateByRealm() throws Exception {
+        HttpLoginResultCache cache = new HttpLoginResultCache(1, MINUTES, 10);
+        cache.put(REALM, "key", newSubject(), new DefaultLoginResult());
+        cache.put("other realm", "key", newSubject(), new DefaultLoginResult());
+
+        cache.invalidate(REALM);
+        assertNull(cache.get(REALM, "key"));
+        assertNotNull(cache.get("other realm", "key"));
+
+        cache.invalidateAll();
+        assertNull(cache.get("other realm", "key"));
+    }
+
+    @Test
+    public void shouldNotExceedMaximumEntries() throws Exception {
+        HttpLoginResultCache cache = new HttpLoginResultCache(1, MINUTES, 2);
+        cache.put(REALM, "key1", newSubject(), new DefaultLoginResult());
+        cache.put(REALM, "key2", newSubject(), new DefaultLoginResult());
+        cache.put(REALM, "key3", newSubject(), new DefaultLoginResult());
+
+        assertEquals(2, cache.size(REALM));
+        assertNull(cache.get(REALM, "key3"));
+    }
+
+    @Test
+    public void shouldCoalesceConcurrentLogins() throws Exception {
+        HttpLoginResultCache cache = new HttpLoginResultCache(1, MINUTES, 10);
+
+        assertNull(cache.beginLogin(REALM, "key"));
+        CompletableFuture<Void> loginInProgress = cache.beginLogin(REALM, "key");
+        assertNotNull(loginInProgress);
+        assertSame(loginInProgress, cache.beginLogin(REALM, "key"));
+        assertNull(cache.beginLogin(REALM, "other key"));
+
+        cache.endLogin(REALM, "key");
+        assertTrue(loginInProgress.isDone());
+        assertNull(cache.beginLogin(REALM, "key"));
+    }
+
+    private static Subject newSubject() {
+        return new Subject(false, Collections.singleton(AUTHORIZED), Collections.emptySet(), Collections.emptySet());
+    }
+}
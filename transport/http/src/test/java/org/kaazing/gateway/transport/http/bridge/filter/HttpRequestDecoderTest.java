@@ -18,12 +18,14 @@ package org.kaazing.gateway.transport.http.bridge.filter;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.filter.codec.ProtocolCodecException;
@@ -435,4 +437,68 @@ public class HttpRequestDecoderTest {
         assertFalse(in.hasRemaining());
     }
 
+    @Test
+    public void decodeWellKnownHeaderNamesAsSharedConstants() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        ProtocolDecoder decoder = new HttpRequestDecoder();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+
+        ByteBuffer in = ByteBuffer.wrap(("GET /echo HTTP/1.1\r\n" +
+                                         "Upgrade: websocket\r\n" +
+                                         "sec-websocket-key: dGhlIHNhbXBsZSBub25jZQ==\r\n" +
+                                         "Host: example.com\r\n" +
+                                         "X-Custom: custom\r\n" +
+                                         "\r\n").getBytes());
+
+        IoBufferEx buf = allocator.wrap(in);
+        decoder.decode(session, (IoBuffer) buf, session.getDecoderOutput());
+
+        assertFalse(session.getDecoderOutputQueue().isEmpty());
+        HttpRequestMessage httpRequest = (HttpRequestMessage)session.getDecoderOutputQueue().poll();
+        // header names are held in reverse order
+        Iterator<String> headerNames = httpRequest.iterateHeaderNames();
+        assertEquals("X-Custom", headerNames.next());
+        assertSame("Upgrade", headerNames.next());
+        // names that differ in case from the well-known name keep the case they were sent with
+        assertEquals("sec-websocket-key", headerNames.next());
+        assertSame("Host", headerNames.next());
+        assertFalse(headerNames.hasNext());
+        assertEquals(Collections.singletonList("dGhlIHNhbXBsZSBub25jZQ=="), httpRequest.getHeaderValues("Sec-WebSocket-Key"));
+        assertEquals(Collections.singletonList("custom"), httpRequest.getHeaderValues("X-Custom"));
+
+        assertTrue(session.getDecoderOutputQueue().isEmpty());
+        assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    public void decodeCommaSeparatedHeaderValues() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        ProtocolDecoder decoder = new HttpRequestDecoder();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+
+        ByteBuffer in = ByteBuffer.wrap(("GET /echo HTTP/1.1\r\n" +
+                                         "Host: example.com\r\n" +
+                                         "connection: keep-alive,  Upgrade\r\n" +
+                                         "Sec-WebSocket-Protocol: a,,b, ,c,,\r\n" +
+                                         "Sec-WebSocket-Protocol: ,d\r\n" +
+                                         "Sec-WebSocket-Extensions: x-kaazing-idle-timeout\r\n" +
+                                         "Sec-WebSocket-Extensions:\r\n" +
+                                         "Accept-Language: fr-CA, \u00e9\r\n" +
+                                         "User-Agent: a, b\r\n" +
+                                         "\r\n").getBytes(UTF_8));
+
+        IoBufferEx buf = allocator.wrap(in);
+        decoder.decode(session, (IoBuffer) buf, session.getDecoderOutput());
+
+        assertFalse(session.getDecoderOutputQueue().isEmpty());
+        HttpRequestMessage httpRequest = (HttpRequestMessage)session.getDecoderOutputQueue().poll();
+        assertEquals(Arrays.asList("keep-alive", "Upgrade"), httpRequest.getHeaderValues("Connection"));
+        assertEquals(Arrays.asList("a", "", "b", "", "c", "", "d"), httpRequest.getHeaderValues("Sec-WebSocket-Protocol"));
+        assertEquals(Arrays.asList("x-kaazing-idle-timeout", ""), httpRequest.getHeaderValues("Sec-WebSocket-Extensions"));
+        assertEquals(Arrays.asList("fr-CA", "\u00e9"), httpRequest.getHeaderValues("Accept-Language"));
+        assertEquals(Collections.singletonList("a, b"), httpRequest.getHeaderValues("User-Agent"));
+
+        assertTrue(session.getDecoderOutputQueue().isEmpty());
+        assertFalse(in.hasRemaining());
+    }
 }
@@ -17,6 +17,7 @@ package org.kaazing.gateway.transport.http.bridge.filter;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import java.net.URI;
 import java.security.Principal;
@@ -26,6 +27,7 @@ import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.security.auth.Subject;
 import javax.security.auth.login.LoginException;
@@ -50,10 +52,12 @@ import org.kaazing.gateway.resource.address.http.HttpRealmInfo;
 import org.kaazing.gateway.resource.address.http.HttpResourceAddress;
 import org.kaazing.gateway.resource.address.tcp.TcpResourceAddressFactorySpi;
 import org.kaazing.gateway.security.LoginContextFactory;
+import org.kaazing.gateway.security.RealmLoginExecutors;
 import org.kaazing.gateway.security.TypedCallbackHandlerMap;
 import org.kaazing.gateway.security.auth.DefaultLoginResult;
 import org.kaazing.gateway.security.auth.context.DefaultLoginContextFactory;
 import org.kaazing.gateway.security.auth.context.ResultAwareLoginContext;
+import org.kaazing.gateway.security.auth.token.DefaultAuthenticationToken;
 import org.kaazing.gateway.server.spi.security.LoginResult;
 import org.kaazing.gateway.transport.http.HttpMethod;
 import org.kaazing.gateway.transport.http.HttpStatus;
@@ -461,6 +465,308 @@ public class HttpSubjectSecurityFilterTest {
         context.assertIsSatisfied();
     }
 
+    @Test
+    public void filterShouldReuseCachedLoginWithSameToken() throws Exception {
+        Mockery context = new Mockery() {
+            {
+                setImposteriser(ClassImposteriser.INSTANCE);
+                setThreadingPolicy(new Synchroniser());
+            }
+        };
+        final NextFilter nextFilter = context.mock(NextFilter.class);
+        final IoSessionEx session = context.mock(IoSessionEx.class, "session");
+        final IoSessionEx reconnectedSession = context.mock(IoSessionEx.class, "reconnectedSession");
+        final ResourceAddress address = context.mock(ResourceAddress.class);
+        final ResourceAddress tcpResourceAddress = new TcpResourceAddressFactorySpi().newResourceAddress("tcp://localhost:2020");
+
+        final HttpRequestMessage message = newTokenRequest(address);
+        final HttpRequestMessage reconnectMessage = newTokenRequest(address);
+
+        final ResultAwareLoginContext loginContext = context.mock(ResultAwareLoginContext.class);
+        final LoginContextFactory loginContextFactory = context.mock(DefaultLoginContextFactory.class);
+
+        final Set<Principal> principals = new HashSet<>();
+        principals.add(AUTHORIZED_PRINCIPAL);
+        final Subject subject = new Subject(false, principals, Collections.EMPTY_SET, Collections.EMPTY_SET);
+
+        final HttpLoginResultCache loginResultCache = new HttpLoginResultCache(1, TimeUnit.MINUTES, 10);
+        final SchedulerProvider schedulerProvider = new SchedulerProvider();
+        final HttpSubjectSecurityFilter filter = new HttpSubjectSecurityFilter();
+        filter.setSchedulerProvider(schedulerProvider);
+        filter.setLoginResultCache(loginResultCache);
+        final HttpSubjectSecurityFilter reconnectedFilter = new HttpSubjectSecurityFilter();
+        reconnectedFilter.setSchedulerProvider(schedulerProvider);
+        reconnectedFilter.setLoginResultCache(loginResultCache);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        context.checking(new Expectations() {
+            {
+                allowing(session).getSubject();
+                allowing(reconnectedSession).getSubject();
+                allowing(session).getRemoteAddress(); will(returnValue(tcpResourceAddress));
+
+                allowing(address).getOption(HttpResourceAddress.REALMS);
+                will(returnValue(newRealms(loginContextFactory)));
+
+                allowing(address).getOption(HttpResourceAddress.REQUIRED_ROLES);
+                will(returnValue(new String[]{"AUTHORIZED"}));
+
+                // the login module chain only runs for the first request
+                oneOf(loginContextFactory).createLoginContext(with(aNonNull(TypedCallbackHandlerMap.class)));
+                will(returnValue(loginContext));
+                oneOf(loginContext).login();
+                oneOf(loginContext).getLoginResult();
+                will(returnValue(new DefaultLoginResult()));
+                atMost(2).of(loginContext).getSubject();
+                will(returnValue(subject));
+
+                oneOf(session).suspendRead();
+                oneOf(nextFilter).messageReceived(session, message);
+                oneOf(session).getIoExecutor();
+                will(returnValue(HTTP_SUBJECT_SECURITY_FILTER_TEST_EXECUTOR));
+                oneOf(session).resumeRead();
+                will(new LoginContextTaskDoneAction(latch, "login context task done"));
+
+                // the reconnected request logs in without leaving the calling thread
+                oneOf(nextFilter).messageReceived(reconnectedSession, reconnectMessage);
+            }
+        });
+        filter.messageReceived(nextFilter, session, message);
+        latch.await(2000, TimeUnit.MILLISECONDS);
+
+        reconnectedFilter.messageReceived(nextFilter, reconnectedSession, reconnectMessage);
+
+        assertNotNull(reconnectMessage.getLoginContext());
+        assertEquals(principals, reconnectMessage.getSubject().getPrincipals());
+        assertEquals(1, loginResultCache.size("demo"));
+        context.assertIsSatisfied();
+    }
+
+    @Test
+    public void filterShouldWaitForLoginInProgressWithSameToken() throws Exception {
+        Mockery context = new Mockery() {
+            {
+                setImposteriser(ClassImposteriser.INSTANCE);
+                setThreadingPolicy(new Synchroniser());
+            }
+        };
+        final NextFilter nextFilter = context.mock(NextFilter.class);
+        final IoSessionEx session = context.mock(IoSessionEx.class);
+        final ResourceAddress address = context.mock(ResourceAddress.class);
+
+        final HttpRequestMessage message = newTokenRequest(address);
+
+        final LoginContextFactory loginContextFactory = context.mock(DefaultLoginContextFactory.class);
+
+        final Set<Principal> principals = new HashSet<>();
+        principals.add(AUTHORIZED_PRINCIPAL);
+        final Subject subject = new Subject(false, principals, Collections.EMPTY_SET, Collections.EMPTY_SET);
+
+        final HttpLoginResultCache loginResultCache = new HttpLoginResultCache(1, TimeUnit.MINUTES, 10);
+        final HttpSubjectSecurityFilter filter = new HttpSubjectSecurityFilter();
+        filter.setSchedulerProvider(new SchedulerProvider());
+        filter.setLoginResultCache(loginResultCache);
+
+        // another request is logging in with the same token
+        final String cacheKey = HttpLoginResultCache.key(new DefaultAuthenticationToken("Token", "gobbledegook"));
+        assertNull(loginResultCache.beginLogin("demo", cacheKey));
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        context.checking(new Expectations() {
+            {
+                allowing(session).getSubject();
+
+                allowing(address).getOption(HttpResourceAddress.REALMS);
+                will(returnValue(newRealms(loginContextFactory)));
+
+                allowing(address).getOption(HttpResourceAddress.REQUIRED_ROLES);
+                will(returnValue(new String[]{"AUTHORIZED"}));
+
+                oneOf(session).suspendRead();
+            }
+        });
+        filter.messageReceived(nextFilter, session, message);
+        context.assertIsSatisfied();
+
+        context.checking(new Expectations() {
+            {
+                // the result of the other login is used rather than running the login module chain
+                never(loginContextFactory).createLoginContext(with(any(TypedCallbackHandlerMap.class)));
+
+                oneOf(nextFilter).messageReceived(session, message);
+                oneOf(session).getIoExecutor();
+                will(returnValue(HTTP_SUBJECT_SECURITY_FILTER_TEST_EXECUTOR));
+                oneOf(session).resumeRead();
+                will(new LoginContextTaskDoneAction(latch, "login context task done"));
+            }
+        });
+        loginResultCache.put("demo", cacheKey, subject, new DefaultLoginResult());
+        loginResultCache.endLogin("demo", cacheKey);
+        latch.await(2000, TimeUnit.MILLISECONDS);
+
+        assertNotNull(message.getLoginContext());
+        assertEquals(principals, message.getSubject().getPrincipals());
+        context.assertIsSatisfied();
+    }
+
+    @Test
+    public void filterShouldRejectLoginWhenRealmIsBusy() throws Exception {
+        Mockery context = new Mockery() {
+            {
+                setImposteriser(ClassImposteriser.INSTANCE);
+                setThreadingPolicy(new Synchroniser());
+            }
+        };
+        final NextFilter nextFilter = context.mock(NextFilter.class);
+        final IoSessionEx session = context.mock(IoSessionEx.class);
+        final ResourceAddress address = context.mock(ResourceAddress.class);
+
+        final HttpRequestMessage message = newTokenRequest(address);
+
+        final LoginContextFactory loginContextFactory = context.mock(DefaultLoginContextFactory.class);
+
+        // no more than one login to the realm at a time, and none queued
+        final RealmLoginExecutors realmLoginExecutors = new RealmLoginExecutors(1, 0);
+        final HttpSubjectSecurityFilter filter = new HttpSubjectSecurityFilter();
+        filter.setSchedulerProvider(new SchedulerProvider());
+        filter.setRealmLoginExecutors(realmLoginExecutors);
+
+        final CountDownLatch loginStarted = new CountDownLatch(1);
+        final CountDownLatch loginBlocked = new CountDownLatch(1);
+        realmLoginExecutors.getExecutor("demo").execute(() -> {
+            loginStarted.countDown();
+            try {
+                loginBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        loginStarted.await(2000, TimeUnit.MILLISECONDS);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        context.checking(new Expectations() {
+            {
+                allowing(session).getSubject();
+
+                allowing(address).getOption(HttpResourceAddress.REALMS);
+                will(returnValue(newRealms(loginContextFactory)));
+
+                allowing(address).getOption(HttpResourceAddress.REQUIRED_ROLES);
+                will(returnValue(new String[]{"AUTHORIZED"}));
+
+                never(loginContextFactory).createLoginContext(with(any(TypedCallbackHandlerMap.class)));
+
+                oneOf(session).suspendRead();
+                oneOf(nextFilter).filterWrite(with(same(session)), with(serviceUnavailable("1")));
+                exactly(2).of(session).getIoExecutor();
+                will(returnValue(HTTP_SUBJECT_SECURITY_FILTER_TEST_EXECUTOR));
+                oneOf(session).resumeRead();
+                will(new LoginContextTaskDoneAction(latch, "login rejected"));
+            }
+        });
+        try {
+            filter.messageReceived(nextFilter, session, message);
+            latch.await(2000, TimeUnit.MILLISECONDS);
+            context.assertIsSatisfied();
+            assertEquals(1, realmLoginExecutors.getExecutor("demo").getRejectedLoginCount());
+        } finally {
+            loginBlocked.countDown();
+            realmLoginExecutors.shutdownNow();
+        }
+    }
+
+    @Test
+    public void filterShouldRejectFollowerLoginOnIoThread() throws Exception {
+        Mockery context = new Mockery() {
+            {
+                setImposteriser(ClassImposteriser.INSTANCE);
+                setThreadingPolicy(new Synchroniser());
+            }
+        };
+        final NextFilter nextFilter = context.mock(NextFilter.class);
+        final IoSessionEx session = context.mock(IoSessionEx.class);
+        final ResourceAddress address = context.mock(ResourceAddress.class);
+
+        final HttpRequestMessage message = newTokenRequest(address);
+
+        final LoginContextFactory loginContextFactory = context.mock(DefaultLoginContextFactory.class);
+
+        final HttpLoginResultCache loginResultCache = new HttpLoginResultCache(1, TimeUnit.MINUTES, 10);
+        final RealmLoginExecutors realmLoginExecutors = new RealmLoginExecutors(1, 0);
+        final HttpSubjectSecurityFilter filter = new HttpSubjectSecurityFilter();
+        filter.setSchedulerProvider(new SchedulerProvider());
+        filter.setLoginResultCache(loginResultCache);
+        filter.setRealmLoginExecutors(realmLoginExecutors);
+
+        // another request is logging in with the same token
+        final String cacheKey = HttpLoginResultCache.key(new DefaultAuthenticationToken("Token", "gobbledegook"));
+        assertNull(loginResultCache.beginLogin("demo", cacheKey));
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<String> writeThreadName = new AtomicReference<>();
+
+        context.checking(new Expectations() {
+            {
+                allowing(session).getSubject();
+
+                allowing(address).getOption(HttpResourceAddress.REALMS);
+                will(returnValue(newRealms(loginContextFactory)));
+
+                allowing(address).getOption(HttpResourceAddress.REQUIRED_ROLES);
+                will(returnValue(new String[]{"AUTHORIZED"}));
+
+                oneOf(session).suspendRead();
+            }
+        });
+        filter.messageReceived(nextFilter, session, message);
+        context.assertIsSatisfied();
+
+        // the realm is busy by the time the other login completes
+        final CountDownLatch loginStarted = new CountDownLatch(1);
+        final CountDownLatch loginBlocked = new CountDownLatch(1);
+        realmLoginExecutors.getExecutor("demo").execute(() -> {
+            loginStarted.countDown();
+            try {
+                loginBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        loginStarted.await(2000, TimeUnit.MILLISECONDS);
+
+        context.checking(new Expectations() {
+            {
+                never(loginContextFactory).createLoginContext(with(any(TypedCallbackHandlerMap.class)));
+
+                oneOf(nextFilter).filterWrite(with(same(session)), with(serviceUnavailable("1")));
+                will(new CustomAction("record write thread") {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        writeThreadName.set(Thread.currentThread().getName());
+                        return null;
+                    }
+                });
+                exactly(2).of(session).getIoExecutor();
+                will(returnValue(HTTP_SUBJECT_SECURITY_FILTER_TEST_EXECUTOR));
+                oneOf(session).resumeRead();
+                will(new LoginContextTaskDoneAction(latch, "login rejected"));
+            }
+        });
+        try {
+            // completes the other login on this thread, which runs the rejected follower
+            loginResultCache.endLogin("demo", cacheKey);
+            latch.await(2000, TimeUnit.MILLISECONDS);
+            context.assertIsSatisfied();
+            assertEquals("HttpSubjectSecurityFilterTest", writeThreadName.get());
+        } finally {
+            loginBlocked.countDown();
+            realmLoginExecutors.shutdownNow();
+        }
+    }
+
     @Test
     public void filterShouldEndChainWhenLoginFailsHard() throws Exception {
         Mockery context = new Mockery() {
@@ -602,6 +908,24 @@ public class HttpSubjectSecurityFilterTest {
 
 
 
+    private static HttpRequestMessage newTokenRequest(ResourceAddress address) {
+        HttpRequestMessage message = new HttpRequestMessage();
+        message.setMethod(HttpMethod.GET);
+        message.setVersion(HttpVersion.HTTP_1_1);
+        message.setRequestURI(URI.create(BASE_URI));
+        message.addHeader("Host", "localhost:8000");
+        message.addHeader("Authorization", "Token gobbledegook");
+        message.setLocalAddress(address);
+        return message;
+    }
+
+    private static HttpRealmInfo[] newRealms(LoginContextFactory loginContextFactory) {
+        return new HttpRealmInfo[] {
+            new DefaultHttpRealmInfo("demo", "Application Token", null, new String[]{"foo"},  new String[]{}, new String[]{},
+                    loginContextFactory, null)
+        };
+    }
+
     private WriteRequest withStatus(final HttpStatus httpStatus) {
         return new DefaultWriteRequestEx(httpResponseWith(httpStatus));
     }
@@ -633,6 +957,25 @@ public class HttpSubjectSecurityFilterTest {
         };
     }
 
+    private Matcher<WriteRequest> serviceUnavailable(final String retryAfter) {
+        return new BaseMatcher<WriteRequest>() {
+            @Override
+            public boolean matches(Object o) {
+                if (o instanceof WriteRequest && ((WriteRequest) o).getMessage() instanceof HttpResponseMessage) {
+                    HttpResponseMessage httpResponse = (HttpResponseMessage) ((WriteRequest) o).getMessage();
+                    return httpResponse.getStatus() == HttpStatus.SERVER_SERVICE_UNAVAILABLE &&
+                            retryAfter.equals(httpResponse.getHeader("Retry-After"));
+                }
+                return false;
+            }
+
+            @Override
+            public void describeTo(Description description) {
+                description.appendText("503 response with Retry-After: " + retryAfter);
+            }
+        };
+    }
+
     private static final class LoginContextTaskDoneAction extends CustomAction {
         private final CountDownLatch latch;
 
@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Properties;
 
 import org.jboss.netty.channel.socket.Worker;
+import org.jboss.netty.channel.socket.nio.NioSelectorMetrics;
 import org.kaazing.gateway.resource.address.Protocol;
 import org.kaazing.gateway.resource.address.ResourceAddress;
 import org.kaazing.gateway.transport.BridgeAcceptor;
@@ -30,6 +31,7 @@ import org.kaazing.gateway.transport.Transport;
 import org.kaazing.gateway.transport.nio.internal.NioProtocol;
 import org.kaazing.gateway.transport.nio.internal.NioSocketAcceptor;
 import org.kaazing.gateway.transport.nio.internal.NioSocketConnector;
+import org.kaazing.gateway.transport.nio.internal.NioWorkerLoad;
 import org.kaazing.gateway.transport.nio.internal.TcpExtensionFactory;
 
 public final class TcpTransport extends Transport {
@@ -85,4 +87,12 @@ public final class TcpTransport extends Transport {
     public Worker[] getWorkers() {
         return ((NioSocketAcceptor) getAcceptor()).getWorkers();
     }
+
+    public NioWorkerLoad[] getWorkerLoads() {
+        return ((NioSocketAcceptor) getAcceptor()).getWorkerLoads();
+    }
+
+    public NioSelectorMetrics[] getWorkerMetrics() {
+        return ((NioSocketAcceptor) getAcceptor()).getWorkerMetrics();
+    }
 }
@@ -31,6 +31,8 @@ import static org.kaazing.gateway.util.InternalSystemProperty.TCP_SEND_BUFFER_SI
 import static org.kaazing.gateway.util.InternalSystemProperty.TCP_SO_LINGER;
 import static org.kaazing.gateway.util.InternalSystemProperty.TCP_WRITE_TIMEOUT;
 
+import java.io.IOException;
+import java.nio.channels.Selector;
 import java.util.Collection;
 import java.util.Properties;
 import java.util.concurrent.Callable;
@@ -41,6 +43,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
 
 import org.apache.mina.core.future.IoFuture;
 import org.apache.mina.core.service.IoHandler;
@@ -53,6 +56,7 @@ import org.jboss.netty.channel.ChildChannelStateEvent;
 import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
 import org.jboss.netty.channel.socket.Worker;
+import org.jboss.netty.channel.socket.nio.NioSelectorMetrics;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioSocketChannel;
 import org.jboss.netty.channel.socket.nio.NioWorker;
@@ -259,6 +263,29 @@ public class NioSocketAcceptor extends AbstractNioAcceptor {
         return currentWorkerPool.get().workers;
     }
 
+    public NioWorkerLoad[] getWorkerLoads() {
+        initIfNecessary();
+        DistributedNioWorker[] workers = currentWorkerPool.get().workers;
+        NioWorkerLoad[] loads = new NioWorkerLoad[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            loads[i] = workers[i].load;
+        }
+        return loads;
+    }
+
+    /**
+     * @return the metrics of the event loop of each worker, null when not enabled
+     */
+    public NioSelectorMetrics[] getWorkerMetrics() {
+        initIfNecessary();
+        DistributedNioWorker[] workers = currentWorkerPool.get().workers;
+        NioSelectorMetrics[] metrics = new NioSelectorMetrics[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            metrics[i] = workers[i].getMetrics();
+        }
+        return metrics;
+    }
+
 	WorkerPool<NioWorker> initWorkerPool(Logger logger, String message, Properties configuration) {
     	int workerCount = TCP_PROCESSOR_COUNT.getIntProperty(configuration);
         if (logger.isDebugEnabled()) {
@@ -329,14 +356,15 @@ public class NioSocketAcceptor extends AbstractNioAcceptor {
         return workerPool;
     }
 
-	// distribute the connections evenly over the workers in the pool
-	// based on the current number of active connections per worker
+	// distribute the connections over the workers in the pool based on the load
+	// measured on each worker, then on the current number of active connections per worker
 	// NOTE: this class needs to be thread safe because it can be called from multiple boss threads
     // when there is more than one bind
 	private static class DistributedNioWorkerPool implements WorkerPool<NioWorker>, ExternalResourceReleasable {
 
 		private final Executor workerExecutor;
 		private final DistributedNioWorker[] workers;
+		private final NioWorkerLoad[] loads;
 		private final AtomicInteger referenceCount = new AtomicInteger(0);
 	    private final AtomicInteger requestCount = new AtomicInteger(0);
 		private final Logger logger = LoggerFactory.getLogger(LOGGER_NAME);
@@ -349,6 +377,7 @@ public class NioSocketAcceptor extends AbstractNioAcceptor {
 				throw new IllegalArgumentException("workerCount (" + workerCount + ") must be a positive integer");
 			}
 			DistributedNioWorker[] workers = new DistributedNioWorker[workerCount];
+			NioWorkerLoad[] loads = new NioWorkerLoad[workerCount];
 			for (int i=0; i < workers.length; i++) {
 				// we cannot allow shutdown on idle, otherwise worker may end up running on a different thread
 				DistributedNioWorker worker = new DistributedNioWorker(workerExecutor);
@@ -363,8 +392,10 @@ public class NioSocketAcceptor extends AbstractNioAcceptor {
 					e.printStackTrace();
 				}
 				workers[i] = worker;
+				loads[i] = worker.load;
 			}
 			this.workers = workers;
+			this.loads = loads;
 			this.workerExecutor = workerExecutor;
 		}
 
@@ -381,35 +412,17 @@ public class NioSocketAcceptor extends AbstractNioAcceptor {
 
 	    @Override
 		public NioWorker nextWorker() {
-			// break the tie differently on each call when connections are evenly distributed
+			// break the tie differently on each call when workers are evenly loaded
             // Use round robin to guarantee we use each worker in turn when connections are evenly distributed.
             // This ensures all workers are used for backend connections from services doing connection fanout when
             // number of connections >= worker count.
 		    int offset = requestCount.getAndIncrement() % workers.length;
-			DistributedNioWorker available  = workers[offset];
-			for (int i=offset + 1; i < workers.length; i++) {
-				DistributedNioWorker worker = workers[i];
-				int channelCount = available.channelCount.get();
-				if (worker.channelCount.get() < channelCount) {
-					available = worker;
-				}
-			}
-			for (int i=0; i < offset; i++) {
-				DistributedNioWorker worker = workers[i];
-				int channelCount = available.channelCount.get();
-				if (worker.channelCount.get() < channelCount) {
-					available = worker;
-				}
-			}
+		    int used = NioWorkerLoad.assign(loads, offset);
+			DistributedNioWorker available = workers[used];
             if (logger.isDebugEnabled()) {
-                int used = 0;
-                for (int i=0; i<workers.length; i++) {
-                    if (workers[i]==available) {
-                        used = i;
-                        break;
-                    }
-                }
-                logger.debug(String.format("nextWorker: returning worker #%d of %d", used+1, workers.length));
+                NioWorkerLoad load = available.load;
+                logger.debug(String.format("nextWorker: returning worker #%d of %d (utilization = %.2f, channels = %d)",
+                        used+1, workers.length, load.getUtilization(), load.getChannelCount()));
             }
 			return available;
 		}
@@ -439,18 +452,20 @@ public class NioSocketAcceptor extends AbstractNioAcceptor {
 
     private static class DistributedNioWorker extends NioWorker {
 
-        private final AtomicInteger channelCount;
+        private final NioWorkerLoad load;
+        private final IntSupplier pendingTasks;
         private final ChannelFutureListener closeListener;
 
         public DistributedNioWorker(Executor executor) {
             super(executor);
 
-            this.channelCount = new AtomicInteger();
+            this.load = new NioWorkerLoad();
+            this.pendingTasks = this::getPendingTaskCount;
             this.closeListener = new ChannelFutureListener() {
                 @Override
                 public void operationComplete(ChannelFuture future) throws Exception {
                     // decrement the count for this channel's worker
-                    channelCount.decrementAndGet();
+                    load.channelCount.decrementAndGet();
                 }
             };
 
@@ -458,11 +473,19 @@ public class NioSocketAcceptor extends AbstractNioAcceptor {
 
         public void childChannelOpen(NioSocketChannel childChannel) {
             // increment the channel count for this worker
-            channelCount.incrementAndGet();
+            load.channelCount.incrementAndGet();
             // decrement the channel count for this worker on channel close
             childChannel.getCloseFuture().addListener(closeListener);
         }
 
+        @Override
+        protected int select(Selector selector, boolean quickSelect) throws IOException {
+            load.selecting(System.nanoTime(), getProcessedBytes(), pendingTasks);
+            int selected = super.select(selector, quickSelect);
+            load.selected(System.nanoTime());
+            return selected;
+        }
+
     }
 
     private static class AffinityIoAcceptorChannelHandlerFactory extends SimpleChannelUpstreamHandler {
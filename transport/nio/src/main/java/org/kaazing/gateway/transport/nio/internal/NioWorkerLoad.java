@@ -0,0 +1,206 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.nio.internal;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Load of an NIO worker measured over a sliding window of recent samples: the fraction of time its I/O thread spent
+ * busy outside of select, the bytes it read and wrote, and the tasks waiting in its queue.
+ *
+ * The samples are recorded on the I/O thread, around each select, and the figures over the window are published for
+ * other threads when each sample completes. The task queue is only looked at once per sample, as counting the tasks
+ * walks the queue.
+ *
+ * Connections assigned to the worker since its last sample count as extra load when choosing the next worker, so that
+ * a burst of connections accepted between two samples is spread over the workers rather than all going to the worker
+ * that was least loaded at the last sample.
+ */
+public final class NioWorkerLoad {
+
+    static final long SAMPLE_INTERVAL_NANOS = MILLISECONDS.toNanos(100);
+    static final int WINDOW_SAMPLES = 10;
+
+    // relative load levels closer than this are considered equal, so the channel count decides
+    private static final int LOAD_LEVEL_PERCENT = 5;
+
+    final AtomicInteger channelCount = new AtomicInteger();
+
+    // connections assigned by nextWorker since the last sample, not yet reflected in the load level
+    private final AtomicInteger assignedSinceSample = new AtomicInteger();
+
+    // window of samples, only accessed on the I/O thread
+    private final long[] busyNanos = new long[WINDOW_SAMPLES];
+    private final long[] elapsedNanos = new long[WINDOW_SAMPLES];
+    private final long[] bytes = new long[WINDOW_SAMPLES];
+    private final long[] queuedTasks = new long[WINDOW_SAMPLES];
+    private int sample;
+    private int sampleCount;
+
+    // current sample, only accessed on the I/O thread
+    private long sampleStart;
+    private long sampleBusyNanos;
+    private long sampleBytesStart;
+    private long selectedAt;
+
+    private volatile double utilization;
+    private volatile long bytesPerSecond;
+    private volatile double averageQueuedTasks;
+    private volatile int loadLevel;
+
+    NioWorkerLoad() {
+    }
+
+    /**
+     * @return the fraction of time, between 0 and 1, the I/O thread was busy over the window
+     */
+    public double getUtilization() {
+        return utilization;
+    }
+
+    /**
+     * @return the bytes read and written per second over the window
+     */
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * @return the average number of tasks waiting to run on the I/O thread at the end of each sample in the window
+     */
+    public double getQueuedTasks() {
+        return averageQueuedTasks;
+    }
+
+    /**
+     * @return the number of accepted connections currently handled by the worker
+     */
+    public int getChannelCount() {
+        return channelCount.get();
+    }
+
+    /*
+     * Coarse load figure used to pick the next worker, taking into account both how busy the I/O thread is and how
+     * far it is falling behind on its tasks.
+     */
+    int getLoadLevel() {
+        return loadLevel;
+    }
+
+    /*
+     * The load level raised by one for each connection assigned since the last sample.
+     */
+    int getLoadScore() {
+        return loadLevel + assignedSinceSample.get();
+    }
+
+    boolean isLessLoadedThan(NioWorkerLoad load) {
+        int loadScore = getLoadScore();
+        int otherLoadScore = load.getLoadScore();
+        return loadScore < otherLoadScore ||
+                loadScore == otherLoadScore && getChannelCount() < load.getChannelCount();
+    }
+
+    /*
+     * Picks the least loaded worker, starting from the given offset so that ties are broken differently on each call,
+     * and counts the connection assigned to it until its next sample.
+     *
+     * @return the index of the least loaded worker
+     */
+    static int assign(NioWorkerLoad[] loads, int offset) {
+        int available = offset;
+        for (int i = offset + 1; i < loads.length; i++) {
+            if (loads[i].isLessLoadedThan(loads[available])) {
+                available = i;
+            }
+        }
+        for (int i = 0; i < offset; i++) {
+            if (loads[i].isLessLoadedThan(loads[available])) {
+                available = i;
+            }
+        }
+        loads[available].assignedSinceSample.incrementAndGet();
+        return available;
+    }
+
+    /*
+     * Called on the I/O thread when it is about to select, ending a busy period. The pending tasks are only counted
+     * when a sample completes.
+     */
+    void selecting(long now, long processedBytes, IntSupplier pendingTasks) {
+        if (selectedAt != 0) {
+            sampleBusyNanos += now - selectedAt;
+        }
+        else {
+            sampleStart = now;
+            sampleBytesStart = processedBytes;
+        }
+
+        long sampleElapsedNanos = now - sampleStart;
+        if (sampleElapsedNanos >= SAMPLE_INTERVAL_NANOS) {
+            busyNanos[sample] = sampleBusyNanos;
+            elapsedNanos[sample] = sampleElapsedNanos;
+            bytes[sample] = processedBytes - sampleBytesStart;
+            queuedTasks[sample] = pendingTasks.getAsInt();
+            sample = (sample + 1) % WINDOW_SAMPLES;
+            sampleCount = Math.min(sampleCount + 1, WINDOW_SAMPLES);
+
+            sampleStart = now;
+            sampleBusyNanos = 0;
+            sampleBytesStart = processedBytes;
+
+            publish();
+        }
+    }
+
+    /*
+     * Called on the I/O thread when select returns, starting a busy period.
+     */
+    void selected(long now) {
+        selectedAt = now;
+    }
+
+    private void publish() {
+        long windowBusyNanos = 0;
+        long windowElapsedNanos = 0;
+        long windowBytes = 0;
+        long windowQueuedTasks = 0;
+        for (int i = 0; i < WINDOW_SAMPLES; i++) {
+            windowBusyNanos += busyNanos[i];
+            windowElapsedNanos += elapsedNanos[i];
+            windowBytes += bytes[i];
+            windowQueuedTasks += queuedTasks[i];
+        }
+
+        double newUtilization = Math.min(1.0, (double) windowBusyNanos / windowElapsedNanos);
+        double newAverageQueuedTasks = (double) windowQueuedTasks / sampleCount;
+
+        utilization = newUtilization;
+        bytesPerSecond = windowBytes * SECONDS.toNanos(1) / windowElapsedNanos;
+        averageQueuedTasks = newAverageQueuedTasks;
+
+        // a backlog of tasks at each select means the thread is saturated beyond what its busy time shows
+        loadLevel = (int) (newUtilization * 100) / LOAD_LEVEL_PERCENT + (int) newAverageQueuedTasks;
+
+        // the connections assigned so far are now handled by this thread, and start to show in its busy time
+        assignedSinceSample.set(0);
+    }
+
+}
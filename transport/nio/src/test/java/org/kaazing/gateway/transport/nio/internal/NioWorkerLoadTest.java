@@ -0,0 +1,160 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.nio.internal;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.gateway.transport.nio.internal.NioWorkerLoad.SAMPLE_INTERVAL_NANOS;
+import static org.kaazing.gateway.transport.nio.internal.NioWorkerLoad.WINDOW_SAMPLES;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import org.junit.Test;
+
+public class NioWorkerLoadTest {
+
+    private static final long START = MILLISECONDS.toNanos(1000);
+
+    @Test
+    public void shouldReportNoLoadBeforeFirstSample() {
+        NioWorkerLoad load = new NioWorkerLoad();
+        load.selecting(START, 0, () -> 0);
+        load.selected(START + SAMPLE_INTERVAL_NANOS / 2);
+
+        assertEquals(0.0, load.getUtilization(), 0.0);
+        assertEquals(0, load.getBytesPerSecond());
+        assertEquals(0, load.getLoadLevel());
+    }
+
+    @Test
+    public void shouldMeasureBusyTimeOutsideSelect() {
+        NioWorkerLoad load = new NioWorkerLoad();
+        long busy = SAMPLE_INTERVAL_NANOS / 4;
+        long now = START;
+        long bytes = 0;
+        for (int i = 0; i < WINDOW_SAMPLES; i++) {
+            // blocked in select for three quarters of each sample, busy for the remaining quarter
+            load.selecting(now, bytes, () -> 0);
+            now += SAMPLE_INTERVAL_NANOS - busy;
+            load.selected(now);
+            now += busy;
+            bytes += 1000;
+        }
+        load.selecting(now, bytes, () -> 0);
+
+        assertEquals(0.25, load.getUtilization(), 0.01);
+        assertEquals(10000, load.getBytesPerSecond());
+        assertEquals(5, load.getLoadLevel());
+    }
+
+    @Test
+    public void shouldForgetSamplesOutsideWindow() {
+        NioWorkerLoad load = new NioWorkerLoad();
+        long now = START;
+        load.selecting(now, 0, () -> 0);
+        load.selected(now);
+        for (int i = 0; i < WINDOW_SAMPLES; i++) {
+            // fully busy
+            now += SAMPLE_INTERVAL_NANOS;
+            load.selecting(now, 0, () -> 0);
+            load.selected(now);
+        }
+        assertEquals(1.0, load.getUtilization(), 0.01);
+
+        for (int i = 0; i < WINDOW_SAMPLES; i++) {
+            // fully idle
+            load.selecting(now, 0, () -> 0);
+            now += SAMPLE_INTERVAL_NANOS;
+            load.selected(now);
+        }
+        load.selecting(now, 0, () -> 0);
+        assertEquals(0.0, load.getUtilization(), 0.01);
+    }
+
+    @Test
+    public void shouldRaiseLoadLevelWithQueuedTasks() {
+        NioWorkerLoad idle = new NioWorkerLoad();
+        NioWorkerLoad backlogged = new NioWorkerLoad();
+        long now = START;
+        idle.selecting(now, 0, () -> 0);
+        backlogged.selecting(now, 0, () -> 4);
+        now += SAMPLE_INTERVAL_NANOS;
+        idle.selected(now);
+        backlogged.selected(now);
+        idle.selecting(now, 0, () -> 0);
+        backlogged.selecting(now, 0, () -> 4);
+
+        assertEquals(4.0, backlogged.getQueuedTasks(), 0.0);
+        assertTrue(backlogged.getLoadLevel() > idle.getLoadLevel());
+    }
+
+    @Test
+    public void shouldCountPendingTasksOncePerSample() {
+        NioWorkerLoad load = new NioWorkerLoad();
+        AtomicInteger counted = new AtomicInteger();
+        IntSupplier pendingTasks = () -> {
+            counted.incrementAndGet();
+            return 0;
+        };
+        long now = START;
+        for (int i = 0; i < 100; i++) {
+            load.selecting(now, 0, pendingTasks);
+            now += SAMPLE_INTERVAL_NANOS / 10;
+            load.selected(now);
+        }
+
+        assertEquals(9, counted.get());
+    }
+
+    @Test
+    public void shouldSpreadBurstBetweenSamples() {
+        // worker 0 was idle at the last sample, the others a quarter busy
+        NioWorkerLoad[] loads = new NioWorkerLoad[4];
+        for (int i = 0; i < loads.length; i++) {
+            loads[i] = new NioWorkerLoad();
+            long now = START;
+            long busy = (i == 0) ? 0 : SAMPLE_INTERVAL_NANOS / 4;
+            loads[i].selecting(now, 0, () -> 0);
+            now += SAMPLE_INTERVAL_NANOS - busy;
+            loads[i].selected(now);
+            now += busy;
+            loads[i].selecting(now, 0, () -> 0);
+        }
+        assertEquals(0, loads[0].getLoadLevel());
+        assertEquals(5, loads[1].getLoadLevel());
+
+        // a burst of connections accepted before the next sample
+        int[] assigned = new int[loads.length];
+        for (int i = 0; i < 25; i++) {
+            assigned[NioWorkerLoad.assign(loads, i % loads.length)]++;
+        }
+
+        // worker 0 takes connections until it is as loaded as the others, then they are shared
+        assertEquals(10, assigned[0]);
+        assertEquals(5, assigned[1]);
+        assertEquals(5, assigned[2]);
+        assertEquals(5, assigned[3]);
+
+        // the next sample of worker 0 accounts for the connections it took
+        assertEquals(10, loads[0].getLoadScore());
+        loads[0].selected(START + 2 * SAMPLE_INTERVAL_NANOS);
+        loads[0].selecting(START + 2 * SAMPLE_INTERVAL_NANOS, 0, () -> 0);
+        assertEquals(0, loads[0].getLoadScore());
+    }
+
+}
@@ -27,6 +27,10 @@ import static org.kaazing.gateway.resource.address.ssl.SslResourceAddress.WANT_C
 import static org.kaazing.gateway.transport.BridgeSession.LOCAL_ADDRESS;
 import static org.kaazing.gateway.transport.BridgeSession.NEXT_PROTOCOL_KEY;
 import static org.kaazing.gateway.transport.BridgeSession.REMOTE_ADDRESS;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_HANDSHAKE_QUEUE_DEPTH;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_HANDSHAKE_THREADS;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_SESSION_CACHE_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_SESSION_TIMEOUT;
 
 import java.io.IOException;
 import java.net.URI;
@@ -37,8 +41,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
 import java.util.SortedSet;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
 import javax.net.ssl.KeyManagerFactory;
@@ -78,7 +84,9 @@ import org.kaazing.gateway.transport.TypedAttributeKey;
 import org.kaazing.gateway.transport.dispatch.ProtocolDispatcher;
 import org.kaazing.gateway.transport.ssl.bridge.filter.SslCertificateSelectionFilter;
 import org.kaazing.gateway.transport.ssl.bridge.filter.SslFilter;
+import org.kaazing.gateway.transport.ssl.bridge.filter.SslHandshakeExecutor;
 import org.kaazing.gateway.transport.ssl.cert.VirtualHostKeySelector;
+import org.kaazing.gateway.util.Utils;
 import org.kaazing.gateway.util.ssl.SslCipherSuites;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.future.UnbindFuture;
@@ -105,6 +113,12 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
     private ResourceAddressFactory resourceAddressFactory;
     private BridgeServiceFactory bridgeServiceFactory;
     private VirtualHostKeySelector vhostKeySelector;
+    private int sessionCacheSize = SSL_SESSION_CACHE_SIZE.getIntProperty(new Properties());
+    private int sessionTimeout = (int) Utils.parseTimeInterval(SSL_SESSION_TIMEOUT.getProperty(new Properties()),
+            TimeUnit.SECONDS);
+    private int handshakeThreads = SSL_HANDSHAKE_THREADS.getIntProperty(new Properties());
+    private int handshakeQueueDepth = SSL_HANDSHAKE_QUEUE_DEPTH.getIntProperty(new Properties());
+    private SslHandshakeExecutor handshakeExecutor;
 
     // TODO: SslBindings like HttpBindings
     
@@ -122,6 +136,21 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
         this.resourceAddressFactory = factory;
     }
 
+    @Resource(name = "configuration")
+    public void setConfiguration(Properties configuration) {
+        this.sessionCacheSize = SSL_SESSION_CACHE_SIZE.getIntProperty(configuration);
+        this.sessionTimeout = (int) Utils.parseTimeInterval(SSL_SESSION_TIMEOUT.getProperty(configuration), TimeUnit.SECONDS);
+        this.handshakeThreads = SSL_HANDSHAKE_THREADS.getIntProperty(configuration);
+        this.handshakeQueueDepth = SSL_HANDSHAKE_QUEUE_DEPTH.getIntProperty(configuration);
+    }
+
+    /**
+     * @return the executor running the delegated tasks of TLS handshakes, or null if they run on the I/O threads
+     */
+    public SslHandshakeExecutor getHandshakeExecutor() {
+        return handshakeExecutor;
+    }
+
     @Resource(name = "securityContext")
     public void setSecurityContext(SecurityContext securityContext) {
         vhostKeySelector = new VirtualHostKeySelector();
@@ -143,11 +172,6 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
             // various key selection criteria
             KeyManagerFactory kmf = KeyManagerFactory.getInstance("SslTransport", new SslProvider());
             sslContextFactory.setKeyManagerFactory(kmf);
-
-            // avoid caching SSLSession in shared SSLContextFactory instance
-            // Note: SSLSessionContext.setSessionCacheSize(0) means unlimited,
-            // so we use 1 instead
-            sslContextFactory.setServerSessionCacheSize(1);
         } catch (NoSuchAlgorithmException ne) {
             throw new RuntimeException(ne);
         }
@@ -162,6 +186,12 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
     protected void init() {
         super.init();
 
+        // By default avoid caching SSLSession in shared SSLContextFactory instance, so that every connection
+        // pays a full handshake.
+        // Note: SSLSessionContext.setSessionCacheSize(0) means unlimited, so the default is 1 instead
+        sslContextFactory.setServerSessionCacheSize(sessionCacheSize);
+        sslContextFactory.setServerSessionTimeout(sessionTimeout);
+
         try {
             sslContext = sslContextFactory.newInstance();
 
@@ -178,6 +208,18 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
         }
 
         certificateSelection = new SslCertificateSelectionFilter(false);
+
+        if (handshakeThreads > 0) {
+            handshakeExecutor = new SslHandshakeExecutor(handshakeThreads, handshakeQueueDepth);
+        }
+    }
+
+    @Override
+    protected IoFuture dispose0() throws Exception {
+        if (handshakeExecutor != null) {
+            handshakeExecutor.shutdownNow();
+        }
+        return super.dispose0();
     }
 
     @Override
@@ -215,6 +257,7 @@ public class SslAcceptor extends AbstractBridgeAcceptor<SslSession, NextProtocol
         // Create our SslFilter instance, and configure it based on the
         // resource address.
         SslFilter sslFilter = new SslFilter(sslContext, false, logger);
+        sslFilter.setHandshakeExecutor(handshakeExecutor);
 
         IoSession session = filterChain.getSession();
 
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ssl.bridge.filter;
+
+import java.nio.ByteBuffer;
+
+import org.kaazing.mina.netty.util.threadlocal.VicariousThreadLocal;
+
+/**
+ * Network and application buffers that an {@link SslHandler} borrows for the duration of one wrap or unwrap,
+ * shared by all the sessions of a thread (normally an I/O worker). Whatever the engine produces into them is
+ * copied out into a buffer of exactly the produced size before the handler returns, so no session holds on
+ * to a packet-sized buffer between reads and writes.
+ */
+final class SslBuffers {
+
+    /**
+     * Buffers larger than this are allocated for the one request and not kept by the thread.
+     */
+    static final int MAX_RETAINED_CAPACITY = 1 << 18;
+
+    private static final ThreadLocal<SslBuffers> BUFFERS = new VicariousThreadLocal<SslBuffers>() {
+        @Override
+        protected SslBuffers initialValue() {
+            return new SslBuffers();
+        }
+    };
+
+    private ByteBuffer netBuffer;
+    private ByteBuffer appBuffer;
+
+    private SslBuffers() {
+    }
+
+    static SslBuffers current() {
+        return BUFFERS.get();
+    }
+
+    /**
+     * @return an empty buffer of at least <tt>minCapacity</tt> for records produced by the engine
+     */
+    ByteBuffer netBuffer(int minCapacity) {
+        ByteBuffer buffer = netBuffer;
+        if (buffer == null || buffer.capacity() < minCapacity) {
+            buffer = ByteBuffer.allocate(minCapacity);
+            if (minCapacity <= MAX_RETAINED_CAPACITY) {
+                netBuffer = buffer;
+            }
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * @return an empty buffer of at least <tt>minCapacity</tt> for application data produced by the engine
+     */
+    ByteBuffer appBuffer(int minCapacity) {
+        ByteBuffer buffer = appBuffer;
+        if (buffer == null || buffer.capacity() < minCapacity) {
+            buffer = ByteBuffer.allocate(minCapacity);
+            if (minCapacity <= MAX_RETAINED_CAPACITY) {
+                appBuffer = buffer;
+            }
+        }
+        buffer.clear();
+        return buffer;
+    }
+}
@@ -160,6 +160,30 @@ public class SslCertificateSelectionFilter
         certInfo.setSession(session);
     }
 
+    /**
+     * Wraps a task run on another thread on behalf of the current session, such as the delegated tasks of its TLS
+     * handshake, so that it sees the session and certificate aliases set for the current thread.
+     */
+    static Runnable withCurrentSession(final Runnable task, final boolean client) {
+        AvailableCertInfo certInfo = (client ? availClientCertInfo.get() : availServerCertInfo.get());
+        final IoSession session = certInfo.getSession();
+        final ResourceAddress key = certInfo.getCertAliasesKey();
+        final Collection<String> aliases = (key != null) ? certInfo.getCertAliases().get(key) : null;
+
+        return new Runnable() {
+            @Override
+            public void run() {
+                setCurrentSession(session, client);
+                setAvailableCertAliases(key, aliases, client);
+                try {
+                    task.run();
+                } finally {
+                    setCurrentSession(null, client);
+                }
+            }
+        };
+    }
+
     public boolean getClientMode() {
         return clientMode;
     }
@@ -18,6 +18,7 @@ package org.kaazing.gateway.transport.ssl.bridge.filter;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -40,6 +41,8 @@ import org.apache.mina.core.write.WriteRequestWrapper;
 import org.apache.mina.core.write.WriteToClosedSessionException;
 import org.slf4j.Logger;
 
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.future.ReleaseBufferListener;
 import org.kaazing.mina.core.session.AbstractIoSessionEx;
 import org.kaazing.mina.core.session.IoSessionEx;
 
@@ -166,6 +169,8 @@ public class SslFilter extends IoFilterAdapter {
 
     private String[] enabledProtocols;
 
+    private Executor handshakeExecutor;
+
     /**
      * Creates a new SSL filter using the specified {@link SSLContext}.
      * The handshake will start immediately.
@@ -352,6 +357,23 @@ public class SslFilter extends IoFilterAdapter {
         this.enabledProtocols = protocols;
     }
 
+    /**
+     * Returns the executor running the delegated tasks of handshakes, or <tt>null</tt> if they run on the
+     * I/O thread of the session.
+     */
+    public Executor getHandshakeExecutor() {
+        return handshakeExecutor;
+    }
+
+    /**
+     * Sets the executor running the delegated tasks of handshakes (such as certificate verification and key
+     * exchange), after which the handshake continues on the I/O thread of the session. By default they run on
+     * the I/O thread of the session.
+     */
+    public void setHandshakeExecutor(Executor handshakeExecutor) {
+        this.handshakeExecutor = handshakeExecutor;
+    }
+
     @Override
     public void onPreAdd(IoFilterChain parent, String name,
             NextFilter nextFilter) throws SSLException {
@@ -561,6 +583,9 @@ public class SslFilter extends IoFilterAdapter {
                     handler.encrypt(buf.buf());
                     buf.position(pos);
                     IoBuffer encryptedBuffer = handler.fetchOutNetBuffer();
+                    if (encryptedBuffer.hasRemaining()) {
+                        writeRequest.getFuture().addListener(new ReleaseBufferListener((IoBufferEx) encryptedBuffer));
+                    }
                     handler.scheduleFilterWrite(
                             nextFilter,
                             new EncryptedWriteRequest(
@@ -625,6 +650,28 @@ public class SslFilter extends IoFilterAdapter {
         handler.flushScheduledEvents();
     }
 
+    void delegatedTasksCompleted(IoSession session, SslHandler handler, SSLEngine engine) {
+        NextFilter nextFilter = (NextFilter) session.getAttribute(NEXT_FILTER);
+        if (nextFilter == null) {
+            // filter removed while the tasks were running
+            return;
+        }
+
+        try {
+            synchronized (handler) {
+                if (handler.delegatedTasksCompleted(nextFilter, engine)) {
+                    handleSslData(nextFilter, handler);
+                }
+            }
+        } catch (SSLException ssle) {
+            SSLException newSsle = new SSLHandshakeException("SSL handshake failed.");
+            newSsle.initCause(ssle);
+            nextFilter.exceptionCaught(session, newSsle);
+        }
+
+        handler.flushScheduledEvents();
+    }
+
     private WriteFuture initiateClosure(NextFilter nextFilter, IoSession session)
             throws SSLException {
         SslHandler handler = getSslSessionHandler(session);
@@ -15,6 +15,8 @@
  */
 package org.kaazing.gateway.transport.ssl.bridge.filter;
 
+import static org.kaazing.gateway.transport.ssl.bridge.filter.SslCertificateSelectionFilter.withCurrentSession;
+
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -23,6 +25,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.net.ssl.SSLContext;
@@ -45,6 +48,7 @@ import org.slf4j.Logger;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
 import org.kaazing.mina.core.future.DefaultWriteFutureEx;
+import org.kaazing.mina.core.future.ReleaseBufferListener;
 import org.kaazing.mina.core.future.WriteFutureEx;
 import org.kaazing.mina.core.session.IoSessionEx;
 import org.kaazing.mina.core.write.DefaultWriteRequestEx;
@@ -53,9 +57,11 @@ import org.kaazing.mina.core.write.DefaultWriteRequestEx;
  * A helper class using the SSLEngine API to decrypt/encrypt data.
  * <p/>
  * Each connection has a SSLEngine that is used through the lifetime of the connection.
- * We allocate buffers for use as the outbound and inbound network buffers.
- * These buffers handle all of the intermediary data for the SSL connection. To make things easy,
- * we'll require outNetBuffer be completely flushed before trying to wrap any more data.
+ * The engine wraps into and unwraps into packet-sized {@link SslBuffers} borrowed from the current thread;
+ * the produced records and application data are then copied into buffers of exactly their size. Received
+ * records are unwrapped straight from the read buffer, and only a trailing partial record is kept by the
+ * connection until the rest of it arrives. To make things easy, we'll require outNetBuffer be completely
+ * flushed before trying to wrap any more data.
  *
  * @author <a href="http://mina.apache.org">Apache MINA Project</a>
  */
@@ -72,10 +78,15 @@ class SslHandler {
     private SSLEngine sslEngine;
 
     /**
-     * Encrypted data from the net
+     * Encrypted data from the net left over from the previous read, typically a partial record
      */
     private IoBufferEx inNetBuffer;
 
+    /**
+     * Encrypted data being unwrapped during the current read, either the read buffer or inNetBuffer
+     */
+    private ByteBuffer inNet;
+
     /**
      * Encrypted data to be written to the net
      */
@@ -94,6 +105,7 @@ class SslHandler {
     private SSLEngineResult.HandshakeStatus handshakeStatus;
     private boolean initialHandshakeComplete;
     private boolean handshakeComplete;
+    private boolean delegatedTasksPending;
     private boolean writingEncryptedData;
     private final IoBufferAllocatorEx<?> allocator;
 
@@ -215,6 +227,7 @@ class SslHandler {
 
         handshakeComplete = false;
         initialHandshakeComplete = false;
+        delegatedTasksPending = false;
         writingEncryptedData = false;
     }
 
@@ -228,21 +241,18 @@ class SslHandler {
 
         sslEngine.closeOutbound();
 
-        if (outNetBuffer != null) {
-            outNetBuffer.capacity(sslEngine.getSession().getPacketBufferSize(), allocator);
-        } else {
-            createOutNetBuffer(0);
-        }
-
+        ByteBuffer netOut = borrowNetBuffer(0);
         try {
             do {
-                outNetBuffer.clear();
-            } while (sslEngine.wrap(emptyBuffer.buf(), outNetBuffer.buf()).bytesProduced() > 0);
+                netOut.clear();
+            } while (sslEngine.wrap(emptyBuffer.buf(), netOut).bytesProduced() > 0);
 
         } catch (SSLException e) {
             // Ignore.
         } finally {
-            destroyOutNetBuffer();
+            if (outNetBuffer != null) {
+                destroyOutNetBuffer();
+            }
         }
 
         /* As per the SSLEngine Javadoc, we are the application which is
@@ -269,6 +279,10 @@ class SslHandler {
 
     private void destroyOutNetBuffer() {
         outNetBuffer.free();
+        if (outNetBuffer != emptyBuffer) {
+            // never written, so nothing else holds a reference
+            outNetBuffer.release();
+        }
         outNetBuffer = null;
     }
 
@@ -377,27 +391,43 @@ class SslHandler {
      * @throws SSLException on errors
      */
     public void messageReceived(NextFilter nextFilter, ByteBuffer buf) throws SSLException {
-        // append buf to inNetBuffer
+        int received = buf.remaining();
+
+        // unwrap straight from buf unless a partial record is left over from the previous read
         if (inNetBuffer == null) {
-            inNetBuffer = allocator.wrap(allocator.allocate(buf.remaining())).setAutoExpander(allocator);
+            inNet = buf;
+        } else {
+            inNetBuffer.put(buf);
+            inNet = inNetBuffer.flip().buf();
         }
 
-        inNetBuffer.put(buf);
-        if (!handshakeComplete) {
-            handshake(nextFilter);
-        }
+        try {
+            if (!handshakeComplete) {
+                handshake(nextFilter);
+            }
 
-        // Application data will be in the same message as the handshake
-        // during False Start
-        if (handshakeComplete) {
-            decrypt(nextFilter);
-        }
+            // Application data will be in the same message as the handshake
+            // during False Start
+            if (handshakeComplete) {
+                decrypt(nextFilter);
+            }
+        } finally {
+            ByteBuffer src = inNet;
+            inNet = null;
 
-        if (isInboundDone()) {
-            // Rewind the MINA buffer if not all data is processed and inbound is finished.
-            int inNetBufferPosition = inNetBuffer == null? 0 : inNetBuffer.position();
-            buf.position(buf.position() - inNetBufferPosition);
-            inNetBuffer = null;
+            if (isInboundDone()) {
+                // Rewind the MINA buffer if not all data is processed and inbound is finished.
+                if (src != buf) {
+                    buf.position(buf.position() - Math.min(src.remaining(), received));
+                }
+                inNetBuffer = null;
+            } else if (!src.hasRemaining()) {
+                inNetBuffer = null;
+            } else {
+                // keep only the unprocessed tail, buf is reused by the next read
+                inNetBuffer = allocator.wrap(allocator.allocate(src.remaining())).setAutoExpander(allocator);
+                inNetBuffer.put(src);
+            }
         }
     }
 
@@ -407,6 +437,10 @@ class SslHandler {
      * @return buffer with data
      */
     public IoBuffer fetchAppBuffer() {
+        if (this.appBuffer == null) {
+            return (IoBuffer) emptyBuffer;
+        }
+
         IoBufferEx appBuffer = this.appBuffer.flip();
         this.appBuffer = null;
         return (IoBuffer) appBuffer;
@@ -424,7 +458,7 @@ class SslHandler {
         }
 
         outNetBuffer = null;
-        return (IoBuffer) answer.shrink(allocator);
+        return (IoBuffer) answer;
     }
 
     /**
@@ -445,19 +479,23 @@ class SslHandler {
             return;
         }
 
-        createOutNetBuffer(src.remaining());
+        // wrap all of src in one pass, the records are copied out together once done
+        ByteBuffer netOut = borrowNetBuffer(src.remaining());
+        int packetBufferSize = sslEngine.getSession().getPacketBufferSize();
 
         // Loop until there is no more data in src
         while (src.hasRemaining()) {
 
-            SSLEngineResult result = sslEngine.wrap(src, outNetBuffer.buf());
+            SSLEngineResult result = sslEngine.wrap(src, netOut);
             if (result.getStatus() == SSLEngineResult.Status.OK) {
                 if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
                     doTasks();
                 }
+                if (netOut.remaining() < packetBufferSize) {
+                    appendOutNetBuffer(netOut);
+                }
             } else if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
-                outNetBuffer.capacity(outNetBuffer.capacity() << 1, allocator);
-                outNetBuffer.limit(outNetBuffer.capacity());
+                netOut = expandNetBuffer(netOut);
             } else {
                 throw new SSLException("SSLEngine error during encrypt: "
                         + result.getStatus() + " src: " + src
@@ -465,7 +503,8 @@ class SslHandler {
             }
         }
 
-        outNetBuffer.flip();
+        appendOutNetBuffer(netOut);
+        flipOutNetBuffer();
     }
 
     /**
@@ -482,13 +521,12 @@ class SslHandler {
 
         sslEngine.closeOutbound();
 
-        createOutNetBuffer(0);
+        ByteBuffer netOut = borrowNetBuffer(0);
         SSLEngineResult result;
         for (;;) {
-            result = sslEngine.wrap(emptyBuffer.buf(), outNetBuffer.buf());
+            result = sslEngine.wrap(emptyBuffer.buf(), netOut);
             if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
-                outNetBuffer.capacity(outNetBuffer.capacity() << 1, allocator);
-                outNetBuffer.limit(outNetBuffer.capacity());
+                netOut = expandNetBuffer(netOut);
             } else {
                 break;
             }
@@ -497,7 +535,8 @@ class SslHandler {
         if (result.getStatus() != SSLEngineResult.Status.CLOSED) {
             throw new SSLException("Improper close state: " + result);
         }
-        outNetBuffer.flip();
+        appendOutNetBuffer(netOut);
+        flipOutNetBuffer();
         return true;
     }
 
@@ -536,7 +575,7 @@ class SslHandler {
                 && status != SSLEngineResult.Status.CLOSED
                 && status != SSLEngineResult.Status.BUFFER_UNDERFLOW) {
             throw new SSLException("SSLEngine error during decrypt: " + status
-                    + " inNetBuffer: " + inNetBuffer + "appBuffer: "
+                    + " inNetBuffer: " + inNet + "appBuffer: "
                     + appBuffer);
         }
     }
@@ -545,6 +584,11 @@ class SslHandler {
      * Perform any handshaking processing.
      */
     public void handshake(NextFilter nextFilter) throws SSLException {
+        if (delegatedTasksPending) {
+            // resumed by delegatedTasksCompleted
+            return;
+        }
+
         for (;;) {
             switch (handshakeStatus) {
                 case FINISHED :
@@ -570,8 +614,15 @@ class SslHandler {
                     return;
                     
                 case NEED_TASK :
-                    handshakeStatus = doTasks();
-                    break;
+                    Executor handshakeExecutor = parent.getHandshakeExecutor();
+                    if (handshakeExecutor == null) {
+                        handshakeStatus = doTasks();
+                        break;
+                    }
+
+                    delegatedTasksPending = true;
+                    handshakeExecutor.execute(withCurrentSession(new DelegatedTasks(sslEngine), parent.isUseClientMode()));
+                    return;
                     
                 case NEED_UNWRAP :
                     // we need more data read
@@ -594,19 +645,19 @@ class SslHandler {
                     }
 
                     SSLEngineResult result;
-                    createOutNetBuffer(0);
+                    ByteBuffer netOut = borrowNetBuffer(0);
                     
                     for (;;) {
-                        result = sslEngine.wrap(emptyBuffer.buf(), outNetBuffer.buf());
+                        result = sslEngine.wrap(emptyBuffer.buf(), netOut);
                         if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
-                            outNetBuffer.capacity(outNetBuffer.capacity() << 1, allocator);
-                            outNetBuffer.limit(outNetBuffer.capacity());
+                            netOut = expandNetBuffer(netOut);
                         } else {
                             break;
                         }
                     }
 
-                    outNetBuffer.flip();
+                    appendOutNetBuffer(netOut);
+                    flipOutNetBuffer();
                     handshakeStatus = result.getHandshakeStatus();
                     writeNetBuffer(nextFilter);
                     break;
@@ -618,17 +669,45 @@ class SslHandler {
         }
     }
 
-    private void createOutNetBuffer(int expectedRemaining) {
+    private ByteBuffer borrowNetBuffer(int expectedRemaining) {
         // SSLEngine requires us to allocate unnecessarily big buffer
-        // even for small data.  *Shrug*
-        int capacity = Math.max(
-                expectedRemaining,
-                sslEngine.getSession().getPacketBufferSize());
+        // even for small data, so borrow it from the thread rather than
+        // keeping one per session.
+        int capacity = expectedRemaining + sslEngine.getSession().getPacketBufferSize();
+        return SslBuffers.current().netBuffer(capacity);
+    }
 
+    private ByteBuffer expandNetBuffer(ByteBuffer netOut) {
+        if (netOut.position() == 0) {
+            return SslBuffers.current().netBuffer(netOut.capacity() << 1);
+        }
+
+        // make room by moving the records wrapped so far to outNetBuffer
+        appendOutNetBuffer(netOut);
+        return netOut;
+    }
+
+    /**
+     * Move the records wrapped into <tt>netOut</tt> to the end of outNetBuffer, leaving <tt>netOut</tt> empty.
+     */
+    private void appendOutNetBuffer(ByteBuffer netOut) {
+        netOut.flip();
+        int produced = netOut.remaining();
+        if (produced != 0) {
+            if (outNetBuffer == null || outNetBuffer == emptyBuffer) {
+                // released by a ReleaseBufferListener once the records have been written
+                outNetBuffer = allocator.wrap(allocator.allocate(produced, IoBufferEx.FLAG_POOLED));
+            } else {
+                outNetBuffer.expand(produced, allocator);
+            }
+            outNetBuffer.put(netOut);
+        }
+        netOut.clear();
+    }
+
+    private void flipOutNetBuffer() {
         if (outNetBuffer != null) {
-            outNetBuffer.capacity(capacity, allocator);
-        } else {
-            outNetBuffer = allocator.wrap(allocator.allocate(capacity)).minimumCapacity(0);
+            outNetBuffer.flip();
         }
     }
 
@@ -650,6 +729,7 @@ class SslHandler {
         try {
             IoBuffer writeBuffer = fetchOutNetBuffer();
             writeFuture = new DefaultWriteFutureEx(session);
+            writeFuture.addListener(new ReleaseBufferListener((IoBufferEx) writeBuffer));
             parent.filterWrite(nextFilter, session, new DefaultWriteRequestEx(
                     writeBuffer, writeFuture));
 
@@ -667,6 +747,7 @@ class SslHandler {
                 IoBuffer outNetBuffer = fetchOutNetBuffer();
                 if (outNetBuffer != null && outNetBuffer.hasRemaining()) {
                     writeFuture = new DefaultWriteFutureEx(session);
+                    writeFuture.addListener(new ReleaseBufferListener((IoBufferEx) outNetBuffer));
                     parent.filterWrite(nextFilter, session,
                             new DefaultWriteRequestEx(outNetBuffer, writeFuture));
                 }
@@ -679,36 +760,19 @@ class SslHandler {
     }
 
     private void unwrap(NextFilter nextFilter) throws SSLException {
-        // Prepare the net data for reading.
-        if (inNetBuffer != null) {
-            inNetBuffer.flip();
-        }
-
-        if (inNetBuffer == null || !inNetBuffer.hasRemaining()) {
+        if (inNet == null || !inNet.hasRemaining()) {
             return;
         }
 
         SSLEngineResult res = unwrap0();
 
-        // prepare to be written again
-        if (inNetBuffer.hasRemaining()) {
-            inNetBuffer.compact();
-        } else {
-            inNetBuffer = null;
-        }
-
         checkStatus(res);
 
         renegotiateIfNeeded(nextFilter, res);
     }
 
     private SSLEngineResult.Status unwrapHandshake(NextFilter nextFilter) throws SSLException {
-        // Prepare the net data for reading.
-        if (inNetBuffer != null) {
-            inNetBuffer.flip();
-        }
-
-        if (inNetBuffer == null || !inNetBuffer.hasRemaining()) {
+        if (inNet == null || !inNet.hasRemaining()) {
             // Need more data.
             return SSLEngineResult.Status.BUFFER_UNDERFLOW;
         }
@@ -722,24 +786,10 @@ class SslHandler {
         // try to unwrap more
         if (handshakeStatus == SSLEngineResult.HandshakeStatus.FINISHED
                 && res.getStatus() == SSLEngineResult.Status.OK
-                && inNetBuffer.hasRemaining()) {
+                && inNet.hasRemaining()) {
             res = unwrap0();
 
-            // prepare to be written again
-            if (inNetBuffer.hasRemaining()) {
-                inNetBuffer.compact();
-            } else {
-                inNetBuffer = null;
-            }
-
             renegotiateIfNeeded(nextFilter, res);
-        } else {
-            // prepare to be written again
-            if (inNetBuffer.hasRemaining()) {
-                inNetBuffer.compact();
-            } else {
-                inNetBuffer = null;
-            }
         }
 
         return res.getStatus();
@@ -758,27 +808,71 @@ class SslHandler {
     }
 
     private SSLEngineResult unwrap0() throws SSLException {
-        if (appBuffer == null) {
-            appBuffer = allocator.wrap(allocator.allocate(inNetBuffer.remaining()));
-        } else {
-            appBuffer.expand(inNetBuffer.remaining(), allocator);
-        }
+        // decrypted data is never larger than the records it came from
+        int applicationBufferSize = sslEngine.getSession().getApplicationBufferSize();
+        ByteBuffer appOut = SslBuffers.current().appBuffer(inNet.remaining() + applicationBufferSize);
 
         SSLEngineResult res;
         do {
-            res = sslEngine.unwrap(inNetBuffer.buf(), appBuffer.buf());
+            if (appOut.remaining() < applicationBufferSize) {
+                appendAppBuffer(appOut);
+            }
+            res = sslEngine.unwrap(inNet, appOut);
             if (res.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
-                appBuffer.capacity(appBuffer.capacity() << 1, allocator);
-                appBuffer.limit(appBuffer.capacity());
+                if (appOut.position() == 0) {
+                    appOut = SslBuffers.current().appBuffer(appOut.capacity() << 1);
+                } else {
+                    appendAppBuffer(appOut);
+                }
                 continue;
             }
         } while ((res.getStatus() == SSLEngineResult.Status.OK || res.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) &&
                  (handshakeComplete && res.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING ||
                   res.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_UNWRAP));
 
+        appendAppBuffer(appOut);
         return res;
     }
 
+    /**
+     * Move the data unwrapped into <tt>appOut</tt> to the end of appBuffer, leaving <tt>appOut</tt> empty.
+     */
+    private void appendAppBuffer(ByteBuffer appOut) {
+        appOut.flip();
+        int produced = appOut.remaining();
+        if (produced != 0) {
+            if (appBuffer == null) {
+                appBuffer = allocator.wrap(allocator.allocate(produced));
+            } else {
+                appBuffer.expand(produced, allocator);
+            }
+            appBuffer.put(appOut);
+        }
+        appOut.clear();
+    }
+
+    /**
+     * Continue the handshake once its delegated tasks have run on the handshake executor, including the unwrap of
+     * any data received meanwhile. Must be called on the I/O thread of the session.
+     *
+     * @param engine  the engine whose tasks have run
+     * @return <tt>false</tt> if the handshake was abandoned while its tasks were running
+     */
+    public boolean delegatedTasksCompleted(NextFilter nextFilter, SSLEngine engine) throws SSLException {
+        if (sslEngine != engine) {
+            return false;
+        }
+
+        delegatedTasksPending = false;
+
+        handshakeStatus = sslEngine.getHandshakeStatus();
+
+        // unwrap the records received meanwhile, if any
+        messageReceived(nextFilter, emptyBuffer.buf());
+
+        return true;
+    }
+
     /**
      * Do all the outstanding handshake tasks in the current Thread.
      */
@@ -842,5 +936,34 @@ class SslHandler {
         }
         return false;
     }
+
+    /**
+     * Runs the delegated tasks of the handshake off the I/O thread, then continues the handshake back on it,
+     * with the session and certificate aliases that key selection relies on carried across both threads.
+     */
+    private final class DelegatedTasks implements Runnable {
+        private final SSLEngine engine;
+
+        DelegatedTasks(SSLEngine engine) {
+            this.engine = engine;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Runnable task;
+                while ((task = engine.getDelegatedTask()) != null) {
+                    task.run();
+                }
+            } finally {
+                session.getIoExecutor().execute(withCurrentSession(new Runnable() {
+                    @Override
+                    public void run() {
+                        parent.delegatedTasksCompleted(session, SslHandler.this, engine);
+                    }
+                }, parent.isUseClientMode()));
+            }
+        }
+    }
 }
 
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ssl.bridge.filter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.kaazing.gateway.util.concurrent.BoundedExecutor;
+
+/**
+ * Runs the delegated tasks of TLS handshakes (certificate verification, key exchange) on a fixed number of threads,
+ * so that a burst of new TLS connections does not stall the other sessions of the I/O threads that own them.
+ * At most a fixed number of handshakes wait for a thread; beyond that the delegated tasks are run by the caller,
+ * as they would be without this executor.
+ */
+public final class SslHandshakeExecutor implements Executor {
+
+    private final BoundedExecutor executor;
+
+    /**
+     * @param threadCount  the number of threads running handshake tasks
+     * @param queueDepth   the maximum number of handshakes waiting for a thread
+     */
+    public SslHandshakeExecutor(int threadCount, int queueDepth) {
+        this.executor = new BoundedExecutor("ssl-handshake-", threadCount, queueDepth);
+    }
+
+    @Override
+    public void execute(Runnable tasks) {
+        try {
+            executor.execute(tasks);
+        } catch (RejectedExecutionException e) {
+            executor.runInCaller(tasks);
+        }
+    }
+
+    public int getThreadCount() {
+        return executor.getThreadCount();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueueDepth();
+    }
+
+    public int getQueuedTaskCount() {
+        return executor.getQueuedTaskCount();
+    }
+
+    public int getActiveTaskCount() {
+        return executor.getActiveTaskCount();
+    }
+
+    /**
+     * @return the number of handshake tasks completed, including those run by the caller
+     */
+    public long getCompletedTaskCount() {
+        return executor.getCompletedTaskCount();
+    }
+
+    /**
+     * @return the number of handshake tasks run by the caller because the queue was full
+     */
+    public long getCallerRunsTaskCount() {
+        return executor.getRejectedTaskCount();
+    }
+
+    /**
+     * @return the average time completed handshake tasks spent queued, in milliseconds
+     */
+    public double getAverageWaitTime() {
+        return executor.getAverageWaitTime();
+    }
+
+    /**
+     * @return the average time completed handshake tasks took to run, in milliseconds
+     */
+    public double getAverageTaskTime() {
+        return executor.getAverageRunTime();
+    }
+
+    public void shutdownNow() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ssl;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_HANDSHAKE_QUEUE_DEPTH;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_HANDSHAKE_THREADS;
+import static org.kaazing.test.util.ITUtil.createRuleChain;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.OutputStream;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.kaazing.gateway.server.test.Gateway;
+import org.kaazing.gateway.server.test.config.GatewayConfiguration;
+import org.kaazing.gateway.server.test.config.builder.GatewayConfigurationBuilder;
+
+public class SslHandshakeOffloadTest {
+
+    private static final int CONNECTIONS = 8;
+
+    private KeyStore keyStore;
+    private char[] password;
+    private SSLContext clientContext;
+    private Gateway gateway;
+    private ExecutorService clients;
+
+    @Rule
+    public TestRule chain = createRuleChain(20, SECONDS);
+
+    @Before
+    public void init() throws Exception {
+        password = "ab987c".toCharArray();
+        keyStore = KeyStore.getInstance("JCEKS");
+        try (FileInputStream kis = new FileInputStream("target/truststore/keystore.db")) {
+            keyStore.load(kis, password);
+        }
+
+        KeyStore trustStore = KeyStore.getInstance("JKS");
+        try (FileInputStream tis = new FileInputStream("target/truststore/truststore.db")) {
+            trustStore.load(tis, null);
+        }
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustStore);
+
+        clientContext = SSLContext.getInstance("TLSv1.2");
+        clientContext.init(null, tmf.getTrustManagers(), null);
+
+        gateway = new Gateway();
+        clients = Executors.newFixedThreadPool(CONNECTIONS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        clients.shutdownNow();
+        gateway.stop();
+    }
+
+    @Test
+    public void shouldEchoAfterHandshakeOnHandshakePool() throws Exception {
+        gateway.start(newConfiguration("2", "1000"));
+
+        assertEchoes(CONNECTIONS);
+    }
+
+    @Test
+    public void shouldEchoAfterHandshakeRunOnIoThreadWhenQueueFull() throws Exception {
+        gateway.start(newConfiguration("1", "0"));
+
+        assertEchoes(CONNECTIONS);
+    }
+
+    private GatewayConfiguration newConfiguration(String handshakeThreads, String handshakeQueueDepth) {
+        // @formatter:off
+        return new GatewayConfigurationBuilder()
+                .property(SSL_HANDSHAKE_THREADS.getPropertyName(), handshakeThreads)
+                .property(SSL_HANDSHAKE_QUEUE_DEPTH.getPropertyName(), handshakeQueueDepth)
+                .service()
+                    .accept("ssl://localhost:8555")
+                    .type("echo")
+                .done()
+                .security()
+                    .keyStore(keyStore)
+                    .keyStorePassword(password)
+                .done()
+            .done();
+        // @formatter:on
+    }
+
+    private void assertEchoes(int connections) throws Exception {
+        List<Future<String>> echoes = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            final String message = "message-" + i;
+            echoes.add(clients.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return echo(message);
+                }
+            }));
+        }
+        for (int i = 0; i < connections; i++) {
+            assertEquals("message-" + i, echoes.get(i).get());
+        }
+    }
+
+    private String echo(String message) throws Exception {
+        try (SSLSocket socket = (SSLSocket) clientContext.getSocketFactory().createSocket("localhost", 8555)) {
+            socket.startHandshake();
+            byte[] bytes = message.getBytes("UTF-8");
+            OutputStream out = socket.getOutputStream();
+            out.write(bytes);
+            out.flush();
+            byte[] echoed = new byte[bytes.length];
+            new DataInputStream(socket.getInputStream()).readFully(echoed);
+            return new String(echoed, "UTF-8");
+        }
+    }
+}
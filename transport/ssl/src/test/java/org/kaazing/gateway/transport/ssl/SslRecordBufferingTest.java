@@ -0,0 +1,128 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ssl;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertArrayEquals;
+import static org.kaazing.test.util.ITUtil.createRuleChain;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.OutputStream;
+import java.security.KeyStore;
+import java.util.Random;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.kaazing.gateway.server.test.Gateway;
+import org.kaazing.gateway.server.test.config.GatewayConfiguration;
+import org.kaazing.gateway.server.test.config.builder.GatewayConfigurationBuilder;
+
+public class SslRecordBufferingTest {
+
+    private KeyStore keyStore;
+    private char[] password;
+    private SSLContext clientContext;
+    private Gateway gateway;
+
+    @Rule
+    public TestRule chain = createRuleChain(20, SECONDS);
+
+    @Before
+    public void init() throws Exception {
+        password = "ab987c".toCharArray();
+        keyStore = KeyStore.getInstance("JCEKS");
+        try (FileInputStream kis = new FileInputStream("target/truststore/keystore.db")) {
+            keyStore.load(kis, password);
+        }
+
+        KeyStore trustStore = KeyStore.getInstance("JKS");
+        try (FileInputStream tis = new FileInputStream("target/truststore/truststore.db")) {
+            trustStore.load(tis, null);
+        }
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustStore);
+
+        clientContext = SSLContext.getInstance("TLSv1.2");
+        clientContext.init(null, tmf.getTrustManagers(), null);
+
+        gateway = new Gateway();
+        gateway.start(newConfiguration());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        gateway.stop();
+    }
+
+    @Test
+    public void shouldEchoMessageSpanningManyRecords() throws Exception {
+        byte[] message = new byte[200 * 1024];
+        new Random(0).nextBytes(message);
+
+        try (SSLSocket socket = (SSLSocket) clientContext.getSocketFactory().createSocket("localhost", 8555)) {
+            socket.startHandshake();
+            OutputStream out = socket.getOutputStream();
+            out.write(message);
+            out.flush();
+            assertArrayEquals(message, read(socket, message.length));
+        }
+    }
+
+    @Test
+    public void shouldEchoSuccessiveSmallRecords() throws Exception {
+        byte[] message = "small".getBytes("UTF-8");
+
+        try (SSLSocket socket = (SSLSocket) clientContext.getSocketFactory().createSocket("localhost", 8555)) {
+            socket.setTcpNoDelay(true);
+            socket.startHandshake();
+            OutputStream out = socket.getOutputStream();
+            for (int i = 0; i < 3; i++) {
+                out.write(message);
+                out.flush();
+                assertArrayEquals(message, read(socket, message.length));
+            }
+        }
+    }
+
+    private byte[] read(SSLSocket socket, int length) throws Exception {
+        byte[] echoed = new byte[length];
+        new DataInputStream(socket.getInputStream()).readFully(echoed);
+        return echoed;
+    }
+
+    private GatewayConfiguration newConfiguration() {
+        // @formatter:off
+        return new GatewayConfigurationBuilder()
+                .service()
+                    .accept("ssl://localhost:8555")
+                    .type("echo")
+                .done()
+                .security()
+                    .keyStore(keyStore)
+                    .keyStorePassword(password)
+                .done()
+            .done();
+        // @formatter:on
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ssl;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_SESSION_CACHE_SIZE;
+import static org.kaazing.gateway.util.InternalSystemProperty.SSL_SESSION_TIMEOUT;
+import static org.kaazing.test.util.ITUtil.createRuleChain;
+
+import java.io.FileInputStream;
+import java.security.KeyStore;
+import java.util.Arrays;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.kaazing.gateway.server.test.Gateway;
+import org.kaazing.gateway.server.test.config.GatewayConfiguration;
+import org.kaazing.gateway.server.test.config.builder.GatewayConfigurationBuilder;
+
+public class SslSessionResumptionTest {
+
+    private KeyStore keyStore;
+    private char[] password;
+    private SSLContext clientContext;
+    private Gateway gateway;
+
+    @Rule
+    public TestRule chain = createRuleChain(10, SECONDS);
+
+    @Before
+    public void init() throws Exception {
+        password = "ab987c".toCharArray();
+        keyStore = KeyStore.getInstance("JCEKS");
+        try (FileInputStream kis = new FileInputStream("target/truststore/keystore.db")) {
+            keyStore.load(kis, password);
+        }
+
+        KeyStore trustStore = KeyStore.getInstance("JKS");
+        try (FileInputStream tis = new FileInputStream("target/truststore/truststore.db")) {
+            trustStore.load(tis, null);
+        }
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustStore);
+
+        // session ids identify resumed sessions only up to TLSv1.2
+        clientContext = SSLContext.getInstance("TLSv1.2");
+        clientContext.init(null, tmf.getTrustManagers(), null);
+
+        gateway = new Gateway();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        gateway.stop();
+    }
+
+    @Test
+    public void shouldResumeCachedSession() throws Exception {
+        gateway.start(newConfiguration("100", "5 minutes"));
+
+        byte[] sessionId = handshake();
+
+        assertArrayEquals(sessionId, handshake());
+    }
+
+    @Test
+    public void shouldNotResumeExpiredSession() throws Exception {
+        gateway.start(newConfiguration("100", "1 second"));
+
+        byte[] sessionId = handshake();
+        Thread.sleep(2000);
+
+        assertFalse(Arrays.equals(sessionId, handshake()));
+    }
+
+    private GatewayConfiguration newConfiguration(String sessionCacheSize, String sessionTimeout) {
+        // @formatter:off
+        return new GatewayConfigurationBuilder()
+                .property(SSL_SESSION_CACHE_SIZE.getPropertyName(), sessionCacheSize)
+                .property(SSL_SESSION_TIMEOUT.getPropertyName(), sessionTimeout)
+                .service()
+                    .accept("ssl://localhost:8555")
+                    .type("echo")
+                .done()
+                .security()
+                    .keyStore(keyStore)
+                    .keyStorePassword(password)
+                .done()
+            .done();
+        // @formatter:on
+    }
+
+    private byte[] handshake() throws Exception {
+        try (SSLSocket socket = (SSLSocket) clientContext.getSocketFactory().createSocket("localhost", 8555)) {
+            socket.startHandshake();
+            return socket.getSession().getId();
+        }
+    }
+}
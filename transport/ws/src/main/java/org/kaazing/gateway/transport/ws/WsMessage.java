@@ -27,6 +27,9 @@ public abstract class WsMessage extends Message {
 
     private final boolean fin;
 
+    // reserved bits RSV1, RSV2 and RSV3 of the frame header, as negotiated by extensions
+    private int rsv;
+
     public abstract Kind getKind();
 
     private IoBufferEx buf;
@@ -51,6 +54,17 @@ public abstract class WsMessage extends Message {
         return fin;
     }
 
+    /**
+     * @return the reserved bits of the frame, with RSV1 as the most significant of the lowest three bits
+     */
+    public int getRsv() {
+        return rsv;
+    }
+
+    public void setRsv(int rsv) {
+        this.rsv = rsv;
+    }
+
     @Override
     public int hashCode() {
         return buf.hashCode();
@@ -63,7 +77,7 @@ public abstract class WsMessage extends Message {
         }
 
         WsMessage that = (WsMessage) obj;
-        return (that.getKind() == this.getKind() && that.fin == this.fin &&
+        return (that.getKind() == this.getKind() && that.fin == this.fin && that.rsv == this.rsv &&
                 Utils.sameOrEquals(this.buf == null ? null : this.buf.buf(),
                         that.buf == null ? null : that.buf.buf())); // IoBufferEx has no equals method
     }
@@ -28,7 +28,12 @@ public enum WsSystemProperty {
     WS_ENABLED_TRANSPORTS("org.kaazing.gateway.transport.ws.ENABLED_TRANSPORTS"),
     // in org.kaazing.gateway.util.InternalSystemProperty:
     // WSE_IDLE_TIMEOUT("org.kaazing.gateway.server.transport.wse.IDLE_TIMEOUT", "60")
-    WSE_IDLE_TIMEOUT("org.kaazing.gateway.transport.wse.IDLE_TIMEOUT", "60");
+    WSE_IDLE_TIMEOUT("org.kaazing.gateway.transport.wse.IDLE_TIMEOUT", "60"),
+
+    // extensions
+    WS_PERMESSAGE_DEFLATE_ENABLED("org.kaazing.gateway.transport.ws.PERMESSAGE_DEFLATE_ENABLED", "false"),
+    // memory shared by all permessage-deflate sessions for their compression contexts, e.g. 64m
+    WS_PERMESSAGE_DEFLATE_MEMORY("org.kaazing.gateway.transport.ws.PERMESSAGE_DEFLATE_MEMORY", "64m");
 
     private final String name;
     private final String defaultValue;
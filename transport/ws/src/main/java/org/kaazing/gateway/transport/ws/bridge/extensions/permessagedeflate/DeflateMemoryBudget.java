@@ -0,0 +1,83 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static org.kaazing.gateway.transport.ws.WsSystemProperty.WS_PERMESSAGE_DEFLATE_MEMORY;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kaazing.gateway.util.Utils;
+
+/**
+ * Memory available to the compression contexts that permessage-deflate sessions keep between messages,
+ * shared by all sessions of the gateway. A session that cannot reserve memory for a context compresses
+ * or decompresses each message on its own instead, using the contexts of the I/O thread.
+ */
+final class DeflateMemoryBudget {
+
+    // zlib state for a 15 bit window and the default memory level: window, hash chains and pending buffer
+    static final long DEFLATER_MEMORY = (1 << 17) + (1 << 17) + 6 * 1024;
+
+    // zlib state for a 15 bit window
+    static final long INFLATER_MEMORY = (1 << 15) + 7 * 1024;
+
+    static final DeflateMemoryBudget GATEWAY_BUDGET =
+            new DeflateMemoryBudget(Utils.parseDataSize(WS_PERMESSAGE_DEFLATE_MEMORY.getProperty(System.getProperties())));
+
+    private final long limit;
+    private final AtomicLong reserved = new AtomicLong();
+
+    DeflateMemoryBudget(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * @return true if the given amount of memory could be reserved without exceeding the limit
+     */
+    boolean isAvailable(long memory) {
+        return reserved.get() + memory <= limit;
+    }
+
+    /**
+     * Reserves the given amount of memory if that does not exceed the limit.
+     * @return true if the memory was reserved, in which case it must later be released
+     */
+    boolean tryReserve(long memory) {
+        long current;
+        do {
+            current = reserved.get();
+            if (current + memory > limit) {
+                return false;
+            }
+        } while (!reserved.compareAndSet(current, current + memory));
+        return true;
+    }
+
+    /**
+     * Reserves the given amount of memory even if that exceeds the limit, for a context the protocol requires.
+     */
+    void reserve(long memory) {
+        reserved.addAndGet(memory);
+    }
+
+    void release(long memory) {
+        reserved.addAndGet(-memory);
+    }
+
+    long getReserved() {
+        return reserved.get();
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static org.kaazing.gateway.transport.ws.WsSystemProperty.WS_PERMESSAGE_DEFLATE_ENABLED;
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.DeflateMemoryBudget.DEFLATER_MEMORY;
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.DeflateMemoryBudget.GATEWAY_BUDGET;
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.DeflateMemoryBudget.INFLATER_MEMORY;
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.PerMessageDeflateExtension.CLIENT_MAX_WINDOW_BITS;
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.PerMessageDeflateExtension.CLIENT_NO_CONTEXT_TAKEOVER;
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.PerMessageDeflateExtension.SERVER_MAX_WINDOW_BITS;
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.PerMessageDeflateExtension.SERVER_NO_CONTEXT_TAKEOVER;
+
+import java.net.ProtocolException;
+
+import org.kaazing.gateway.resource.address.ws.WsResourceAddress;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHeader;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHelper;
+import org.kaazing.gateway.transport.ws.extension.ExtensionParameter;
+import org.kaazing.gateway.transport.ws.extension.WebSocketExtension;
+import org.kaazing.gateway.transport.ws.extension.WebSocketExtensionFactorySpi;
+
+/**
+ * Negotiates the permessage-deflate extension (RFC 7692) for native WebSocket connections, when enabled
+ * with the system property org.kaazing.gateway.transport.ws.PERMESSAGE_DEFLATE_ENABLED.
+ */
+public final class PerMessageDeflateExtensionFactory extends WebSocketExtensionFactorySpi {
+
+    // java.util.zip always compresses with the largest LZ77 window
+    private static final int DEFLATER_WINDOW_BITS = 15;
+
+    private final boolean enabled;
+    private final DeflateMemoryBudget budget;
+
+    public PerMessageDeflateExtensionFactory() {
+        this(Boolean.parseBoolean(WS_PERMESSAGE_DEFLATE_ENABLED.getProperty(System.getProperties())), GATEWAY_BUDGET);
+    }
+
+    PerMessageDeflateExtensionFactory(boolean enabled, DeflateMemoryBudget budget) {
+        this.enabled = enabled;
+        this.budget = budget;
+    }
+
+    @Override
+    public String getExtensionName() {
+        return PerMessageDeflateExtension.EXTENSION_TOKEN;
+    }
+
+    @Override
+    public ExtensionOrderCategory getOrderCategory() {
+        return ExtensionOrderCategory.NETWORK;
+    }
+
+    @Override
+    public WebSocketExtension offer(ExtensionHelper extensionHelper, WsResourceAddress address) {
+        // connectors are not sending this extension in handshake request
+        return null;
+    }
+
+    @Override
+    public WebSocketExtension negotiate(ExtensionHeader requestedExtension, ExtensionHelper extensionHelper, WsResourceAddress address)
+            throws ProtocolException {
+        if (!enabled) {
+            return null;
+        }
+        if (address.getExternalURI().startsWith("wse")) {
+            // emulated connections have no frame header to mark compressed messages
+            return null;
+        }
+
+        boolean serverNoContextTakeover = false;
+        boolean clientNoContextTakeover = false;
+        for (ExtensionParameter parameter : requestedExtension.getParameters()) {
+            String name = parameter.getName();
+            String value = parameter.getValue();
+            if (SERVER_NO_CONTEXT_TAKEOVER.equals(name) && value == null) {
+                serverNoContextTakeover = true;
+            }
+            else if (CLIENT_NO_CONTEXT_TAKEOVER.equals(name) && value == null) {
+                clientNoContextTakeover = true;
+            }
+            else if (SERVER_MAX_WINDOW_BITS.equals(name)) {
+                // a smaller window cannot be honored, so decline the offer and let the client fall back to another
+                if (parseWindowBits(value) != DEFLATER_WINDOW_BITS) {
+                    return null;
+                }
+            }
+            else if (CLIENT_MAX_WINDOW_BITS.equals(name)) {
+                // the client may use any window, as the inflater accepts them all
+                if (value != null && parseWindowBits(value) == -1) {
+                    return null;
+                }
+            }
+            else {
+                // RFC 7692 requires declining offers with unknown or invalid parameters
+                return null;
+            }
+        }
+
+        // ask for no context takeover when the gateway cannot afford to keep the contexts
+        if (!serverNoContextTakeover && !budget.isAvailable(DEFLATER_MEMORY)) {
+            serverNoContextTakeover = true;
+        }
+        if (!clientNoContextTakeover && !budget.isAvailable(INFLATER_MEMORY)) {
+            clientNoContextTakeover = true;
+        }
+
+        int maxMessageSize = address.getOption(WsResourceAddress.MAX_MESSAGE_SIZE);
+        return new PerMessageDeflateExtension(extensionHelper, serverNoContextTakeover, clientNoContextTakeover,
+                maxMessageSize, budget);
+    }
+
+    private static int parseWindowBits(String value) {
+        if (value == null) {
+            return -1;
+        }
+        if (value.length() > 1 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+            value = value.substring(1, value.length() - 1);
+        }
+        try {
+            int windowBits = Integer.parseInt(value);
+            return (windowBits >= 8 && windowBits <= 15) ? windowBits : -1;
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+}
@@ -0,0 +1,477 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.DeflateMemoryBudget.DEFLATER_MEMORY;
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.DeflateMemoryBudget.INFLATER_MEMORY;
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.PerMessageDeflateExtension.EXTENSION_TOKEN;
+import static org.kaazing.gateway.transport.ws.bridge.filter.WsFrameDecoder.PERMITTED_RSV_KEY;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_NONE;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_SHARED;
+import static org.kaazing.mina.core.buffer.SimpleBufferAllocator.BUFFER_ALLOCATOR;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.mina.core.filterchain.IoFilterChain;
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.core.write.WriteRequest;
+import org.kaazing.gateway.transport.ws.WsBinaryMessage;
+import org.kaazing.gateway.transport.ws.WsCloseMessage;
+import org.kaazing.gateway.transport.ws.WsContinuationMessage;
+import org.kaazing.gateway.transport.ws.WsFilterAdapter;
+import org.kaazing.gateway.transport.ws.WsMessage;
+import org.kaazing.gateway.transport.ws.WsMessage.Kind;
+import org.kaazing.gateway.transport.ws.WsPingMessage;
+import org.kaazing.gateway.transport.ws.WsPongMessage;
+import org.kaazing.gateway.transport.ws.WsTextMessage;
+import org.kaazing.gateway.transport.ws.bridge.filter.WsBuffer;
+import org.kaazing.gateway.transport.ws.bridge.filter.WsBufferAllocator;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.session.IoSessionEx;
+import org.kaazing.mina.core.write.DefaultWriteRequestEx;
+
+/**
+ * This filter is used when the permessage-deflate extension is active, to compress outgoing text and binary
+ * messages and decompress incoming messages that have the RSV1 bit set.
+ * <p>
+ * The compression contexts are only kept for the session when context takeover is negotiated and the gateway-wide
+ * {@link DeflateMemoryBudget} allows it. Otherwise each message is compressed on its own with the deflater of the
+ * I/O thread, which produces the same output for every session, so a message broadcast to many sessions is
+ * compressed and encoded once and then taken from the cache of the message.
+ */
+class PerMessageDeflateFilter extends WsFilterAdapter {
+
+    // RSV1 marks the first frame of a compressed message
+    private static final int RSV1 = 0x04;
+
+    // appended to a compressed message by the sender's flush, removed from the frames (RFC 7692 section 7.2.1)
+    private static final byte[] TAIL = { 0x00, 0x00, (byte) 0xff, (byte) 0xff };
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+
+    // shared compressed payloads outlive the session that compressed them first
+    private static final IoBufferAllocatorEx<WsBuffer> SHARED_ALLOCATOR = new WsBufferAllocator(BUFFER_ALLOCATOR, false);
+
+    private static final ThreadLocal<CompressionContext> THREAD_CONTEXT = new ThreadLocal<CompressionContext>() {
+        @Override
+        protected CompressionContext initialValue() {
+            return new CompressionContext();
+        }
+    };
+
+    private final boolean serverNoContextTakeover;
+    private final boolean clientNoContextTakeover;
+    private final int maxMessageSize;
+    private final DeflateMemoryBudget budget;
+
+    private IoBufferAllocatorEx<?> allocator;
+    private long reservedMemory;
+
+    // kept between messages with context takeover
+    private Deflater deflater;
+    private Inflater inflater;
+
+    // state of the compressed message being received
+    private Inflater messageInflater;
+    private long messageSize;
+
+    PerMessageDeflateFilter(boolean serverNoContextTakeover, boolean clientNoContextTakeover, int maxMessageSize,
+            DeflateMemoryBudget budget) {
+        this.serverNoContextTakeover = serverNoContextTakeover;
+        this.clientNoContextTakeover = clientNoContextTakeover;
+        this.maxMessageSize = maxMessageSize;
+        this.budget = budget;
+    }
+
+    @Override
+    public void onPostAdd(IoFilterChain parent, String name, NextFilter nextFilter) throws Exception {
+        IoSessionEx session = (IoSessionEx) parent.getSession();
+        allocator = session.getBufferAllocator();
+        PERMITTED_RSV_KEY.set(session, RSV1);
+
+        // compressing each message on its own is always valid, so fall back to it when the budget is exhausted
+        if (!serverNoContextTakeover && budget.tryReserve(DEFLATER_MEMORY)) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            reservedMemory += DEFLATER_MEMORY;
+        }
+
+        // the client was told it may keep its context, so the inflater is required
+        if (!clientNoContextTakeover) {
+            budget.reserve(INFLATER_MEMORY);
+            inflater = new Inflater(true);
+            reservedMemory += INFLATER_MEMORY;
+        }
+    }
+
+    @Override
+    public void onPostRemove(IoFilterChain parent, String name, NextFilter nextFilter) throws Exception {
+        PERMITTED_RSV_KEY.remove(parent.getSession());
+        dispose();
+    }
+
+    @Override
+    public void sessionClosed(NextFilter nextFilter, IoSession session) throws Exception {
+        dispose();
+        super.sessionClosed(nextFilter, session);
+    }
+
+    @Override
+    protected Object doFilterWriteWsText(NextFilter nextFilter, IoSession session, WriteRequest writeRequest, WsTextMessage wsText)
+            throws Exception {
+        // fragmented messages are sent uncompressed, as RSV1 is optional for each message
+        return wsText.isFin() ? deflate(wsText) : wsText;
+    }
+
+    @Override
+    protected Object doFilterWriteWsBinary(NextFilter nextFilter, IoSession session, WriteRequest writeRequest,
+            WsBinaryMessage wsBinary) throws Exception {
+        return wsBinary.isFin() ? deflate(wsBinary) : wsBinary;
+    }
+
+    @Override
+    protected void wsTextReceived(NextFilter nextFilter, IoSession session, WsTextMessage wsText) throws Exception {
+        if (wsText.getRsv() == RSV1) {
+            inflate(nextFilter, session, wsText);
+        }
+        else {
+            super.wsTextReceived(nextFilter, session, wsText);
+        }
+    }
+
+    @Override
+    protected void wsBinaryReceived(NextFilter nextFilter, IoSession session, WsBinaryMessage wsBinary) throws Exception {
+        if (wsBinary.getRsv() == RSV1) {
+            inflate(nextFilter, session, wsBinary);
+        }
+        else {
+            super.wsBinaryReceived(nextFilter, session, wsBinary);
+        }
+    }
+
+    @Override
+    protected void wsContinuationReceived(NextFilter nextFilter, IoSession session, WsContinuationMessage wsCont)
+            throws Exception {
+        if (wsCont.getRsv() != 0) {
+            // RSV1 is only set on the first frame of a message
+            protocolError(nextFilter, session);
+        }
+        else if (messageInflater != null) {
+            inflate(nextFilter, session, wsCont);
+        }
+        else {
+            super.wsContinuationReceived(nextFilter, session, wsCont);
+        }
+    }
+
+    @Override
+    protected void wsCloseReceived(NextFilter nextFilter, IoSession session, WsCloseMessage wsClose) throws Exception {
+        if (wsClose.getRsv() != 0) {
+            protocolError(nextFilter, session);
+        }
+        else {
+            super.wsCloseReceived(nextFilter, session, wsClose);
+        }
+    }
+
+    @Override
+    protected void wsPingReceived(NextFilter nextFilter, IoSession session, WsPingMessage wsPing) throws Exception {
+        if (wsPing.getRsv() != 0) {
+            protocolError(nextFilter, session);
+        }
+        else {
+            super.wsPingReceived(nextFilter, session, wsPing);
+        }
+    }
+
+    @Override
+    protected void wsPongReceived(NextFilter nextFilter, IoSession session, WsPongMessage wsPong) throws Exception {
+        if (wsPong.getRsv() != 0) {
+            protocolError(nextFilter, session);
+        }
+        else {
+            super.wsPongReceived(nextFilter, session, wsPong);
+        }
+    }
+
+    private WsMessage deflate(WsMessage message) {
+        if (deflater != null) {
+            return deflated(message.getKind(), deflate(deflater, message.getBytes(), allocator, FLAG_NONE));
+        }
+
+        if (!message.hasCache()) {
+            return deflated(message.getKind(), deflateWithoutContext(message.getBytes(), allocator, FLAG_NONE));
+        }
+
+        // without context takeover the output does not depend on the session, so share the deflated message,
+        // and with its own cache the frame encoded from it as well
+        ConcurrentMap<String, IoBufferEx> cache = message.getCache();
+        WsBuffer compressed = (WsBuffer) cache.get(EXTENSION_TOKEN);
+        if (compressed == null) {
+            IoBufferEx payload = message.getBytes();
+            WsBuffer newCompressed = (WsBuffer) deflateWithoutContext(payload, SHARED_ALLOCATOR, FLAG_SHARED);
+            WsMessage deflated = deflated(message.getKind(), newCompressed);
+            deflated.initCache();
+            newCompressed.setMessage(deflated);
+            compressed = (WsBuffer) cache.putIfAbsent(EXTENSION_TOKEN, newCompressed);
+            if (compressed == null) {
+                compressed = newCompressed;
+            }
+        }
+        return compressed.getMessage();
+    }
+
+    private static WsMessage deflated(Kind kind, IoBufferEx compressed) {
+        WsMessage deflated = (kind == Kind.TEXT) ? new WsTextMessage(compressed) : new WsBinaryMessage(compressed);
+        deflated.setRsv(RSV1);
+        return deflated;
+    }
+
+    private IoBufferEx deflateWithoutContext(IoBufferEx payload, IoBufferAllocatorEx<?> allocator, int flags) {
+        Deflater threadDeflater = THREAD_CONTEXT.get().deflater;
+        try {
+            return deflate(threadDeflater, payload, allocator, flags);
+        }
+        finally {
+            threadDeflater.reset();
+        }
+    }
+
+    private IoBufferEx deflate(Deflater deflater, IoBufferEx payload, IoBufferAllocatorEx<?> allocator, int flags) {
+        CompressionContext context = THREAD_CONTEXT.get();
+        setInput(deflater, null, payload, context);
+
+        byte[] output = context.output;
+        int length = 0;
+        do {
+            if (length == output.length) {
+                output = context.growOutput(length);
+            }
+            length += deflater.deflate(output, length, output.length - length, Deflater.SYNC_FLUSH);
+        } while (length == output.length);
+
+        if (length >= TAIL.length && endsWithTail(output, length)) {
+            length -= TAIL.length;
+        }
+
+        IoBufferEx compressed = wrap(allocator, output, length, flags);
+        context.releaseBuffers();
+        return compressed;
+    }
+
+    private void inflate(NextFilter nextFilter, IoSession session, WsMessage message) throws Exception {
+        CompressionContext context = THREAD_CONTEXT.get();
+        if (messageInflater == null) {
+            if (inflater != null) {
+                messageInflater = inflater;
+            }
+            else {
+                // a fragmented message may interleave with messages of other sessions on this thread
+                messageInflater = message.isFin() ? context.inflater : new Inflater(true);
+            }
+            messageSize = 0;
+        }
+
+        IoBufferEx inflated;
+        try {
+            int length = inflate(messageInflater, message.getBytes(), context, 0);
+            if (message.isFin()) {
+                length = inflate(messageInflater, null, context, length);
+            }
+            messageSize += length;
+            if (maxMessageSize > 0 && messageSize > maxMessageSize) {
+                endMessage(context);
+                nextFilter.filterWrite(session, new DefaultWriteRequestEx(WsCloseMessage.MESSAGE_TOO_LONG_ERROR));
+                session.close(true);
+                return;
+            }
+            inflated = wrap(allocator, context.output, length, FLAG_NONE);
+        }
+        catch (DataFormatException e) {
+            endMessage(context);
+            protocolError(nextFilter, session);
+            return;
+        }
+        finally {
+            context.releaseBuffers();
+        }
+
+        if (message.isFin()) {
+            endMessage(context);
+        }
+
+        WsMessage decompressed;
+        switch (message.getKind()) {
+        case TEXT:
+            decompressed = new WsTextMessage(inflated, message.isFin());
+            super.wsTextReceived(nextFilter, session, (WsTextMessage) decompressed);
+            break;
+        case BINARY:
+            decompressed = new WsBinaryMessage(inflated, message.isFin());
+            super.wsBinaryReceived(nextFilter, session, (WsBinaryMessage) decompressed);
+            break;
+        default:
+            decompressed = new WsContinuationMessage(inflated, message.isFin());
+            super.wsContinuationReceived(nextFilter, session, (WsContinuationMessage) decompressed);
+            break;
+        }
+    }
+
+    // inflates the payload, or the tail if the payload is null, appending to the output of the context
+    private int inflate(Inflater inflater, IoBufferEx payload, CompressionContext context, int length)
+            throws DataFormatException {
+        setInput(null, inflater, payload, context);
+
+        byte[] output = context.output;
+        int inflatedLength;
+        do {
+            if (length == output.length) {
+                if (maxMessageSize > 0 && messageSize + length > maxMessageSize) {
+                    // no need to inflate any further
+                    break;
+                }
+                output = context.growOutput(length);
+            }
+            inflatedLength = inflater.inflate(output, length, output.length - length);
+            length += inflatedLength;
+        } while (length == output.length || (inflatedLength > 0 && !inflater.needsInput()));
+        return length;
+    }
+
+    private void endMessage(CompressionContext context) {
+        if (messageInflater == inflater && !messageInflater.finished()) {
+            // keep the context for the next message
+        }
+        else if (messageInflater == context.inflater || messageInflater == inflater) {
+            messageInflater.reset();
+        }
+        else {
+            messageInflater.end();
+        }
+        messageInflater = null;
+    }
+
+    private static void setInput(Deflater deflater, Inflater inflater, IoBufferEx payload, CompressionContext context) {
+        byte[] input;
+        int offset;
+        int length;
+        if (payload == null) {
+            input = TAIL;
+            offset = 0;
+            length = TAIL.length;
+        }
+        else {
+            ByteBuffer buf = payload.buf();
+            length = buf.remaining();
+            if (buf.hasArray()) {
+                input = buf.array();
+                offset = buf.arrayOffset() + buf.position();
+            }
+            else {
+                input = context.getInput(length);
+                offset = 0;
+                buf.duplicate().get(input, 0, length);
+            }
+        }
+
+        if (deflater != null) {
+            deflater.setInput(input, offset, length);
+        }
+        else {
+            inflater.setInput(input, offset, length);
+        }
+    }
+
+    private static boolean endsWithTail(byte[] output, int length) {
+        for (int i = 0; i < TAIL.length; i++) {
+            if (output[length - TAIL.length + i] != TAIL[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static IoBufferEx wrap(IoBufferAllocatorEx<?> allocator, byte[] bytes, int length, int flags) {
+        ByteBuffer buf = allocator.allocate(length, flags);
+        int offset = buf.position();
+        buf.put(bytes, 0, length);
+        buf.flip();
+        buf.position(offset);
+        return allocator.wrap(buf, flags);
+    }
+
+    private void dispose() {
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+        if (messageInflater != null && messageInflater != inflater) {
+            messageInflater.end();
+        }
+        messageInflater = null;
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+        budget.release(reservedMemory);
+        reservedMemory = 0;
+    }
+
+    private void protocolError(NextFilter nextFilter, IoSession session) {
+        nextFilter.filterWrite(session, new DefaultWriteRequestEx(WsCloseMessage.PROTOCOL_ERROR));
+        session.close(true);
+    }
+
+    /**
+     * Compression contexts and buffers of an I/O thread, used for one message at a time.
+     */
+    private static final class CompressionContext {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        final Inflater inflater = new Inflater(true);
+
+        byte[] input = new byte[INITIAL_BUFFER_SIZE];
+        byte[] output = new byte[INITIAL_BUFFER_SIZE];
+
+        byte[] getInput(int length) {
+            if (input.length < length) {
+                input = new byte[length];
+            }
+            return input;
+        }
+
+        byte[] growOutput(int length) {
+            byte[] grown = new byte[output.length * 2];
+            System.arraycopy(output, 0, grown, 0, length);
+            output = grown;
+            return output;
+        }
+
+        // do not hold on to the buffers of an unusually large message
+        void releaseBuffers() {
+            if (input.length > MAX_RETAINED_BUFFER_SIZE) {
+                input = new byte[INITIAL_BUFFER_SIZE];
+            }
+            if (output.length > MAX_RETAINED_BUFFER_SIZE) {
+                output = new byte[INITIAL_BUFFER_SIZE];
+            }
+        }
+    }
+}
@@ -53,13 +53,14 @@ public abstract class AbstractWsFrameEncoder extends ProtocolEncoderAdapter {
                        ProtocolEncoderOutput out) throws Exception {
 
         WsMessage wsMessage = (WsMessage) message;
+        out.write(encode(wsMessage));
+    }
+
+    protected final IoBufferEx encode(WsMessage wsMessage) {
         if (wsMessage.hasCache()) {
-            IoBufferEx buf = cachingEncoder.encode(encoder, wsMessage, allocator, FLAG_SHARED | FLAG_ZERO_COPY);
-            out.write(buf);
-        } else {
-            IoBufferEx buf = doEncode(allocator, FLAG_ZERO_COPY, wsMessage);
-            out.write(buf);
+            return cachingEncoder.encode(encoder, wsMessage, allocator, FLAG_SHARED | FLAG_ZERO_COPY);
         }
+        return doEncode(allocator, FLAG_ZERO_COPY, wsMessage);
     }
 
     protected IoBufferEx doEncode(IoBufferAllocatorEx<?> allocator, int flags, WsMessage message) {
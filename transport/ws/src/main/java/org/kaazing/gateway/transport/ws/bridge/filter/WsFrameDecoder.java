@@ -24,9 +24,11 @@ import java.nio.ByteBuffer;
 import org.apache.mina.core.session.IoSession;
 import org.apache.mina.filter.codec.ProtocolDecoderException;
 import org.apache.mina.filter.codec.ProtocolDecoderOutput;
+import org.kaazing.gateway.transport.TypedAttributeKey;
 import org.kaazing.gateway.transport.ws.WsBinaryMessage;
 import org.kaazing.gateway.transport.ws.WsCloseMessage;
 import org.kaazing.gateway.transport.ws.WsContinuationMessage;
+import org.kaazing.gateway.transport.ws.WsMessage;
 import org.kaazing.gateway.transport.ws.WsMessage.Kind;
 import org.kaazing.gateway.transport.ws.WsPingMessage;
 import org.kaazing.gateway.transport.ws.WsPongMessage;
@@ -39,6 +41,13 @@ import org.kaazing.mina.filter.codec.CumulativeProtocolDecoderEx;
 
 public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
 
+    /**
+     * Reserved bits (as in {@link WsMessage#getRsv()}) that a negotiated extension permits on incoming frames.
+     * Permitted bits are kept on the decoded message for the extension to interpret instead of failing the connection.
+     */
+    public static final TypedAttributeKey<Integer> PERMITTED_RSV_KEY =
+            new TypedAttributeKey<>(WsFrameDecoder.class, "permittedRsv", 0);
+
     private final int maxMessageSize;
     private BinaryTextMessageDecoder binaryTextDecoder = DEFAULT_BINARY_TEXT_DECODER;
     private boolean prevDataFin = true;
@@ -60,7 +69,7 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
         in.mark();
 
         byte opcodeByte = in.get();
-        validateRSV(opcodeByte);
+        int rsv = validateRSV(session, opcodeByte);
 
         int i = (opcodeByte & 0x0f);
         Opcode opcode;
@@ -131,25 +140,29 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
 
         switch (opcode) {
             case CONTINUATION:
-                binaryTextDecoder.decodeWsMessage(buf, CONTINUATION, fin, out);
+                binaryTextDecoder.decodeWsMessage(buf, CONTINUATION, fin, rsv, out);
                 prevDataFin = fin;
                 currentMessageSize = currentMessageSizeCandidate;
                 break;
             case BINARY:
-                binaryTextDecoder.decodeWsMessage(buf, BINARY, fin, out);
+                binaryTextDecoder.decodeWsMessage(buf, BINARY, fin, rsv, out);
                 prevDataFin = fin;
                 currentMessageSize = currentMessageSizeCandidate;
                 break;
             case TEXT:
-                binaryTextDecoder.decodeWsMessage(buf, TEXT, fin, out);
+                binaryTextDecoder.decodeWsMessage(buf, TEXT, fin, rsv, out);
                 prevDataFin = fin;
                 currentMessageSize = currentMessageSizeCandidate;
                 break;
             case PING:
-                out.write(new WsPingMessage(buf));
+                WsPingMessage ping = new WsPingMessage(buf);
+                ping.setRsv(rsv);
+                out.write(ping);
                 break;
             case PONG:
-                out.write(new WsPongMessage(buf));
+                WsPongMessage pong = new WsPongMessage(buf);
+                pong.setRsv(rsv);
+                out.write(pong);
                 break;
             case CLOSE:
                 WsCloseMessage close;
@@ -160,6 +173,7 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
                 } else {
                     close = new WsCloseMessage();
                 }
+                close.setRsv(rsv);
                 out.write(close);
                 break;
             default:
@@ -196,20 +210,23 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
         }
     }
 
-    // Validates RSV bits
-    private void validateRSV(byte opcodeByte) throws ProtocolDecoderException {
-        if ((opcodeByte & 0x70) != 0) {
-            // We don't support negotiated extensions that deal with RSV bits
-            if ((opcodeByte & 0x40) != 0) {
+    // Validates RSV bits, returning those that are set
+    private static int validateRSV(IoSession session, byte opcodeByte) throws ProtocolDecoderException {
+        int rsv = (opcodeByte & 0x70) >> 4;
+        if (rsv != 0) {
+            // only bits of a negotiated extension are permitted, so look them up for the rare frame that sets any
+            int unexpected = rsv & ~PERMITTED_RSV_KEY.get(session);
+            if ((unexpected & 0x04) != 0) {
                 throw new ProtocolDecoderException("RSV1 is set");
             }
-            if ((opcodeByte & 0x20) != 0) {
+            if ((unexpected & 0x02) != 0) {
                 throw new ProtocolDecoderException("RSV2 is set");
             }
-            if ((opcodeByte & 0x10) != 0) {
+            if ((unexpected & 0x01) != 0) {
                 throw new ProtocolDecoderException("RSV3 is set");
             }
         }
+        return rsv;
     }
 
     /*
@@ -287,25 +304,29 @@ public class WsFrameDecoder extends CumulativeProtocolDecoderEx {
     }
 
     private interface BinaryTextMessageDecoder {
-        void decodeWsMessage(IoBufferEx payload, Kind messageKind, boolean fin, ProtocolDecoderOutput out);
+        void decodeWsMessage(IoBufferEx payload, Kind messageKind, boolean fin, int rsv, ProtocolDecoderOutput out);
     }
 
     private static final BinaryTextMessageDecoder DEFAULT_BINARY_TEXT_DECODER = new BinaryTextMessageDecoder() {
         @Override
-        public void decodeWsMessage(IoBufferEx payload, Kind messageKind, boolean fin, ProtocolDecoderOutput out) {
+        public void decodeWsMessage(IoBufferEx payload, Kind messageKind, boolean fin, int rsv, ProtocolDecoderOutput out) {
+            WsMessage message;
             switch(messageKind) {
             case CONTINUATION:
-                out.write(new WsContinuationMessage(payload, fin));
+                message = new WsContinuationMessage(payload, fin);
                 break;
             case BINARY:
-                out.write(new WsBinaryMessage(payload, fin));
+                message = new WsBinaryMessage(payload, fin);
                 break;
             case TEXT:
-                out.write(new WsTextMessage(payload, fin));
+                message = new WsTextMessage(payload, fin);
                 break;
             default:
                 assert false;
+                return;
             }
+            message.setRsv(rsv);
+            out.write(message);
         }
     };
 
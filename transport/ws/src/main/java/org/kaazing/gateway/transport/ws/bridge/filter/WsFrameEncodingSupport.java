@@ -231,6 +231,8 @@ public class WsFrameEncodingSupport {
     private static byte doEncodeOpcode(byte b, WsMessage message) {
         Kind kind = message.getKind();
 
+        b |= (message.getRsv() & 0x07) << 4;
+
         switch (kind) {
         case CONTINUATION:
             b |= Opcode.CONTINUATION.getCode();
@@ -84,16 +84,20 @@ public final class WebSocketExtensionFactory {
 
             // get the acceptedExtensions
             LinkedList<WebSocketExtension> acceptedExtensions = new LinkedList<>();
+            Set<String> acceptedExtensionTokens = new HashSet<>();
 
             // Orders the extensions based on SPI preferences, and then order that they came in
             for(Set<ExtensionHeader> extensionHeaders: extensionHeadersByCategory.values()){
                 for (ExtensionHeader candidate : requestedExtensions) {
-                    if(extensionHeaders.contains(candidate)){
+                    // clients may offer an extension several times with different parameters, in order of preference
+                    if(extensionHeaders.contains(candidate) &&
+                            !acceptedExtensionTokens.contains(candidate.getExtensionToken())){
                         WebSocketExtensionFactorySpi extension = factoriesRO.get(candidate.getExtensionToken());
                         WebSocketExtension acceptedExtension = extension.negotiate(candidate, extensionHelper, address);
                         // negotiated can be null if the extension doesn't want to be active
                         if (acceptedExtension != null) {
                             acceptedExtensions.add(acceptedExtension);
+                            acceptedExtensionTokens.add(candidate.getExtensionToken());
                         }
                     }
                 }
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+
+import org.apache.mina.core.session.IoSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.kaazing.gateway.resource.address.ResourceAddressFactory;
+import org.kaazing.gateway.resource.address.ws.WsResourceAddress;
+import org.kaazing.gateway.security.auth.context.ResultAwareLoginContext;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHeaderBuilder;
+import org.kaazing.gateway.transport.ws.extension.ExtensionHelper;
+import org.kaazing.gateway.transport.ws.extension.WebSocketExtension;
+
+public class PerMessageDeflateExtensionFactoryTest {
+    private static final ExtensionHelper extensionHelper = new ExtensionHelper() {
+
+        @Override
+        public void setLoginContext(IoSession session, ResultAwareLoginContext loginContext) {
+            throw new RuntimeException("Not expected to be called");
+        }
+
+        @Override
+        public void closeWebSocketConnection(IoSession session) {
+            throw new RuntimeException("Not expected to be called");
+        }
+    };
+
+    private ResourceAddressFactory addressFactory;
+    private WsResourceAddress address;
+    private PerMessageDeflateExtensionFactory factory;
+
+    @Before
+    public void setUp() {
+        addressFactory = ResourceAddressFactory.newResourceAddressFactory();
+        address = (WsResourceAddress) addressFactory.newResourceAddress("ws://localhost:2020/");
+        factory = new PerMessageDeflateExtensionFactory(true, new DeflateMemoryBudget(1024 * 1024));
+    }
+
+    @Test
+    public void shouldAcceptOfferWithoutParameters() throws Exception {
+        assertEquals("permessage-deflate", negotiate("permessage-deflate"));
+    }
+
+    @Test
+    public void shouldAcceptNoContextTakeover() throws Exception {
+        assertEquals("permessage-deflate; server_no_context_takeover; client_no_context_takeover",
+                negotiate("permessage-deflate; server_no_context_takeover; client_no_context_takeover"));
+    }
+
+    @Test
+    public void shouldAcceptClientMaxWindowBits() throws Exception {
+        assertEquals("permessage-deflate", negotiate("permessage-deflate; client_max_window_bits"));
+        assertEquals("permessage-deflate", negotiate("permessage-deflate; client_max_window_bits=10"));
+    }
+
+    @Test
+    public void shouldAcceptLargestServerMaxWindowBits() throws Exception {
+        assertEquals("permessage-deflate", negotiate("permessage-deflate; server_max_window_bits=15"));
+        assertEquals("permessage-deflate", negotiate("permessage-deflate; server_max_window_bits=\"15\""));
+    }
+
+    @Test
+    public void shouldDeclineSmallerServerMaxWindowBits() throws Exception {
+        assertNull(negotiate("permessage-deflate; server_max_window_bits=10"));
+    }
+
+    @Test
+    public void shouldDeclineInvalidParameters() throws Exception {
+        assertNull(negotiate("permessage-deflate; server_max_window_bits"));
+        assertNull(negotiate("permessage-deflate; client_max_window_bits=16"));
+        assertNull(negotiate("permessage-deflate; server_no_context_takeover=true"));
+        assertNull(negotiate("permessage-deflate; unknown_parameter"));
+    }
+
+    @Test
+    public void shouldRequestNoContextTakeoverWhenMemoryExhausted() throws Exception {
+        factory = new PerMessageDeflateExtensionFactory(true, new DeflateMemoryBudget(0));
+        assertEquals("permessage-deflate; server_no_context_takeover; client_no_context_takeover",
+                negotiate("permessage-deflate"));
+    }
+
+    @Test
+    public void shouldDeclineWhenDisabled() throws Exception {
+        factory = new PerMessageDeflateExtensionFactory(false, new DeflateMemoryBudget(1024 * 1024));
+        assertNull(negotiate("permessage-deflate"));
+    }
+
+    @Test
+    public void shouldDeclineEmulatedConnections() throws Exception {
+        address = (WsResourceAddress) addressFactory.newResourceAddress("wse://localhost:2020/",
+                Collections.<String, Object>emptyMap());
+        assertNull(negotiate("permessage-deflate"));
+    }
+
+    private String negotiate(String requested) throws Exception {
+        WebSocketExtension extension = factory.negotiate(new ExtensionHeaderBuilder(requested).done(), extensionHelper, address);
+        return (extension != null) ? extension.getExtensionHeader().toString() : null;
+    }
+
+}
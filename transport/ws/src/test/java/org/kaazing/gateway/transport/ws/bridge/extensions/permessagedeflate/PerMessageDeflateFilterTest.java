@@ -0,0 +1,288 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.DeflateMemoryBudget.DEFLATER_MEMORY;
+import static org.kaazing.gateway.transport.ws.bridge.extensions.permessagedeflate.DeflateMemoryBudget.INFLATER_MEMORY;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.mina.core.filterchain.IoFilter.NextFilter;
+import org.apache.mina.core.filterchain.IoFilterChain;
+import org.apache.mina.core.write.WriteRequest;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.kaazing.gateway.transport.test.Expectations;
+import org.kaazing.gateway.transport.ws.WsBinaryMessage;
+import org.kaazing.gateway.transport.ws.WsCloseMessage;
+import org.kaazing.gateway.transport.ws.WsContinuationMessage;
+import org.kaazing.gateway.transport.ws.WsMessage;
+import org.kaazing.gateway.transport.ws.WsMessage.Kind;
+import org.kaazing.gateway.transport.ws.WsPingMessage;
+import org.kaazing.gateway.transport.ws.WsTextMessage;
+import org.kaazing.gateway.transport.ws.bridge.filter.WsFrameDecoder;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.write.DefaultWriteRequestEx;
+import org.kaazing.mina.filter.codec.ProtocolCodecSessionEx;
+
+public class PerMessageDeflateFilterTest {
+
+    // "Hello" compressed as in RFC 7692 section 7.2.3.1, and again with context takeover as in section 7.2.3.2
+    private static final byte[] HELLO_COMPRESSED = { (byte) 0xf2, 0x48, (byte) 0xcd, (byte) 0xc9, (byte) 0xc9, 0x07, 0x00 };
+    private static final byte[] HELLO_COMPRESSED_AGAIN = { (byte) 0xf2, 0x00, 0x11, 0x00, 0x00 };
+
+    @Rule
+    public JUnitRuleMockery context = new JUnitRuleMockery();
+
+    private final IoFilterChain filterChain = context.mock(IoFilterChain.class, "filterChain");
+    private final NextFilter nextFilter = context.mock(NextFilter.class);
+
+    private ProtocolCodecSessionEx session;
+    private IoBufferAllocatorEx<?> allocator;
+    private DeflateMemoryBudget budget;
+
+    @Before
+    public void before() throws Exception {
+        session = new ProtocolCodecSessionEx();
+        allocator = session.getBufferAllocator();
+        budget = new DeflateMemoryBudget(1024 * 1024);
+        context.checking(new Expectations() {
+            {
+                allowing(filterChain).getSession(); will(returnValue(session));
+            }
+        });
+    }
+
+    @Test
+    public void shouldPermitRsv1WhileAdded() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(false, false);
+        assertEquals(0x04, WsFrameDecoder.PERMITTED_RSV_KEY.get(session).intValue());
+
+        filter.onPostRemove(filterChain, "permessage-deflate", nextFilter);
+        assertEquals(0, WsFrameDecoder.PERMITTED_RSV_KEY.get(session).intValue());
+        assertEquals(0, budget.getReserved());
+    }
+
+    @Test
+    public void shouldCompressWithContextTakeover() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(false, false);
+
+        WsMessage first = write(filter, new WsTextMessage(wrap("Hello".getBytes(UTF_8))));
+        assertEquals(Kind.TEXT, first.getKind());
+        assertEquals(0x04, first.getRsv());
+        assertArrayEquals(HELLO_COMPRESSED, bytes(first));
+
+        WsMessage second = write(filter, new WsTextMessage(wrap("Hello".getBytes(UTF_8))));
+        assertArrayEquals(HELLO_COMPRESSED_AGAIN, bytes(second));
+    }
+
+    @Test
+    public void shouldCompressWithoutContextTakeover() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(true, true);
+
+        WsMessage first = write(filter, new WsBinaryMessage(wrap("Hello".getBytes(UTF_8))));
+        assertEquals(Kind.BINARY, first.getKind());
+        assertEquals(0x04, first.getRsv());
+        assertArrayEquals(HELLO_COMPRESSED, bytes(first));
+
+        WsMessage second = write(filter, new WsBinaryMessage(wrap("Hello".getBytes(UTF_8))));
+        assertArrayEquals(HELLO_COMPRESSED, bytes(second));
+        assertEquals(0, budget.getReserved());
+    }
+
+    @Test
+    public void shouldFallBackToNoContextTakeoverWhenMemoryExhausted() throws Exception {
+        budget = new DeflateMemoryBudget(0);
+        PerMessageDeflateFilter filter = newFilter(false, false);
+
+        write(filter, new WsTextMessage(wrap("Hello".getBytes(UTF_8))));
+        WsMessage second = write(filter, new WsTextMessage(wrap("Hello".getBytes(UTF_8))));
+        assertArrayEquals(HELLO_COMPRESSED, bytes(second));
+
+        // the inflater was promised to the client during the handshake
+        assertEquals(INFLATER_MEMORY, budget.getReserved());
+
+        context.checking(new Expectations() {
+            {
+                oneOf(nextFilter).sessionClosed(session);
+            }
+        });
+        filter.sessionClosed(nextFilter, session);
+        assertEquals(0, budget.getReserved());
+    }
+
+    @Test
+    public void shouldReserveMemoryForContextTakeover() throws Exception {
+        newFilter(false, false);
+        assertEquals(DEFLATER_MEMORY + INFLATER_MEMORY, budget.getReserved());
+    }
+
+    @Test
+    public void shouldShareCompressedMessageOfCachedMessage() throws Exception {
+        PerMessageDeflateFilter filter1 = newFilter(true, true);
+        PerMessageDeflateFilter filter2 = newFilter(true, true);
+
+        WsMessage broadcast = new WsTextMessage(wrap("Hello".getBytes(UTF_8)));
+        broadcast.initCache();
+
+        WsMessage first = write(filter1, broadcast);
+        WsMessage second = write(filter2, broadcast);
+        assertSame(first, second);
+        assertTrue(second.hasCache());
+        assertTrue(second.getBytes().isShared());
+        assertEquals(0x04, second.getRsv());
+        assertArrayEquals(HELLO_COMPRESSED, bytes(second));
+    }
+
+    @Test
+    public void shouldNotCompressFragmentedMessage() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(false, false);
+
+        WsMessage message = new WsTextMessage(wrap("Hel".getBytes(UTF_8)), false);
+        assertSame(message, write(filter, message));
+    }
+
+    @Test
+    public void shouldDecompressMessage() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(false, false);
+
+        WsMessage received = receive(filter, compressed(new WsTextMessage(wrap(HELLO_COMPRESSED))));
+        assertEquals(new WsTextMessage(wrap("Hello".getBytes(UTF_8))), received);
+
+        received = receive(filter, compressed(new WsTextMessage(wrap(HELLO_COMPRESSED_AGAIN))));
+        assertEquals(new WsTextMessage(wrap("Hello".getBytes(UTF_8))), received);
+    }
+
+    @Test
+    public void shouldDecompressFragmentedMessage() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(true, true);
+
+        byte[] first = new byte[3];
+        byte[] second = new byte[HELLO_COMPRESSED.length - first.length];
+        System.arraycopy(HELLO_COMPRESSED, 0, first, 0, first.length);
+        System.arraycopy(HELLO_COMPRESSED, first.length, second, 0, second.length);
+
+        WsMessage received1 = receive(filter, compressed(new WsBinaryMessage(wrap(first), false)));
+        WsMessage received2 = receive(filter, new WsContinuationMessage(wrap(second), true));
+        assertEquals(Kind.BINARY, received1.getKind());
+        assertFalse(received1.isFin());
+        assertEquals(Kind.CONTINUATION, received2.getKind());
+        assertTrue(received2.isFin());
+        assertEquals("Hello", new String(bytes(received1), UTF_8) + new String(bytes(received2), UTF_8));
+    }
+
+    @Test
+    public void shouldPassUncompressedMessage() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(false, false);
+
+        WsMessage message = new WsTextMessage(wrap("Hello".getBytes(UTF_8)));
+        assertSame(message, receive(filter, message));
+    }
+
+    @Test
+    public void shouldFailControlFrameWithRsv1() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(false, false);
+
+        context.checking(new Expectations() {
+            {
+                oneOf(nextFilter).filterWrite(with(session), with(hasMessage(WsCloseMessage.PROTOCOL_ERROR)));
+            }
+        });
+        filter.messageReceived(nextFilter, session, compressed(new WsPingMessage(wrap(new byte[0]))));
+    }
+
+    @Test
+    public void shouldFailInvalidCompressedData() throws Exception {
+        PerMessageDeflateFilter filter = newFilter(false, false);
+
+        context.checking(new Expectations() {
+            {
+                oneOf(nextFilter).filterWrite(with(session), with(hasMessage(WsCloseMessage.PROTOCOL_ERROR)));
+            }
+        });
+        filter.messageReceived(nextFilter, session, compressed(new WsTextMessage(wrap(new byte[] { (byte) 0xff, 0x00 }))));
+    }
+
+    @Test
+    public void shouldFailDecompressedMessageTooLong() throws Exception {
+        PerMessageDeflateFilter filter = new PerMessageDeflateFilter(false, false, 4, budget);
+        filter.onPostAdd(filterChain, "permessage-deflate", nextFilter);
+
+        context.checking(new Expectations() {
+            {
+                oneOf(nextFilter).filterWrite(with(session), with(hasMessage(WsCloseMessage.MESSAGE_TOO_LONG_ERROR)));
+            }
+        });
+        filter.messageReceived(nextFilter, session, compressed(new WsTextMessage(wrap(HELLO_COMPRESSED))));
+    }
+
+    private PerMessageDeflateFilter newFilter(boolean serverNoContextTakeover, boolean clientNoContextTakeover)
+            throws Exception {
+        PerMessageDeflateFilter filter = new PerMessageDeflateFilter(serverNoContextTakeover, clientNoContextTakeover, 0,
+                budget);
+        filter.onPostAdd(filterChain, "permessage-deflate", nextFilter);
+        return filter;
+    }
+
+    private WsMessage write(PerMessageDeflateFilter filter, WsMessage message) throws Exception {
+        WriteRequest writeRequest = new DefaultWriteRequestEx(message);
+        context.checking(new Expectations() {
+            {
+                oneOf(nextFilter).filterWrite(session, writeRequest);
+            }
+        });
+        filter.filterWrite(nextFilter, session, writeRequest);
+        return (WsMessage) writeRequest.getMessage();
+    }
+
+    private WsMessage receive(PerMessageDeflateFilter filter, WsMessage message) throws Exception {
+        AtomicReference<Object> received = new AtomicReference<>();
+        context.checking(new Expectations() {
+            {
+                oneOf(nextFilter).messageReceived(with(session), with(any(Object.class)));
+                will(saveParameter(received, 1));
+            }
+        });
+        filter.messageReceived(nextFilter, session, message);
+        return (WsMessage) received.get();
+    }
+
+    private IoBufferEx wrap(byte[] bytes) {
+        return allocator.wrap(ByteBuffer.wrap(bytes));
+    }
+
+    private static WsMessage compressed(WsMessage message) {
+        message.setRsv(0x04);
+        return message;
+    }
+
+    private static byte[] bytes(WsMessage message) {
+        ByteBuffer buf = message.getBytes().buf().duplicate();
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        return bytes;
+    }
+}
@@ -984,6 +984,63 @@ public class WsFrameDecoderTest {
         System.out.print(s);
     }
 */
+    @Test
+    public void decodeTextFrameWithPermittedRsv1() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0, false);
+        WsFrameDecoder.PERMITTED_RSV_KEY.set(session, 0x04);
+
+        IoBufferEx in = allocator.wrap(allocator.allocate(5))
+                                 .put((byte)0xc1)
+                                 .put((byte)0x03)
+                                 .put((byte)0x61)
+                                 .put((byte)0x62)
+                                 .put((byte)0x63)
+                                 .flip();
+
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+
+        WsMessage out = (WsMessage)session.getDecoderOutputQueue().poll();
+        WsMessage expected = new WsTextMessage(allocator.wrap(ByteBuffer.wrap("abc".getBytes(UTF_8))));
+        expected.setRsv(0x04);
+        assertEquals(expected, out);
+        assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    public void decodeTextFrameWithRsv2WhenOnlyRsv1Permitted() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0, false);
+        WsFrameDecoder.PERMITTED_RSV_KEY.set(session, 0x04);
+
+        IoBufferEx in = allocator.wrap(allocator.allocate(2))
+                                 .put((byte)0xa1)
+                                 .put((byte)0x00)
+                                 .flip();
+
+        thrown.expect(ProtocolDecoderException.class);
+        thrown.expectMessage("RSV2 is set");
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+    }
+
+    @Test
+    public void decodeTextFrameWithRsv1WhenNotPermitted() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolDecoder decoder = new WsFrameDecoder(allocator, 0, false);
+
+        IoBufferEx in = allocator.wrap(allocator.allocate(2))
+                                 .put((byte)0xc1)
+                                 .put((byte)0x00)
+                                 .flip();
+
+        thrown.expect(ProtocolDecoderException.class);
+        thrown.expectMessage("RSV1 is set");
+        decoder.decode(session, (IoBuffer) in, session.getDecoderOutput());
+    }
+
     private static String createString(char ch, int size) {
         char[] arr = new char[size];
         for(int i=0; i < size; i++) {
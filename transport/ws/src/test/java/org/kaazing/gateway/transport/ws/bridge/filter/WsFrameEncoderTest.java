@@ -175,6 +175,27 @@ public class WsFrameEncoderTest {
         assertNotSame(buf.array(), out.array());
     }
 
+    @Test
+    public void testEncodeBinaryFrameWithRsv1() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolEncoder encoder = new WsFrameEncoder(allocator, false);
+
+        IoBufferEx buf = allocator.wrap(allocator.allocate(1)).put((byte) 0x00).flip();
+        WsMessage in = new WsBinaryMessage(buf);
+        in.setRsv(0x04);
+
+        encoder.encode(session, in, session.getEncoderOutput());
+
+        IoBufferEx out = (IoBufferEx) session.getEncoderOutputQueue().poll();
+        assertEquals(allocator.wrap(allocator.allocate(3))
+                              .put((byte)0xc2)
+                              .put((byte) 0x01)
+                              .put((byte) 0x00)
+                              .flip(),
+                     out);
+    }
+
     @Test
     public void testEncodeBinaryFrame() throws Exception {
         ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
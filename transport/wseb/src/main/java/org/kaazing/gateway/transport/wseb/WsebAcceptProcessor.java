@@ -15,6 +15,10 @@
  */
 package org.kaazing.gateway.transport.wseb;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.apache.mina.core.filterchain.IoFilterChain;
@@ -29,6 +33,7 @@ import org.kaazing.gateway.transport.ws.Command;
 import org.kaazing.gateway.transport.ws.WsCommandMessage;
 import org.kaazing.gateway.transport.ws.WsMessage;
 import org.kaazing.gateway.transport.ws.WsMessage.Kind;
+import org.kaazing.gateway.transport.wseb.filter.WsebFrameBatch;
 import org.kaazing.gateway.transport.wseb.filter.WsebFrameEncoder;
 import org.kaazing.mina.core.buffer.IoBufferEx;
 import org.slf4j.Logger;
@@ -38,10 +43,21 @@ public class WsebAcceptProcessor extends BridgeAcceptProcessor<WsebSession> {
     private final Logger logger;
     private static final CheckInitialPadding CHECK_INITIAL_PADDING = new CheckInitialPadding();
     private final ScheduledExecutorService scheduler;
-
-    public WsebAcceptProcessor(ScheduledExecutorService scheduler, Logger logger) {
+    private final int writeCoalescingMaximumBytes;
+    private final long writeCoalescingDelay;
+
+    /**
+     * @param writeCoalescingMaximumBytes  maximum payload bytes of queued messages written to the downstream
+     *                                     as a single HTTP chunk, zero writes each message separately
+     * @param writeCoalescingDelay         milliseconds a flush is deferred to coalesce it with the messages
+     *                                     written in the meantime, zero flushes immediately
+     */
+    public WsebAcceptProcessor(ScheduledExecutorService scheduler, Logger logger, int writeCoalescingMaximumBytes,
+                               long writeCoalescingDelay) {
         this.scheduler = scheduler;
         this.logger = logger;
+        this.writeCoalescingMaximumBytes = writeCoalescingMaximumBytes;
+        this.writeCoalescingDelay = writeCoalescingDelay;
     }
 
     @Override
@@ -79,6 +95,19 @@ public class WsebAcceptProcessor extends BridgeAcceptProcessor<WsebSession> {
             return;
         }
 
+        if (writeCoalescingDelay > 0 && !session.isClosing()) {
+            // defer the flush so that messages written in the meantime are coalesced with the queued ones
+            if (!session.isFlushDeferred()) {
+                session.setFlushDeferred(true);
+                scheduler.schedule(new DeferredFlush(session), writeCoalescingDelay, MILLISECONDS);
+            }
+            return;
+        }
+
+        flushQueued(session, writer);
+    }
+
+    private void flushQueued(final WsebSession session, final HttpAcceptSession writer) {
         // store last write so we can observe it
         WriteFuture lastWrite = null;
 
@@ -146,6 +175,7 @@ public class WsebAcceptProcessor extends BridgeAcceptProcessor<WsebSession> {
             if (message instanceof WsMessage) {
                 WsMessage frame = (WsMessage) message;
                 IoBufferEx buf = frame.getBytes();
+                List<WriteRequest> batch = null;
                 try {
                     // stop if parent already closing
                     if (writer.isClosing()) {
@@ -175,8 +205,34 @@ public class WsebAcceptProcessor extends BridgeAcceptProcessor<WsebSession> {
                     // resulting in a WriteToClosedSessionException and losing data
 
 
-                    // flush the message out to the session
-                    lastWrite = flushNowInternal(writer, frame, buf, filterChain, request);
+                    // gather the data messages queued behind this one, so they are flushed as a single HTTP chunk
+                    if (isCoalescable(request)) {
+                        while (remaining < writeCoalescingMaximumBytes) {
+                            WriteRequest nextRequest = writeRequestQueue.poll(session);
+                            if (nextRequest == null) {
+                                break;
+                            }
+                            if (!isCoalescable(nextRequest)) {
+                                // flush it on the next iteration
+                                currentWriteRequest = nextRequest;
+                                break;
+                            }
+                            if (batch == null) {
+                                batch = new ArrayList<>();
+                                batch.add(request);
+                            }
+                            batch.add(nextRequest);
+                            remaining += ((WsMessage) nextRequest.getMessage()).getBytes().remaining();
+                        }
+                    }
+
+                    // flush the message(s) out to the session
+                    if (batch == null) {
+                        lastWrite = flushNowInternal(writer, frame, buf, filterChain, request);
+                    }
+                    else {
+                        lastWrite = flushBatchInternal(writer, batch, filterChain);
+                    }
 
                     // increment session written bytes
                     int written = remaining;
@@ -204,7 +260,14 @@ public class WsebAcceptProcessor extends BridgeAcceptProcessor<WsebSession> {
                     // write close to message close
                 }
                 catch (Exception e) {
-                    request.getFuture().setException(e);
+                    if (batch == null) {
+                        request.getFuture().setException(e);
+                    }
+                    else {
+                        for (WriteRequest batchRequest : batch) {
+                            batchRequest.getFuture().setException(e);
+                        }
+                    }
                 }
             }
             else {
@@ -214,6 +277,80 @@ public class WsebAcceptProcessor extends BridgeAcceptProcessor<WsebSession> {
         while (true);
     }
 
+    private static boolean isCoalescable(WriteRequest request) {
+        if (WsebSession.isReconnectRequest(request)) {
+            return false;
+        }
+        Object message = request.getMessage();
+        if (message instanceof WsMessage) {
+            Kind kind = ((WsMessage) message).getKind();
+            return kind == Kind.BINARY || kind == Kind.TEXT;
+        }
+        return false;
+    }
+
+    private static WriteFuture flushBatchInternal(HttpAcceptSession writer, List<WriteRequest> batch,
+                                                  IoFilterChain filterChain) {
+        List<WsMessage> frames = new ArrayList<>(batch.size());
+        for (WriteRequest request : batch) {
+            frames.add((WsMessage) request.getMessage());
+        }
+        WriteFuture future = writer.write(new WsebFrameBatch(frames));
+        future.addListener(new BatchWritten(batch, filterChain));
+        return future;
+    }
+
+    private final class DeferredFlush implements Runnable {
+        private final WsebSession session;
+
+        DeferredFlush(WsebSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public void run() {
+            // flush in the IO thread of the session, as for any other flush
+            session.getIoExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    session.setFlushDeferred(false);
+                    HttpAcceptSession writer = (HttpAcceptSession) session.getWriter();
+                    if (writer != null && !writer.isClosing() && !session.isWriteSuspended()) {
+                        flushQueued(session, writer);
+                    }
+                }
+            });
+        }
+    }
+
+    private static final class BatchWritten implements IoFutureListener<WriteFuture> {
+        private final List<WriteRequest> batch;
+        private final IoFilterChain filterChain;
+
+        BatchWritten(List<WriteRequest> batch, IoFilterChain filterChain) {
+            this.batch = batch;
+            this.filterChain = filterChain;
+        }
+
+        @Override
+        public void operationComplete(WriteFuture future) {
+            for (WriteRequest request : batch) {
+                if (future.isWritten()) {
+                    ((WsMessage) request.getMessage()).getBytes().reset();
+                    try {
+                        request.getFuture().setWritten();
+                    }
+                    catch (Throwable t) {
+                        filterChain.fireExceptionCaught(t);
+                    }
+                }
+                else {
+                    request.getFuture().setException(future.getException());
+                }
+            }
+        }
+    }
+
     private static void checkInitialPadding(HttpAcceptSession session) {
         // check to see if we need to add a padding message to the end of
         // the sent messages
@@ -33,6 +33,8 @@ import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_CONTENT_LENG
 import static org.kaazing.gateway.transport.http.HttpHeaders.HEADER_CONTENT_TYPE;
 import static org.kaazing.gateway.transport.ws.WsSystemProperty.WSE_IDLE_TIMEOUT;
 import static org.kaazing.gateway.transport.ws.bridge.filter.WsCheckAliveFilter.DISABLE_INACTIVITY_TIMEOUT;
+import static org.kaazing.gateway.util.InternalSystemProperty.WSEB_WRITE_COALESCING_DELAY;
+import static org.kaazing.gateway.util.InternalSystemProperty.WSEB_WRITE_COALESCING_MAXIMUM_BYTES;
 import static org.kaazing.gateway.util.InternalSystemProperty.WSE_SPECIFICATION;
 import static org.kaazing.mina.core.future.DefaultUnbindFuture.combineFutures;
 
@@ -48,6 +50,7 @@ import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Resource;
 import javax.security.auth.Subject;
@@ -104,6 +107,7 @@ import org.kaazing.gateway.transport.ws.util.WsUtils;
 import org.kaazing.gateway.transport.wseb.filter.WsebBufferAllocator;
 import org.kaazing.gateway.transport.wseb.filter.WsebEncodingCodecFilter.EscapeTypes;
 import org.kaazing.gateway.util.Encoding;
+import org.kaazing.gateway.util.Utils;
 import org.kaazing.gateway.util.scheduler.SchedulerProvider;
 import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
 import org.kaazing.mina.core.buffer.IoBufferEx;
@@ -172,6 +176,8 @@ public class WsebAcceptor extends AbstractBridgeAcceptor<WsebSession, Binding> {
 
     private Properties configuration;
     private boolean specCompliant;
+    private int writeCoalescingMaximumBytes = WSEB_WRITE_COALESCING_MAXIMUM_BYTES.getIntProperty(new Properties());
+    private long writeCoalescingDelay;
 
     private ScheduledExecutorService scheduler;
     private BridgeServiceFactory bridgeServiceFactory;
@@ -199,13 +205,16 @@ public class WsebAcceptor extends AbstractBridgeAcceptor<WsebSession, Binding> {
 
     @Override
     protected IoProcessorEx<WsebSession> initProcessor() {
-        return new WsebAcceptProcessor(scheduler, logger);
+        return new WsebAcceptProcessor(scheduler, logger, writeCoalescingMaximumBytes, writeCoalescingDelay);
     }
 
     @Resource(name = "configuration")
     public void setConfiguration(Properties configuration) {
         this.configuration = configuration;
         this.specCompliant = "true".equals(WSE_SPECIFICATION.getProperty(configuration));
+        this.writeCoalescingMaximumBytes = WSEB_WRITE_COALESCING_MAXIMUM_BYTES.getIntProperty(configuration);
+        this.writeCoalescingDelay = Utils.parseTimeInterval(WSEB_WRITE_COALESCING_DELAY.getProperty(configuration),
+                TimeUnit.MILLISECONDS);
     }
 
     @Resource(name = "bridgeServiceFactory")
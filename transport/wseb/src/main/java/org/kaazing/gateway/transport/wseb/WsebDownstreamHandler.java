@@ -80,6 +80,7 @@ class WsebDownstreamHandler extends IoHandlerAdapter<HttpAcceptSession> {
         this.contentType = contentType;
         if (encodingStrategy == TEXT_AS_BINARY) {
             // 3.5 clients
+            wsebSession.setEncodingStrategy(TEXT_AS_BINARY);  //cache key
             this.codec = new WsebTextAsBinaryEncodingCodecFilter();
             this.encoding = (escapeEncoding != null) ? new EncodingFilter(escapeEncoding) : null;
         }
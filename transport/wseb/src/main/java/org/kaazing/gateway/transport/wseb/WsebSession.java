@@ -121,6 +121,26 @@ public class WsebSession extends AbstractWsBridgeSession<WsebSession, WsBuffer>
 
     };
 
+    static final CachingMessageEncoder WSEB_MESSAGE_TEXT_AS_BINARY_ENCODER = new CachingMessageEncoder() {
+
+        @Override
+        public <T extends Message> IoBufferEx encode(MessageEncoder<T> encoder, T message, IoBufferAllocatorEx<?> allocator, int flags) {
+            return encode("wseb-text", encoder, message, allocator, flags);
+        }
+
+    };
+
+    // escape type and encoding strategy are only known once the downstream is attached, which can be after
+    // the io codec captured getMessageEncoder(), so the cache key must be chosen at encoding time
+    private final CachingMessageEncoder messageEncoder = new CachingMessageEncoder() {
+
+        @Override
+        public <T extends Message> IoBufferEx encode(MessageEncoder<T> encoder, T message, IoBufferAllocatorEx<?> allocator, int flags) {
+            return selectMessageEncoder().encode(encoder, message, allocator, flags);
+        }
+
+    };
+
     private final Logger logger;
     private static final WriteRequest RECONNECT_REQUEST = new DefaultWriteRequestEx(new Object());
 
@@ -137,7 +157,8 @@ public class WsebSession extends AbstractWsBridgeSession<WsebSession, WsBuffer>
 
     private boolean firstWriter = true;
 
-    private EscapeTypes encodeEscapeType = EscapeTypes.NO_ESCAPE;
+    private volatile EscapeTypes encodeEscapeType = EscapeTypes.NO_ESCAPE;
+    private volatile WsebEncodingStrategy encodingStrategy = WsebEncodingStrategy.DEFAULT;
     private ResourceAddress readAddress;
     private ResourceAddress writeAddress;
 
@@ -152,6 +173,9 @@ public class WsebSession extends AbstractWsBridgeSession<WsebSession, WsBuffer>
     };
     private ScheduledFuture<?> timeoutFuture;
 
+    // whether a flush is deferred to coalesce writes, only accessed in the IO thread
+    private boolean flushDeferred;
+
     private TransportSession transportSession;
 
     private enum CloseState {
@@ -221,6 +245,15 @@ public class WsebSession extends AbstractWsBridgeSession<WsebSession, WsBuffer>
 
     @Override
     public CachingMessageEncoder getMessageEncoder() {
+        return messageEncoder;
+    }
+
+    private CachingMessageEncoder selectMessageEncoder() {
+        if (encodingStrategy == WsebEncodingStrategy.TEXT_AS_BINARY) {
+            // text frames are framed as binary for 3.5 clients, escaping (if any) is done after the codec
+            return WSEB_MESSAGE_TEXT_AS_BINARY_ENCODER;
+        }
+
         switch(this.encodeEscapeType) {
         case ESCAPE_ZERO_AND_NEWLINES:
             return WSEB_MESSAGE_ESCAPE_ZERO_AND_NEWLINE_ENCODER;
@@ -402,6 +435,14 @@ public class WsebSession extends AbstractWsBridgeSession<WsebSession, WsBuffer>
         }
     }
 
+    boolean isFlushDeferred() {
+        return flushDeferred;
+    }
+
+    void setFlushDeferred(boolean flushDeferred) {
+        this.flushDeferred = flushDeferred;
+    }
+
     void cancelTimeout() {
         if (timeoutFuture != null) {
             timeoutFuture.cancel(false);
@@ -594,6 +635,10 @@ public class WsebSession extends AbstractWsBridgeSession<WsebSession, WsBuffer>
 
     }
 
+    void setEncodingStrategy(WsebEncodingStrategy encodingStrategy) {
+        this.encodingStrategy = encodingStrategy;
+    }
+
     private boolean checkWriterOrder(HttpAcceptSession session) {
         if (validateSequenceNo) {
             return checkOrder(session, writerSequenceNo);
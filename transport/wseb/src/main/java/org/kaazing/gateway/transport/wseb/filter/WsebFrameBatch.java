@@ -0,0 +1,42 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.wseb.filter;
+
+import java.util.List;
+
+import org.kaazing.gateway.transport.ws.WsMessage;
+
+/**
+ * Frames queued on a WSEB session that are encoded into a single buffer, so they are written to the
+ * downstream as a single HTTP chunk.
+ */
+public final class WsebFrameBatch {
+
+    private final List<WsMessage> frames;
+
+    public WsebFrameBatch(List<WsMessage> frames) {
+        this.frames = frames;
+    }
+
+    public List<WsMessage> getFrames() {
+        return frames;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BATCH: %d frames", frames.size());
+    }
+}
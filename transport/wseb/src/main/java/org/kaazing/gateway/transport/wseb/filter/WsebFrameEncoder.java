@@ -16,8 +16,13 @@
 package org.kaazing.gateway.transport.wseb.filter;
 
 import static org.kaazing.gateway.transport.bridge.CachingMessageEncoder.IO_MESSAGE_ENCODER;
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_ZERO_COPY;
 
 import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.mina.core.session.IoSession;
+import org.apache.mina.filter.codec.ProtocolEncoderOutput;
 
 import org.kaazing.gateway.transport.bridge.CachingMessageEncoder;
 import org.kaazing.gateway.transport.http.bridge.filter.HttpGzipEncoder;
@@ -63,6 +68,36 @@ public class WsebFrameEncoder extends AbstractWsFrameEncoder {
         super(cachingEncoder, allocator);
     }
 
+    @Override
+    public void encode(IoSession session, Object message, ProtocolEncoderOutput out) throws Exception {
+        if (message instanceof WsebFrameBatch) {
+            out.write(doBatchEncode((WsebFrameBatch) message));
+        }
+        else {
+            super.encode(session, message, out);
+        }
+    }
+
+    private IoBufferEx doBatchEncode(WsebFrameBatch batch) {
+        List<WsMessage> frames = batch.getFrames();
+        IoBufferEx[] encoded = new IoBufferEx[frames.size()];
+        int length = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = encode(frames.get(i));
+            length += encoded[i].remaining();
+        }
+
+        ByteBuffer bytes = allocator.allocate(length, FLAG_ZERO_COPY);
+        int offset = bytes.position();
+        for (IoBufferEx buf : encoded) {
+            // duplicate, as cached encodings are shared with other sessions
+            bytes.put(buf.buf().duplicate());
+        }
+        bytes.flip();
+        bytes.position(offset);
+        return allocator.wrap(bytes, FLAG_ZERO_COPY);
+    }
+
     @Override
     protected IoBufferEx doEncode(IoBufferAllocatorEx<?> allocator, int flags, WsMessage message) {
         switch (message.getKind()) {
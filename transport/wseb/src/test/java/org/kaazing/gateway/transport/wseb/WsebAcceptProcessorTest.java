@@ -0,0 +1,335 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.wseb;
+
+import static java.lang.Thread.currentThread;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.kaazing.mina.core.session.IoSessionEx.IMMEDIATE_EXECUTOR;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.mina.core.future.DefaultWriteFuture;
+import org.apache.mina.core.future.WriteFuture;
+import org.apache.mina.core.service.IoHandler;
+import org.apache.mina.core.session.DefaultIoSessionDataStructureFactory;
+import org.apache.mina.core.write.WriteRequest;
+import org.apache.mina.core.write.WriteRequestQueue;
+import org.jmock.Expectations;
+import org.jmock.Sequence;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.action.CustomAction;
+import org.jmock.lib.concurrent.Synchroniser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.kaazing.gateway.resource.address.ResourceAddress;
+import org.kaazing.gateway.resource.address.ResourceAddressFactory;
+import org.kaazing.gateway.transport.DefaultIoSessionConfigEx;
+import org.kaazing.gateway.transport.DefaultTransportMetadata;
+import org.kaazing.gateway.transport.http.HttpAcceptSession;
+import org.kaazing.gateway.transport.ws.WsBinaryMessage;
+import org.kaazing.gateway.transport.ws.WsCloseMessage;
+import org.kaazing.gateway.transport.ws.WsCommandMessage;
+import org.kaazing.gateway.transport.ws.WsMessage;
+import org.kaazing.gateway.transport.ws.WsTextMessage;
+import org.kaazing.gateway.transport.ws.extension.WebSocketExtension;
+import org.kaazing.gateway.transport.wseb.filter.WsebBufferAllocator;
+import org.kaazing.gateway.transport.wseb.filter.WsebFrameBatch;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.buffer.SimpleBufferAllocator;
+import org.kaazing.mina.core.future.DefaultWriteFutureEx;
+import org.kaazing.mina.core.service.IoServiceEx;
+import org.kaazing.mina.core.session.IoSessionEx;
+import org.kaazing.mina.core.write.DefaultWriteRequestEx;
+import org.kaazing.mina.core.write.DefaultWriteRequestEx.ShareableWriteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class WsebAcceptProcessorTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WsebAcceptProcessorTest.class);
+
+    @Rule
+    public final JUnitRuleMockery context = new JUnitRuleMockery() {
+        {
+            setThreadingPolicy(new Synchroniser());
+        }
+    };
+
+    private final IoServiceEx service = context.mock(IoServiceEx.class);
+    private final IoHandler handler = context.mock(IoHandler.class);
+    private final HttpAcceptSession writer = context.mock(HttpAcceptSession.class);
+    private final ScheduledExecutorService scheduler = context.mock(ScheduledExecutorService.class);
+
+    private TestWsebSession session;
+    private IoSessionEx transport;
+
+    @Before
+    public void setUp() throws Exception {
+        context.checking(new Expectations() {
+            {
+                allowing(service).getTransportMetadata(); will(returnValue(new DefaultTransportMetadata(WsebProtocol.NAME)));
+                allowing(service).getHandler(); will(returnValue(handler));
+                allowing(service).getSessionConfig(); will(returnValue(new DefaultIoSessionConfigEx()));
+                allowing(service).getThreadLocalWriteRequest(with(any(int.class))); will(returnValue(new ShareableWriteRequest()));
+                allowing(writer).getIoThread(); will(returnValue(currentThread()));
+                allowing(writer).isClosing(); will(returnValue(false));
+                allowing(writer).getAttribute(with(any(Object.class))); will(returnValue(null));
+            }
+        });
+    }
+
+    @Test
+    public void shouldWriteQueuedMessagesAsOneBatch() throws Exception {
+        WsebAcceptProcessor processor = newProcessor(65536, 0L);
+        WriteRequest first = enqueue(binary("first"));
+        WriteRequest second = enqueue(text("second"));
+        WriteRequest third = enqueue(binary("third"));
+
+        final WriteFuture batchFuture = new DefaultWriteFuture(writer);
+        final AtomicReference<WsebFrameBatch> batch = expectBatch(batchFuture);
+
+        processor.flushInternal(session);
+
+        assertEquals(asList(first.getMessage(), second.getMessage(), third.getMessage()), batch.get().getFrames());
+        assertNull(transport.getWriteRequestQueue().poll(transport));
+
+        batchFuture.setWritten();
+        assertTrue(first.getFuture().isWritten());
+        assertTrue(second.getFuture().isWritten());
+        assertTrue(third.getFuture().isWritten());
+    }
+
+    @Test
+    public void shouldFailEveryBatchedMessageWhenBatchFails() throws Exception {
+        WsebAcceptProcessor processor = newProcessor(65536, 0L);
+        WriteRequest first = enqueue(binary("first"));
+        WriteRequest second = enqueue(binary("second"));
+
+        final WriteFuture batchFuture = new DefaultWriteFuture(writer);
+        expectBatch(batchFuture);
+
+        processor.flushInternal(session);
+
+        IOException failure = new IOException("downstream reset");
+        batchFuture.setException(failure);
+        assertSame(failure, first.getFuture().getException());
+        assertSame(failure, second.getFuture().getException());
+    }
+
+    @Test
+    public void shouldWriteEachMessageWhenCoalescingDisabled() throws Exception {
+        WsebAcceptProcessor processor = newProcessor(0, 0L);
+        final WriteRequest first = enqueue(binary("first"));
+        final WriteRequest second = enqueue(binary("second"));
+
+        final Sequence writes = context.sequence("writes");
+        context.checking(new Expectations() {
+            {
+                oneOf(writer).write(first.getMessage()); inSequence(writes);
+                will(returnValue(DefaultWriteFuture.newWrittenFuture(writer)));
+                oneOf(writer).write(second.getMessage()); inSequence(writes);
+                will(returnValue(DefaultWriteFuture.newWrittenFuture(writer)));
+            }
+        });
+
+        processor.flushInternal(session);
+
+        assertTrue(first.getFuture().isWritten());
+        assertTrue(second.getFuture().isWritten());
+    }
+
+    @Test
+    public void shouldWriteBatchBeforeClose() throws Exception {
+        WsebAcceptProcessor processor = newProcessor(65536, 0L);
+        WriteRequest first = enqueue(binary("first"));
+        WriteRequest second = enqueue(binary("second"));
+        WriteRequest close = enqueue(new WsCloseMessage());
+        WriteRequest afterClose = enqueue(binary("after close"));
+
+        final Sequence writes = context.sequence("writes");
+        final WriteFuture batchFuture = new DefaultWriteFuture(writer);
+        final AtomicReference<WsebFrameBatch> batch = expectBatch(batchFuture, writes);
+        context.checking(new Expectations() {
+            {
+                oneOf(writer).write(WsCommandMessage.CLOSE); inSequence(writes);
+                oneOf(writer).write(WsCommandMessage.RECONNECT); inSequence(writes);
+                oneOf(writer).close(false); inSequence(writes);
+            }
+        });
+
+        processor.flushInternal(session);
+
+        // the close stopped the batch, and was written on its own once the batch was
+        assertEquals(asList(first.getMessage(), second.getMessage()), batch.get().getFrames());
+        assertTrue(close.getFuture().isWritten());
+        assertNull(session.getWriter());
+
+        // nothing is written after the close
+        assertSame(afterClose, transport.getWriteRequestQueue().poll(transport));
+        assertNull(transport.getWriteRequestQueue().poll(transport));
+    }
+
+    @Test
+    public void shouldWriteBatchBeforeReconnect() throws Exception {
+        WsebAcceptProcessor processor = newProcessor(65536, 0L);
+        WriteRequest first = enqueue(binary("first"));
+        WriteRequest second = enqueue(binary("second"));
+        enqueueReconnect();
+        WriteRequest afterReconnect = enqueue(binary("after reconnect"));
+
+        final Sequence writes = context.sequence("writes");
+        final WriteFuture batchFuture = new DefaultWriteFuture(writer);
+        final AtomicReference<WsebFrameBatch> batch = expectBatch(batchFuture, writes);
+        context.checking(new Expectations() {
+            {
+                oneOf(writer).write(WsCommandMessage.RECONNECT); inSequence(writes);
+                oneOf(writer).close(false); inSequence(writes);
+                // no pending writer yet, so wait for the client to reconnect
+                oneOf(scheduler).schedule(with(any(Runnable.class)), with(any(long.class)), with(MILLISECONDS));
+            }
+        });
+
+        processor.flushInternal(session);
+
+        assertEquals(asList(first.getMessage(), second.getMessage()), batch.get().getFrames());
+        assertNull(session.getWriter());
+
+        // the message queued after the reconnect is left for the next writer
+        assertSame(afterReconnect, transport.getWriteRequestQueue().poll(transport));
+        assertNull(transport.getWriteRequestQueue().poll(transport));
+    }
+
+    @Test
+    public void shouldCoalesceMessagesWrittenDuringDelay() throws Exception {
+        WsebAcceptProcessor processor = newProcessor(65536, 10L);
+        final AtomicReference<Runnable> deferredFlush = new AtomicReference<>();
+        context.checking(new Expectations() {
+            {
+                oneOf(scheduler).schedule(with(any(Runnable.class)), with(10L), with(MILLISECONDS));
+                will(new CustomAction("capture deferred flush") {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        deferredFlush.set((Runnable) invocation.getParameter(0));
+                        return null;
+                    }
+                });
+            }
+        });
+
+        WriteRequest first = enqueue(binary("first"));
+        processor.flushInternal(session);
+        WriteRequest second = enqueue(binary("second"));
+        processor.flushInternal(session);
+
+        // nothing written until the delay elapses, and only one flush is scheduled for both
+        final WriteFuture batchFuture = new DefaultWriteFuture(writer);
+        final AtomicReference<WsebFrameBatch> batch = expectBatch(batchFuture);
+
+        deferredFlush.get().run();
+
+        assertEquals(asList(first.getMessage(), second.getMessage()), batch.get().getFrames());
+        batchFuture.setWritten();
+        assertTrue(first.getFuture().isWritten());
+        assertTrue(second.getFuture().isWritten());
+    }
+
+    private WsebAcceptProcessor newProcessor(int writeCoalescingMaximumBytes, long writeCoalescingDelay) {
+        WsebAcceptProcessor processor = new WsebAcceptProcessor(scheduler, LOGGER, writeCoalescingMaximumBytes,
+                writeCoalescingDelay);
+
+        ResourceAddressFactory addressFactory = ResourceAddressFactory.newResourceAddressFactory();
+        ResourceAddress localAddress = addressFactory.newResourceAddress("wse://localhost:8000/echo");
+        ResourceAddress remoteAddress = addressFactory.newResourceAddress("wse://localhost:42342/echo");
+        session = new TestWsebSession(service, processor, localAddress, remoteAddress);
+        session.setWriteRequestQueue(new DefaultIoSessionDataStructureFactory().getWriteRequestQueue(session));
+        session.setWriter(writer);
+        transport = session.getTransportSession();
+        return processor;
+    }
+
+    private AtomicReference<WsebFrameBatch> expectBatch(final WriteFuture batchFuture) {
+        return expectBatch(batchFuture, context.sequence("batch"));
+    }
+
+    private AtomicReference<WsebFrameBatch> expectBatch(final WriteFuture batchFuture, final Sequence sequence) {
+        final AtomicReference<WsebFrameBatch> batch = new AtomicReference<>();
+        context.checking(new Expectations() {
+            {
+                oneOf(writer).write(with(any(WsebFrameBatch.class))); inSequence(sequence);
+                will(new CustomAction("capture batch") {
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        batch.set((WsebFrameBatch) invocation.getParameter(0));
+                        return batchFuture;
+                    }
+                });
+            }
+        });
+        return batch;
+    }
+
+    private WriteRequest enqueue(WsMessage message) {
+        WriteRequest request = new DefaultWriteRequestEx(message, new DefaultWriteFutureEx(session));
+        transport.getWriteRequestQueue().offer(transport, request);
+        return request;
+    }
+
+    private void enqueueReconnect() {
+        // the reconnect marker is passed on to the transport session by the WSEB session processor
+        session.enqueueReconnectRequest();
+        WriteRequestQueue queue = session.getWriteRequestQueue();
+        transport.getWriteRequestQueue().offer(transport, queue.poll(session));
+    }
+
+    private static WsMessage binary(String payload) {
+        return new WsBinaryMessage(wrap(payload));
+    }
+
+    private static WsMessage text(String payload) {
+        return new WsTextMessage(wrap(payload));
+    }
+
+    private static IoBufferEx wrap(String payload) {
+        // flushed buffers are reset once written, as by the WSEB session processor
+        return SimpleBufferAllocator.BUFFER_ALLOCATOR.wrap(ByteBuffer.wrap(payload.getBytes())).mark();
+    }
+
+    private static final class TestWsebSession extends WsebSession {
+
+        TestWsebSession(IoServiceEx service, WsebAcceptProcessor processor, ResourceAddress localAddress,
+                        ResourceAddress remoteAddress) {
+            super(0, currentThread(), IMMEDIATE_EXECUTOR, service, processor, localAddress, remoteAddress,
+                    new WsebBufferAllocator(SimpleBufferAllocator.BUFFER_ALLOCATOR), null, 0, 0L, false, 0L,
+                    Collections.<WebSocketExtension>emptyList(), LOGGER, new Properties());
+        }
+
+        void setWriter(HttpAcceptSession writer) {
+            compareAndSetParent(null, writer);
+        }
+    }
+}
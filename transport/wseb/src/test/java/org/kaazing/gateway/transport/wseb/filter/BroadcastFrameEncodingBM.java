@@ -0,0 +1,128 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.wseb.filter;
+
+import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_SHARED;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.mina.filter.codec.ProtocolEncoder;
+import org.kaazing.gateway.transport.BridgeCodecSession;
+import org.kaazing.gateway.transport.ws.WsMessage;
+import org.kaazing.gateway.transport.ws.WsTextMessage;
+import org.kaazing.gateway.transport.ws.bridge.filter.WsFrameEncoder;
+import org.kaazing.mina.core.buffer.IoBufferAllocatorEx;
+import org.kaazing.mina.core.buffer.IoBufferEx;
+import org.kaazing.mina.core.buffer.SimpleBufferAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of framing one broadcast message for a growing number of subscribers spread evenly
+ * over the ws, wseb and escaped wseb wire formats, with and without the shared message encoding cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class BroadcastFrameEncodingBM {
+
+    private static final IoBufferAllocatorEx<?> ALLOCATOR = SimpleBufferAllocator.BUFFER_ALLOCATOR;
+
+    @Param({"1", "100", "10000"})
+    private int subscribers;
+
+    @Param({"128", "4096"})
+    private int messageSize;
+
+    private byte[] payload;
+    private BridgeCodecSession[] sessions;
+    private ProtocolEncoder[] encoders;
+
+    @Setup
+    public void init() {
+        payload = new byte[messageSize];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) ('a' + (i % 26));
+        }
+
+        BridgeCodecSession ws = new BridgeCodecSession("ws");
+        BridgeCodecSession wseb = new BridgeCodecSession("wseb");
+        BridgeCodecSession wsebEscape = new BridgeCodecSession("wseb-escape");
+
+        sessions = new BridgeCodecSession[] { ws, wseb, wsebEscape };
+        encoders = new ProtocolEncoder[] {
+            new WsFrameEncoder(ws.getMessageEncoder(), ALLOCATOR, false),
+            new WsebFrameEncoder(wseb.getMessageEncoder(), ALLOCATOR),
+            new WsebFrameEscapeZeroAndNewLineEncoder(wsebEscape.getMessageEncoder(), ALLOCATOR)
+        };
+    }
+
+    @Benchmark
+    public int broadcastShared() throws Exception {
+        WsMessage message = newMessage();
+        message.initCache();
+        return broadcast(message);
+    }
+
+    @Benchmark
+    public int broadcastUnshared() throws Exception {
+        return broadcast(newMessage());
+    }
+
+    private WsMessage newMessage() {
+        IoBufferEx buf = ALLOCATOR.wrap(ALLOCATOR.allocate(payload.length), FLAG_SHARED);
+        int pos = buf.position();
+        buf.put(payload);
+        buf.position(pos);
+        return new WsTextMessage(buf);
+    }
+
+    private int broadcast(WsMessage message) throws Exception {
+        int written = 0;
+        for (int i = 0; i < subscribers; i++) {
+            int format = i % sessions.length;
+            BridgeCodecSession session = sessions[format];
+            encoders[format].encode(session, message, session.getEncoderOutput());
+            IoBufferEx out = (IoBufferEx) session.getEncoderOutputQueue().poll();
+            written += out.remaining();
+        }
+        return written;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(BroadcastFrameEncodingBM.class.getSimpleName())
+                .build();
+
+        new Runner(opt).run();
+    }
+}
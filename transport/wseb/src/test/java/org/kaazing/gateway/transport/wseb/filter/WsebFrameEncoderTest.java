@@ -18,12 +18,14 @@ package org.kaazing.gateway.transport.wseb.filter;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_SHARED;
 import static org.kaazing.mina.core.buffer.IoBufferEx.FLAG_ZERO_COPY;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 
 import org.apache.mina.core.buffer.IoBuffer;
 import org.apache.mina.filter.codec.ProtocolEncoder;
@@ -93,6 +95,36 @@ public class WsebFrameEncoderTest {
         assertSame(buf.array(), out.array());
     }
 
+    @Test
+    public void testEncodeFrameBatch() throws Exception {
+        ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
+        IoBufferAllocatorEx<?> allocator = session.getBufferAllocator();
+        ProtocolEncoder encoder = new WsebFrameEncoder(allocator);
+
+        WsebBufferAllocator wsAllocator = new WsebBufferAllocator(allocator);
+        IoBufferEx binary = wsAllocator.wrap(wsAllocator.allocate(200, FLAG_ZERO_COPY)).fillAndReset((byte)0x97, 200);
+        IoBufferEx text = allocator.wrap(ByteBuffer.wrap("Hello".getBytes(UTF_8)));
+        WsebFrameBatch in = new WsebFrameBatch(Arrays.<WsMessage>asList(new WsBinaryMessage(binary),
+                                                                       new WsTextMessage(text)));
+
+        encoder.encode(session, in, session.getEncoderOutput());
+
+        IoBufferEx out = (IoBufferEx) session.getEncoderOutputQueue().poll();
+        assertEquals(allocator.wrap(allocator.allocate(210))
+                              .put((byte)0x80)
+                              .put((byte)-0x7f)
+                              .put((byte)0x48)
+                              .fill((byte)0x97, 200)
+                              .put((byte)0x81)
+                              .put((byte)0x05)
+                              .put("Hello".getBytes(UTF_8))
+                              .flip(),
+                     out);
+        assertNull(session.getEncoderOutputQueue().poll());
+        assertEquals(200, binary.remaining());
+        assertEquals(5, text.remaining());
+    }
+
     @Test
     public void testEncodeCloseCommandMessage() throws Exception {
         ProtocolCodecSessionEx session = new ProtocolCodecSessionEx();
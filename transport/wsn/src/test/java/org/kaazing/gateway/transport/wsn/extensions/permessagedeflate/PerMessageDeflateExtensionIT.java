@@ -0,0 +1,85 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.transport.wsn.extensions.permessagedeflate;
+
+import static org.kaazing.test.util.ITUtil.createRuleChain;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.kaazing.gateway.server.test.GatewayRule;
+import org.kaazing.gateway.server.test.config.GatewayConfiguration;
+import org.kaazing.gateway.server.test.config.builder.GatewayConfigurationBuilder;
+import org.kaazing.gateway.transport.ws.WsSystemProperty;
+import org.kaazing.k3po.junit.annotation.Specification;
+import org.kaazing.k3po.junit.rules.K3poRule;
+
+public class PerMessageDeflateExtensionIT {
+
+    private final K3poRule robot = new K3poRule();
+
+    public GatewayRule gateway = new GatewayRule() {
+        {
+            GatewayConfiguration configuration = new GatewayConfigurationBuilder()
+                    .service()
+                        .accept("wsn://localhost:8001/echo")
+                        .type("echo")
+
+                        .crossOrigin()
+                            .allowOrigin("*")
+                        .done()
+                    .done()
+
+                .done();
+
+            init(configuration);
+        }
+    };
+
+    @Rule
+    public TestRule chain = createRuleChain(gateway, robot);
+
+    @BeforeClass
+    public static void enablePerMessageDeflate() {
+        System.setProperty(WsSystemProperty.WS_PERMESSAGE_DEFLATE_ENABLED.getPropertyName(), "true");
+    }
+
+    @AfterClass
+    public static void disablePerMessageDeflate() {
+        System.clearProperty(WsSystemProperty.WS_PERMESSAGE_DEFLATE_ENABLED.getPropertyName());
+    }
+
+    @Specification("shouldEchoCompressedMessagesWithContextTakeover")
+    @Test
+    public void shouldEchoCompressedMessagesWithContextTakeover() throws Exception {
+        robot.finish();
+    }
+
+    @Specification("shouldEchoCompressedMessagesWithoutServerContextTakeover")
+    @Test
+    public void shouldEchoCompressedMessagesWithoutServerContextTakeover() throws Exception {
+        robot.finish();
+    }
+
+    @Specification("shouldDeclineSmallerServerMaxWindowBits")
+    @Test
+    public void shouldDeclineSmallerServerMaxWindowBits() throws Exception {
+        robot.finish();
+    }
+
+}
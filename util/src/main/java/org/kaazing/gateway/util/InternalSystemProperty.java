@@ -43,6 +43,15 @@ public enum InternalSystemProperty {
     // to conform with the WSE specification
     WSE_SPECIFICATION("com.kaazing.gateway.server.transport.wse.SPECIFICATION", "false"),
 
+    // Maximum number of payload bytes of queued messages coalesced into a single WSEB downstream write
+    WSEB_WRITE_COALESCING_MAXIMUM_BYTES
+            ("org.kaazing.gateway.transport.wseb.WRITE_COALESCING_MAXIMUM_BYTES", "65536"),
+
+    // How long a WSEB downstream flush is deferred to coalesce it with the messages written in the meantime,
+    // zero (the default) flushes immediately
+    WSEB_WRITE_COALESCING_DELAY
+            ("org.kaazing.gateway.transport.wseb.WRITE_COALESCING_DELAY", "0"),
+
     // Next property is to allow us to safely introduce changes
     // to conform with the httpxe specification
     HTTPXE_SPECIFICATION("com.kaazing.gateway.server.transport.httpxe.SPECIFICATION", "false"),
@@ -97,6 +106,43 @@ public enum InternalSystemProperty {
     CONNECT_FOLLOW_REDIRECT_WITH_QUERY
             ("org.kaazing.gateway.transport.http.CONNECT_FOLLOW_REDIRECT_WITH_QUERY", "false"),
 
+    // How long a successful login is reused for requests presenting the same token to the same realm,
+    // zero (the default) disables the cache
+    HTTP_LOGIN_CACHE_TTL
+            ("org.kaazing.gateway.transport.http.LOGIN_CACHE_TTL", "0"),
+
+    // Maximum number of cached logins per realm
+    HTTP_LOGIN_CACHE_MAXIMUM_ENTRIES
+            ("org.kaazing.gateway.transport.http.LOGIN_CACHE_MAXIMUM_ENTRIES", "10000"),
+
+    // Maximum number of TLS sessions kept for resumption by reconnecting clients, 1 (the default)
+    // effectively disables resumption and 0 means no limit
+    SSL_SESSION_CACHE_SIZE
+            ("org.kaazing.gateway.transport.ssl.SESSION_CACHE_SIZE", "1"),
+
+    // How long after its full handshake a cached TLS session can still be resumed
+    SSL_SESSION_TIMEOUT
+            ("org.kaazing.gateway.transport.ssl.SESSION_TIMEOUT", "5 minutes"),
+
+    // Number of threads running the delegated tasks of TLS handshakes off the I/O threads,
+    // zero (the default) runs them on the I/O thread of each connection
+    SSL_HANDSHAKE_THREADS
+            ("org.kaazing.gateway.transport.ssl.HANDSHAKE_THREADS", "0"),
+
+    // Maximum number of TLS handshakes waiting for a handshake thread, beyond which their tasks run on the I/O thread
+    SSL_HANDSHAKE_QUEUE_DEPTH
+            ("org.kaazing.gateway.transport.ssl.HANDSHAKE_QUEUE_DEPTH", "1000"),
+
+    // security
+    // Maximum number of concurrent logins to each realm; when neither this nor LOGIN_QUEUE_DEPTH is set,
+    // logins run unbounded on the shared scheduler
+    LOGIN_CONCURRENCY
+            ("org.kaazing.gateway.security.LOGIN_CONCURRENCY", Integer.toString(getRuntime().availableProcessors())),
+
+    // Maximum number of logins to each realm waiting for a login in progress, beyond which logins are rejected
+    LOGIN_QUEUE_DEPTH
+            ("org.kaazing.gateway.security.LOGIN_QUEUE_DEPTH", "1000"),
+
     // services
     BROADCAST_SERVICE_MAXIMUM_PENDING_BYTES
             ("org.kaazing.gateway.server.service.broadcast.MAXIMUM_PENDING_BYTES"),
@@ -0,0 +1,170 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.util.concurrent;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs tasks on at most a fixed number of daemon threads, queueing at most a fixed number of tasks beyond those
+ * in progress. Tasks executed when the queue is full are rejected with a {@link RejectedExecutionException},
+ * leaving the caller to decide whether to shed load or run them itself.
+ * <p/>
+ * Counts the tasks completed and rejected, and measures the time tasks spend queued and running.
+ */
+public final class BoundedExecutor implements Executor {
+
+    private final int threadCount;
+    private final int queueDepth;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder rejectedTasks = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalRunNanos = new LongAdder();
+
+    /**
+     * @param threadNamePrefix  the name of each thread, followed by its number
+     * @param threadCount       the number of threads running tasks
+     * @param queueDepth        the maximum number of tasks waiting for a thread, zero for none
+     */
+    public BoundedExecutor(final String threadNamePrefix, int threadCount, int queueDepth) {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("threadCount must be positive");
+        }
+        if (queueDepth < 0) {
+            throw new IllegalArgumentException("queueDepth must not be negative");
+        }
+        this.threadCount = threadCount;
+        this.queueDepth = queueDepth;
+
+        ThreadFactory threadFactory = new ThreadFactory() {
+            final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, threadNamePrefix + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        // LinkedBlockingQueue requires a positive capacity, so hand off directly to a thread when there is no queue
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 60L, SECONDS,
+                (queueDepth > 0) ? new LinkedBlockingQueue<>(queueDepth) : new SynchronousQueue<>(),
+                threadFactory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        try {
+            executor.execute(new TimedTask(task));
+        } catch (RejectedExecutionException e) {
+            rejectedTasks.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs a task on the calling thread, typically one just rejected, measured as a task that did not wait.
+     */
+    public void runInCaller(Runnable task) {
+        new TimedTask(task).run();
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getQueuedTaskCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveTaskCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return the number of tasks completed, including those run in the caller
+     */
+    public long getCompletedTaskCount() {
+        return completedTasks.sum();
+    }
+
+    public long getRejectedTaskCount() {
+        return rejectedTasks.sum();
+    }
+
+    /**
+     * @return the average time completed tasks spent queued, in milliseconds
+     */
+    public double getAverageWaitTime() {
+        return average(totalWaitNanos.sum());
+    }
+
+    /**
+     * @return the average time completed tasks took to run, in milliseconds
+     */
+    public double getAverageRunTime() {
+        return average(totalRunNanos.sum());
+    }
+
+    public void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    private double average(long totalNanos) {
+        long completed = completedTasks.sum();
+        return (completed == 0) ? 0.0 : (double) totalNanos / NANOSECONDS.convert(1, MILLISECONDS) / completed;
+    }
+
+    private final class TimedTask implements Runnable {
+        private final Runnable task;
+        private final long submitTime;
+
+        TimedTask(Runnable task) {
+            this.task = task;
+            this.submitTime = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            long startTime = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                long endTime = System.nanoTime();
+                totalWaitNanos.add(startTime - submitTime);
+                totalRunNanos.add(endTime - startTime);
+                completedTasks.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2007-2016, Kaazing Corporation. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kaazing.gateway.util.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class BoundedExecutorTest {
+
+    private final BoundedExecutor executor = new BoundedExecutor("bounded-", 1, 1);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldRejectTasksBeyondQueueDepth() throws Exception {
+        CountDownLatch taskStarted = new CountDownLatch(1);
+        CountDownLatch taskBlocked = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            taskStarted.countDown();
+            await(taskBlocked);
+        });
+        taskStarted.await();
+        executor.execute(() -> { });
+        assertEquals(1, executor.getActiveTaskCount());
+        assertEquals(1, executor.getQueuedTaskCount());
+
+        try {
+            executor.execute(() -> { });
+            fail("task should have been rejected");
+        } catch (RejectedExecutionException e) {
+            assertEquals(1, executor.getRejectedTaskCount());
+        }
+        taskBlocked.countDown();
+    }
+
+    @Test
+    public void shouldHandOffWithoutQueue() throws Exception {
+        BoundedExecutor unqueued = new BoundedExecutor("unqueued-", 1, 0);
+        try {
+            CountDownLatch taskBlocked = new CountDownLatch(1);
+            unqueued.execute(() -> await(taskBlocked));
+            try {
+                unqueued.execute(() -> { });
+                fail("task should have been rejected");
+            } catch (RejectedExecutionException e) {
+                assertEquals(1, unqueued.getRejectedTaskCount());
+            }
+            taskBlocked.countDown();
+        } finally {
+            unqueued.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldMeasureTasks() throws Exception {
+        CountDownLatch taskDone = new CountDownLatch(1);
+        executor.execute(() -> {
+            sleep(20);
+            taskDone.countDown();
+        });
+        taskDone.await();
+        // the task is only counted once it returns
+        while (executor.getCompletedTaskCount() == 0) {
+            Thread.sleep(1);
+        }
+
+        assertTrue(executor.getAverageRunTime() >= 20.0);
+        assertTrue(executor.getAverageWaitTime() >= 0.0);
+    }
+
+    @Test
+    public void shouldRunInCaller() throws Exception {
+        Thread[] runner = new Thread[1];
+        executor.runInCaller(() -> runner[0] = Thread.currentThread());
+
+        assertSame(Thread.currentThread(), runner[0]);
+        assertEquals(1L, executor.getCompletedTaskCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}